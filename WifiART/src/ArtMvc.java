@@ -14,6 +14,7 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
+import batch.BatchCommand;
 import structs.ArtSystemState;
 import userinterface.ArtMvcController;
 import userinterface.ArtMvcModel;
@@ -28,6 +29,11 @@ import userinterface.ZController;
 public class ArtMvc {
 
     public static void main(String[] args) {
+        // Encode a CSV file of access points without the GUI
+        if (args.length > 0 && args[0].equals(BatchCommand.OPTION)) {
+            System.exit(BatchCommand.run(args, System.err));
+        }
+
         // Establish the system state
         final ArtSystemState state = new ArtSystemState();
 
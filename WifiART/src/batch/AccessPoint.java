@@ -0,0 +1,57 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import structs.ArtSystemState;
+
+/**
+ * An access point of a fleet: its BSSID, and the system state holding its subelements.
+ */
+public final class AccessPoint {
+
+    private final String bssid;
+    private final ArtSystemState state;
+
+    /**
+     * Constructor.
+     *
+     * @param bssid the BSSID identifying the access point
+     * @param state the system state, with the subelements to encode included
+     */
+    public AccessPoint(String bssid, ArtSystemState state) {
+        this.bssid = bssid;
+        this.state = state;
+    }
+
+    /**
+     * Gets the BSSID identifying the access point.
+     *
+     * @return the BSSID
+     */
+    public String getBssid() {
+        return bssid;
+    }
+
+    /**
+     * Gets the system state of the access point.
+     *
+     * @return the system state
+     */
+    public ArtSystemState getState() {
+        return state;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.DatumConverter;
+import geodesy.LocalFrame;
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.BssidState;
+import structs.CivicAddressElementKeys;
+import structs.CountryCodes;
+import structs.ExpectedToMove;
+import structs.LanguageCodes;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.MapState;
+import structs.ZState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maps the columns of an access point CSV file onto the subelement states, using the header
+ * record to find each column.
+ *
+ * <p>Recognized columns, in any order (only "bssid" is required):
+ * <ul>
+ *   <li>"bssid": the BSSID identifying the access point</li>
+ *   <li>"latitude", "latitude_uncertainty", "longitude", "longitude_uncertainty" (degrees),
+ *       "altitude" and "altitude_uncertainty" (meters): the LCI subelement</li>
+ *   <li>"east", "north" and "up" (meters), with "origin_latitude", "origin_longitude" (degrees)
+ *       and "origin_altitude" (meters above the WGS84 ellipsoid): the location of the LCI
+ *       subelement in the local frame of a surveyed origin, instead of "latitude", "longitude"
+ *       and "altitude"</li>
+ *   <li>"map_datum" ("WGS84", "NAD83_NAVD88" or "NAD83_MLLW", or their encoding) and
+ *       "vertical_datum_height" (meters): the map datum of "latitude", "longitude" and "altitude",
+ *       WGS84 by default, and the height of its vertical datum above the NAD83 ellipsoid, needed
+ *       to convert an altitude to another map datum</li>
+ *   <li>"floor", "height_above_floor" and "height_above_floor_uncertainty" (meters): the Z
+ *       subelement, for an access point that is not expected to move</li>
+ *   <li>"colocated_bssids" (separated by ';') and "max_bssid_indicator": the BSSID List
+ *       subelement</li>
+ *   <li>"country", "language" and "civic:&lt;address element&gt;" (e.g. "civic:City"): the
+ *       Location Civic subelement, with country and language given by name or by code</li>
+ *   <li>"map_type" and "map_url": the Map Image subelement</li>
+ * </ul>
+ *
+ * <p>A subelement is included in the output only if its main column ("latitude" or "east", "floor",
+ * "colocated_bssids", "country" or "map_url") is not empty. The local frame of the last origin is
+ * kept, as the records of a building usually share their origin.
+ */
+public final class AccessPointColumns {
+    // Column names, in the order of the column constants below
+    private static final String[] COLUMN_NAMES = {
+        "bssid", "latitude", "latitude_uncertainty", "longitude", "longitude_uncertainty", "altitude",
+        "altitude_uncertainty", "floor", "height_above_floor", "height_above_floor_uncertainty",
+        "colocated_bssids", "max_bssid_indicator", "country", "language", "map_type", "map_url", "east", "north",
+        "up", "origin_latitude", "origin_longitude", "origin_altitude", "map_datum", "vertical_datum_height"
+    };
+    private static final String CIVIC_PREFIX = "civic:";
+
+    // Columns
+    private static final int BSSID = 0;
+    private static final int LATITUDE = 1;
+    private static final int LATITUDE_UNCERTAINTY = 2;
+    private static final int LONGITUDE = 3;
+    private static final int LONGITUDE_UNCERTAINTY = 4;
+    private static final int ALTITUDE = 5;
+    private static final int ALTITUDE_UNCERTAINTY = 6;
+    private static final int FLOOR = 7;
+    private static final int HEIGHT_ABOVE_FLOOR = 8;
+    private static final int HEIGHT_ABOVE_FLOOR_UNCERTAINTY = 9;
+    private static final int COLOCATED_BSSIDS = 10;
+    private static final int MAX_BSSID_INDICATOR = 11;
+    private static final int COUNTRY = 12;
+    private static final int LANGUAGE = 13;
+    private static final int MAP_TYPE = 14;
+    private static final int MAP_URL = 15;
+    private static final int EAST = 16;
+    private static final int NORTH = 17;
+    private static final int UP = 18;
+    private static final int ORIGIN_LATITUDE = 19;
+    private static final int ORIGIN_LONGITUDE = 20;
+    private static final int ORIGIN_ALTITUDE = 21;
+    private static final int MAP_DATUM = 22;
+    private static final int VERTICAL_DATUM_HEIGHT = 23;
+
+    // Constants
+    private static final String BSSID_SEPARATOR = ";";
+    private static final String DEFAULT_LANGUAGE = "English";
+    private static final String DEFAULT_MAP_TYPE = "URL Defined";
+
+    // Error messages
+    private static final String ERROR_UNKNOWN_COLUMN = "Unknown column: ";
+    private static final String ERROR_DUPLICATE_COLUMN = "Duplicate column: ";
+    private static final String ERROR_MISSING_BSSID_COLUMN = "Missing column: " + COLUMN_NAMES[BSSID];
+    private static final String ERROR_UNKNOWN_ADDRESS_ELEMENT = "Unknown civic address element: ";
+    private static final String ERROR_MISSING_BSSID = "Missing BSSID";
+    private static final String ERROR_UNKNOWN_COUNTRY = "Unknown country: ";
+    private static final String ERROR_UNKNOWN_LANGUAGE = "Unknown language: ";
+    private static final String ERROR_MISSING_ORIGIN = "Missing origin of the local position";
+    private static final String ERROR_UNKNOWN_MAP_DATUM = "Unknown map datum: ";
+
+    /** The index of each column of COLUMN_NAMES in a record, or -1 if it is absent. */
+    private final int[] columnIndices = new int[COLUMN_NAMES.length];
+    private final int[] civicColumnIndices;
+    private final String[] civicAddressElementKeys;
+
+    // The local frame of the last origin
+    private LocalFrame localFrame;
+    private double localFrameLatitude;
+    private double localFrameLongitude;
+    private double localFrameAltitude;
+
+    private DatumConverter datumConverter;
+
+    /**
+     * Constructs the column mapping from the header record.
+     *
+     * @param header the column names
+     * @throws IllegalArgumentException if a column is unknown or repeated, or the BSSID column is missing
+     */
+    public AccessPointColumns(List<String> header) throws IllegalArgumentException {
+        Arrays.fill(columnIndices, -1);
+        List<Integer> civicIndices = new ArrayList<>();
+        List<String> civicKeys = new ArrayList<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            if (name.startsWith(CIVIC_PREFIX)) {
+                String key = name.substring(CIVIC_PREFIX.length());
+                if (!CivicAddressElementKeys.ADDRESS_ELEMENT_LIST.contains(key)) {
+                    throw new IllegalArgumentException(ERROR_UNKNOWN_ADDRESS_ELEMENT + key);
+                }
+                if (civicKeys.contains(key)) {
+                    throw new IllegalArgumentException(ERROR_DUPLICATE_COLUMN + name);
+                }
+                civicIndices.add(i);
+                civicKeys.add(key);
+                continue;
+            }
+            int column = findColumn(name);
+            if (column < 0) {
+                throw new IllegalArgumentException(ERROR_UNKNOWN_COLUMN + name);
+            }
+            if (columnIndices[column] >= 0) {
+                throw new IllegalArgumentException(ERROR_DUPLICATE_COLUMN + name);
+            }
+            columnIndices[column] = i;
+        }
+        if (columnIndices[BSSID] < 0) {
+            throw new IllegalArgumentException(ERROR_MISSING_BSSID_COLUMN);
+        }
+        civicColumnIndices = new int[civicIndices.size()];
+        for (int i = 0; i < civicColumnIndices.length; i++) {
+            civicColumnIndices[i] = civicIndices.get(i);
+        }
+        civicAddressElementKeys = civicKeys.toArray(new String[0]);
+    }
+
+    private static int findColumn(String name) {
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            if (COLUMN_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the BSSID identifying the access point of a record.
+     *
+     * @param record the fields of the record
+     * @return the BSSID
+     * @throws IllegalArgumentException if the BSSID is empty
+     */
+    public String getBssid(List<String> record) throws IllegalArgumentException {
+        String bssid = get(record, BSSID);
+        if (bssid.isEmpty()) {
+            throw new IllegalArgumentException(ERROR_MISSING_BSSID);
+        }
+        return bssid;
+    }
+
+    /**
+     * Checks whether a record belongs to a given access point.
+     *
+     * @param record the fields of the record
+     * @param bssid the BSSID identifying the access point
+     * @return true if the record has the same BSSID
+     */
+    public boolean hasBssid(List<String> record, String bssid) {
+        return get(record, BSSID).equals(bssid);
+    }
+
+    /**
+     * Makes the locations of the next records converted to a map datum.
+     *
+     * @param datumConverter the converter to the map datum, or null to keep the map datum of each
+     *                       record
+     */
+    public void setDatumConverter(DatumConverter datumConverter) {
+        this.datumConverter = datumConverter;
+    }
+
+    /**
+     * Builds the system state described by a record.
+     *
+     * @param record the fields of the record
+     * @return a new system state, with the subelements given in the record included
+     * @throws IllegalArgumentException if a value is not valid (NumberFormatException for numbers)
+     */
+    public ArtSystemState toSystemState(List<String> record) throws IllegalArgumentException {
+        ArtSystemState state = new ArtSystemState();
+        addTo(record, state);
+        return state;
+    }
+
+    /**
+     * Adds the values of a record to the system state of an access point, e.g. for the further
+     *  BSSIDs or the address in another language given on the following records of a survey.
+     *  Subelement parameters are overwritten, while BSSIDs and civic address elements are added.
+     *
+     * @param record the fields of the record
+     * @param state the system state of the access point
+     * @throws IllegalArgumentException if a value is not valid (NumberFormatException for numbers)
+     */
+    public void addTo(List<String> record, ArtSystemState state) throws IllegalArgumentException {
+        if (!get(record, LATITUDE).isEmpty() || !get(record, EAST).isEmpty()) {
+            setLciState(record, state.getLciState());
+            state.setLciIncluded(true);
+        }
+        if (!get(record, FLOOR).isEmpty()) {
+            setZState(record, state.getZState());
+            state.setZIncluded(true);
+        }
+        if (!get(record, COLOCATED_BSSIDS).isEmpty()) {
+            setBssidState(record, state.getBssidState());
+            state.setBssidIncluded(true);
+        }
+        if (!get(record, COUNTRY).isEmpty()) {
+            setLcrState(record, state.getLcrState());
+            state.setLcrIncluded(true);
+        }
+        if (!get(record, MAP_URL).isEmpty()) {
+            setMapState(record, state.getMapState());
+            state.setMapIncluded(true);
+        }
+    }
+
+    private void setLciState(List<String> record, LciState state) {
+        state.setLatitudeUncertainty(getDouble(record, LATITUDE_UNCERTAINTY));
+        state.setLongitudeUncertainty(getDouble(record, LONGITUDE_UNCERTAINTY));
+        if (get(record, LATITUDE).isEmpty()) {
+            getLocalFrame(record).setLocation(state, Double.parseDouble(get(record, EAST)),
+                getDouble(record, NORTH), getDouble(record, UP));
+            state.setAltitudeUncertainty(getDouble(record, ALTITUDE_UNCERTAINTY));
+        } else {
+            state.setLatitude(Double.parseDouble(get(record, LATITUDE)));
+            state.setLongitude(Double.parseDouble(get(record, LONGITUDE)));
+            if (!get(record, ALTITUDE).isEmpty()) {
+                state.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+                state.setAltitude(getDouble(record, ALTITUDE));
+                state.setAltitudeUncertainty(getDouble(record, ALTITUDE_UNCERTAINTY));
+            }
+            String mapDatum = get(record, MAP_DATUM);
+            state.setMapDatum(mapDatum.isEmpty() ? MapDatum.WGS84 : parseMapDatum(mapDatum));
+        }
+        if (datumConverter != null) {
+            String verticalDatumHeight = get(record, VERTICAL_DATUM_HEIGHT);
+            datumConverter.convert(state,
+                verticalDatumHeight.isEmpty() ? Double.NaN : Double.parseDouble(verticalDatumHeight));
+        }
+    }
+
+    /**
+     * Parses a map datum, given by name or by encoding.
+     *
+     * @param value the name or encoding of the map datum
+     * @return the map datum
+     * @throws IllegalArgumentException if the map datum is unknown
+     */
+    static MapDatum parseMapDatum(String value) throws IllegalArgumentException {
+        for (MapDatum mapDatum : MapDatum.values()) {
+            if (mapDatum.name().equals(value.toUpperCase(Locale.ROOT))
+                || Integer.toString(mapDatum.getEncoding()).equals(value)) {
+                return mapDatum;
+            }
+        }
+        throw new IllegalArgumentException(ERROR_UNKNOWN_MAP_DATUM + value);
+    }
+
+    /**
+     * Gets the local frame of the origin of a record, reusing the frame of the previous origin if
+     *  it is the same.
+     *
+     * @param record the fields of the record
+     * @return the local frame
+     * @throws IllegalArgumentException if the latitude or longitude of the origin is missing
+     */
+    private LocalFrame getLocalFrame(List<String> record) throws IllegalArgumentException {
+        if (get(record, ORIGIN_LATITUDE).isEmpty() || get(record, ORIGIN_LONGITUDE).isEmpty()) {
+            throw new IllegalArgumentException(ERROR_MISSING_ORIGIN);
+        }
+        double latitude = Double.parseDouble(get(record, ORIGIN_LATITUDE));
+        double longitude = Double.parseDouble(get(record, ORIGIN_LONGITUDE));
+        double altitude = getDouble(record, ORIGIN_ALTITUDE);
+        if (localFrame == null || latitude != localFrameLatitude || longitude != localFrameLongitude
+            || altitude != localFrameAltitude) {
+            localFrame = new LocalFrame(latitude, longitude, altitude);
+            localFrameLatitude = latitude;
+            localFrameLongitude = longitude;
+            localFrameAltitude = altitude;
+        }
+        return localFrame;
+    }
+
+    private void setZState(List<String> record, ZState state) {
+        state.setFloor(Integer.parseInt(get(record, FLOOR)));
+        state.setHeightAboveFloorMeters(getDouble(record, HEIGHT_ABOVE_FLOOR));
+        state.setHeightAboveFloorUncertaintyMeters(getDouble(record, HEIGHT_ABOVE_FLOOR_UNCERTAINTY));
+        state.setExpectedToMove(ExpectedToMove.NOT_EXPECTED_TO_MOVE);
+    }
+
+    private void setBssidState(List<String> record, BssidState state) {
+        String maxBssidIndicator = get(record, MAX_BSSID_INDICATOR);
+        if (!maxBssidIndicator.isEmpty()) {
+            state.setMaxBssidIndicator(Integer.parseInt(maxBssidIndicator));
+        }
+        for (String bssid : get(record, COLOCATED_BSSIDS).split(BSSID_SEPARATOR)) {
+            state.addBssid(bssid.trim());
+        }
+    }
+
+    private void setLcrState(List<String> record, LcrState state) {
+        String country = get(record, COUNTRY);
+        if (!CountryCodes.COUNTRY_NAMES_TO_CODES_MAP.containsKey(country)) {
+            country = getName(country, CountryCodes.getCountryName(country), ERROR_UNKNOWN_COUNTRY);
+        }
+        state.setCountry(country);
+        String language = get(record, LANGUAGE);
+        if (language.isEmpty()) {
+            language = DEFAULT_LANGUAGE;
+        } else if (LanguageCodes.getLanguageCode(language) == null) {
+            language = getName(language, LanguageCodes.getLanguageName(language), ERROR_UNKNOWN_LANGUAGE);
+        }
+        for (int i = 0; i < civicColumnIndices.length; i++) {
+            String name = getField(record, civicColumnIndices[i]);
+            if (!name.isEmpty()) {
+                state.addAddressElement(new StringBuilder(name), new StringBuilder(language),
+                    new StringBuilder(civicAddressElementKeys[i]));
+            }
+        }
+    }
+
+    private void setMapState(List<String> record, MapState state) {
+        String mapType = get(record, MAP_TYPE);
+        state.setMapType(mapType.isEmpty() ? DEFAULT_MAP_TYPE : mapType);
+        state.setMapUrl(get(record, MAP_URL));
+    }
+
+    /**
+     * Checks the name found for a code.
+     *
+     * @param code the code given in the record
+     * @param name the name associated with the code, or null if the code is not recognized
+     * @param errorMessage the error message if the code is not recognized
+     * @return the name
+     */
+    private static String getName(String code, String name, String errorMessage) {
+        if (name == null) {
+            throw new IllegalArgumentException(errorMessage + code);
+        }
+        return name;
+    }
+
+    private double getDouble(List<String> record, int column) {
+        String value = get(record, column);
+        return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+    }
+
+    private String get(List<String> record, int column) {
+        return getField(record, columnIndices[column]);
+    }
+
+    private static String getField(List<String> record, int index) {
+        if (index < 0 || index >= record.size()) {
+            return "";
+        }
+        return record.get(index).trim();
+    }
+}
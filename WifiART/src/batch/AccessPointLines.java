@@ -0,0 +1,111 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.ByteSink;
+import encoding.FieldEncoder;
+import structs.ArtSystemState;
+import userinterface.ArtMvcModel;
+import userinterface.BufferDisplays;
+
+/**
+ * Formats the output of one access point: a comment line with its BSSID followed by its "lci="
+ * and "civic=" lines, as written to the hostapd configuration.
+ *
+ * <p>The subelement models, the field encoder and the sinks hold encoding buffers, so an instance
+ * must only be used by one thread at a time.
+ */
+final class AccessPointLines {
+    // Constants
+    static final String ACCESS_POINT_COMMENT = "# Access point ";
+
+    private final ArtMvcModel model = new ArtMvcModel(new ArtSystemState());
+    private final FieldEncoder fieldEncoder;
+    private final ByteSink lciSubelements = new ByteSink();
+    private final ByteSink lcrSubelements = new ByteSink();
+
+    /**
+     * Constructor.
+     *
+     * @param androidVersionAtLeastS whether the Z subelement is encoded for Android S or later
+     */
+    AccessPointLines(boolean androidVersionAtLeastS) {
+        model.getZModel().setIfAndroidVersionNew(androidVersionAtLeastS);
+        fieldEncoder = new FieldEncoder(androidVersionAtLeastS);
+    }
+
+    /**
+     * Appends the output of an access point to a StringBuilder. Nothing is appended if a subelement
+     *  cannot be encoded.
+     *
+     * @param bssid the BSSID identifying the access point
+     * @param state the system state of the access point
+     * @param text the StringBuilder receiving the output
+     * @throws RuntimeException if a subelement cannot be encoded
+     */
+    void append(String bssid, ArtSystemState state, StringBuilder text) {
+        model.setState(state);
+        int start = text.length();
+        try {
+            text.append(ACCESS_POINT_COMMENT).append(bssid).append('\n');
+            BufferDisplays.appendNotReadableBufferDisplay(model.getLciSubelementBuffersList(),
+                model.getLcrSubelementBuffersList(), text);
+            text.append('\n');
+        } catch (RuntimeException exception) {
+            text.setLength(start);
+            throw exception;
+        }
+    }
+
+    /**
+     * Appends the output of an access point of a fleet store to a StringBuilder, encoded straight
+     *  from the columns of the store. Nothing is appended if a subelement cannot be encoded.
+     *
+     * @param store the fleet store
+     * @param index the index of the access point
+     * @param text the StringBuilder receiving the output
+     * @throws RuntimeException if a subelement cannot be encoded
+     */
+    void append(FleetStore store, int index, StringBuilder text) {
+        lciSubelements.reset();
+        lcrSubelements.reset();
+        store.encode(index, fieldEncoder, lciSubelements, lcrSubelements);
+        appendSubelements(store.getBssid(index), text);
+    }
+
+    /**
+     * Appends the output of an access point of a memory-mapped fleet store to a StringBuilder,
+     *  encoded straight from its record. Nothing is appended if a subelement cannot be encoded.
+     *
+     * @param store the memory-mapped fleet store
+     * @param index the index of the access point
+     * @param text the StringBuilder receiving the output
+     * @throws RuntimeException if a subelement cannot be encoded
+     */
+    void append(MappedFleetStore store, int index, StringBuilder text) {
+        lciSubelements.reset();
+        lcrSubelements.reset();
+        store.encode(index, fieldEncoder, lciSubelements, lcrSubelements);
+        appendSubelements(store.getBssid(index), text);
+    }
+
+    private void appendSubelements(String bssid, StringBuilder text) {
+        text.append(ACCESS_POINT_COMMENT).append(bssid).append('\n');
+        BufferDisplays.appendNotReadableBufferDisplay(lciSubelements, lcrSubelements, text);
+        text.append('\n');
+    }
+}
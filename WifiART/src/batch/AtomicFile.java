@@ -0,0 +1,148 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replaces a file atomically: the new content is written to a temporary file in the same
+ * directory, which replaces the target file only when commit is called. Readers of the target file
+ * therefore see either the previous content or the complete new content, never a partial file.
+ *
+ * <p>This is the file handling of {@link AtomicFileWriter}, for files written by other means, such
+ * as the binary fleet snapshots and memory-mapped fleet stores. Closing without committing deletes
+ * the temporary file.
+ */
+public final class AtomicFile implements Closeable {
+    // Constants
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+    // Error messages
+    private static final String ERROR_CLOSED = "The file is closed.";
+
+    private final Path target;
+    private final Path temporaryFile;
+    private final AtomicFileWriter.SyncPolicy syncPolicy;
+    private boolean closed;
+
+    /**
+     * Constructor, creating the empty temporary file.
+     *
+     * @param target the file to replace
+     * @param syncPolicy when the new content is forced to the storage device
+     * @throws IOException if the temporary file cannot be created
+     */
+    public AtomicFile(Path target, AtomicFileWriter.SyncPolicy syncPolicy) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.syncPolicy = syncPolicy;
+        Path directory = this.target.getParent();
+        String prefix = "." + this.target.getFileName() + ".";
+        Path candidate = null;
+        while (candidate == null) {
+            candidate = directory.resolve(
+                prefix + Long.toHexString(ThreadLocalRandom.current().nextLong()) + TEMPORARY_FILE_SUFFIX);
+            try {
+                Files.createFile(candidate);
+            } catch (FileAlreadyExistsException exception) {
+                candidate = null; // Try another name.
+            }
+        }
+        temporaryFile = candidate;
+    }
+
+    /**
+     * Gets the temporary file, to which the new content is written.
+     *
+     * @return the temporary file
+     */
+    public Path getTemporaryFile() {
+        return temporaryFile;
+    }
+
+    /**
+     * Forces the temporary file to the storage device according to the sync policy, and replaces
+     *  the target file with it. The temporary file must be closed by its writer first.
+     *
+     * @throws IOException if the file cannot be forced or renamed, in which case the target file is
+     *                     left unchanged
+     */
+    public void commit() throws IOException {
+        if (closed) {
+            throw new IOException(ERROR_CLOSED);
+        }
+        try {
+            if (syncPolicy != AtomicFileWriter.SyncPolicy.NONE) {
+                try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            try {
+                Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            closed = true;
+        } finally {
+            close();
+        }
+        if (syncPolicy == AtomicFileWriter.SyncPolicy.FILE_AND_DIRECTORY) {
+            syncDirectory(target.getParent());
+        }
+    }
+
+    /**
+     * Closes the file. If commit was not called, the temporary file is deleted and the target file
+     *  is left unchanged.
+     *
+     * @throws IOException if the temporary file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Files.deleteIfExists(temporaryFile);
+    }
+
+    /**
+     * Forces a directory entry change (the rename) to the storage device. Not all platforms can
+     *  open a directory, in which case this does nothing.
+     *
+     * @param directory the directory containing the target file
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel directoryChannel;
+        try {
+            directoryChannel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException exception) {
+            return;
+        }
+        try (FileChannel channel = directoryChannel) {
+            channel.force(true);
+        }
+    }
+}
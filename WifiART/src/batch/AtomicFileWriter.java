@@ -0,0 +1,230 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a UTF-8 text file atomically: the text goes to a temporary file in the same directory,
+ * which replaces the target file only when commit is called. Readers of the target file therefore
+ * see either the previous content or the complete new content, never a partial file.
+ *
+ * <p>Characters are encoded into a large buffer that is written to a FileChannel only when full,
+ * so many small writes (e.g. one per access point) turn into few system calls. Closing the writer
+ * without committing discards the temporary file. An instance must only be used by one thread.
+ */
+public final class AtomicFileWriter extends Writer {
+
+    /**
+     * When the written data is forced to the storage device.
+     */
+    public enum SyncPolicy {
+        /** Never: the operating system writes the data back in its own time. */
+        NONE,
+        /** Before the rename, so that the target file is never replaced by an incomplete file. */
+        FILE,
+        /** Before the rename, and the directory after it, so that the rename itself is durable. */
+        FILE_AND_DIRECTORY
+    }
+
+    // Constants
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+    // Error messages
+    private static final String ERROR_CLOSED = "The writer is closed.";
+
+    private final AtomicFile file;
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private boolean closed;
+
+    /**
+     * Constructs a writer with the default buffer size, creating the temporary file.
+     *
+     * @param target the file to write
+     * @param syncPolicy when the data is forced to the storage device
+     * @throws IOException if the temporary file cannot be created
+     */
+    public AtomicFileWriter(Path target, SyncPolicy syncPolicy) throws IOException {
+        this(target, syncPolicy, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a writer, creating the temporary file.
+     *
+     * @param target the file to write
+     * @param syncPolicy when the data is forced to the storage device
+     * @param bufferSize the number of bytes buffered between writes to the file
+     * @throws IOException if the temporary file cannot be created
+     */
+    public AtomicFileWriter(Path target, SyncPolicy syncPolicy, int bufferSize) throws IOException {
+        chars = CharBuffer.allocate(bufferSize);
+        bytes = ByteBuffer.allocateDirect(bufferSize);
+        file = new AtomicFile(target, syncPolicy);
+        try {
+            channel = FileChannel.open(file.getTemporaryFile(), StandardOpenOption.WRITE);
+        } catch (IOException exception) {
+            file.close();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (!chars.hasRemaining()) {
+            encodeChars(false);
+        }
+        chars.put((char) c);
+    }
+
+    @Override
+    public void write(char[] source, int offset, int length) throws IOException {
+        ensureOpen();
+        int end = offset + length;
+        while (offset < end) {
+            if (!chars.hasRemaining()) {
+                encodeChars(false);
+            }
+            int count = Math.min(end - offset, chars.remaining());
+            chars.put(source, offset, count);
+            offset += count;
+        }
+    }
+
+    @Override
+    public void write(String source, int offset, int length) throws IOException {
+        ensureOpen();
+        int end = offset + length;
+        while (offset < end) {
+            if (!chars.hasRemaining()) {
+                encodeChars(false);
+            }
+            int count = Math.min(end - offset, chars.remaining());
+            chars.put(source, offset, offset + count);
+            offset += count;
+        }
+    }
+
+    @Override
+    public Writer append(CharSequence source) throws IOException {
+        ensureOpen();
+        int length = source.length();
+        for (int i = 0; i < length; i++) {
+            if (!chars.hasRemaining()) {
+                encodeChars(false);
+            }
+            chars.put(source.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Writes the buffered text to the temporary file, without forcing it to the storage device.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        encodeChars(false);
+        writeBytes();
+    }
+
+    /**
+     * Writes the remaining text, forces it to the storage device according to the sync policy, and
+     *  replaces the target file with the temporary file. The writer is closed afterwards.
+     *
+     * @throws IOException if the file cannot be written or renamed, in which case the target file
+     *                     is left unchanged
+     */
+    public void commit() throws IOException {
+        ensureOpen();
+        try {
+            encodeChars(true);
+            while (encoder.flush(bytes) == CoderResult.OVERFLOW) {
+                writeBytes();
+            }
+            writeBytes();
+            channel.close();
+            file.commit();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Closes the writer. If commit was not called, the temporary file is deleted and the target
+     *  file is left unchanged.
+     *
+     * @throws IOException if the temporary file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Encodes the buffered characters into the byte buffer, writing it to the file whenever it is
+     *  full. A high surrogate at the end of the characters is kept until its low surrogate arrives.
+     *
+     * @param endOfInput whether no more characters will be written
+     */
+    private void encodeChars(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, endOfInput) == CoderResult.OVERFLOW) {
+            writeBytes();
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(ERROR_CLOSED);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.DatumConverter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The command-line batch mode: encodes the LCI/LCR lines of the access points of a CSV file or of a
+ * fleet snapshot or store, or regenerates those of existing hostapd configuration files.
+ *
+ * <p>Usage: {@code --batch <input.csv|input.snapshot|input.wfs|input.conf|directory> [<output>]
+ * [--android-s] [--sync none|file|file_and_directory] [--incremental <index>]
+ * [--save-snapshot <snapshot>] [--save-store <store.wfs>]
+ * [--datum wgs84|nad83_navd88|nad83_mllw [--epoch <year>]]
+ * [--region <min_latitude>,<min_longitude>,<max_latitude>,<max_longitude>]
+ * [--shards [--shard-precision <digits>]] [--quantization-report <report>]},
+ * where "-" (or a missing output) stands for the standard input or output.
+ *
+ * <p>The options are parsed into {@link BatchOptions}, and each mode is run by its own command. A
+ * CSV input is read one access point at a time by the {@link StreamingCommand}, unless an option
+ * needs every access point at once, in which case it is loaded into a {@link FleetStore} by the
+ * {@link FleetCommand} like the other inputs. A ".conf" input, or every ".conf" file of a directory
+ * input, is imported with the {@link ConfigurationImporter}, and a ".snapshot" input is loaded with
+ * the {@link FleetSnapshotReader}. A ".wfs" input is a {@link MappedFleetStore}, encoded in place
+ * with no load phase by the {@link StoreCommand} when no option needs the access points loaded.
+ *
+ * <p>Options:
+ * <ul>
+ *   <li>--android-s: encodes the Z subelements for Android S or later</li>
+ *   <li>--sync: when an output, snapshot or store file is forced to the storage device ("file" by
+ *       default); each of them is replaced atomically once every access point is written</li>
+ *   <li>--incremental: encodes a CSV input into an output file, regenerating only the access
+ *       points whose records changed since the run that wrote the index file, which is replaced
+ *       for the next run</li>
+ *   <li>--save-snapshot and --save-store: also save the access points read to a snapshot or store
+ *       file, which later runs load faster than the CSV file</li>
+ *   <li>--datum and --epoch: convert the locations to a map datum with the {@link DatumConverter},
+ *       at the given epoch (2010.0, that of NAD83(2011), by default); the locations of a fleet
+ *       input are converted as one batch, and have no vertical datum height, so an access point
+ *       whose altitude in meters would need one is skipped</li>
+ *   <li>--region: encodes only the access points located within the bounds, as found by a
+ *       {@link FleetIndex}; the minimum longitude is greater than the maximum longitude for a
+ *       region crossing the antimeridian</li>
+ *   <li>--shards and --shard-precision: write the access points with a {@link ShardedFleetWriter}
+ *       into the output directory, one shard per geohash prefix of the given number of digits (4
+ *       by default), with a manifest of the shards and their SHA-256 digests</li>
+ *   <li>--quantization-report: measures the precision that the access points lose in their LCI
+ *       subelements with a {@link QuantizationReport}, written to the report file and summarized;
+ *       the locations of a configuration input were decoded from LCI subelements, so their errors
+ *       are 0 by construction</li>
+ * </ul>
+ *
+ * <p>Progress and errors are written to the standard error.
+ */
+public final class BatchCommand {
+    // Constants
+    public static final String OPTION = "--batch";
+
+    // Exit statuses
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_ACCESS_POINTS_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_ERROR = 3;
+
+    // Private constructor to avoid instance creation.
+    private BatchCommand() {}
+
+    /**
+     * Runs the batch mode.
+     *
+     * @param args the command-line arguments, starting with the batch option
+     * @param log the destination of the progress reports and errors
+     * @return the exit status: 0 on success, 1 if some access points were skipped, 2 for a usage
+     *         error and 3 if the input could not be read or the output written
+     */
+    public static int run(String[] args, PrintStream log) {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException exception) {
+            log.println(exception.getMessage());
+            return EXIT_USAGE;
+        }
+        if (options.getFleetFormat() == null) {
+            return StreamingCommand.run(options, log);
+        }
+        if (StoreCommand.accepts(options)) {
+            return StoreCommand.run(options, log);
+        }
+        return FleetCommand.run(options, log);
+    }
+
+    /**
+     * Opens an input of the batch mode.
+     *
+     * @param name the name of the input file, or "-" for the standard input
+     * @return the reader of the input
+     * @throws IOException if the input file cannot be opened
+     */
+    static Reader openInput(String name) throws IOException {
+        if (name.equals(BatchOptions.STANDARD_STREAM)) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Paths.get(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens a file replaced atomically once it is committed.
+     *
+     * @param name the name of the file, or null
+     * @param syncPolicy the sync policy of the file
+     * @return the file, or null if the name is null
+     * @throws IOException if the temporary file cannot be created
+     */
+    static AtomicFile openFile(String name, AtomicFileWriter.SyncPolicy syncPolicy) throws IOException {
+        return name != null ? new AtomicFile(Paths.get(name), syncPolicy) : null;
+    }
+
+    /**
+     * Opens the writer of a snapshot into the temporary file of a snapshot file.
+     *
+     * @param snapshotFile the snapshot file, or null
+     * @return the snapshot writer, or null if the snapshot file is null
+     * @throws IOException if the temporary file cannot be opened
+     */
+    static FleetSnapshotWriter openSnapshot(AtomicFile snapshotFile) throws IOException {
+        if (snapshotFile == null) {
+            return null;
+        }
+        return new FleetSnapshotWriter(Files.newOutputStream(snapshotFile.getTemporaryFile()));
+    }
+
+    /**
+     * Creates a memory-mapped store in the temporary file of a store file.
+     *
+     * @param storeFile the store file, or null
+     * @return the store, or null if the store file is null
+     * @throws IOException if the temporary file cannot be mapped
+     */
+    static MappedFleetStore createStore(AtomicFile storeFile) throws IOException {
+        return storeFile != null ? MappedFleetStore.create(storeFile.getTemporaryFile()) : null;
+    }
+
+    /**
+     * Opens an output of the batch mode, written to a file replaced atomically once committed.
+     *
+     * @param name the name of the output file, or "-" for the standard output
+     * @param syncPolicy the sync policy of the output file
+     * @return the writer of the output
+     * @throws IOException if the temporary file cannot be created
+     */
+    static Writer openOutput(String name, AtomicFileWriter.SyncPolicy syncPolicy) throws IOException {
+        if (name.equals(BatchOptions.STANDARD_STREAM)) {
+            // Flushed but not closed with the batch, as System.out is shared.
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        }
+        return new AtomicFileWriter(Paths.get(name), syncPolicy);
+    }
+}
@@ -0,0 +1,374 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.HexCodec;
+import geodesy.DatumConverter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes the LCI/LCR lines of many access points described in a survey CSV file, without the
+ * user interface.
+ *
+ * <p>The access points are read one at a time by a SurveyReader, and handed to a FleetEncoder in
+ * chunks of a fixed size; each chunk is written out before the next one is read, so the memory used
+ * does not depend on the size of the input. The output of each access point is a comment line with
+ * its BSSID followed by the "lci=" and "civic=" lines, as written to the hostapd configuration, in
+ * the order of the input. Access points that cannot be encoded are reported and skipped.
+ *
+ * <p>An incremental run only encodes the access points whose input records changed since the
+ * previous run, as recorded in its RegenerationIndex; the output of the other access points is
+ * copied from the previous output file.
+ */
+public final class BatchEncoder {
+    // Constants
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final int DEFAULT_PROGRESS_INTERVAL = 10000;
+
+    private final FleetEncoder fleetEncoder;
+    private final int chunkSize;
+    private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    private RegenerationIndex previousIndex;
+    private FileChannel previousOutput;
+    private Writer nextIndex;
+    private FleetSnapshotWriter snapshot;
+    private MappedFleetStore store;
+    private DatumConverter datumConverter;
+
+    private long accessPointCount;
+    private long failedAccessPointCount;
+    private long unchangedAccessPointCount;
+    private long removedAccessPointCount;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a batch encoder running on the common ForkJoinPool.
+     *
+     * @param androidVersionAtLeastS whether the Z subelement is encoded for Android S or later
+     */
+    public BatchEncoder(boolean androidVersionAtLeastS) {
+        this(new FleetEncoder(androidVersionAtLeastS), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param fleetEncoder the encoder of each chunk of access points
+     * @param chunkSize the maximum number of access points held in memory at a time
+     */
+    public BatchEncoder(FleetEncoder fleetEncoder, int chunkSize) {
+        this.fleetEncoder = fleetEncoder;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets how often the progress is reported.
+     *
+     * @param progressInterval the number of access points between progress reports, or 0 for none
+     */
+    public void setProgressInterval(int progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Makes the next calls to encode incremental.
+     *
+     * @param previousIndex the index written by the previous run, or an empty index
+     * @param previousOutput the output file of the previous run, or null if there is none
+     * @param nextIndex the destination of the index of the next run
+     */
+    public void setIncremental(RegenerationIndex previousIndex, FileChannel previousOutput, Writer nextIndex) {
+        this.previousIndex = previousIndex;
+        this.previousOutput = previousOutput;
+        this.nextIndex = nextIndex;
+    }
+
+    /**
+     * Makes the next calls to encode also write every access point read to a snapshot. Access
+     *  points that cannot be written to the snapshot are reported and skipped.
+     *
+     * @param snapshot the snapshot writer, or null to write no snapshot
+     */
+    public void setSnapshot(FleetSnapshotWriter snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Makes the next calls to encode also add every access point read to a memory-mapped fleet
+     *  store. Access points that cannot be added to the store are reported and skipped.
+     *
+     * @param store the fleet store, open for adding access points, or null to fill no store
+     */
+    public void setStore(MappedFleetStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Makes the next calls to encode convert the location of every access point to a map datum
+     *  before encoding it. Access points whose location cannot be converted are reported and
+     *  skipped.
+     *
+     * @param datumConverter the converter to the map datum, or null to keep the map datum of each
+     *                       access point
+     */
+    public void setDatumConverter(DatumConverter datumConverter) {
+        this.datumConverter = datumConverter;
+    }
+
+    /**
+     * Encodes every access point of a survey CSV input, whose first record is the header.
+     *
+     * @param input the CSV input
+     * @param output the destination of the encoded lines
+     * @param log the destination of the progress reports and of the errors of skipped access points
+     * @throws IOException if the input cannot be read or the output cannot be written
+     * @throws IllegalArgumentException if the header is missing or not valid
+     */
+    public void encode(Reader input, Writer output, PrintStream log) throws IOException, IllegalArgumentException {
+        long startNanos = System.nanoTime();
+        accessPointCount = 0;
+        failedAccessPointCount = 0;
+        unchangedAccessPointCount = 0;
+        removedAccessPointCount = 0;
+        boolean incremental = nextIndex != null;
+        SurveyReader surveyReader = new SurveyReader(input, incremental);
+        surveyReader.setDatumConverter(datumConverter);
+        RegenerationIndex index = previousIndex;
+        if (incremental) {
+            String configuration = "android-s=" + fleetEncoder.isAndroidVersionAtLeastS() + " header="
+                + HexCodec.toHexString(surveyReader.getHeaderHash());
+            if (datumConverter != null) {
+                configuration += " datum=" + datumConverter.getTarget() + "@" + datumConverter.getEpoch();
+            }
+            if (index.size() > 0 && !index.getConfiguration().equals(configuration)) {
+                log.println("The CSV header or the options changed, regenerating every access point");
+                index = new RegenerationIndex();
+            }
+            RegenerationIndex.writeHeader(configuration, nextIndex);
+        }
+        // Regenerated access points are listed, unless everything is regenerated.
+        boolean listRegenerated = incremental && index.size() > 0;
+        ContentHash outputHash = new ContentHash();
+        long outputOffset = 0;
+
+        List<AccessPoint> chunk = new ArrayList<>(chunkSize);
+        long[] lineNumbers = new long[chunkSize];
+        byte[][] inputHashes = new byte[chunkSize][];
+        RegenerationIndex.Entry[] unchangedEntries = new RegenerationIndex.Entry[chunkSize];
+        String[] unchangedLines = new String[chunkSize];
+        List<AccessPoint> changed = new ArrayList<>(chunkSize);
+        long nextProgressReport = progressInterval;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            chunk.clear();
+            changed.clear();
+            while (chunk.size() < chunkSize) {
+                AccessPoint accessPoint;
+                try {
+                    accessPoint = surveyReader.next();
+                } catch (RuntimeException exception) {
+                    accessPointCount++;
+                    reportFailure(surveyReader.getLineNumber(), exception, log);
+                    continue;
+                }
+                if (accessPoint == null) {
+                    endOfInput = true;
+                    break;
+                }
+                try {
+                    if (snapshot != null) {
+                        snapshot.write(accessPoint);
+                    }
+                    if (store != null) {
+                        store.add(accessPoint);
+                    }
+                } catch (IllegalArgumentException exception) {
+                    accessPointCount++;
+                    reportFailure(surveyReader.getLineNumber(), exception, log);
+                    continue;
+                }
+                int slot = chunk.size();
+                lineNumbers[slot] = surveyReader.getLineNumber();
+                unchangedEntries[slot] = null;
+                unchangedLines[slot] = null;
+                if (incremental) {
+                    inputHashes[slot] = surveyReader.getInputHash();
+                    RegenerationIndex.Entry entry = index.get(accessPoint.getBssid());
+                    if (entry != null) {
+                        entry.found = true;
+                        unchangedLines[slot] = readUnchangedLines(entry, inputHashes[slot], outputHash);
+                        unchangedEntries[slot] = unchangedLines[slot] != null ? entry : null;
+                    }
+                }
+                if (unchangedLines[slot] == null) {
+                    changed.add(accessPoint);
+                }
+                chunk.add(accessPoint);
+            }
+
+            FleetEncoding encoding = fleetEncoder.encode(changed);
+            int changedIndex = 0;
+            for (int slot = 0; slot < chunk.size(); slot++) {
+                String bssid = chunk.get(slot).getBssid();
+                if (unchangedLines[slot] != null) {
+                    unchangedAccessPointCount++;
+                    RegenerationIndex.Entry entry = unchangedEntries[slot];
+                    output.write(unchangedLines[slot]);
+                    RegenerationIndex.writeEntry(bssid,
+                        new RegenerationIndex.Entry(inputHashes[slot], entry.outputHash, outputOffset, entry.length),
+                        nextIndex);
+                    outputOffset += entry.length;
+                    continue;
+                }
+                int i = changedIndex++;
+                if (encoding.getFailure(i) != null) {
+                    reportFailure(lineNumbers[slot], encoding.getFailure(i), log);
+                    continue;
+                }
+                String lines = encoding.getLines(i);
+                output.write(lines);
+                if (incremental) {
+                    byte[] bytes = lines.getBytes(StandardCharsets.UTF_8);
+                    byte[] linesHash = outputHash.hash(bytes);
+                    RegenerationIndex.Entry entry =
+                        new RegenerationIndex.Entry(inputHashes[slot], linesHash, outputOffset, bytes.length);
+                    RegenerationIndex.writeEntry(bssid, entry, nextIndex);
+                    outputOffset += bytes.length;
+                    if (listRegenerated) {
+                        log.println("Regenerated " + bssid);
+                    }
+                }
+            }
+            accessPointCount += chunk.size();
+            if (progressInterval > 0 && accessPointCount >= nextProgressReport) {
+                log.println(getThroughputReport(System.nanoTime() - startNanos));
+                nextProgressReport = (accessPointCount / progressInterval + 1) * progressInterval;
+            }
+        }
+        if (incremental) {
+            removedAccessPointCount = index.countNotFound();
+            nextIndex.flush();
+        }
+        output.flush();
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Reads the output of an access point from the previous output file, if its input records are
+     *  unchanged and the output file still holds its output.
+     *
+     * @param entry the entry of the access point in the previous index
+     * @param inputHash the hash of the current input records of the access point
+     * @param outputHash the hash computing the hash of the previous output
+     * @return the previous output of the access point, or null if it must be regenerated
+     * @throws IOException if the previous output file cannot be read
+     */
+    private String readUnchangedLines(RegenerationIndex.Entry entry, byte[] inputHash, ContentHash outputHash)
+        throws IOException {
+        if (previousOutput == null || !Arrays.equals(entry.inputHash, inputHash) || entry.offset < 0
+            || entry.length < 0 || entry.offset + entry.length > previousOutput.size()) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(entry.length);
+        while (bytes.hasRemaining()) {
+            if (previousOutput.read(bytes, entry.offset + bytes.position()) < 0) {
+                return null;
+            }
+        }
+        if (!Arrays.equals(entry.outputHash, outputHash.hash(bytes.array()))) {
+            return null;
+        }
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    private void reportFailure(long lineNumber, RuntimeException exception, PrintStream log) {
+        failedAccessPointCount++;
+        String message = exception.getMessage() != null ? exception.getMessage() : exception.toString();
+        log.println("Line " + lineNumber + ": " + message);
+    }
+
+    /**
+     * Gets the number of access points read in the last call to encode.
+     *
+     * @return the number of access points
+     */
+    public long getAccessPointCount() {
+        return accessPointCount;
+    }
+
+    /**
+     * Gets the number of access points that could not be encoded in the last call to encode.
+     *
+     * @return the number of skipped access points
+     */
+    public long getFailedAccessPointCount() {
+        return failedAccessPointCount;
+    }
+
+    /**
+     * Gets the number of access points copied unchanged from the previous output in the last call
+     *  to encode.
+     *
+     * @return the number of unchanged access points
+     */
+    public long getUnchangedAccessPointCount() {
+        return unchangedAccessPointCount;
+    }
+
+    /**
+     * Gets the number of access points of the previous index missing from the input of the last
+     *  call to encode.
+     *
+     * @return the number of removed access points
+     */
+    public long getRemovedAccessPointCount() {
+        return removedAccessPointCount;
+    }
+
+    /**
+     * Gets a summary of the last call to encode, with its throughput.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        String summary = getThroughputReport(elapsedNanos) + ", " + failedAccessPointCount + " failed";
+        if (nextIndex != null) {
+            summary += ", " + (accessPointCount - failedAccessPointCount - unchangedAccessPointCount)
+                + " regenerated, " + unchangedAccessPointCount + " unchanged, " + removedAccessPointCount + " removed";
+        }
+        return summary;
+    }
+
+    private String getThroughputReport(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        long accessPointsPerSecond = nanos > 0 ? accessPointCount * TimeUnit.SECONDS.toNanos(1) / nanos : 0;
+        return "Encoded " + accessPointCount + " access points in " + millis + " ms (" + accessPointsPerSecond
+            + " per second)";
+    }
+}
@@ -0,0 +1,456 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.DatumConverter;
+import geodesy.Geohash;
+import structs.MapDatum;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The options of the batch mode, parsed from the command-line arguments with a table of the
+ * options and of how their values are parsed.
+ */
+final class BatchOptions {
+    // Constants
+    static final String STANDARD_STREAM = "-";
+    private static final String ANDROID_S_OPTION = "--android-s";
+    private static final String SYNC_OPTION = "--sync";
+    private static final String INCREMENTAL_OPTION = "--incremental";
+    private static final String SAVE_SNAPSHOT_OPTION = "--save-snapshot";
+    private static final String SAVE_STORE_OPTION = "--save-store";
+    private static final String DATUM_OPTION = "--datum";
+    private static final String EPOCH_OPTION = "--epoch";
+    private static final String REGION_OPTION = "--region";
+    private static final String REGION_SEPARATOR = ",";
+    private static final String SHARDS_OPTION = "--shards";
+    private static final String SHARD_PRECISION_OPTION = "--shard-precision";
+    private static final String QUANTIZATION_REPORT_OPTION = "--quantization-report";
+    private static final String CONFIGURATION_SUFFIX = ".conf";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String STORE_SUFFIX = ".wfs";
+
+    // Error messages
+    private static final String USAGE = "Usage: " + BatchCommand.OPTION
+        + " <input.csv|input.snapshot|input.wfs|input.conf|directory> [<output>] [" + ANDROID_S_OPTION + "] ["
+        + SYNC_OPTION + " none|file|file_and_directory] [" + INCREMENTAL_OPTION + " <index>] ["
+        + SAVE_SNAPSHOT_OPTION + " <snapshot>] [" + SAVE_STORE_OPTION + " <store.wfs>] [" + DATUM_OPTION
+        + " wgs84|nad83_navd88|nad83_mllw [" + EPOCH_OPTION + " <year>]] [" + REGION_OPTION
+        + " <min_latitude>,<min_longitude>,<max_latitude>,<max_longitude>] [" + SHARDS_OPTION + " ["
+        + SHARD_PRECISION_OPTION + " <digits>]] [" + QUANTIZATION_REPORT_OPTION + " <report>]";
+    private static final String ERROR_INCREMENTAL_OUTPUT = INCREMENTAL_OPTION
+        + " needs a CSV input and an output file.";
+    private static final String ERROR_EPOCH_DATUM = EPOCH_OPTION + " needs " + DATUM_OPTION + ".";
+    private static final String ERROR_INCREMENTAL_FLEET = INCREMENTAL_OPTION + " cannot be combined with "
+        + REGION_OPTION + ", " + SHARDS_OPTION + " or " + QUANTIZATION_REPORT_OPTION + ".";
+    private static final String ERROR_SHARDS_OUTPUT = SHARDS_OPTION + " needs an output directory.";
+
+    /**
+     * The formats of the inputs loaded as a whole into a fleet store, rather than read one access
+     *  point at a time like a CSV input.
+     */
+    enum FleetFormat {
+        /** A survey CSV input, loaded as a whole for the options that need every access point. */
+        SURVEY,
+        /** A hostapd configuration file, or a directory of them. */
+        CONFIGURATION,
+        /** A fleet snapshot file. */
+        SNAPSHOT,
+        /** A memory-mapped fleet store file. */
+        STORE
+    }
+
+    /**
+     * The table of the options: the name of each option, whether it takes a value, and how the
+     *  option is applied.
+     */
+    private enum Option {
+        ANDROID_S(ANDROID_S_OPTION, false) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.androidVersionAtLeastS = true;
+                return true;
+            }
+        },
+        SYNC(SYNC_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.syncPolicy = findSyncPolicy(value);
+                return options.syncPolicy != null;
+            }
+        },
+        INCREMENTAL(INCREMENTAL_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.indexName = value;
+                return true;
+            }
+        },
+        SAVE_SNAPSHOT(SAVE_SNAPSHOT_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.snapshotName = value;
+                return true;
+            }
+        },
+        SAVE_STORE(SAVE_STORE_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.storeName = value;
+                return true;
+            }
+        },
+        DATUM(DATUM_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.datum = findMapDatum(value);
+                return options.datum != null;
+            }
+        },
+        EPOCH(EPOCH_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.epoch = parseEpoch(value);
+                return !Double.isNaN(options.epoch);
+            }
+        },
+        REGION(REGION_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.region = parseRegion(value);
+                return options.region != null;
+            }
+        },
+        SHARDS(SHARDS_OPTION, false) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.sharded = true;
+                return true;
+            }
+        },
+        SHARD_PRECISION(SHARD_PRECISION_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.shardPrecision = parsePrecision(value);
+                return options.shardPrecision != 0;
+            }
+        },
+        QUANTIZATION_REPORT(QUANTIZATION_REPORT_OPTION, true) {
+            @Override
+            boolean apply(BatchOptions options, String value) {
+                options.reportName = value;
+                return true;
+            }
+        };
+
+        private final String name;
+        private final boolean valued;
+
+        Option(String name, boolean valued) {
+            this.name = name;
+            this.valued = valued;
+        }
+
+        /**
+         * Applies the option to the options being parsed.
+         *
+         * @param options the options being parsed
+         * @param value the value of the option, or null for an option taking no value
+         * @return false if the value is not valid
+         */
+        abstract boolean apply(BatchOptions options, String value);
+
+        private static Option find(String name) {
+            for (Option option : values()) {
+                if (option.name.equals(name)) {
+                    return option;
+                }
+            }
+            return null;
+        }
+    }
+
+    private String inputName;
+    private String outputName = STANDARD_STREAM;
+    private FleetFormat fleetFormat;
+    private boolean androidVersionAtLeastS;
+    private AtomicFileWriter.SyncPolicy syncPolicy = AtomicFileWriter.SyncPolicy.FILE;
+    private String indexName;
+    private String snapshotName;
+    private String storeName;
+    private MapDatum datum;
+    private double epoch = Double.NaN;
+    private DatumConverter datumConverter;
+    private double[] region;
+    private boolean sharded;
+    private int shardPrecision = ShardedFleetWriter.DEFAULT_PRECISION;
+    private String reportName;
+
+    // Private constructor, as the options are parsed.
+    private BatchOptions() {}
+
+    /**
+     * Parses the options of the batch mode, and checks that they can be combined.
+     *
+     * @param args the command-line arguments, starting with the batch option
+     * @return the options
+     * @throws IllegalArgumentException if the arguments are not valid, with the usage or the
+     *                                  reason as the message
+     */
+    static BatchOptions parse(String[] args) throws IllegalArgumentException {
+        BatchOptions options = new BatchOptions();
+        int positionalCount = 0;
+        for (int i = 1; i < args.length; i++) {
+            Option option = Option.find(args[i]);
+            if (option != null) {
+                if (option.valued && i + 1 == args.length) {
+                    throw new IllegalArgumentException(USAGE);
+                }
+                if (!option.apply(options, option.valued ? args[++i] : null)) {
+                    throw new IllegalArgumentException(USAGE);
+                }
+            } else if (positionalCount == 0) {
+                options.inputName = args[i];
+                positionalCount++;
+            } else if (positionalCount == 1) {
+                options.outputName = args[i];
+                positionalCount++;
+            } else {
+                throw new IllegalArgumentException(USAGE);
+            }
+        }
+        if (options.inputName == null) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        options.check();
+        return options;
+    }
+
+    private void check() throws IllegalArgumentException {
+        fleetFormat = findFleetFormat(inputName);
+        if (indexName != null && (fleetFormat != null || outputName.equals(STANDARD_STREAM))) {
+            throw new IllegalArgumentException(ERROR_INCREMENTAL_OUTPUT);
+        }
+        if (!Double.isNaN(epoch) && datum == null) {
+            throw new IllegalArgumentException(ERROR_EPOCH_DATUM);
+        }
+        if (fleetFormat == null && (region != null || sharded || reportName != null)) {
+            if (indexName != null) {
+                throw new IllegalArgumentException(ERROR_INCREMENTAL_FLEET);
+            }
+            fleetFormat = FleetFormat.SURVEY;
+        }
+        if (sharded && outputName.equals(STANDARD_STREAM)) {
+            throw new IllegalArgumentException(ERROR_SHARDS_OUTPUT);
+        }
+        if (datum != null) {
+            datumConverter = new DatumConverter(datum, Double.isNaN(epoch) ? DatumConverter.DEFAULT_EPOCH : epoch);
+        }
+    }
+
+    /**
+     * Gets the name of the input.
+     *
+     * @return the name of the input file or directory, or "-" for the standard input
+     */
+    String getInputName() {
+        return inputName;
+    }
+
+    /**
+     * Gets the name of the output.
+     *
+     * @return the name of the output file or of the directory of the shards, or "-" for the
+     *         standard output
+     */
+    String getOutputName() {
+        return outputName;
+    }
+
+    /**
+     * Gets the format of the input when it is loaded as a whole into a fleet store.
+     *
+     * @return the format of the input, or null for a CSV input read one access point at a time
+     */
+    FleetFormat getFleetFormat() {
+        return fleetFormat;
+    }
+
+    /**
+     * Determines whether the Z subelements are encoded for Android S or later.
+     *
+     * @return true if the Z subelements are encoded for Android S or later
+     */
+    boolean isAndroidVersionAtLeastS() {
+        return androidVersionAtLeastS;
+    }
+
+    /**
+     * Gets the sync policy of the files written.
+     *
+     * @return the sync policy
+     */
+    AtomicFileWriter.SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Gets the name of the index file of an incremental run.
+     *
+     * @return the name of the index file, or null for a run that is not incremental
+     */
+    String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * Gets the name of the snapshot file to save the access points to.
+     *
+     * @return the name of the snapshot file, or null
+     */
+    String getSnapshotName() {
+        return snapshotName;
+    }
+
+    /**
+     * Gets the name of the store file to save the access points to.
+     *
+     * @return the name of the store file, or null
+     */
+    String getStoreName() {
+        return storeName;
+    }
+
+    /**
+     * Gets the converter of the locations to a map datum.
+     *
+     * @return the converter, or null to keep the map datum of each access point
+     */
+    DatumConverter getDatumConverter() {
+        return datumConverter;
+    }
+
+    /**
+     * Gets the bounds of the access points to encode.
+     *
+     * @return the minimum latitude and longitude and the maximum latitude and longitude, or null to
+     *         encode every access point
+     */
+    double[] getRegion() {
+        return region;
+    }
+
+    /**
+     * Determines whether the access points are written into shards.
+     *
+     * @return true if the access points are written into shards
+     */
+    boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Gets the number of geohash digits of the prefixes of the shards.
+     *
+     * @return the precision of the shards
+     */
+    int getShardPrecision() {
+        return shardPrecision;
+    }
+
+    /**
+     * Gets the name of the quantization report file.
+     *
+     * @return the name of the report file, or "-" for the standard output, or null to write no
+     *         report
+     */
+    String getReportName() {
+        return reportName;
+    }
+
+    private static FleetFormat findFleetFormat(String inputName) {
+        if (inputName.equals(STANDARD_STREAM)) {
+            return null;
+        }
+        if (inputName.endsWith(SNAPSHOT_SUFFIX)) {
+            return FleetFormat.SNAPSHOT;
+        }
+        if (inputName.endsWith(STORE_SUFFIX)) {
+            return FleetFormat.STORE;
+        }
+        if (inputName.endsWith(CONFIGURATION_SUFFIX) || Files.isDirectory(Paths.get(inputName))) {
+            return FleetFormat.CONFIGURATION;
+        }
+        return null;
+    }
+
+    private static AtomicFileWriter.SyncPolicy findSyncPolicy(String name) {
+        for (AtomicFileWriter.SyncPolicy syncPolicy : AtomicFileWriter.SyncPolicy.values()) {
+            if (syncPolicy.name().equalsIgnoreCase(name)) {
+                return syncPolicy;
+            }
+        }
+        return null;
+    }
+
+    private static MapDatum findMapDatum(String name) {
+        for (MapDatum mapDatum : MapDatum.values()) {
+            if (mapDatum.name().equalsIgnoreCase(name)) {
+                return mapDatum;
+            }
+        }
+        return null;
+    }
+
+    private static double[] parseRegion(String value) {
+        String[] fields = value.split(REGION_SEPARATOR);
+        if (fields.length != 4) {
+            return null;
+        }
+        double[] region = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                region[i] = Double.parseDouble(fields[i].trim());
+            }
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+        // The longitudes are in any order, as a region may cross the antimeridian.
+        boolean valid = Math.abs(region[0]) <= 90 && Math.abs(region[2]) <= 90 && region[0] <= region[2]
+            && Math.abs(region[1]) <= 180 && Math.abs(region[3]) <= 180;
+        return valid ? region : null;
+    }
+
+    private static int parsePrecision(String value) {
+        try {
+            int precision = Integer.parseInt(value);
+            return precision >= 1 && precision <= Geohash.MAX_PRECISION ? precision : 0;
+        } catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    private static double parseEpoch(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException exception) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A CharSequence view of a range of single-byte (ASCII) characters of a ByteBuffer. The view can
+ * be moved from line to line of a file without copying or allocating.
+ */
+final class ByteCharSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+
+    /**
+     * Moves the view to a range of a buffer.
+     *
+     * @param buffer the buffer holding the characters
+     * @param start the index of the first character in the buffer
+     * @param end the index after the last character in the buffer
+     */
+    void set(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = end - start;
+    }
+
+    /**
+     * Checks whether the characters start with a given prefix.
+     *
+     * @param prefix the prefix
+     * @return true if the view starts with the prefix
+     */
+    boolean startsWith(String prefix) {
+        if (length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(start + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int subStart, int subEnd) {
+        StringBuilder text = new StringBuilder(subEnd - subStart);
+        for (int i = subStart; i < subEnd; i++) {
+            text.append(charAt(i));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
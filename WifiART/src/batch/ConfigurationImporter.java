@@ -0,0 +1,184 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.LocationBufferDecoder;
+import structs.ArtSystemState;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports the LCI/LCR configuration already deployed in hostapd configuration files.
+ *
+ * <p>Each file is memory-mapped and scanned line by line in place: the "lci=" and "civic=" lines
+ * are decoded straight from the mapped bytes, and other lines are skipped without being copied. A
+ * file configuring several BSSs ("bss=" sections) yields one access point per section holding
+ * "lci=" or "civic=" lines, and so does the output of the batch mode, where every access point starts
+ * with an "# Access point" comment. An access point is identified by the "bssid=" of its section,
+ * or else by its interface name, or else by the file name.
+ *
+ * <p>The decoding buffers are reused between files, so an importer should not be shared between
+ * threads.
+ */
+public final class ConfigurationImporter {
+    // Constants
+    private static final String BSSID_PREFIX = "bssid=";
+    private static final String INTERFACE_PREFIX = "interface=";
+    private static final String BSS_PREFIX = "bss=";
+    private static final String CONFIGURATION_FILES_GLOB = "*.conf";
+
+    private final LocationBufferDecoder decoder = new LocationBufferDecoder();
+    private final ByteCharSequence line = new ByteCharSequence();
+    private long failedFileCount;
+
+    /**
+     * Constructor.
+     *
+     * @param androidVersionAtLeastS whether the Z subelements were encoded for Android S or later
+     */
+    public ConfigurationImporter(boolean androidVersionAtLeastS) {
+        decoder.setFractionBitsPresent(androidVersionAtLeastS);
+    }
+
+    /**
+     * Imports the access points configured in a hostapd configuration file.
+     *
+     * @param file the configuration file
+     * @return the access points with "lci=" or "civic=" lines, in the order of the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if an "lci=" or "civic=" line holds an invalid encoding
+     */
+    public List<AccessPoint> importFile(Path file) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer configuration = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return importConfiguration(configuration, file.getFileName().toString());
+        }
+    }
+
+    /**
+     * Imports the access points of every configuration file ("*.conf") of a directory, in file name
+     *  order. Files that cannot be imported are reported and skipped.
+     *
+     * @param directory the directory holding the configuration files
+     * @param log the destination of the errors of skipped files
+     * @return the access points of every file
+     * @throws IOException if the directory cannot be listed
+     */
+    public List<AccessPoint> importDirectory(Path directory, PrintStream log) throws IOException {
+        failedFileCount = 0;
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, CONFIGURATION_FILES_GLOB)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                accessPoints.addAll(importFile(file));
+            } catch (IOException | IllegalArgumentException exception) {
+                failedFileCount++;
+                log.println(file + ": " + exception.getMessage());
+            }
+        }
+        return accessPoints;
+    }
+
+    /**
+     * Gets the number of files that could not be imported in the last call to importDirectory.
+     *
+     * @return the number of skipped files
+     */
+    public long getFailedFileCount() {
+        return failedFileCount;
+    }
+
+    /**
+     * Imports the access points of the text of a configuration.
+     *
+     * @param configuration the bytes of the configuration, from its position to its limit
+     * @param fileName the name identifying access points with no BSSID or interface name
+     * @return the access points with "lci=" or "civic=" lines, in the order of the configuration
+     * @throws IllegalArgumentException if an "lci=" or "civic=" line holds an invalid encoding
+     */
+    List<AccessPoint> importConfiguration(ByteBuffer configuration, String fileName) throws IllegalArgumentException {
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        Section section = new Section(fileName);
+        int limit = configuration.limit();
+        int lineStart = configuration.position();
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && configuration.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            line.set(configuration, lineStart, lineEnd);
+            if (line.startsWith(BSS_PREFIX)) {
+                section.addTo(accessPoints);
+                section = new Section(getValue(BSS_PREFIX));
+            } else if (line.startsWith(AccessPointLines.ACCESS_POINT_COMMENT)) {
+                section.addTo(accessPoints);
+                section = new Section(fileName);
+                section.bssid = getValue(AccessPointLines.ACCESS_POINT_COMMENT);
+            } else if (line.startsWith(BSSID_PREFIX)) {
+                section.bssid = getValue(BSSID_PREFIX);
+            } else if (line.startsWith(INTERFACE_PREFIX)) {
+                section.interfaceName = getValue(INTERFACE_PREFIX);
+            } else if (decoder.decodeLine(line, section.state)) {
+                section.hasLocation = true;
+            }
+            lineStart = lineEnd + 1;
+        }
+        section.addTo(accessPoints);
+        return accessPoints;
+    }
+
+    private String getValue(String prefix) {
+        return line.subSequence(prefix.length(), line.length()).toString().trim();
+    }
+
+    /**
+     * The configuration of one BSS, while its lines are being read.
+     */
+    private static final class Section {
+        private final ArtSystemState state = new ArtSystemState();
+        private String interfaceName;
+        private String bssid;
+        private boolean hasLocation;
+
+        private Section(String interfaceName) {
+            this.interfaceName = interfaceName;
+        }
+
+        private void addTo(List<AccessPoint> accessPoints) {
+            if (hasLocation) {
+                accessPoints.add(new AccessPoint(bssid != null ? bssid : interfaceName, state));
+            }
+        }
+    }
+}
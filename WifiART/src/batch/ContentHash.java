@@ -0,0 +1,109 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the content hashes used to detect unchanged access points: the first 16 bytes of the
+ * SHA-256 digest of a sequence of records, or of the bytes of an output.
+ */
+final class ContentHash {
+    // Lengths (in bytes)
+    static final int LENGTH = 16;
+
+    // Constants
+    private static final String ALGORITHM = "SHA-256";
+
+    private final MessageDigest digest;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Constructs a content hash with no content yet.
+     */
+    ContentHash() {
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Adds a record to the content. The number of fields and the length of each field are part of
+     *  the content, so that records of different shapes never have the same content.
+     *
+     * @param record the fields of the record
+     */
+    void update(List<String> record) {
+        updateInt(record.size());
+        for (String field : record) {
+            int length = field.length();
+            updateInt(length);
+            if (scratch.length < 2 * length) {
+                scratch = new byte[2 * length];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = field.charAt(i);
+                scratch[2 * i] = (byte) (c >>> 8);
+                scratch[2 * i + 1] = (byte) c;
+            }
+            digest.update(scratch, 0, 2 * length);
+        }
+    }
+
+    /**
+     * Adds bytes to the content.
+     *
+     * @param bytes the bytes to add
+     */
+    void update(byte[] bytes) {
+        digest.update(bytes);
+    }
+
+    private void updateInt(int value) {
+        scratch[0] = (byte) (value >>> 24);
+        scratch[1] = (byte) (value >>> 16);
+        scratch[2] = (byte) (value >>> 8);
+        scratch[3] = (byte) value;
+        digest.update(scratch, 0, 4);
+    }
+
+    /**
+     * Gets the hash of the content added since the last call, and starts a new content.
+     *
+     * @return the hash, LENGTH bytes long
+     */
+    byte[] finish() {
+        return Arrays.copyOf(digest.digest(), LENGTH);
+    }
+
+    /**
+     * Gets the hash of some bytes.
+     *
+     * @param bytes the bytes
+     * @return the hash, LENGTH bytes long
+     */
+    byte[] hash(byte[] bytes) {
+        digest.update(bytes);
+        return finish();
+    }
+}
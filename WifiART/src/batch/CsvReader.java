@@ -0,0 +1,189 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Reads comma-separated values one record at a time, following RFC 4180: fields may be enclosed
+ * in double quotes, in which case they may contain commas, line breaks and doubled quotes.
+ *
+ * <p>Only the current record is held in memory, so inputs of any size can be streamed. A quoted
+ * field may span at most MAX_QUOTED_FIELD_LINES lines, so that a stray quote is reported near the
+ * line where it is, rather than after buffering the rest of the input.
+ */
+public final class CsvReader {
+    // Constants
+    private static final int BUFFER_SIZE = 8192;
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    static final int MAX_QUOTED_FIELD_LINES = 8;
+
+    // Error messages
+    private static final String ERROR_UNTERMINATED_QUOTE = "Unterminated quoted field starting on line ";
+    private static final String ERROR_QUOTED_FIELD_TOO_LONG =
+        "Quoted field spanning more than " + MAX_QUOTED_FIELD_LINES + " lines, starting on line ";
+    private static final String ERROR_TEXT_AFTER_QUOTE = "Unexpected character after a quoted field on line ";
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final StringBuilder field = new StringBuilder();
+    private long lineNumber = 1;
+    private long recordLineNumber;
+
+    /**
+     * Constructor.
+     *
+     * @param reader the source of the comma-separated values
+     */
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Gets the line on which the last record read started.
+     *
+     * @return the 1-based line number
+     */
+    public long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    /**
+     * Reads the next record. Empty lines are skipped.
+     *
+     * @param fields the list receiving the fields of the record, cleared first
+     * @return false if the end of the input was reached before any record
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if a quoted field is malformed
+     */
+    public boolean readRecord(List<String> fields) throws IOException, IllegalArgumentException {
+        fields.clear();
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            skipLineBreak(c);
+            c = read();
+        }
+        if (c < 0) {
+            return false;
+        }
+        recordLineNumber = lineNumber;
+        while (true) {
+            field.setLength(0);
+            if (c == QUOTE) {
+                c = readQuotedField();
+            } else {
+                while (c >= 0 && c != SEPARATOR && c != '\r' && c != '\n') {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+            if (c == SEPARATOR) {
+                c = read();
+                continue;
+            }
+            if (c >= 0) {
+                skipLineBreak(c);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads a quoted field into the field buffer, the opening quote having been read. If the field
+     *  spans too many lines, reading stops at the start of the next line, where it can go on after
+     *  the error.
+     *
+     * @return the first character after the closing quote
+     */
+    private int readQuotedField() throws IOException {
+        long startLineNumber = lineNumber;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw new IllegalArgumentException(ERROR_UNTERMINATED_QUOTE + startLineNumber);
+            }
+            if (c == QUOTE) {
+                c = read();
+                if (c != QUOTE) {
+                    if (c >= 0 && c != SEPARATOR && c != '\r' && c != '\n') {
+                        long errorLineNumber = lineNumber;
+                        skipRestOfLine();
+                        throw new IllegalArgumentException(ERROR_TEXT_AFTER_QUOTE + errorLineNumber);
+                    }
+                    return c;
+                }
+            } else if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                lineNumber++;
+                if (lineNumber - startLineNumber >= MAX_QUOTED_FIELD_LINES) {
+                    throw new IllegalArgumentException(ERROR_QUOTED_FIELD_TOO_LONG + startLineNumber);
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    /**
+     * Consumes a line break ("\n", "\r" or "\r\n"), the first character having been read.
+     */
+    private void skipLineBreak(int c) throws IOException {
+        lineNumber++;
+        if (c == '\r' && peek() == '\n') {
+            position++;
+        }
+    }
+
+    /**
+     * Consumes the characters up to and including the next line break, so that reading can go on
+     *  with the next record after an error.
+     */
+    private void skipRestOfLine() throws IOException {
+        int c = read();
+        while (c >= 0 && c != '\r' && c != '\n') {
+            c = read();
+        }
+        if (c >= 0) {
+            skipLineBreak(c);
+        }
+    }
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c >= 0) {
+            position--;
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
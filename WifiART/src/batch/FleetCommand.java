@@ -0,0 +1,343 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.DatumConverter;
+import structs.LciState;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The batch mode of the inputs loaded as a whole into a {@link FleetStore}: encodes the LCI/LCR
+ * lines of the access points of a CSV file or of a fleet snapshot or store, or regenerates those of
+ * hostapd configuration files, once every access point is loaded.
+ */
+final class FleetCommand {
+
+    // Private constructor to avoid instance creation.
+    private FleetCommand() {}
+
+    /**
+     * Loads the access points of the input into a fleet store, then saves, selects, reports on and
+     *  encodes them as the options ask.
+     *
+     * @param options the options of the batch mode
+     * @param log the destination of the summary and errors
+     * @return the exit status
+     */
+    static int run(BatchOptions options, PrintStream log) {
+        long startNanos = System.nanoTime();
+        BatchOptions.FleetFormat format = options.getFleetFormat();
+        DatumConverter datumConverter = options.getDatumConverter();
+        AtomicFileWriter.SyncPolicy syncPolicy = options.getSyncPolicy();
+        Path input = Paths.get(options.getInputName());
+        ConfigurationImporter importer = new ConfigurationImporter(options.isAndroidVersionAtLeastS());
+        int accessPointCount;
+        int failedCount = 0;
+        try {
+            FleetStore store;
+            if (format == BatchOptions.FleetFormat.SURVEY) {
+                store = new FleetStore();
+                failedCount = readSurvey(options.getInputName(), datumConverter, store, log);
+            } else if (format == BatchOptions.FleetFormat.STORE && datumConverter == null) {
+                try (MappedFleetStore mappedStore = MappedFleetStore.open(input, false)) {
+                    store = new FleetStore(mappedStore.size());
+                    for (int i = 0; i < mappedStore.size(); i++) {
+                        store.add(mappedStore.getAccessPoint(i));
+                    }
+                }
+            } else if (format == BatchOptions.FleetFormat.SNAPSHOT && datumConverter == null) {
+                store = new FleetStore();
+                failedCount = FleetSnapshotReader.readInto(input, store, log);
+            } else {
+                List<AccessPoint> accessPoints = readAccessPoints(input, format, importer, log);
+                if (datumConverter != null) {
+                    failedCount = convertAll(accessPoints, datumConverter, log);
+                }
+                store = new FleetStore(accessPoints.size());
+                failedCount += addAll(accessPoints, store, log);
+            }
+            store.trimToSize();
+            if (options.getSnapshotName() != null) {
+                saveSnapshot(store, Paths.get(options.getSnapshotName()), syncPolicy);
+            }
+            if (options.getStoreName() != null) {
+                saveStore(store, Paths.get(options.getStoreName()), syncPolicy);
+            }
+            int[] indices;
+            double[] region = options.getRegion();
+            if (region != null) {
+                indices = FleetIndex.build(store).findInBox(region[0], region[1], region[2], region[3]);
+                Arrays.sort(indices);
+                log.println("Selected " + indices.length + " of " + store.size() + " access points in the region");
+            } else {
+                indices = new int[store.size()];
+                Arrays.setAll(indices, i -> i);
+            }
+            accessPointCount = indices.length;
+            if (options.getReportName() != null) {
+                QuantizationReport report = QuantizationReport.analyze(store, indices);
+                try (Writer reportOutput = BatchCommand.openOutput(options.getReportName(), syncPolicy)) {
+                    report.writeTo(reportOutput);
+                    if (reportOutput instanceof AtomicFileWriter) {
+                        ((AtomicFileWriter) reportOutput).commit();
+                    }
+                }
+                log.println(report.getSummary());
+                if (format == BatchOptions.FleetFormat.CONFIGURATION) {
+                    // The locations were decoded from LCI subelements, so encoding them again loses nothing.
+                    log.println("The locations of a configuration input are already quantized, so their errors are 0");
+                }
+            }
+            if (options.isSharded()) {
+                failedCount += writeShards(store, indices, options, log);
+            } else {
+                failedCount += writeOutput(store, indices, options, log);
+            }
+        } catch (IOException | IllegalArgumentException exception) {
+            log.println(exception.getMessage());
+            return BatchCommand.EXIT_ERROR;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (format != BatchOptions.FleetFormat.CONFIGURATION) {
+            log.println("Encoded " + accessPointCount + " access points in " + millis + " ms, " + failedCount
+                + " failed");
+        } else {
+            log.println("Regenerated " + accessPointCount + " access points in " + millis + " ms, " + failedCount
+                + " failed, " + importer.getFailedFileCount() + " files skipped");
+        }
+        return failedCount == 0 && importer.getFailedFileCount() == 0 ? BatchCommand.EXIT_SUCCESS
+            : BatchCommand.EXIT_ACCESS_POINTS_FAILED;
+    }
+
+    /**
+     * Writes the LCI/LCR lines of the selected access points into the shards of the output
+     *  directory.
+     *
+     * @param store the fleet store
+     * @param indices the indices of the selected access points, in increasing order
+     * @param options the options of the batch mode
+     * @param log the destination of the progress reports and errors
+     * @return the number of access points that could not be encoded
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    private static int writeShards(FleetStore store, int[] indices, BatchOptions options, PrintStream log)
+        throws IOException {
+        ShardedFleetWriter shardWriter = new ShardedFleetWriter(options.isAndroidVersionAtLeastS(),
+            options.getShardPrecision(), options.getSyncPolicy());
+        Path directory = Paths.get(options.getOutputName());
+        Files.createDirectories(directory);
+        shardWriter.write(store, indices, directory, log);
+        log.println("Wrote " + shardWriter.getWrittenShardCount() + " shards, "
+            + shardWriter.getUnchangedShardCount() + " unchanged, " + shardWriter.getRemovedShardCount()
+            + " removed");
+        return shardWriter.getFailedAccessPointCount();
+    }
+
+    /**
+     * Writes the LCI/LCR lines of the selected access points into the output file.
+     *
+     * @param store the fleet store
+     * @param indices the indices of the selected access points, in increasing order
+     * @param options the options of the batch mode
+     * @param log the destination of the errors of the access points
+     * @return the number of access points that could not be encoded
+     * @throws IOException if the output cannot be written
+     */
+    private static int writeOutput(FleetStore store, int[] indices, BatchOptions options, PrintStream log)
+        throws IOException {
+        try (Writer output = BatchCommand.openOutput(options.getOutputName(), options.getSyncPolicy())) {
+            FleetEncoding encoding = new FleetEncoder(options.isAndroidVersionAtLeastS()).encode(store, indices);
+            for (int i = 0; i < encoding.size(); i++) {
+                if (encoding.getFailure(i) != null) {
+                    log.println(store.getBssid(indices[i]) + ": " + encoding.getFailure(i).getMessage());
+                }
+            }
+            encoding.writeTo(output);
+            if (output instanceof AtomicFileWriter) {
+                ((AtomicFileWriter) output).commit();
+            }
+            return encoding.getFailedCount();
+        }
+    }
+
+    /**
+     * Saves the access points of a fleet store to a snapshot file, which is replaced atomically once
+     *  the snapshot is complete.
+     *
+     * @param store the fleet store
+     * @param file the snapshot file
+     * @param syncPolicy the sync policy of the snapshot file
+     * @throws IOException if the snapshot file cannot be written
+     * @throws IllegalArgumentException if a string is too long to be written
+     */
+    private static void saveSnapshot(FleetStore store, Path file, AtomicFileWriter.SyncPolicy syncPolicy)
+        throws IOException, IllegalArgumentException {
+        try (AtomicFile snapshotFile = new AtomicFile(file, syncPolicy)) {
+            try (FleetSnapshotWriter snapshot = BatchCommand.openSnapshot(snapshotFile)) {
+                for (int i = 0; i < store.size(); i++) {
+                    snapshot.write(store.getAccessPoint(i));
+                }
+                snapshot.finish();
+            }
+            snapshotFile.commit();
+        }
+    }
+
+    /**
+     * Saves the access points of a fleet store to a memory-mapped store file, which is replaced
+     *  atomically once every access point is added.
+     *
+     * @param store the fleet store
+     * @param file the store file
+     * @param syncPolicy the sync policy of the store file
+     * @throws IOException if the store file cannot be written
+     * @throws IllegalArgumentException if a value is too long to be stored
+     */
+    private static void saveStore(FleetStore store, Path file, AtomicFileWriter.SyncPolicy syncPolicy)
+        throws IOException, IllegalArgumentException {
+        try (AtomicFile storeFile = new AtomicFile(file, syncPolicy)) {
+            try (MappedFleetStore mappedStore = MappedFleetStore.create(storeFile.getTemporaryFile(), store.size())) {
+                for (int i = 0; i < store.size(); i++) {
+                    mappedStore.add(store.getAccessPoint(i));
+                }
+            }
+            storeFile.commit();
+        }
+    }
+
+    /**
+     * Reads every access point of a survey CSV input into a fleet store, reporting and skipping
+     *  those whose records are not valid.
+     *
+     * @param inputName the name of the CSV file, or "-" for the standard input
+     * @param datumConverter the converter of the locations to a map datum, or null to keep the map
+     *                       datum of each record
+     * @param store the store receiving the access points
+     * @param log the destination of the errors of the access points
+     * @return the number of access points skipped
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if the header is missing or not valid
+     */
+    private static int readSurvey(String inputName, DatumConverter datumConverter, FleetStore store, PrintStream log)
+        throws IOException, IllegalArgumentException {
+        int failedCount = 0;
+        try (Reader input = BatchCommand.openInput(inputName)) {
+            SurveyReader surveyReader = new SurveyReader(input);
+            surveyReader.setDatumConverter(datumConverter);
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                try {
+                    AccessPoint accessPoint = surveyReader.next();
+                    if (accessPoint != null) {
+                        store.add(accessPoint);
+                    } else {
+                        endOfInput = true;
+                    }
+                } catch (IllegalArgumentException | IndexOutOfBoundsException exception) {
+                    log.println("Line " + surveyReader.getLineNumber() + ": " + exception.getMessage());
+                    failedCount++;
+                }
+            }
+        }
+        return failedCount;
+    }
+
+    private static List<AccessPoint> readAccessPoints(Path input, BatchOptions.FleetFormat format,
+        ConfigurationImporter importer, PrintStream log) throws IOException, IllegalArgumentException {
+        if (format == BatchOptions.FleetFormat.SNAPSHOT) {
+            return FleetSnapshotReader.readAll(input);
+        }
+        if (format == BatchOptions.FleetFormat.STORE) {
+            try (MappedFleetStore mappedStore = MappedFleetStore.open(input, false)) {
+                List<AccessPoint> accessPoints = new ArrayList<>(mappedStore.size());
+                for (int i = 0; i < mappedStore.size(); i++) {
+                    accessPoints.add(mappedStore.getAccessPoint(i));
+                }
+                return accessPoints;
+            }
+        }
+        return Files.isDirectory(input) ? importer.importDirectory(input, log) : importer.importFile(input);
+    }
+
+    /**
+     * Converts the locations of the access points of a fleet to a map datum as one batch. A fleet
+     *  input has no vertical datum height, so an access point whose altitude in meters would need
+     *  one is reported and removed from the fleet.
+     *
+     * @param accessPoints the access points, from which those that cannot be converted are removed
+     * @param datumConverter the converter to the map datum
+     * @param log the destination of the errors of the access points
+     * @return the number of access points removed
+     */
+    private static int convertAll(List<AccessPoint> accessPoints, DatumConverter datumConverter, PrintStream log) {
+        List<LciState> states = new ArrayList<>(accessPoints.size());
+        int failedCount = 0;
+        for (Iterator<AccessPoint> iterator = accessPoints.iterator(); iterator.hasNext(); ) {
+            AccessPoint accessPoint = iterator.next();
+            if (!accessPoint.getState().isLciIncluded()) {
+                continue;
+            }
+            LciState state = accessPoint.getState().getLciState();
+            try {
+                datumConverter.check(state, Double.NaN);
+                states.add(state);
+            } catch (IllegalArgumentException exception) {
+                log.println(accessPoint.getBssid() + ": " + exception.getMessage());
+                iterator.remove();
+                failedCount++;
+            }
+        }
+        double[] verticalDatumHeights = new double[states.size()];
+        Arrays.fill(verticalDatumHeights, Double.NaN);
+        datumConverter.convert(states, verticalDatumHeights);
+        return failedCount;
+    }
+
+    /**
+     * Adds access points to a fleet store. Access points that the store cannot hold are reported
+     *  and skipped.
+     *
+     * @param accessPoints the access points
+     * @param store the fleet store
+     * @param log the destination of the errors of skipped access points
+     * @return the number of skipped access points
+     */
+    private static int addAll(List<AccessPoint> accessPoints, FleetStore store, PrintStream log) {
+        int failedCount = 0;
+        for (AccessPoint accessPoint : accessPoints) {
+            try {
+                store.add(accessPoint);
+            } catch (IllegalArgumentException exception) {
+                log.println(accessPoint.getBssid() + ": " + exception.getMessage());
+                failedCount++;
+            }
+        }
+        return failedCount;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Encodes the LCI/LCR lines of a whole fleet of access points in parallel.
+ *
+ * <p>The list of access points is split in halves recursively on a ForkJoinPool, until the ranges
+ * are small enough to be encoded by a single worker. Each range is encoded with its own subelement
+ * models, so no encoding buffers are shared between threads. The results are stored at the index
+ * of their access point, so their order does not depend on the scheduling.
+ *
+ * <p>The states of the access points must not be modified while they are being encoded.
+ */
+public final class FleetEncoder {
+    // Constants
+    /** The number of ranges per worker thread, so that idle workers can steal the remaining work. */
+    private static final int RANGES_PER_THREAD = 8;
+    private static final int MIN_RANGE_SIZE = 16;
+
+    private final ForkJoinPool pool;
+    private final boolean androidVersionAtLeastS;
+
+    /**
+     * Constructs a fleet encoder running on the common ForkJoinPool.
+     *
+     * @param androidVersionAtLeastS whether the Z subelement is encoded for Android S or later
+     */
+    public FleetEncoder(boolean androidVersionAtLeastS) {
+        this(ForkJoinPool.commonPool(), androidVersionAtLeastS);
+    }
+
+    /**
+     * Constructs a fleet encoder running on a given ForkJoinPool, e.g. one with a chosen parallelism.
+     *
+     * @param pool the pool running the encoding tasks
+     * @param androidVersionAtLeastS whether the Z subelement is encoded for Android S or later
+     */
+    public FleetEncoder(ForkJoinPool pool, boolean androidVersionAtLeastS) {
+        this.pool = pool;
+        this.androidVersionAtLeastS = androidVersionAtLeastS;
+    }
+
+    /**
+     * Gets whether the Z subelement is encoded for Android S or later.
+     *
+     * @return true if the Z subelement is encoded for Android S or later
+     */
+    public boolean isAndroidVersionAtLeastS() {
+        return androidVersionAtLeastS;
+    }
+
+    /**
+     * Encodes every access point of a fleet.
+     *
+     * @param accessPoints the access points, which should support fast random access
+     * @return the output of every access point, in the same order as the list
+     */
+    public FleetEncoding encode(List<AccessPoint> accessPoints) {
+        return encode(accessPoints::get, accessPoints.size());
+    }
+
+    /**
+     * Encodes a range of the access points of a fleet store. Each access point is encoded straight
+     *  from the columns of the store, without rebuilding its state, and a large store is best
+     *  encoded in ranges to bound the memory held by their output.
+     *
+     * @param store the fleet store
+     * @param from the index of the first access point to encode
+     * @param to the index after the last access point to encode
+     * @return the output of every access point of the range, in the order of the store
+     */
+    public FleetEncoding encode(FleetStore store, int from, int to) {
+        if (from < 0 || to > store.size() || from > to) {
+            throw new IndexOutOfBoundsException(from + ".." + to);
+        }
+        return encodeLines((lines, index, text) -> lines.append(store, from + index, text), to - from);
+    }
+
+    /**
+     * Encodes some of the access points of a fleet store, e.g. those found in a region by a
+     *  FleetIndex. Each access point is encoded straight from the columns of the store.
+     *
+     * @param store the fleet store
+     * @param indices the indices of the access points to encode
+     * @return the output of every access point, in the order of the indices
+     */
+    public FleetEncoding encode(FleetStore store, int[] indices) {
+        for (int index : indices) {
+            if (index < 0 || index >= store.size()) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+        }
+        return encodeLines((lines, i, text) -> lines.append(store, indices[i], text), indices.length);
+    }
+
+    /**
+     * Encodes a range of the access points of a memory-mapped fleet store. Each access point is
+     *  encoded straight from its record and side entries, as for an in-memory store.
+     *
+     * @param store the memory-mapped fleet store
+     * @param from the index of the first access point to encode
+     * @param to the index after the last access point to encode
+     * @return the output of every access point of the range, in the order of the store
+     */
+    public FleetEncoding encode(MappedFleetStore store, int from, int to) {
+        if (from < 0 || to > store.size() || from > to) {
+            throw new IndexOutOfBoundsException(from + ".." + to);
+        }
+        return encodeLines((lines, index, text) -> lines.append(store, from + index, text), to - from);
+    }
+
+    /**
+     * Encodes access points rebuilt or looked up on demand by the workers.
+     *
+     * @param accessPoints the source of the access point of each index
+     * @param count the number of access points
+     * @return the output of every access point, in the order of the indices
+     */
+    FleetEncoding encode(IntFunction<AccessPoint> accessPoints, int count) {
+        return encodeLines((lines, index, text) -> {
+            AccessPoint accessPoint = accessPoints.apply(index);
+            lines.append(accessPoint.getBssid(), accessPoint.getState(), text);
+        }, count);
+    }
+
+    private FleetEncoding encodeLines(LineSource source, int count) {
+        String[] lines = new String[count];
+        RuntimeException[] failures = new RuntimeException[count];
+        if (count > 0) {
+            int rangeSize = Math.max(MIN_RANGE_SIZE, count / (pool.getParallelism() * RANGES_PER_THREAD));
+            pool.invoke(new EncodingTask(source, lines, failures, 0, count, rangeSize));
+        }
+        return new FleetEncoding(lines, failures);
+    }
+
+    /**
+     * Appends the output of the access point of an index, with the lines formatter of the worker.
+     */
+    @FunctionalInterface
+    private interface LineSource {
+        void append(AccessPointLines lines, int index, StringBuilder text);
+    }
+
+    /**
+     * Encodes a range of the access points, splitting it while it is larger than the range size.
+     */
+    private final class EncodingTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LineSource source;
+        private final String[] lines;
+        private final RuntimeException[] failures;
+        private final int start;
+        private final int end;
+        private final int rangeSize;
+
+        private EncodingTask(LineSource source, String[] lines, RuntimeException[] failures, int start, int end,
+                             int rangeSize) {
+            this.source = source;
+            this.lines = lines;
+            this.failures = failures;
+            this.start = start;
+            this.end = end;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > rangeSize) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new EncodingTask(source, lines, failures, start, middle, rangeSize),
+                    new EncodingTask(source, lines, failures, middle, end, rangeSize));
+                return;
+            }
+            AccessPointLines accessPointLines = new AccessPointLines(androidVersionAtLeastS);
+            StringBuilder text = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                text.setLength(0);
+                try {
+                    source.append(accessPointLines, i, text);
+                    lines[i] = text.toString();
+                } catch (RuntimeException exception) {
+                    failures[i] = exception;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The result of encoding a fleet of access points: the output or the failure of each access
+ * point, in the order of the fleet.
+ */
+public final class FleetEncoding {
+
+    private final String[] lines;
+    private final RuntimeException[] failures;
+    private final int failedCount;
+
+    /**
+     * Constructor.
+     *
+     * @param lines the output of each access point, or null where it failed
+     * @param failures the failure of each access point, or null where it succeeded
+     */
+    FleetEncoding(String[] lines, RuntimeException[] failures) {
+        this.lines = lines;
+        this.failures = failures;
+        int failed = 0;
+        for (RuntimeException failure : failures) {
+            if (failure != null) {
+                failed++;
+            }
+        }
+        failedCount = failed;
+    }
+
+    /**
+     * Gets the number of access points encoded.
+     *
+     * @return the number of access points
+     */
+    public int size() {
+        return lines.length;
+    }
+
+    /**
+     * Gets the number of access points that could not be encoded.
+     *
+     * @return the number of failures
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the output of an access point: a comment line with its BSSID followed by its "lci=" and
+     *  "civic=" lines.
+     *
+     * @param index the index of the access point in the fleet
+     * @return the output, or null if the access point could not be encoded
+     */
+    public String getLines(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Gets the reason an access point could not be encoded.
+     *
+     * @param index the index of the access point in the fleet
+     * @return the exception thrown while encoding, or null if the access point was encoded
+     */
+    public RuntimeException getFailure(int index) {
+        return failures[index];
+    }
+
+    /**
+     * Writes the output of every encoded access point, in the order of the fleet.
+     *
+     * @param output the destination of the output
+     * @throws IOException if the output cannot be written
+     */
+    public void writeTo(Writer output) throws IOException {
+        for (String accessPointLines : lines) {
+            if (accessPointLines != null) {
+                output.write(accessPointLines);
+            }
+        }
+    }
+}
@@ -0,0 +1,623 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import structs.ArtSystemState;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A static spatial index over the locations of the access points of a fleet, answering
+ * bounding-box, radius and nearest-neighbor queries without scanning every access point.
+ *
+ * <p>The index is a packed R-tree: the access points are sorted along a Hilbert curve over their
+ * longitude and latitude, so that access points close to each other end up close in the order, and
+ * grouped by {@value #NODE_SIZE} into nodes, which are grouped the same way up to a single root.
+ * The bounds of every node, including the range of floors of the Z subelements under it, are held
+ * in flat arrays, level after level, and a query only visits the nodes whose bounds it can match.
+ * Only access points with an LCI subelement are indexed; the floor of an access point without a Z
+ * subelement matches no floor range.
+ *
+ * <p>Access points are identified by their index in the list or store the index was built from.
+ * Distances are great-circle distances on a sphere of the mean radius of the Earth. Radius and
+ * nearest-neighbor queries compare the chords between unit vectors instead, which grow with the
+ * distance and need no trigonometry: the unit vector of every access point is kept, and every node
+ * also has the bounding box of the unit vectors under it, whose distance to the location bounds
+ * the distances of its access points from below. An index is immutable, and can be queried from
+ * several threads.
+ */
+public final class FleetIndex {
+    // Constants
+    private static final int NODE_SIZE = 16;
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+    private static final double EARTH_RADIUS = 6371008.8; // meters
+    /** The floor of an access point without a Z subelement, below every floor range. */
+    private static final int NO_FLOOR = Integer.MIN_VALUE;
+
+    // Error messages
+    private static final String ERROR_NEGATIVE_RADIUS = "Negative radius: ";
+    private static final String ERROR_NEGATIVE_COUNT = "Negative count: ";
+
+    private final int size;
+    /**
+     * The bounds of node (or access point) n are at 4 * n: minimum latitude, minimum longitude,
+     *  maximum latitude, maximum longitude.
+     */
+    private final double[] bounds;
+    /**
+     * The unit vector of the access point at position n of the first level is at 3 * n, and the
+     *  bounding box of the unit vectors under node n is at 6 * n: minimum X, Y and Z, maximum X, Y
+     *  and Z.
+     */
+    private final double[] vectors;
+    /** The floors of node n are at 2 * n: minimum floor, maximum floor. */
+    private final int[] floors;
+    /** The index of the access point at position n of the first level, or the position of the first child of node n. */
+    private final int[] indices;
+    /** The positions of the first level start at 0, those of level l start at levelEnds[l - 1]. */
+    private final int[] levelEnds;
+
+    /**
+     * Builds the index of the access points of a list.
+     *
+     * @param accessPoints the access points
+     * @return the index, identifying the access points by their index in the list
+     */
+    public static FleetIndex build(List<AccessPoint> accessPoints) {
+        int count = accessPoints.size();
+        int[] indices = new int[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        int[] floors = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            ArtSystemState state = accessPoints.get(i).getState();
+            if (state.isLciIncluded()) {
+                indices[size] = i;
+                latitudes[size] = state.getLciState().getLatitude();
+                longitudes[size] = state.getLciState().getLongitude();
+                floors[size] = state.isZIncluded() ? state.getZState().getFloor() : NO_FLOOR;
+                size++;
+            }
+        }
+        return new FleetIndex(indices, latitudes, longitudes, floors, size);
+    }
+
+    /**
+     * Builds the index of the access points of a store.
+     *
+     * @param store the store
+     * @return the index, identifying the access points by their index in the store
+     */
+    public static FleetIndex build(FleetStore store) {
+        int count = store.size();
+        int[] indices = new int[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        int[] floors = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (store.isLciIncluded(i)) {
+                indices[size] = i;
+                latitudes[size] = store.getLatitude(i);
+                longitudes[size] = store.getLongitude(i);
+                floors[size] = store.isZIncluded(i) ? store.getFloor(i) : NO_FLOOR;
+                size++;
+            }
+        }
+        return new FleetIndex(indices, latitudes, longitudes, floors, size);
+    }
+
+    /**
+     * Constructs the index, sorting the access points along the Hilbert curve and building the
+     *  levels of nodes above them.
+     *
+     * @param ids the identifiers of the access points
+     * @param latitudes the latitudes of the access points, in degrees
+     * @param longitudes the longitudes of the access points, in degrees
+     * @param pointFloors the floors of the access points, or NO_FLOOR
+     * @param size the number of access points
+     */
+    private FleetIndex(int[] ids, double[] latitudes, double[] longitudes, int[] pointFloors, int size) {
+        this.size = size;
+        int nodeCount = size;
+        int levelCount = 1;
+        for (int n = size; n > 1; n = (n + NODE_SIZE - 1) / NODE_SIZE) {
+            nodeCount += (n + NODE_SIZE - 1) / NODE_SIZE;
+            levelCount++;
+        }
+        bounds = new double[4 * nodeCount];
+        vectors = new double[6 * (nodeCount - size) + 3 * size];
+        floors = new int[2 * nodeCount];
+        indices = new int[nodeCount];
+        levelEnds = new int[levelCount];
+
+        // The Hilbert curve spans the bounds of the fleet.
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+        }
+        double latitudeScale = maxLatitude > minLatitude ? HILBERT_MAX / (maxLatitude - minLatitude) : 0;
+        double longitudeScale = maxLongitude > minLongitude ? HILBERT_MAX / (maxLongitude - minLongitude) : 0;
+        // Sort by Hilbert value, then by position in the input; the sign bit is flipped to sort the
+        // values as unsigned.
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            int x = (int) ((longitudes[i] - minLongitude) * longitudeScale);
+            int y = (int) ((latitudes[i] - minLatitude) * latitudeScale);
+            keys[i] = ((long) (hilbert(x, y) ^ Integer.MIN_VALUE) << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (int position = 0; position < size; position++) {
+            int i = (int) keys[position];
+            indices[position] = ids[i];
+            bounds[4 * position] = latitudes[i];
+            toUnitVector(latitudes[i], longitudes[i], vectors, 3 * position);
+            bounds[4 * position + 1] = longitudes[i];
+            bounds[4 * position + 2] = latitudes[i];
+            bounds[4 * position + 3] = longitudes[i];
+            floors[2 * position] = pointFloors[i];
+            floors[2 * position + 1] = pointFloors[i];
+        }
+
+        int levelStart = 0;
+        int levelEnd = size;
+        levelEnds[0] = size;
+        for (int level = 1; level < levelCount; level++) {
+            int node = levelEnd;
+            for (int child = levelStart; child < levelEnd; child += NODE_SIZE, node++) {
+                int childEnd = Math.min(child + NODE_SIZE, levelEnd);
+                indices[node] = child;
+                bounds[4 * node] = Double.POSITIVE_INFINITY;
+                bounds[4 * node + 1] = Double.POSITIVE_INFINITY;
+                bounds[4 * node + 2] = Double.NEGATIVE_INFINITY;
+                bounds[4 * node + 3] = Double.NEGATIVE_INFINITY;
+                floors[2 * node] = Integer.MAX_VALUE;
+                floors[2 * node + 1] = Integer.MIN_VALUE;
+                int box = getVectorBox(node);
+                for (int axis = 0; axis < 3; axis++) {
+                    vectors[box + axis] = Double.POSITIVE_INFINITY;
+                    vectors[box + 3 + axis] = Double.NEGATIVE_INFINITY;
+                }
+                for (int c = child; c < childEnd; c++) {
+                    bounds[4 * node] = Math.min(bounds[4 * node], bounds[4 * c]);
+                    bounds[4 * node + 1] = Math.min(bounds[4 * node + 1], bounds[4 * c + 1]);
+                    bounds[4 * node + 2] = Math.max(bounds[4 * node + 2], bounds[4 * c + 2]);
+                    bounds[4 * node + 3] = Math.max(bounds[4 * node + 3], bounds[4 * c + 3]);
+                    floors[2 * node] = Math.min(floors[2 * node], floors[2 * c]);
+                    floors[2 * node + 1] = Math.max(floors[2 * node + 1], floors[2 * c + 1]);
+                    // The bounding box of a point is the point itself.
+                    int childMin = c < size ? 3 * c : getVectorBox(c);
+                    int childMax = c < size ? 3 * c : getVectorBox(c) + 3;
+                    for (int axis = 0; axis < 3; axis++) {
+                        vectors[box + axis] = Math.min(vectors[box + axis], vectors[childMin + axis]);
+                        vectors[box + 3 + axis] = Math.max(vectors[box + 3 + axis], vectors[childMax + axis]);
+                    }
+                }
+            }
+            levelStart = levelEnd;
+            levelEnd = node;
+            levelEnds[level] = levelEnd;
+        }
+    }
+
+    /**
+     * Gets the number of access points indexed, those with an LCI subelement.
+     *
+     * @return the number of access points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the access points within a bounding box. The box crosses the antimeridian if its
+     *  minimum longitude is greater than its maximum longitude.
+     *
+     * @param minLatitude the minimum latitude, in degrees
+     * @param minLongitude the minimum longitude, in degrees
+     * @param maxLatitude the maximum latitude, in degrees
+     * @param maxLongitude the maximum longitude, in degrees
+     * @return the indices of the access points, in increasing order
+     */
+    public int[] findInBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        return findInBox(minLatitude, minLongitude, maxLatitude, maxLongitude, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the access points within a bounding box, on a range of floors. The box crosses the
+     *  antimeridian if its minimum longitude is greater than its maximum longitude.
+     *
+     * @param minLatitude the minimum latitude, in degrees
+     * @param minLongitude the minimum longitude, in degrees
+     * @param maxLatitude the maximum latitude, in degrees
+     * @param maxLongitude the maximum longitude, in degrees
+     * @param minFloor the lowest floor
+     * @param maxFloor the highest floor
+     * @return the indices of the access points, in increasing order
+     */
+    public int[] findInBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                           int minFloor, int maxFloor) {
+        Results results = new Results();
+        if (minLongitude <= maxLongitude) {
+            search(minLatitude, minLongitude, maxLatitude, maxLongitude, minFloor, maxFloor, results);
+        } else {
+            search(minLatitude, minLongitude, maxLatitude, 180, minFloor, maxFloor, results);
+            search(minLatitude, -180, maxLatitude, maxLongitude, minFloor, maxFloor, results);
+        }
+        return results.toSortedArray();
+    }
+
+    /**
+     * Finds the access points within a distance of a location.
+     *
+     * @param latitude the latitude of the location, in degrees
+     * @param longitude the longitude of the location, in degrees
+     * @param radius the distance, in meters
+     * @return the indices of the access points, in increasing order
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public int[] findWithinRadius(double latitude, double longitude, double radius) throws IllegalArgumentException {
+        if (radius < 0) {
+            throw new IllegalArgumentException(ERROR_NEGATIVE_RADIUS + radius);
+        }
+        // Search the bounding box of the circle, then keep the access points within the radius.
+        double angle = Math.toDegrees(radius / EARTH_RADIUS);
+        double minLatitude = latitude - angle;
+        double maxLatitude = latitude + angle;
+        Results results = new Results();
+        if (minLatitude <= -90 || maxLatitude >= 90 || angle >= 90) {
+            search(minLatitude, -180, maxLatitude, 180, Integer.MIN_VALUE, Integer.MAX_VALUE, results);
+        } else {
+            double longitudeAngle = Math.toDegrees(Math.asin(Math.min(1,
+                Math.sin(Math.toRadians(angle)) / Math.cos(Math.toRadians(latitude)))));
+            double minLongitude = longitude - longitudeAngle;
+            double maxLongitude = longitude + longitudeAngle;
+            search(minLatitude, Math.max(minLongitude, -180), maxLatitude, Math.min(maxLongitude, 180),
+                Integer.MIN_VALUE, Integer.MAX_VALUE, results);
+            // The part of the box beyond the antimeridian.
+            if (minLongitude < -180) {
+                search(minLatitude, minLongitude + 360, maxLatitude, 180, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    results);
+            } else if (maxLongitude > 180) {
+                search(minLatitude, -180, maxLatitude, maxLongitude - 360, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    results);
+            }
+        }
+        // The square of the chord of an angle is 4 times its haversine.
+        double maxChordSquared = 4 * haversine(Math.min(radius / EARTH_RADIUS, Math.PI));
+        double[] location = new double[3];
+        toUnitVector(latitude, longitude, location, 0);
+        int kept = 0;
+        for (int r = 0; r < results.size; r++) {
+            int position = results.values[r];
+            if (pointDistanceSquared(location, position) <= maxChordSquared) {
+                results.values[kept++] = position;
+            }
+        }
+        results.size = kept;
+        return results.toSortedArray();
+    }
+
+    /**
+     * Finds the access points nearest to a location.
+     *
+     * @param latitude the latitude of the location, in degrees
+     * @param longitude the longitude of the location, in degrees
+     * @param count the maximum number of access points to find
+     * @return the indices of the access points, from the nearest
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public int[] findNearest(double latitude, double longitude, int count) throws IllegalArgumentException {
+        return findNearest(latitude, longitude, count, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the access points of a floor nearest to a location.
+     *
+     * @param latitude the latitude of the location, in degrees
+     * @param longitude the longitude of the location, in degrees
+     * @param count the maximum number of access points to find
+     * @param floor the floor of the access points
+     * @return the indices of the access points, from the nearest
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public int[] findNearest(double latitude, double longitude, int count, int floor) throws IllegalArgumentException {
+        return findNearest(latitude, longitude, count, floor, floor);
+    }
+
+    /**
+     * Finds the access points nearest to a location by a best-first search: nodes and access
+     *  points are taken from a queue ordered by their distance to the location, the distance of a
+     *  node being a lower bound of the distance of the access points under it, so the access points
+     *  come out of the queue from the nearest.
+     */
+    private int[] findNearest(double latitude, double longitude, int count, int minFloor, int maxFloor)
+        throws IllegalArgumentException {
+        if (count < 0) {
+            throw new IllegalArgumentException(ERROR_NEGATIVE_COUNT + count);
+        }
+        int[] nearest = new int[Math.min(count, size)];
+        if (nearest.length == 0) {
+            return nearest;
+        }
+        double[] location = new double[3];
+        toUnitVector(latitude, longitude, location, 0);
+        Queue queue = new Queue();
+        int found = 0;
+        int root = indices.length - 1;
+        if (floors[2 * root + 1] >= minFloor && floors[2 * root] <= maxFloor) {
+            queue.push(0, root);
+        }
+        while (queue.size > 0 && found < nearest.length) {
+            int position = queue.pop();
+            if (position < size) {
+                nearest[found++] = indices[position];
+                continue;
+            }
+            int childEnd = getChildEnd(position);
+            for (int child = indices[position]; child < childEnd; child++) {
+                if (floors[2 * child + 1] < minFloor || floors[2 * child] > maxFloor) {
+                    continue;
+                }
+                queue.push(child < size ? pointDistanceSquared(location, child) : boxDistanceSquared(location, child),
+                    child);
+            }
+        }
+        return found == nearest.length ? nearest : Arrays.copyOf(nearest, found);
+    }
+
+    /**
+     * Adds the positions of the access points within a box (that does not cross the antimeridian)
+     *  and a range of floors to the results.
+     */
+    private void search(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                        int minFloor, int maxFloor, Results results) {
+        if (size == 0) {
+            return;
+        }
+        int[] stack = new int[NODE_SIZE * levelEnds.length];
+        int stackSize = 0;
+        stack[stackSize++] = indices.length - 1;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            int childEnd = getChildEnd(node);
+            for (int child = node < size ? node : indices[node]; child < childEnd; child++) {
+                if (bounds[4 * child + 2] < minLatitude || bounds[4 * child] > maxLatitude
+                    || bounds[4 * child + 3] < minLongitude || bounds[4 * child + 1] > maxLongitude
+                    || floors[2 * child + 1] < minFloor || floors[2 * child] > maxFloor) {
+                    continue;
+                }
+                if (child < size) {
+                    results.add(child);
+                } else {
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the end of the children of a node: the start of the children of the next node of its
+     *  level, or the end of the level below. The root of an index of a single access point is
+     *  the access point itself.
+     */
+    private int getChildEnd(int node) {
+        if (node < size) {
+            return node + 1;
+        }
+        int level = 1;
+        while (node >= levelEnds[level]) {
+            level++;
+        }
+        return node + 1 < levelEnds[level] ? indices[node + 1] : levelEnds[level - 1];
+    }
+
+    /**
+     * Gets the offset in the vectors of the bounding box of the unit vectors under a node.
+     */
+    private int getVectorBox(int node) {
+        return 3 * size + 6 * (node - size);
+    }
+
+    /**
+     * Gets the square of the chord between a location and an access point, on the unit sphere.
+     */
+    private double pointDistanceSquared(double[] location, int position) {
+        double dx = location[0] - vectors[3 * position];
+        double dy = location[1] - vectors[3 * position + 1];
+        double dz = location[2] - vectors[3 * position + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Gets the square of the distance between a location and the bounding box of the unit vectors
+     *  of a node, a lower bound of the square of the chord to each access point under it.
+     */
+    private double boxDistanceSquared(double[] location, int node) {
+        int box = getVectorBox(node);
+        double distanceSquared = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            double d = Math.max(vectors[box + axis] - location[axis], location[axis] - vectors[box + 3 + axis]);
+            if (d > 0) {
+                distanceSquared += d * d;
+            }
+        }
+        return distanceSquared;
+    }
+
+    private static void toUnitVector(double latitude, double longitude, double[] vector, int offset) {
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        vector[offset] = cosLatitude * Math.cos(Math.toRadians(longitude));
+        vector[offset + 1] = cosLatitude * Math.sin(Math.toRadians(longitude));
+        vector[offset + 2] = Math.sin(Math.toRadians(latitude));
+    }
+
+    private static double haversine(double angle) {
+        double sin = Math.sin(angle / 2);
+        return sin * sin;
+    }
+
+    /**
+     * Gets the position of a point along the Hilbert curve filling a 2^16 by 2^16 grid.
+     *
+     * @param x the column of the point
+     * @param y the row of the point
+     * @return the position, as an unsigned 32-bit value
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xffff ^ a;
+        int c = 0xffff ^ (x | y);
+        int d = x & (y ^ 0xffff);
+
+        int aa = a | (b >>> 1);
+        int bb = (a >>> 1) ^ a;
+        int cc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int dd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        aa = (a & (a >>> 2)) ^ (b & (b >>> 2));
+        bb = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+        cc ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+        dd ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        aa = (a & (a >>> 4)) ^ (b & (b >>> 4));
+        bb = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+        cc ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+        dd ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        cc ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+        dd ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+        a = cc ^ (cc >>> 1);
+        b = dd ^ (dd >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xffff ^ (i0 | a));
+
+        i0 = (i0 | (i0 << 8)) & 0x00ff00ff;
+        i0 = (i0 | (i0 << 4)) & 0x0f0f0f0f;
+        i0 = (i0 | (i0 << 2)) & 0x33333333;
+        i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+        i1 = (i1 | (i1 << 8)) & 0x00ff00ff;
+        i1 = (i1 | (i1 << 4)) & 0x0f0f0f0f;
+        i1 = (i1 | (i1 << 2)) & 0x33333333;
+        i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+        return (i1 << 1) | i0;
+    }
+
+    /**
+     * The positions found by a query, growing as needed.
+     */
+    private final class Results {
+        int[] values = new int[16];
+        int size;
+
+        void add(int position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = position;
+        }
+
+        /** Gets the indices of the access points at the positions found, in increasing order. */
+        int[] toSortedArray() {
+            int[] found = new int[size];
+            for (int i = 0; i < size; i++) {
+                found[i] = indices[values[i]];
+            }
+            Arrays.sort(found);
+            return found;
+        }
+    }
+
+    /**
+     * A binary min-heap of positions, ordered by the square of their distance to the location of a
+     * query.
+     */
+    private static final class Queue {
+        double[] keys = new double[64];
+        int[] values = new int[64];
+        int size;
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            size--;
+            double key = keys[size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+}
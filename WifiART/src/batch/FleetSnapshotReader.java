@@ -0,0 +1,335 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.BssidState;
+import structs.CivicAddressElementKeys;
+import structs.ExpectedToMove;
+import structs.LanguageCodes;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.ZState;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the access points of a binary snapshot written by a {@link FleetSnapshotWriter}.
+ *
+ * <p>The input is read into a buffer in large blocks and decoded from it directly, and each string
+ * of the string table is decoded once, however many access points use it.
+ */
+public final class FleetSnapshotReader implements Closeable {
+    // Constants
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BSSID_LENGTH = 6; // length in bytes
+
+    // Error messages
+    private static final String ERROR_NOT_A_SNAPSHOT = "Not a fleet snapshot.";
+    private static final String ERROR_UNSUPPORTED_VERSION = "Unsupported fleet snapshot version: ";
+    private static final String ERROR_TRUNCATED = "The fleet snapshot is incomplete.";
+    private static final String ERROR_MALFORMED = "Malformed fleet snapshot.";
+
+    private final InputStream input;
+    private final List<String> strings = new ArrayList<>();
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean ended;
+
+    /**
+     * Constructs a reader, reading the start of the snapshot.
+     *
+     * @param input the snapshot, closed with the reader
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if the input is not a snapshot, or was written by an
+     *                                  unsupported version
+     */
+    public FleetSnapshotReader(InputStream input) throws IOException, IllegalArgumentException {
+        this.input = input;
+        if (!fill(8) || readInt() != FleetSnapshotWriter.MAGIC) {
+            throw new IllegalArgumentException(ERROR_NOT_A_SNAPSHOT);
+        }
+        int version = readInt();
+        if (version != FleetSnapshotWriter.VERSION) {
+            throw new IllegalArgumentException(ERROR_UNSUPPORTED_VERSION + version);
+        }
+    }
+
+    /**
+     * Reads every access point of a snapshot file.
+     *
+     * @param file the snapshot file
+     * @return the access points, in the order they were written
+     * @throws IOException if the file cannot be read or is incomplete
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static List<AccessPoint> readAll(Path file) throws IOException, IllegalArgumentException {
+        try (FleetSnapshotReader reader = new FleetSnapshotReader(Files.newInputStream(file))) {
+            List<AccessPoint> accessPoints = new ArrayList<>();
+            for (AccessPoint accessPoint = reader.next(); accessPoint != null; accessPoint = reader.next()) {
+                accessPoints.add(accessPoint);
+            }
+            return accessPoints;
+        }
+    }
+
+    /**
+     * Reads every access point of a snapshot file straight into a fleet store, without holding the
+     *  states of all of them at once. An access point the store rejects is reported and skipped.
+     *
+     * @param file the snapshot file
+     * @param store the store receiving the access points, in the order they were written
+     * @param log the destination of the errors of the access points
+     * @return the number of access points skipped
+     * @throws IOException if the file cannot be read or is incomplete
+     * @throws IllegalArgumentException if the file is not a valid snapshot
+     */
+    public static int readInto(Path file, FleetStore store, PrintStream log)
+        throws IOException, IllegalArgumentException {
+        int failedCount = 0;
+        try (FleetSnapshotReader reader = new FleetSnapshotReader(Files.newInputStream(file))) {
+            for (AccessPoint accessPoint = reader.next(); accessPoint != null; accessPoint = reader.next()) {
+                try {
+                    store.add(accessPoint);
+                } catch (IllegalArgumentException exception) {
+                    log.println(accessPoint.getBssid() + ": " + exception.getMessage());
+                    failedCount++;
+                }
+            }
+        }
+        return failedCount;
+    }
+
+    /**
+     * Reads the next access point.
+     *
+     * @return the access point, or null at the end of the snapshot
+     * @throws IOException if the input cannot be read, or ends before the end of the snapshot
+     * @throws IllegalArgumentException if the snapshot is not valid
+     */
+    public AccessPoint next() throws IOException, IllegalArgumentException {
+        if (ended) {
+            return null;
+        }
+        int tag = readByte();
+        if (tag == FleetSnapshotWriter.END_TAG) {
+            ended = true;
+            return null;
+        }
+        if (tag != FleetSnapshotWriter.ACCESS_POINT_TAG) {
+            throw new IllegalArgumentException(ERROR_MALFORMED);
+        }
+        String bssid = readString();
+        ArtSystemState state = new ArtSystemState();
+        int flags = readVarint();
+        int settings = readByte();
+        state.setReadable((settings & FleetSnapshotWriter.READABLE) != 0);
+        state.setAndroidVersionAtLeastS((settings & FleetSnapshotWriter.ANDROID_VERSION_AT_LEAST_S) != 0);
+        state.setInputFileName(readString());
+        state.setInputDir(readString());
+        state.setOutputFileName(readString());
+        state.setOutputDir(readString());
+
+        LciState lciState = state.getLciState();
+        lciState.setLciVersion(readByte());
+        AltitudeType altitudeType = AltitudeType.fromEncoding(readByte());
+        MapDatum mapDatum = MapDatum.fromEncoding(readByte());
+        if (altitudeType == null || mapDatum == null) {
+            throw new IllegalArgumentException(ERROR_MALFORMED);
+        }
+        lciState.setAltitudeType(altitudeType);
+        lciState.setMapDatum(mapDatum);
+        lciState.setLatitude(readDouble());
+        lciState.setLatitudeUncertainty(readDouble());
+        lciState.setLongitude(readDouble());
+        lciState.setLongitudeUncertainty(readDouble());
+        lciState.setAltitude(readDouble());
+        lciState.setAltitudeUncertainty(readDouble());
+
+        ZState zState = state.getZState();
+        zState.setFloor(readInt());
+        zState.setHeightAboveFloorMeters(readDouble());
+        zState.setHeightAboveFloorUncertaintyMeters(readDouble());
+        byte expectedToMove = (byte) readByte();
+        if (expectedToMove != FleetSnapshotWriter.NO_EXPECTED_TO_MOVE) {
+            ExpectedToMove value = ExpectedToMove.fromEncoding(expectedToMove);
+            if (value == null) {
+                throw new IllegalArgumentException(ERROR_MALFORMED);
+            }
+            zState.setExpectedToMove(value);
+        }
+
+        state.getUsageState().setExpireTimeHours(readChar());
+
+        BssidState bssidState = state.getBssidState();
+        bssidState.setMaxBssidIndicator((short) readChar());
+        int bssidCount = readVarint();
+        for (int i = 0; i < bssidCount; i++) {
+            require(BSSID_LENGTH);
+            bssidState.addBssid(buffer, position);
+            position += BSSID_LENGTH;
+        }
+
+        LcrState lcrState = state.getLcrState();
+        String country = readString();
+        if (country != null) {
+            lcrState.setCountry(country);
+        }
+        int addressElementCount = readVarint();
+        for (int i = 0; i < addressElementCount; i++) {
+            byte caType = (byte) readByte();
+            String languageCode = readString();
+            String name = readString();
+            if (languageCode == null || name == null) {
+                throw new IllegalArgumentException(ERROR_MALFORMED);
+            }
+            String languageName = LanguageCodes.getLanguageName(languageCode);
+            String key = CivicAddressElementKeys.getAddressElementKey(caType);
+            if (languageName == null || key == null) {
+                throw new IllegalArgumentException(ERROR_MALFORMED);
+            }
+            lcrState.addAddressElement(new StringBuilder(name), new StringBuilder(languageName),
+                new StringBuilder(key));
+        }
+
+        state.getMapState().setMapType(readString());
+        state.getMapState().setMapUrl(readString());
+        FleetStore.setFlags(state, flags);
+        return new AccessPoint(bssid, state);
+    }
+
+    private String readString() throws IOException {
+        int reference = readVarint();
+        if (reference == FleetSnapshotWriter.NULL_STRING) {
+            return null;
+        }
+        if (reference != FleetSnapshotWriter.NEW_STRING) {
+            int index = reference - FleetSnapshotWriter.FIRST_STRING_REFERENCE;
+            if (index >= strings.size()) {
+                throw new IllegalArgumentException(ERROR_MALFORMED);
+            }
+            return strings.get(index);
+        }
+        int length = readVarint();
+        if (length > FleetSnapshotWriter.MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException(ERROR_MALFORMED);
+        }
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        strings.add(value);
+        return value;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException(ERROR_MALFORMED);
+    }
+
+    private int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xff;
+    }
+
+    private char readChar() throws IOException {
+        require(2);
+        char value = (char) (((buffer[position] & 0xff) << 8) | (buffer[position + 1] & 0xff));
+        position += 2;
+        return value;
+    }
+
+    private int readInt() throws IOException {
+        require(4);
+        int value = ((buffer[position] & 0xff) << 24) | ((buffer[position + 1] & 0xff) << 16)
+            | ((buffer[position + 2] & 0xff) << 8) | (buffer[position + 3] & 0xff);
+        position += 4;
+        return value;
+    }
+
+    private double readDouble() throws IOException {
+        long high = readInt() & 0xffffffffL;
+        long low = readInt() & 0xffffffffL;
+        return Double.longBitsToDouble((high << 32) | low);
+    }
+
+    /**
+     * Makes sure that the buffer holds a number of bytes after the position.
+     *
+     * @param length the number of bytes
+     * @throws IOException if the input cannot be read, or ends before the bytes
+     */
+    private void require(int length) throws IOException {
+        if (length < 0) {
+            throw new IllegalArgumentException(ERROR_MALFORMED);
+        }
+        if (!fill(length)) {
+            throw new EOFException(ERROR_TRUNCATED);
+        }
+    }
+
+    /**
+     * Reads from the input until the buffer holds a number of bytes after the position.
+     *
+     * @param length the number of bytes
+     * @return false if the input ended before the bytes
+     * @throws IOException if the input cannot be read
+     */
+    private boolean fill(int length) throws IOException {
+        if (limit - position >= length) {
+            return true;
+        }
+        if (length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length, 2 * buffer.length));
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < length) {
+            int count = input.read(buffer, limit, buffer.length - limit);
+            if (count < 0) {
+                return false;
+            }
+            limit += count;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import structs.AddressElement;
+import structs.ArtSystemState;
+import structs.BssidState;
+import structs.LciState;
+import structs.LcrState;
+import structs.ZState;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the states of access points to a compact, versioned binary snapshot, which a
+ * {@link FleetSnapshotReader} loads much faster than the survey CSV file they came from. A
+ * snapshot of a single access point saves a whole session, including its file names and options.
+ *
+ * <p>A snapshot starts with a magic number and a format version, followed by one record per access
+ * point, each starting with a tag byte, and ends with an end tag. Numbers are written big-endian
+ * with a fixed width, except for lengths and counts, which are unsigned varints (7 bits per byte,
+ * lowest first). Strings go through a string table built as they are first written, so the names
+ * shared by many access points (e.g. the building of their civic address) are stored once: a
+ * string is written as varint 0 for null, 1 followed by its UTF-8 length and bytes for a new
+ * string, or 2 + i for the i-th string of the table. A string is at most 64 KiB long in UTF-8, so
+ * that a reader never buffers more than that for a string of a corrupt snapshot.
+ *
+ * <p>An access point is written in full or not at all, but the end tag is only written by
+ * {@link #finish()}, so a snapshot whose writing was interrupted is rejected by the reader rather
+ * than loaded partially.
+ */
+public final class FleetSnapshotWriter implements Closeable {
+    // Constants
+    static final int MAGIC = 0x57465350; // "WFSP"
+    static final int VERSION = 1;
+    static final int END_TAG = 0;
+    static final int ACCESS_POINT_TAG = 1;
+    static final int NULL_STRING = 0;
+    static final int NEW_STRING = 1;
+    static final int FIRST_STRING_REFERENCE = 2;
+    static final int NO_EXPECTED_TO_MOVE = -1;
+    static final int READABLE = 1;
+    static final int ANDROID_VERSION_AT_LEAST_S = 1 << 1;
+    static final int MAX_STRING_LENGTH = 1 << 16; // length in bytes
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Error messages
+    private static final String ERROR_FINISHED = "The snapshot is finished.";
+    private static final String ERROR_STRING_TOO_LONG = "String longer than " + MAX_STRING_LENGTH + " bytes: ";
+
+    private final DataOutputStream output;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private long accessPointCount;
+    private boolean finished;
+
+    /**
+     * Constructs a writer, writing the start of the snapshot.
+     *
+     * @param output the destination of the snapshot, closed with the writer
+     * @throws IOException if the output cannot be written
+     */
+    public FleetSnapshotWriter(OutputStream output) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+        this.output.writeInt(MAGIC);
+        this.output.writeInt(VERSION);
+    }
+
+    /**
+     * Writes an access point to the snapshot.
+     *
+     * @param accessPoint the access point
+     * @throws IOException if the output cannot be written
+     * @throws IllegalArgumentException if the civic address has an address element whose language
+     *                                  or key is not recognized, or a string is longer than 64 KiB
+     *                                  in UTF-8, in which case nothing is written
+     */
+    public void write(AccessPoint accessPoint) throws IOException, IllegalArgumentException {
+        if (finished) {
+            throw new IOException(ERROR_FINISHED);
+        }
+        ArtSystemState state = accessPoint.getState();
+        LcrState lcrState = state.getLcrState();
+        checkLength(accessPoint.getBssid());
+        checkLength(state.getInputFileName());
+        checkLength(state.getInputDir());
+        checkLength(state.getOutputFileName());
+        checkLength(state.getOutputDir());
+        checkLength(lcrState.getCountry());
+        for (AddressElement addressElement : lcrState.getAddressElementsList()) {
+            FleetStore.isWithinBuilding(addressElement);
+            checkLength(addressElement.getLanguageCode());
+            checkLength(addressElement.getName());
+        }
+        checkLength(state.getMapState().getMapType());
+        checkLength(state.getMapState().getMapUrl());
+        output.writeByte(ACCESS_POINT_TAG);
+        writeString(accessPoint.getBssid());
+        writeVarint(FleetStore.getFlags(state));
+        output.writeByte((state.isReadable() ? READABLE : 0)
+            | (state.isAndroidVersionAtLeastS() ? ANDROID_VERSION_AT_LEAST_S : 0));
+        writeString(state.getInputFileName());
+        writeString(state.getInputDir());
+        writeString(state.getOutputFileName());
+        writeString(state.getOutputDir());
+
+        LciState lciState = state.getLciState();
+        output.writeByte(lciState.getLciVersion());
+        output.writeByte(lciState.getAltitudeType().getEncoding());
+        output.writeByte(lciState.getMapDatum().getEncoding());
+        output.writeDouble(lciState.getLatitude());
+        output.writeDouble(lciState.getLatitudeUncertainty());
+        output.writeDouble(lciState.getLongitude());
+        output.writeDouble(lciState.getLongitudeUncertainty());
+        output.writeDouble(lciState.getAltitude());
+        output.writeDouble(lciState.getAltitudeUncertainty());
+
+        ZState zState = state.getZState();
+        output.writeInt(zState.getFloor());
+        output.writeDouble(zState.getHeightAboveFloorMeters());
+        output.writeDouble(zState.getHeightAboveFloorUncertaintyMeters());
+        output.writeByte(zState.getExpectedToMove() == null ? NO_EXPECTED_TO_MOVE
+            : zState.getExpectedToMove().getEncoding());
+
+        output.writeChar(state.getUsageState().getExpireTimeHours());
+
+        BssidState bssidState = state.getBssidState();
+        output.writeShort(bssidState.getMaxBssidIndicator());
+        writeVarint(bssidState.getBssidList().size());
+        for (byte[] bssid : bssidState.getBssidList()) {
+            output.write(bssid);
+        }
+
+        writeString(lcrState.getCountry());
+        writeVarint(lcrState.getAddressElementsList().size());
+        for (AddressElement addressElement : lcrState.getAddressElementsList()) {
+            output.writeByte(addressElement.getCivicAddressType());
+            writeString(addressElement.getLanguageCode());
+            writeString(addressElement.getName());
+        }
+
+        writeString(state.getMapState().getMapType());
+        writeString(state.getMapState().getMapUrl());
+        accessPointCount++;
+    }
+
+    private static void checkLength(String value) {
+        // A UTF-16 char takes at most 3 bytes in UTF-8, so short strings need not be encoded.
+        if (value != null && value.length() > MAX_STRING_LENGTH / 3
+            && value.getBytes(StandardCharsets.UTF_8).length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException(ERROR_STRING_TOO_LONG + value.substring(0, 32) + "...");
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarint(NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarint(FIRST_STRING_REFERENCE + index);
+            return;
+        }
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(NEW_STRING);
+        writeVarint(bytes.length);
+        output.write(bytes);
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            output.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * Gets the number of access points written.
+     *
+     * @return the number of access points
+     */
+    public long getAccessPointCount() {
+        return accessPointCount;
+    }
+
+    /**
+     * Writes the end of the snapshot and flushes it, without closing the output.
+     *
+     * @throws IOException if the output cannot be written
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            output.writeByte(END_TAG);
+            output.flush();
+            finished = true;
+        }
+    }
+
+    /**
+     * Closes the output. A snapshot closed without being finished is incomplete.
+     *
+     * @throws IOException if the output cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,864 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.ByteSink;
+import encoding.FieldEncoder;
+import structs.AddressElement;
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.BssidState;
+import structs.CivicAddressElementKeys;
+import structs.CountryCodes;
+import structs.ExpectedToMove;
+import structs.LanguageCodes;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.MapState;
+import structs.UsageState;
+import structs.ZState;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds the access points of a fleet in columns of primitive arrays, one entry per access point,
+ * instead of an ArtSystemState object graph per access point.
+ *
+ * <p>BSSIDs, including the co-located BSSIDs of the BSSID List subelement, are packed into the low
+ * 48 bits of longs. Civic addresses are split into the part shared by a building (the country and
+ * every address element but those describing a position within the building), which is interned
+ * like map images so that the access points of a building share it, and the address elements
+ * describing the position within the building (e.g. the floor and room), which are stored in
+ * columns with their names encoded as UTF-8. An access point costs about 100 bytes, plus 8 bytes
+ * per co-located BSSID and 11 bytes per position address element with its name.
+ *
+ * <p>Access points are encoded straight from the columns by FleetEncoder, without rebuilding their
+ * state: the country code and the UTF-8 names of a building address are only computed once, when
+ * the building is first added. The state of an access point can still be rebuilt on demand by
+ * {@link #getState(int)}. A store can be read from several threads once it is filled, but not while
+ * access points are being added.
+ */
+public final class FleetStore {
+    // Constants
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int NONE = -1;
+    private static final int BSSID_LENGTH = 6; // length in bytes
+    private static final int BSSID_STRING_LENGTH = 17; // "xx:xx:xx:xx:xx:xx"
+
+    // Flags, as packed by getFlags and shared with MappedFleetStore
+    static final int LCI_INCLUDED = 1;
+    static final int Z_INCLUDED = 1 << 1;
+    static final int USAGE_INCLUDED = 1 << 2;
+    static final int BSSID_INCLUDED = 1 << 3;
+    static final int LCR_INCLUDED = 1 << 4;
+    static final int MAP_INCLUDED = 1 << 5;
+    static final int REG_LOC_AGREEMENT = 1 << 6;
+    static final int REG_LOC_DSE = 1 << 7;
+    static final int DEPENDENT_STA = 1 << 8;
+    static final int RETRANSMISSION_ALLOWED = 1 << 9;
+    static final int RETENTION_EXPIRES = 1 << 10;
+    static final int STA_LOCATION_POLICY = 1 << 11;
+
+    // Error messages
+    private static final String ERROR_NOT_A_BSSID = "Not a BSSID: ";
+    private static final String ERROR_ADDRESS_ELEMENT_NOT_RECOGNIZED = "Address element not recognized: ";
+
+    private int size;
+    private long[] bssids;
+    private int[] flags;
+
+    // LCI columns
+    private byte[] lciVersions;
+    private double[] latitudes;
+    private double[] latitudeUncertainties;
+    private double[] longitudes;
+    private double[] longitudeUncertainties;
+    private double[] altitudes;
+    private double[] altitudeUncertainties;
+    private byte[] altitudeTypes;
+    private byte[] mapDatums;
+
+    // Z columns
+    private int[] floors;
+    private double[] heightsAboveFloor;
+    private double[] heightAboveFloorUncertainties;
+    private byte[] expectedToMove;
+
+    // Usage Rules/Policy and BSSID List columns
+    private char[] expireTimeHours;
+    private short[] maxBssidIndicators;
+    /** The co-located BSSIDs of access point i are at indices colocatedStarts[i] to colocatedStarts[i + 1]. */
+    private int[] colocatedStarts;
+    private long[] colocatedBssids;
+
+    // Location Civic and Map Image columns, indices into the interned values
+    private int[] buildingAddresses;
+    private int[] mapImages;
+    private final Interner<CivicAddress> civicAddresses = new Interner<>();
+    private final Interner<List<String>> mapImageValues = new Interner<>();
+
+    /**
+     * The address elements describing the position within the building of access point i are at
+     *  indices positionStarts[i] to positionStarts[i + 1] of the position element columns.
+     */
+    private int[] positionStarts;
+    private int positionElementCount;
+    private byte[] positionCaTypes;
+    private short[] positionLanguages;
+    /** The name of position element e is at indices positionNameEnds[e - 1] (or 0) to positionNameEnds[e]. */
+    private int[] positionNameEnds;
+    private byte[] positionNames;
+    private final Interner<String> languageCodes = new Interner<>();
+
+    /**
+     * Constructs an empty store.
+     */
+    public FleetStore() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param initialCapacity the number of access points the store holds before it needs to grow
+     */
+    public FleetStore(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+        colocatedBssids = new long[Math.max(1, initialCapacity)];
+        positionCaTypes = new byte[Math.max(1, initialCapacity)];
+        positionLanguages = new short[Math.max(1, initialCapacity)];
+        positionNameEnds = new int[Math.max(1, initialCapacity)];
+        positionNames = new byte[Math.max(1, initialCapacity)];
+    }
+
+    private void allocate(int capacity) {
+        bssids = grow(bssids, capacity);
+        flags = grow(flags, capacity);
+        lciVersions = grow(lciVersions, capacity);
+        latitudes = grow(latitudes, capacity);
+        latitudeUncertainties = grow(latitudeUncertainties, capacity);
+        longitudes = grow(longitudes, capacity);
+        longitudeUncertainties = grow(longitudeUncertainties, capacity);
+        altitudes = grow(altitudes, capacity);
+        altitudeUncertainties = grow(altitudeUncertainties, capacity);
+        altitudeTypes = grow(altitudeTypes, capacity);
+        mapDatums = grow(mapDatums, capacity);
+        floors = grow(floors, capacity);
+        heightsAboveFloor = grow(heightsAboveFloor, capacity);
+        heightAboveFloorUncertainties = grow(heightAboveFloorUncertainties, capacity);
+        expectedToMove = grow(expectedToMove, capacity);
+        expireTimeHours = grow(expireTimeHours, capacity);
+        maxBssidIndicators = grow(maxBssidIndicators, capacity);
+        colocatedStarts = grow(colocatedStarts, capacity + 1);
+        buildingAddresses = grow(buildingAddresses, capacity);
+        positionStarts = grow(positionStarts, capacity + 1);
+        mapImages = grow(mapImages, capacity);
+    }
+
+    private static long[] grow(long[] array, int capacity) {
+        return array == null ? new long[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static char[] grow(char[] array, int capacity) {
+        return array == null ? new char[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static short[] grow(short[] array, int capacity) {
+        return array == null ? new short[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    private static byte[] grow(byte[] array, int capacity) {
+        return array == null ? new byte[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    /**
+     * Adds an access point to the store.
+     *
+     * @param accessPoint the access point, whose BSSID must be a MAC address ("xx:xx:xx:xx:xx:xx")
+     * @return the index of the access point in the store
+     * @throws IllegalArgumentException if the BSSID is not a MAC address, or the civic address has
+     *                                  an address element whose language or key is not recognized
+     */
+    public int add(AccessPoint accessPoint) throws IllegalArgumentException {
+        long bssid = parseBssid(accessPoint.getBssid());
+        ArtSystemState state = accessPoint.getState();
+        int buildingAddress = internBuildingAddress(state.getLcrState());
+        if (size == bssids.length) {
+            allocate(size + (size >> 1) + 1);
+        }
+        int index = size;
+        bssids[index] = bssid;
+
+        LciState lciState = state.getLciState();
+        lciVersions[index] = (byte) lciState.getLciVersion();
+        latitudes[index] = lciState.getLatitude();
+        latitudeUncertainties[index] = lciState.getLatitudeUncertainty();
+        longitudes[index] = lciState.getLongitude();
+        longitudeUncertainties[index] = lciState.getLongitudeUncertainty();
+        altitudes[index] = lciState.getAltitude();
+        altitudeUncertainties[index] = lciState.getAltitudeUncertainty();
+        altitudeTypes[index] = (byte) lciState.getAltitudeType().getEncoding();
+        mapDatums[index] = (byte) lciState.getMapDatum().getEncoding();
+
+        ZState zState = state.getZState();
+        floors[index] = zState.getFloor();
+        heightsAboveFloor[index] = zState.getHeightAboveFloorMeters();
+        heightAboveFloorUncertainties[index] = zState.getHeightAboveFloorUncertaintyMeters();
+        expectedToMove[index] = zState.getExpectedToMove() == null ? NONE
+            : (byte) zState.getExpectedToMove().getEncoding();
+
+        UsageState usageState = state.getUsageState();
+        expireTimeHours[index] = (char) usageState.getExpireTimeHours();
+
+        BssidState bssidState = state.getBssidState();
+        maxBssidIndicators[index] = (short) bssidState.getMaxBssidIndicator();
+        int colocatedStart = colocatedStarts[index];
+        int colocatedEnd = colocatedStart + bssidState.getBssidList().size();
+        if (colocatedEnd > colocatedBssids.length) {
+            colocatedBssids = Arrays.copyOf(colocatedBssids, Math.max(colocatedEnd, 2 * colocatedBssids.length));
+        }
+        int colocatedIndex = colocatedStart;
+        for (byte[] colocatedBssid : bssidState.getBssidList()) {
+            colocatedBssids[colocatedIndex++] = packBssid(colocatedBssid);
+        }
+        colocatedStarts[index + 1] = colocatedEnd;
+
+        buildingAddresses[index] = buildingAddress;
+        addPositionElements(state.getLcrState());
+        positionStarts[index + 1] = positionElementCount;
+        MapState mapState = state.getMapState();
+        mapImages[index] = mapState.getMapType() == null && mapState.getMapUrl() == null ? NONE
+            : mapImageValues.intern(Arrays.asList(mapState.getMapType(), mapState.getMapUrl()));
+
+        flags[index] = getFlags(state);
+        size++;
+        return index;
+    }
+
+    /**
+     * Interns the part of a civic address shared by the access points of a building.
+     *
+     * @param lcrState the Location Civic state
+     * @return the index of the part shared by the building, or NONE if the address is empty
+     * @throws IllegalArgumentException if an address element is not recognized
+     */
+    private int internBuildingAddress(LcrState lcrState) throws IllegalArgumentException {
+        List<AddressElement> addressElements = lcrState.getAddressElementsList();
+        int buildingCount = 0;
+        for (AddressElement addressElement : addressElements) {
+            if (!isWithinBuilding(addressElement)) {
+                buildingCount++;
+            }
+        }
+        if (lcrState.getCountry() == null && buildingCount == 0) {
+            return NONE;
+        }
+        CivicAddress building = new CivicAddress(lcrState.getCountry(), buildingCount);
+        for (AddressElement addressElement : addressElements) {
+            if (!CivicAddressElementKeys.isWithinBuilding(addressElement.getCivicAddressType())) {
+                building.add(addressElement);
+            }
+        }
+        return civicAddresses.intern(building);
+    }
+
+    /**
+     * Checks that an address element is recognized, and gets whether it describes a position
+     *  within the building rather than the building itself.
+     *
+     * @param addressElement the address element
+     * @return true if the address element describes a position within the building
+     * @throws IllegalArgumentException if the language or key of the address element is not recognized
+     */
+    static boolean isWithinBuilding(AddressElement addressElement) throws IllegalArgumentException {
+        if (!addressElement.isRecognized()) {
+            throw new IllegalArgumentException(ERROR_ADDRESS_ELEMENT_NOT_RECOGNIZED + addressElement.getName());
+        }
+        return CivicAddressElementKeys.isWithinBuilding(addressElement.getCivicAddressType());
+    }
+
+    /**
+     * Appends the address elements describing the position within the building to the position
+     *  element columns. The address elements must all be recognized.
+     *
+     * @param lcrState the Location Civic state
+     */
+    private void addPositionElements(LcrState lcrState) {
+        for (AddressElement addressElement : lcrState.getAddressElementsList()) {
+            byte caType = addressElement.getCivicAddressType();
+            if (!CivicAddressElementKeys.isWithinBuilding(caType)) {
+                continue;
+            }
+            byte[] name = addressElement.getName().getBytes(StandardCharsets.UTF_8);
+            int element = positionElementCount;
+            if (element == positionCaTypes.length) {
+                int capacity = 2 * element;
+                positionCaTypes = Arrays.copyOf(positionCaTypes, capacity);
+                positionLanguages = Arrays.copyOf(positionLanguages, capacity);
+                positionNameEnds = Arrays.copyOf(positionNameEnds, capacity);
+            }
+            int nameStart = element == 0 ? 0 : positionNameEnds[element - 1];
+            if (nameStart + name.length > positionNames.length) {
+                positionNames = Arrays.copyOf(positionNames,
+                    Math.max(nameStart + name.length, 2 * positionNames.length));
+            }
+            System.arraycopy(name, 0, positionNames, nameStart, name.length);
+            positionCaTypes[element] = caType;
+            positionLanguages[element] = (short) languageCodes.intern(addressElement.getLanguageCode());
+            positionNameEnds[element] = nameStart + name.length;
+            positionElementCount++;
+        }
+    }
+
+    /**
+     * Gets the number of access points in the store.
+     *
+     * @return the number of access points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of distinct building addresses held, shared by the access points.
+     *
+     * @return the number of building addresses
+     */
+    public int getBuildingAddressCount() {
+        return civicAddresses.size();
+    }
+
+    /**
+     * Gets the BSSID of an access point.
+     *
+     * @param index the index of the access point
+     * @return the BSSID, in lowercase
+     */
+    public String getBssid(int index) {
+        checkIndex(index);
+        return formatBssid(bssids[index]);
+    }
+
+    /**
+     * Gets whether the LCI subelement of an access point is included.
+     *
+     * @param index the index of the access point
+     * @return true if the LCI subelement is included
+     */
+    boolean isLciIncluded(int index) {
+        checkIndex(index);
+        return (flags[index] & LCI_INCLUDED) != 0;
+    }
+
+    /**
+     * Gets whether the Z subelement of an access point is included.
+     *
+     * @param index the index of the access point
+     * @return true if the Z subelement is included
+     */
+    boolean isZIncluded(int index) {
+        checkIndex(index);
+        return (flags[index] & Z_INCLUDED) != 0;
+    }
+
+    /**
+     * Gets the latitude of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the latitude, in degrees
+     */
+    double getLatitude(int index) {
+        checkIndex(index);
+        return latitudes[index];
+    }
+
+    /**
+     * Gets the longitude of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the longitude, in degrees
+     */
+    double getLongitude(int index) {
+        checkIndex(index);
+        return longitudes[index];
+    }
+
+    /**
+     * Gets the latitude uncertainty of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the latitude uncertainty, in degrees
+     */
+    double getLatitudeUncertainty(int index) {
+        checkIndex(index);
+        return latitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the longitude uncertainty of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the longitude uncertainty, in degrees
+     */
+    double getLongitudeUncertainty(int index) {
+        checkIndex(index);
+        return longitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the altitude of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the altitude, in meters or floors
+     */
+    double getAltitude(int index) {
+        checkIndex(index);
+        return altitudes[index];
+    }
+
+    /**
+     * Gets the altitude uncertainty of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the altitude uncertainty, in meters or floors
+     */
+    double getAltitudeUncertainty(int index) {
+        checkIndex(index);
+        return altitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the altitude type of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the altitude type
+     */
+    AltitudeType getAltitudeType(int index) {
+        checkIndex(index);
+        return AltitudeType.fromEncoding(altitudeTypes[index]);
+    }
+
+    /**
+     * Gets the map datum of the LCI subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the map datum
+     */
+    MapDatum getMapDatum(int index) {
+        checkIndex(index);
+        return MapDatum.fromEncoding(mapDatums[index]);
+    }
+
+    /**
+     * Gets the floor of the Z subelement of an access point.
+     *
+     * @param index the index of the access point
+     * @return the floor
+     */
+    int getFloor(int index) {
+        checkIndex(index);
+        return floors[index];
+    }
+
+    /**
+     * Encodes the included subelements of an access point straight from the columns, without
+     *  rebuilding its state. The subelements are checked and written in the same order as by the
+     *  per-state encoders, so an access point fails with the same error.
+     *
+     * @param index the index of the access point
+     * @param encoder the field encoder of the calling thread
+     * @param lciSubelements the sink receiving the included LCI subelements
+     * @param lcrSubelements the sink receiving the included LCR subelements
+     * @throws NullPointerException if a choice of an included subelement was not made, e.g. the country
+     * @throws IllegalArgumentException if an included subelement is too long to be encoded
+     */
+    void encode(int index, FieldEncoder encoder, ByteSink lciSubelements, ByteSink lcrSubelements)
+        throws NullPointerException, IllegalArgumentException {
+        checkIndex(index);
+        int flags = this.flags[index];
+        if ((flags & LCI_INCLUDED) != 0) {
+            encoder.putLci(lciSubelements, latitudes[index], latitudeUncertainties[index], longitudes[index],
+                longitudeUncertainties[index], altitudeTypes[index], altitudes[index], altitudeUncertainties[index],
+                FieldEncoder.getLciMiscellaneousFields(mapDatums[index], (flags & REG_LOC_AGREEMENT) != 0,
+                    (flags & REG_LOC_DSE) != 0, (flags & DEPENDENT_STA) != 0, lciVersions[index]));
+        }
+        if ((flags & Z_INCLUDED) != 0) {
+            encoder.putZ(lciSubelements, expectedToMove[index], floors[index], heightsAboveFloor[index],
+                heightAboveFloorUncertainties[index]);
+        }
+        if ((flags & USAGE_INCLUDED) != 0) {
+            encoder.putUsage(lciSubelements, (flags & RETRANSMISSION_ALLOWED) != 0, (flags & RETENTION_EXPIRES) != 0,
+                (flags & STA_LOCATION_POLICY) != 0, expireTimeHours[index]);
+        }
+        if ((flags & BSSID_INCLUDED) != 0) {
+            encoder.startBssidList(lciSubelements, maxBssidIndicators[index],
+                colocatedStarts[index + 1] - colocatedStarts[index]);
+            for (int i = colocatedStarts[index]; i < colocatedStarts[index + 1]; i++) {
+                encoder.putBssid(lciSubelements, colocatedBssids[i]);
+            }
+        }
+        if ((flags & LCR_INCLUDED) != 0) {
+            encodeLocationCivic(index, encoder, lcrSubelements);
+        }
+        if ((flags & MAP_INCLUDED) != 0) {
+            String mapType = null;
+            String mapUrl = null;
+            if (mapImages[index] != NONE) {
+                List<String> mapImage = mapImageValues.get(mapImages[index]);
+                mapType = mapImage.get(0);
+                mapUrl = mapImage.get(1);
+            }
+            encoder.putMap(lcrSubelements, mapType, mapUrl);
+        }
+    }
+
+    /**
+     * Encodes the Location Civic subelement of an access point, merging the address elements of
+     *  its building with those describing its position within the building in encoding order.
+     */
+    private void encodeLocationCivic(int index, FieldEncoder encoder, ByteSink sink) {
+        CivicAddress building = buildingAddresses[index] == NONE ? null : civicAddresses.get(buildingAddresses[index]);
+        encoder.startLocationCivic(sink, building == null ? null : building.countryCode);
+        int buildingElement = 0;
+        for (int element = positionStarts[index]; element < positionStarts[index + 1]; element++) {
+            String languageCode = languageCodes.get(positionLanguages[element]);
+            byte caType = positionCaTypes[element];
+            while (buildingElement < building.count && compareAddressElements(building.languageCodes[buildingElement],
+                building.caTypes[buildingElement], languageCode, caType) < 0) {
+                building.putAddressElement(buildingElement++, encoder, sink);
+            }
+            int nameStart = element == 0 ? 0 : positionNameEnds[element - 1];
+            encoder.putAddressElement(sink, languageCode, caType, positionNames, nameStart,
+                positionNameEnds[element] - nameStart);
+        }
+        while (buildingElement < building.count) {
+            building.putAddressElement(buildingElement++, encoder, sink);
+        }
+        encoder.endLocationCivic(sink);
+    }
+
+    /**
+     * Compares two address elements in encoding order, by language code and then by Civic Address
+     *  Type, as LcrState sorts them.
+     *
+     * @param languageCode the language code of the first address element
+     * @param caType the Civic Address Type of the first address element
+     * @param otherLanguageCode the language code of the second address element
+     * @param otherCaType the Civic Address Type of the second address element
+     * @return a negative number, zero or a positive number if the first address element comes
+     *         before, with or after the second
+     */
+    static int compareAddressElements(String languageCode, byte caType, String otherLanguageCode, byte otherCaType) {
+        int comparison = languageCode.compareTo(otherLanguageCode);
+        return comparison != 0 ? comparison : Byte.compare(caType, otherCaType);
+    }
+
+    /**
+     * Rebuilds the state of an access point.
+     *
+     * @param index the index of the access point
+     * @return a new state, with the values and included subelements of the access point
+     */
+    public ArtSystemState getState(int index) {
+        checkIndex(index);
+        ArtSystemState state = new ArtSystemState();
+
+        LciState lciState = state.getLciState();
+        lciState.setLciVersion(lciVersions[index]);
+        lciState.setLatitude(latitudes[index]);
+        lciState.setLatitudeUncertainty(latitudeUncertainties[index]);
+        lciState.setLongitude(longitudes[index]);
+        lciState.setLongitudeUncertainty(longitudeUncertainties[index]);
+        lciState.setAltitude(altitudes[index]);
+        lciState.setAltitudeUncertainty(altitudeUncertainties[index]);
+        lciState.setAltitudeType(AltitudeType.fromEncoding(altitudeTypes[index]));
+        lciState.setMapDatum(MapDatum.fromEncoding(mapDatums[index]));
+
+        ZState zState = state.getZState();
+        zState.setFloor(floors[index]);
+        zState.setHeightAboveFloorMeters(heightsAboveFloor[index]);
+        zState.setHeightAboveFloorUncertaintyMeters(heightAboveFloorUncertainties[index]);
+        if (expectedToMove[index] != NONE) {
+            zState.setExpectedToMove(ExpectedToMove.fromEncoding(expectedToMove[index]));
+        }
+
+        state.getUsageState().setExpireTimeHours(expireTimeHours[index]);
+
+        BssidState bssidState = state.getBssidState();
+        bssidState.setMaxBssidIndicator(maxBssidIndicators[index]);
+        byte[] colocatedBssid = new byte[BSSID_LENGTH];
+        for (int i = colocatedStarts[index]; i < colocatedStarts[index + 1]; i++) {
+            unpackBssid(colocatedBssids[i], colocatedBssid);
+            bssidState.addBssid(colocatedBssid, 0);
+        }
+
+        LcrState lcrState = state.getLcrState();
+        if (buildingAddresses[index] != NONE) {
+            civicAddresses.get(buildingAddresses[index]).addTo(lcrState);
+        }
+        for (int element = positionStarts[index]; element < positionStarts[index + 1]; element++) {
+            int nameStart = element == 0 ? 0 : positionNameEnds[element - 1];
+            String name = new String(positionNames, nameStart, positionNameEnds[element] - nameStart,
+                StandardCharsets.UTF_8);
+            lcrState.addAddressElement(new StringBuilder(name),
+                new StringBuilder(LanguageCodes.getLanguageName(languageCodes.get(positionLanguages[element]))),
+                new StringBuilder(CivicAddressElementKeys.getAddressElementKey(positionCaTypes[element])));
+        }
+
+        if (mapImages[index] != NONE) {
+            List<String> mapImage = mapImageValues.get(mapImages[index]);
+            state.getMapState().setMapType(mapImage.get(0));
+            state.getMapState().setMapUrl(mapImage.get(1));
+        }
+
+        setFlags(state, flags[index]);
+        return state;
+    }
+
+    /**
+     * Packs the included subelements and the boolean parameters of a state into flags.
+     *
+     * @param state the state
+     * @return the flags
+     */
+    static int getFlags(ArtSystemState state) {
+        LciState lciState = state.getLciState();
+        UsageState usageState = state.getUsageState();
+        return (state.isLciIncluded() ? LCI_INCLUDED : 0)
+            | (state.isZIncluded() ? Z_INCLUDED : 0)
+            | (state.isUsageIncluded() ? USAGE_INCLUDED : 0)
+            | (state.isBssidIncluded() ? BSSID_INCLUDED : 0)
+            | (state.isLcrIncluded() ? LCR_INCLUDED : 0)
+            | (state.isMapIncluded() ? MAP_INCLUDED : 0)
+            | (lciState.getRegLocAgreement() ? REG_LOC_AGREEMENT : 0)
+            | (lciState.getRegLocDse() ? REG_LOC_DSE : 0)
+            | (lciState.getDependentSta() ? DEPENDENT_STA : 0)
+            | (usageState.getRetransmissionAllowed() ? RETRANSMISSION_ALLOWED : 0)
+            | (usageState.getRetentionExpires() ? RETENTION_EXPIRES : 0)
+            | (usageState.getStaLocationPolicy() ? STA_LOCATION_POLICY : 0);
+    }
+
+    /**
+     * Sets the included subelements and the boolean parameters of a state from flags.
+     *
+     * @param state the state
+     * @param flags the flags, as packed by getFlags
+     */
+    static void setFlags(ArtSystemState state, int flags) {
+        LciState lciState = state.getLciState();
+        lciState.setRegLocAgreement((flags & REG_LOC_AGREEMENT) != 0);
+        lciState.setRegLocDse((flags & REG_LOC_DSE) != 0);
+        lciState.setDependentSta((flags & DEPENDENT_STA) != 0);
+        UsageState usageState = state.getUsageState();
+        usageState.setRetransmissionAllowed((flags & RETRANSMISSION_ALLOWED) != 0);
+        usageState.setRetentionExpires((flags & RETENTION_EXPIRES) != 0);
+        usageState.setStaLocationPolicy((flags & STA_LOCATION_POLICY) != 0);
+        state.setLciIncluded((flags & LCI_INCLUDED) != 0);
+        state.setZIncluded((flags & Z_INCLUDED) != 0);
+        state.setUsageIncluded((flags & USAGE_INCLUDED) != 0);
+        state.setBssidIncluded((flags & BSSID_INCLUDED) != 0);
+        state.setLcrIncluded((flags & LCR_INCLUDED) != 0);
+        state.setMapIncluded((flags & MAP_INCLUDED) != 0);
+    }
+
+    /**
+     * Rebuilds an access point.
+     *
+     * @param index the index of the access point
+     * @return a new access point
+     */
+    public AccessPoint getAccessPoint(int index) {
+        return new AccessPoint(getBssid(index), getState(index));
+    }
+
+    /**
+     * Releases the capacity beyond the access points held.
+     */
+    public void trimToSize() {
+        if (size < bssids.length) {
+            allocate(Math.max(1, size));
+        }
+        colocatedBssids = Arrays.copyOf(colocatedBssids, Math.max(1, colocatedStarts[size]));
+        int positionCapacity = Math.max(1, positionElementCount);
+        positionCaTypes = Arrays.copyOf(positionCaTypes, positionCapacity);
+        positionLanguages = Arrays.copyOf(positionLanguages, positionCapacity);
+        positionNameEnds = Arrays.copyOf(positionNameEnds, positionCapacity);
+        positionNames = Arrays.copyOf(positionNames,
+            Math.max(1, positionElementCount == 0 ? 0 : positionNameEnds[positionElementCount - 1]));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+    }
+
+    /**
+     * Packs a BSSID written as 6 hex bytes separated by colons into a long.
+     *
+     * @param bssid the BSSID, upper or lower case
+     * @return the BSSID in the low 48 bits
+     * @throws IllegalArgumentException if the string is not a BSSID
+     */
+    static long parseBssid(String bssid) throws IllegalArgumentException {
+        if (bssid.length() != BSSID_STRING_LENGTH) {
+            throw new IllegalArgumentException(ERROR_NOT_A_BSSID + bssid);
+        }
+        long packed = 0;
+        for (int i = 0; i < BSSID_LENGTH; i++) {
+            int high = Character.digit(bssid.charAt(3 * i), 16);
+            int low = Character.digit(bssid.charAt(3 * i + 1), 16);
+            if (high < 0 || low < 0 || (i > 0 && bssid.charAt(3 * i - 1) != ':')) {
+                throw new IllegalArgumentException(ERROR_NOT_A_BSSID + bssid);
+            }
+            packed = (packed << 8) | (high << 4) | low;
+        }
+        return packed;
+    }
+
+    static long packBssid(byte[] bssid) {
+        long packed = 0;
+        for (int i = 0; i < BSSID_LENGTH; i++) {
+            packed = (packed << 8) | (bssid[i] & 0xff);
+        }
+        return packed;
+    }
+
+    static void unpackBssid(long packed, byte[] bssid) {
+        for (int i = BSSID_LENGTH - 1; i >= 0; i--) {
+            bssid[i] = (byte) packed;
+            packed >>>= 8;
+        }
+    }
+
+    static String formatBssid(long packed) {
+        char[] chars = new char[BSSID_STRING_LENGTH];
+        for (int i = BSSID_LENGTH - 1; i >= 0; i--) {
+            chars[3 * i] = Character.forDigit((int) (packed >>> 4) & 0xf, 16);
+            chars[3 * i + 1] = Character.forDigit((int) packed & 0xf, 16);
+            if (i > 0) {
+                chars[3 * i - 1] = ':';
+            }
+            packed >>>= 8;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * The part of a civic address shared by the access points of a building: a country and address
+     *  elements, in encoding order, with the country code and the UTF-8 names they are encoded with.
+     */
+    private static final class CivicAddress {
+        private final String country;
+        /** The code of the country, or null if the country is not valid. */
+        private final String countryCode;
+        private final byte[][] names;
+        private final String[] languageCodes;
+        private final byte[] caTypes;
+        private int count;
+
+        private CivicAddress(String country, int capacity) {
+            this.country = country;
+            countryCode = country == null ? null : CountryCodes.COUNTRY_NAMES_TO_CODES_MAP.get(country);
+            names = new byte[capacity][];
+            languageCodes = new String[capacity];
+            caTypes = new byte[capacity];
+        }
+
+        private void add(AddressElement addressElement) {
+            names[count] = addressElement.getName().getBytes(StandardCharsets.UTF_8);
+            languageCodes[count] = addressElement.getLanguageCode();
+            caTypes[count] = addressElement.getCivicAddressType();
+            count++;
+        }
+
+        private void putAddressElement(int element, FieldEncoder encoder, ByteSink sink) {
+            encoder.putAddressElement(sink, languageCodes[element], caTypes[element], names[element], 0,
+                names[element].length);
+        }
+
+        private void addTo(LcrState lcrState) {
+            if (country != null) {
+                lcrState.setCountry(country);
+            }
+            for (int i = 0; i < count; i++) {
+                lcrState.addAddressElement(new StringBuilder(new String(names[i], StandardCharsets.UTF_8)),
+                    new StringBuilder(LanguageCodes.getLanguageName(languageCodes[i])),
+                    new StringBuilder(CivicAddressElementKeys.getAddressElementKey(caTypes[i])));
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * Objects.hashCode(country) + Arrays.deepHashCode(names))
+                + Arrays.hashCode(languageCodes)) + Arrays.hashCode(caTypes);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof CivicAddress)) {
+                return false;
+            }
+            CivicAddress other = (CivicAddress) object;
+            return Objects.equals(country, other.country) && Arrays.deepEquals(names, other.names)
+                && Arrays.equals(languageCodes, other.languageCodes) && Arrays.equals(caTypes, other.caTypes);
+        }
+    }
+
+    /**
+     * Numbers distinct values in the order they are first seen.
+     *
+     * @param <T> the type of the values
+     */
+    private static final class Interner<T> {
+        private final Map<T, Integer> indices = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        private int intern(T value) {
+            Integer index = indices.get(value);
+            if (index == null) {
+                index = values.size();
+                indices.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+
+        private T get(int index) {
+            return values.get(index);
+        }
+
+        private int size() {
+            return values.size();
+        }
+    }
+}
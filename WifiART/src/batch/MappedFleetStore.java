@@ -0,0 +1,823 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.ByteSink;
+import encoding.FieldEncoder;
+import structs.AddressElement;
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.BssidState;
+import structs.CivicAddressElementKeys;
+import structs.CountryCodes;
+import structs.ExpectedToMove;
+import structs.LanguageCodes;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.MapState;
+import structs.ZState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the access points of a fleet off the Java heap, in a memory-mapped file that persists
+ * across runs: reopening a store maps the file and reads the access points from it in place, with
+ * no load phase.
+ *
+ * <p>The file starts with a header, followed by a region of fixed-width records, one per access
+ * point, holding the BSSID, the flags and the LCI, Z, Usage Rules/Policy and BSSID List fields.
+ * Variable-length values are stored in a side region after the records, and referenced by their
+ * offset in it: the co-located BSSIDs, the part of the civic address shared by a building, the
+ * address elements describing the position within the building, and the map image. As in
+ * {@link FleetStore}, building addresses and map images are stored once and shared by the access
+ * points referencing them. Each region is mapped separately, so each can hold up to 2 GB, about
+ * 20 million access points. Values are stored big-endian, so files can be moved between machines.
+ *
+ * <p>Access points are encoded by FleetEncoder straight from their records and side entries, without
+ * rebuilding their state.
+ *
+ * <p>The side region is moved when the record region grows, so the file is only guaranteed to be
+ * consistent once flushed or closed. A store can be read from several threads once it is filled,
+ * but not while access points are being added, and a file must not be opened by two stores at the
+ * same time.
+ */
+public final class MappedFleetStore implements Closeable {
+    // Constants
+    private static final int MAGIC = 0x57465331; // "WFS1"
+    private static final int VERSION = 1;
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int MIN_SIDE_CAPACITY = 1 << 16;
+    private static final int MOVE_CHUNK_SIZE = 1 << 16;
+    private static final int NONE = -1;
+    private static final int NULL_STRING = 0xffff;
+    private static final int MAX_STRING_LENGTH = 0xfffe;
+    private static final int MAX_LANGUAGE_CODE_LENGTH = 0xff;
+    private static final int MAX_ADDRESS_ELEMENT_COUNT = 0xff;
+
+    // Header fields, as offsets within the header
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_RECORD_LENGTH = 8;
+    private static final int HEADER_SIZE = 12;
+    private static final int HEADER_CAPACITY = 16;
+    private static final int HEADER_SIDE_LENGTH = 20;
+    private static final int HEADER_SIDE_CAPACITY = 24;
+
+    // Record fields, as offsets within a record
+    private static final int BSSID = 0;
+    private static final int FLAGS = 8;
+    private static final int LCI_VERSION = 12;
+    private static final int ALTITUDE_TYPE = 13;
+    private static final int MAP_DATUM = 14;
+    private static final int EXPECTED_TO_MOVE = 15;
+    private static final int LATITUDE = 16;
+    private static final int LATITUDE_UNCERTAINTY = 24;
+    private static final int LONGITUDE = 32;
+    private static final int LONGITUDE_UNCERTAINTY = 40;
+    private static final int ALTITUDE = 48;
+    private static final int ALTITUDE_UNCERTAINTY = 56;
+    private static final int HEIGHT_ABOVE_FLOOR = 64;
+    private static final int HEIGHT_ABOVE_FLOOR_UNCERTAINTY = 72;
+    private static final int FLOOR = 80;
+    private static final int EXPIRE_TIME_HOURS = 84;
+    private static final int MAX_BSSID_INDICATOR = 86;
+    private static final int COLOCATED_BSSIDS = 88;
+    private static final int BUILDING_ADDRESS = 92;
+    private static final int POSITION_ADDRESS = 96;
+    private static final int MAP_IMAGE = 100;
+
+    // Lengths (in bytes)
+    private static final int HEADER_LENGTH = 32;
+    private static final int RECORD_LENGTH = 104;
+    private static final int BSSID_LENGTH = 6;
+    private static final int ENTRY_LENGTH_LENGTH = 4;
+
+    // Error messages
+    private static final String ERROR_NOT_A_STORE = "Not a fleet store file: ";
+    private static final String ERROR_UNSUPPORTED_VERSION = "Unsupported fleet store version: ";
+    private static final String ERROR_STORE_FULL = "The fleet store file is full.";
+    private static final String ERROR_VALUE_TOO_LONG = "Value too long for the fleet store: ";
+    private static final String ERROR_CLOSED = "The fleet store is closed.";
+    private static final String ERROR_READ_ONLY = "The fleet store is open for reading only.";
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer records;
+    private MappedByteBuffer side;
+    private int size;
+    private int capacity;
+    private int sideLength;
+    private int sideCapacity;
+    private boolean closed;
+
+    /** The offsets of the shared side entries by content, built on the first add. */
+    private Map<ByteBuffer, Integer> sharedEntries;
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    private MappedFleetStore(FileChannel channel, boolean writable) throws IOException {
+        this.channel = channel;
+        this.writable = writable;
+        header = channel.map(getMapMode(), 0, HEADER_LENGTH);
+    }
+
+    private FileChannel.MapMode getMapMode() {
+        return writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+    }
+
+    /**
+     * Creates an empty store in a file, replacing any existing file.
+     *
+     * @param file the file holding the store
+     * @param initialCapacity the number of access points the store holds before it needs to grow
+     * @return the store, open for adding access points
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedFleetStore create(Path file, int initialCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedFleetStore store = new MappedFleetStore(channel, true);
+            store.capacity = Math.max(1, initialCapacity);
+            store.sideCapacity = MIN_SIDE_CAPACITY;
+            store.sharedEntries = new HashMap<>();
+            store.header.putInt(HEADER_MAGIC, MAGIC);
+            store.header.putInt(HEADER_VERSION, VERSION);
+            store.header.putInt(HEADER_RECORD_LENGTH, RECORD_LENGTH);
+            store.writeHeader();
+            store.mapRegions();
+            return store;
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Creates an empty store in a file, replacing any existing file.
+     *
+     * @param file the file holding the store
+     * @return the store, open for adding access points
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedFleetStore create(Path file) throws IOException {
+        return create(file, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Opens a store saved in a file, mapping it without reading the access points.
+     *
+     * @param file the file holding the store
+     * @param writable whether access points can be added to the store
+     * @return the store
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if the file is not a fleet store, or was written by an
+     *                                  unsupported version
+     */
+    public static MappedFleetStore open(Path file, boolean writable) throws IOException, IllegalArgumentException {
+        FileChannel channel = writable
+            ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IllegalArgumentException(ERROR_NOT_A_STORE + file);
+            }
+            MappedFleetStore store = new MappedFleetStore(channel, writable);
+            ByteBuffer header = store.header;
+            if (header.getInt(HEADER_MAGIC) != MAGIC) {
+                throw new IllegalArgumentException(ERROR_NOT_A_STORE + file);
+            }
+            if (header.getInt(HEADER_VERSION) != VERSION || header.getInt(HEADER_RECORD_LENGTH) != RECORD_LENGTH) {
+                throw new IllegalArgumentException(ERROR_UNSUPPORTED_VERSION + header.getInt(HEADER_VERSION));
+            }
+            store.size = header.getInt(HEADER_SIZE);
+            store.capacity = header.getInt(HEADER_CAPACITY);
+            store.sideLength = header.getInt(HEADER_SIDE_LENGTH);
+            store.sideCapacity = header.getInt(HEADER_SIDE_CAPACITY);
+            if (store.size < 0 || store.size > store.capacity || store.sideLength < 0
+                || store.sideLength > store.sideCapacity
+                || channel.size() < getSideStart(store.capacity) + store.sideCapacity) {
+                throw new IllegalArgumentException(ERROR_NOT_A_STORE + file);
+            }
+            store.mapRegions();
+            return store;
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private static long getSideStart(int capacity) {
+        return HEADER_LENGTH + (long) capacity * RECORD_LENGTH;
+    }
+
+    private void mapRegions() throws IOException {
+        records = channel.map(getMapMode(), HEADER_LENGTH, (long) capacity * RECORD_LENGTH);
+        side = channel.map(getMapMode(), getSideStart(capacity), sideCapacity);
+    }
+
+    private void writeHeader() {
+        header.putInt(HEADER_SIZE, size);
+        header.putInt(HEADER_CAPACITY, capacity);
+        header.putInt(HEADER_SIDE_LENGTH, sideLength);
+        header.putInt(HEADER_SIDE_CAPACITY, sideCapacity);
+    }
+
+    /**
+     * Adds an access point to the store.
+     *
+     * @param accessPoint the access point, whose BSSID must be a MAC address ("xx:xx:xx:xx:xx:xx")
+     * @return the index of the access point in the store
+     * @throws IOException if the file cannot be grown
+     * @throws IllegalArgumentException if the BSSID is not a MAC address, the civic address has an
+     *                                  address element whose language or key is not recognized, or
+     *                                  a value is too long to be stored
+     * @throws IllegalStateException if the store is full, closed or open for reading only
+     */
+    public int add(AccessPoint accessPoint) throws IOException, IllegalArgumentException, IllegalStateException {
+        checkOpen();
+        if (!writable) {
+            throw new IllegalStateException(ERROR_READ_ONLY);
+        }
+        long bssid = FleetStore.parseBssid(accessPoint.getBssid());
+        ArtSystemState state = accessPoint.getState();
+        LcrState lcrState = state.getLcrState();
+        for (AddressElement addressElement : lcrState.getAddressElementsList()) {
+            FleetStore.isWithinBuilding(addressElement);
+        }
+        if (sharedEntries == null) {
+            indexSharedEntries();
+        }
+        if (size == capacity) {
+            growRecords();
+        }
+        int colocatedBssids = addColocatedBssids(state.getBssidState());
+        int buildingAddress = addCivicAddress(lcrState, false);
+        int positionAddress = addCivicAddress(lcrState, true);
+        int mapImage = addMapImage(state.getMapState());
+
+        int record = size * RECORD_LENGTH;
+        LciState lciState = state.getLciState();
+        ZState zState = state.getZState();
+        records.putLong(record + BSSID, bssid);
+        records.putInt(record + FLAGS, FleetStore.getFlags(state));
+        records.put(record + LCI_VERSION, (byte) lciState.getLciVersion());
+        records.put(record + ALTITUDE_TYPE, (byte) lciState.getAltitudeType().getEncoding());
+        records.put(record + MAP_DATUM, (byte) lciState.getMapDatum().getEncoding());
+        records.put(record + EXPECTED_TO_MOVE, zState.getExpectedToMove() == null ? NONE
+            : (byte) zState.getExpectedToMove().getEncoding());
+        records.putDouble(record + LATITUDE, lciState.getLatitude());
+        records.putDouble(record + LATITUDE_UNCERTAINTY, lciState.getLatitudeUncertainty());
+        records.putDouble(record + LONGITUDE, lciState.getLongitude());
+        records.putDouble(record + LONGITUDE_UNCERTAINTY, lciState.getLongitudeUncertainty());
+        records.putDouble(record + ALTITUDE, lciState.getAltitude());
+        records.putDouble(record + ALTITUDE_UNCERTAINTY, lciState.getAltitudeUncertainty());
+        records.putDouble(record + HEIGHT_ABOVE_FLOOR, zState.getHeightAboveFloorMeters());
+        records.putDouble(record + HEIGHT_ABOVE_FLOOR_UNCERTAINTY, zState.getHeightAboveFloorUncertaintyMeters());
+        records.putInt(record + FLOOR, zState.getFloor());
+        records.putChar(record + EXPIRE_TIME_HOURS, (char) state.getUsageState().getExpireTimeHours());
+        records.putShort(record + MAX_BSSID_INDICATOR, (short) state.getBssidState().getMaxBssidIndicator());
+        records.putInt(record + COLOCATED_BSSIDS, colocatedBssids);
+        records.putInt(record + BUILDING_ADDRESS, buildingAddress);
+        records.putInt(record + POSITION_ADDRESS, positionAddress);
+        records.putInt(record + MAP_IMAGE, mapImage);
+        // The size is written last, so a reader never sees a partially written access point.
+        size++;
+        writeHeader();
+        return size - 1;
+    }
+
+    private int addColocatedBssids(BssidState bssidState) throws IOException {
+        Set<byte[]> bssidList = bssidState.getBssidList();
+        if (bssidList.isEmpty()) {
+            return NONE;
+        }
+        ByteBuffer entry = startEntry(bssidList.size() * BSSID_LENGTH);
+        for (byte[] bssid : bssidList) {
+            entry.put(bssid, 0, BSSID_LENGTH);
+        }
+        return writeEntry(entry, false);
+    }
+
+    /**
+     * Adds a side entry for the part of a civic address shared by a building, or for the address
+     *  elements describing the position within the building.
+     *
+     * @param lcrState the Location Civic state, whose address elements are all recognized
+     * @param withinBuilding whether to add the address elements describing the position within
+     *                       the building, rather than the country and the other address elements
+     * @return the offset of the side entry, or NONE if it is empty
+     * @throws IOException if the file cannot be grown
+     */
+    private int addCivicAddress(LcrState lcrState, boolean withinBuilding) throws IOException {
+        String country = withinBuilding ? null : lcrState.getCountry();
+        int count = 0;
+        for (AddressElement addressElement : lcrState.getAddressElementsList()) {
+            if (CivicAddressElementKeys.isWithinBuilding(addressElement.getCivicAddressType()) == withinBuilding) {
+                count++;
+            }
+        }
+        if (country == null && count == 0) {
+            return NONE;
+        }
+        if (count > MAX_ADDRESS_ELEMENT_COUNT) {
+            throw new IllegalArgumentException(ERROR_VALUE_TOO_LONG + count);
+        }
+        ByteBuffer entry = startEntry(0);
+        entry = putString(entry, country);
+        entry.put((byte) count);
+        for (AddressElement addressElement : lcrState.getAddressElementsList()) {
+            byte caType = addressElement.getCivicAddressType();
+            if (CivicAddressElementKeys.isWithinBuilding(caType) != withinBuilding) {
+                continue;
+            }
+            byte[] languageCode = addressElement.getLanguageCode().getBytes(StandardCharsets.US_ASCII);
+            if (languageCode.length > MAX_LANGUAGE_CODE_LENGTH) {
+                throw new IllegalArgumentException(ERROR_VALUE_TOO_LONG + addressElement.getLanguageCode());
+            }
+            entry = ensureRemaining(entry, 2 + languageCode.length);
+            entry.put(caType);
+            entry.put((byte) languageCode.length);
+            entry.put(languageCode);
+            entry = putString(entry, addressElement.getName());
+        }
+        return writeEntry(entry, !withinBuilding);
+    }
+
+    private int addMapImage(MapState mapState) throws IOException {
+        if (mapState.getMapType() == null && mapState.getMapUrl() == null) {
+            return NONE;
+        }
+        ByteBuffer entry = startEntry(0);
+        entry = putString(entry, mapState.getMapType());
+        entry = putString(entry, mapState.getMapUrl());
+        return writeEntry(entry, true);
+    }
+
+    private ByteBuffer startEntry(int length) {
+        scratch.clear();
+        return ensureRemaining(scratch, length);
+    }
+
+    private ByteBuffer ensureRemaining(ByteBuffer entry, int length) {
+        if (entry.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(entry.position() + length, 2 * entry.capacity()));
+            entry.flip();
+            larger.put(entry);
+            scratch = larger;
+            return larger;
+        }
+        return entry;
+    }
+
+    private ByteBuffer putString(ByteBuffer entry, String value) {
+        if (value == null) {
+            entry = ensureRemaining(entry, 2);
+            entry.putChar((char) NULL_STRING);
+            return entry;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException(ERROR_VALUE_TOO_LONG + value);
+        }
+        entry = ensureRemaining(entry, 2 + bytes.length);
+        entry.putChar((char) bytes.length);
+        entry.put(bytes);
+        return entry;
+    }
+
+    /**
+     * Writes the content of a side entry at the end of the side region, unless it is shared and
+     *  an equal entry was already written.
+     *
+     * @param entry the content of the entry, from 0 to its position
+     * @param shared whether the entry can be shared by several access points
+     * @return the offset of the entry in the side region
+     * @throws IOException if the file cannot be grown
+     */
+    private int writeEntry(ByteBuffer entry, boolean shared) throws IOException {
+        entry.flip();
+        if (shared) {
+            Integer offset = sharedEntries.get(entry);
+            if (offset != null) {
+                return offset;
+            }
+        }
+        int length = entry.remaining();
+        if (sideLength + ENTRY_LENGTH_LENGTH + length > sideCapacity) {
+            growSide(ENTRY_LENGTH_LENGTH + length);
+        }
+        int offset = sideLength;
+        side.putInt(offset, length);
+        ByteBuffer destination = side.duplicate();
+        destination.position(offset + ENTRY_LENGTH_LENGTH);
+        destination.put(entry.duplicate());
+        sideLength += ENTRY_LENGTH_LENGTH + length;
+        if (shared) {
+            sharedEntries.put(ByteBuffer.wrap(Arrays.copyOf(entry.array(), length)), offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Indexes the shared side entries of a reopened store, so that new access points share them.
+     */
+    private void indexSharedEntries() {
+        sharedEntries = new HashMap<>();
+        for (int index = 0; index < size; index++) {
+            int record = index * RECORD_LENGTH;
+            indexSharedEntry(records.getInt(record + BUILDING_ADDRESS));
+            indexSharedEntry(records.getInt(record + MAP_IMAGE));
+        }
+    }
+
+    private void indexSharedEntry(int offset) {
+        if (offset != NONE) {
+            byte[] content = new byte[side.getInt(offset)];
+            ByteBuffer source = side.duplicate();
+            source.position(offset + ENTRY_LENGTH_LENGTH);
+            source.get(content);
+            sharedEntries.putIfAbsent(ByteBuffer.wrap(content), offset);
+        }
+    }
+
+    /**
+     * Grows the record region, moving the side region further into the file. The side region is
+     *  copied backwards in chunks, since the old and new regions can overlap.
+     *
+     * @throws IOException if the file cannot be grown
+     */
+    private void growRecords() throws IOException {
+        long newCapacity = capacity + (capacity >> 1) + 1L;
+        if (newCapacity * RECORD_LENGTH > Integer.MAX_VALUE) {
+            newCapacity = Integer.MAX_VALUE / RECORD_LENGTH;
+            if (newCapacity <= capacity) {
+                throw new IllegalStateException(ERROR_STORE_FULL);
+            }
+        }
+        MappedByteBuffer newSide = channel.map(FileChannel.MapMode.READ_WRITE,
+            getSideStart((int) newCapacity), sideCapacity);
+        byte[] chunk = new byte[MOVE_CHUNK_SIZE];
+        ByteBuffer source = side.duplicate();
+        ByteBuffer destination = newSide.duplicate();
+        for (int end = sideLength; end > 0; end -= chunk.length) {
+            int start = Math.max(0, end - chunk.length);
+            source.position(start);
+            source.get(chunk, 0, end - start);
+            destination.position(start);
+            destination.put(chunk, 0, end - start);
+        }
+        capacity = (int) newCapacity;
+        side = newSide;
+        records = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_LENGTH, (long) capacity * RECORD_LENGTH);
+        writeHeader();
+    }
+
+    private void growSide(int length) throws IOException {
+        long newCapacity = Math.max(sideLength + (long) length, 2L * sideCapacity);
+        if (newCapacity > Integer.MAX_VALUE) {
+            newCapacity = Integer.MAX_VALUE;
+            if (sideLength + (long) length > newCapacity) {
+                throw new IllegalStateException(ERROR_STORE_FULL);
+            }
+        }
+        sideCapacity = (int) newCapacity;
+        side = channel.map(FileChannel.MapMode.READ_WRITE, getSideStart(capacity), sideCapacity);
+        writeHeader();
+    }
+
+    /**
+     * Gets the number of access points in the store.
+     *
+     * @return the number of access points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the BSSID of an access point.
+     *
+     * @param index the index of the access point
+     * @return the BSSID, in lowercase
+     */
+    public String getBssid(int index) {
+        checkIndex(index);
+        return FleetStore.formatBssid(records.getLong(index * RECORD_LENGTH + BSSID));
+    }
+
+    /**
+     * Rebuilds the state of an access point from its record and side entries.
+     *
+     * @param index the index of the access point
+     * @return a new state, with the values and included subelements of the access point
+     */
+    public ArtSystemState getState(int index) {
+        checkIndex(index);
+        int record = index * RECORD_LENGTH;
+        ArtSystemState state = new ArtSystemState();
+
+        LciState lciState = state.getLciState();
+        lciState.setLciVersion(records.get(record + LCI_VERSION));
+        lciState.setLatitude(records.getDouble(record + LATITUDE));
+        lciState.setLatitudeUncertainty(records.getDouble(record + LATITUDE_UNCERTAINTY));
+        lciState.setLongitude(records.getDouble(record + LONGITUDE));
+        lciState.setLongitudeUncertainty(records.getDouble(record + LONGITUDE_UNCERTAINTY));
+        lciState.setAltitude(records.getDouble(record + ALTITUDE));
+        lciState.setAltitudeUncertainty(records.getDouble(record + ALTITUDE_UNCERTAINTY));
+        lciState.setAltitudeType(AltitudeType.fromEncoding(records.get(record + ALTITUDE_TYPE)));
+        lciState.setMapDatum(MapDatum.fromEncoding(records.get(record + MAP_DATUM)));
+
+        ZState zState = state.getZState();
+        zState.setFloor(records.getInt(record + FLOOR));
+        zState.setHeightAboveFloorMeters(records.getDouble(record + HEIGHT_ABOVE_FLOOR));
+        zState.setHeightAboveFloorUncertaintyMeters(records.getDouble(record + HEIGHT_ABOVE_FLOOR_UNCERTAINTY));
+        byte expectedToMove = records.get(record + EXPECTED_TO_MOVE);
+        if (expectedToMove != NONE) {
+            zState.setExpectedToMove(ExpectedToMove.fromEncoding(expectedToMove));
+        }
+
+        state.getUsageState().setExpireTimeHours(records.getChar(record + EXPIRE_TIME_HOURS));
+        state.getBssidState().setMaxBssidIndicator(records.getShort(record + MAX_BSSID_INDICATOR));
+
+        // Each call reads the side region through its own view, so several threads can read.
+        ByteBuffer entries = side.duplicate();
+        int colocatedBssids = records.getInt(record + COLOCATED_BSSIDS);
+        if (colocatedBssids != NONE) {
+            byte[] bssid = new byte[BSSID_LENGTH];
+            int count = side.getInt(colocatedBssids) / BSSID_LENGTH;
+            entries.position(colocatedBssids + ENTRY_LENGTH_LENGTH);
+            for (int i = 0; i < count; i++) {
+                entries.get(bssid);
+                state.getBssidState().addBssid(bssid, 0);
+            }
+        }
+        readCivicAddress(entries, records.getInt(record + BUILDING_ADDRESS), state.getLcrState());
+        readCivicAddress(entries, records.getInt(record + POSITION_ADDRESS), state.getLcrState());
+        int mapImage = records.getInt(record + MAP_IMAGE);
+        if (mapImage != NONE) {
+            entries.position(mapImage + ENTRY_LENGTH_LENGTH);
+            state.getMapState().setMapType(getString(entries));
+            state.getMapState().setMapUrl(getString(entries));
+        }
+
+        FleetStore.setFlags(state, records.getInt(record + FLAGS));
+        return state;
+    }
+
+    /**
+     * Encodes the included subelements of an access point straight from its record and side
+     *  entries, without rebuilding its state. The subelements are checked and written in the same
+     *  order as by the per-state encoders, so an access point fails with the same error.
+     *
+     * @param index the index of the access point
+     * @param encoder the field encoder of the calling thread
+     * @param lciSubelements the sink receiving the included LCI subelements
+     * @param lcrSubelements the sink receiving the included LCR subelements
+     * @throws NullPointerException if a choice of an included subelement was not made, e.g. the country
+     * @throws IllegalArgumentException if an included subelement is too long to be encoded
+     */
+    void encode(int index, FieldEncoder encoder, ByteSink lciSubelements, ByteSink lcrSubelements)
+        throws NullPointerException, IllegalArgumentException {
+        checkIndex(index);
+        int record = index * RECORD_LENGTH;
+        int flags = records.getInt(record + FLAGS);
+        if ((flags & FleetStore.LCI_INCLUDED) != 0) {
+            encoder.putLci(lciSubelements, records.getDouble(record + LATITUDE),
+                records.getDouble(record + LATITUDE_UNCERTAINTY), records.getDouble(record + LONGITUDE),
+                records.getDouble(record + LONGITUDE_UNCERTAINTY), records.get(record + ALTITUDE_TYPE),
+                records.getDouble(record + ALTITUDE), records.getDouble(record + ALTITUDE_UNCERTAINTY),
+                FieldEncoder.getLciMiscellaneousFields(records.get(record + MAP_DATUM),
+                    (flags & FleetStore.REG_LOC_AGREEMENT) != 0, (flags & FleetStore.REG_LOC_DSE) != 0,
+                    (flags & FleetStore.DEPENDENT_STA) != 0, records.get(record + LCI_VERSION)));
+        }
+        if ((flags & FleetStore.Z_INCLUDED) != 0) {
+            encoder.putZ(lciSubelements, records.get(record + EXPECTED_TO_MOVE), records.getInt(record + FLOOR),
+                records.getDouble(record + HEIGHT_ABOVE_FLOOR),
+                records.getDouble(record + HEIGHT_ABOVE_FLOOR_UNCERTAINTY));
+        }
+        if ((flags & FleetStore.USAGE_INCLUDED) != 0) {
+            encoder.putUsage(lciSubelements, (flags & FleetStore.RETRANSMISSION_ALLOWED) != 0,
+                (flags & FleetStore.RETENTION_EXPIRES) != 0, (flags & FleetStore.STA_LOCATION_POLICY) != 0,
+                records.getChar(record + EXPIRE_TIME_HOURS));
+        }
+        if ((flags & FleetStore.BSSID_INCLUDED) != 0) {
+            int colocatedBssids = records.getInt(record + COLOCATED_BSSIDS);
+            int count = colocatedBssids == NONE ? 0 : side.getInt(colocatedBssids) / BSSID_LENGTH;
+            encoder.startBssidList(lciSubelements, records.getShort(record + MAX_BSSID_INDICATOR), count);
+            for (int i = 0; i < count; i++) {
+                int bssid = colocatedBssids + ENTRY_LENGTH_LENGTH + i * BSSID_LENGTH;
+                encoder.putBssid(lciSubelements,
+                    (side.getShort(bssid) & 0xffffL) << 32 | (side.getInt(bssid + 2) & 0xffffffffL));
+            }
+        }
+        // Each call reads the side region through its own views, so several threads can encode.
+        if ((flags & FleetStore.LCR_INCLUDED) != 0) {
+            encodeLocationCivic(records.getInt(record + BUILDING_ADDRESS), records.getInt(record + POSITION_ADDRESS),
+                encoder, lcrSubelements);
+        }
+        if ((flags & FleetStore.MAP_INCLUDED) != 0) {
+            String mapType = null;
+            String mapUrl = null;
+            int mapImage = records.getInt(record + MAP_IMAGE);
+            if (mapImage != NONE) {
+                ByteBuffer entries = side.duplicate();
+                entries.position(mapImage + ENTRY_LENGTH_LENGTH);
+                mapType = getString(entries);
+                mapUrl = getString(entries);
+            }
+            encoder.putMap(lcrSubelements, mapType, mapUrl);
+        }
+    }
+
+    /**
+     * Encodes a Location Civic subelement, merging the address elements of the building with those
+     *  describing the position within the building in encoding order.
+     */
+    private void encodeLocationCivic(int buildingAddress, int positionAddress, FieldEncoder encoder, ByteSink sink) {
+        String countryCode = null;
+        if (buildingAddress != NONE) {
+            ByteBuffer entries = side.duplicate();
+            entries.position(buildingAddress + ENTRY_LENGTH_LENGTH);
+            String country = getString(entries);
+            countryCode = country == null ? null : CountryCodes.COUNTRY_NAMES_TO_CODES_MAP.get(country);
+        }
+        encoder.startLocationCivic(sink, countryCode);
+        AddressElementReader building = new AddressElementReader(side, buildingAddress);
+        AddressElementReader position = new AddressElementReader(side, positionAddress);
+        while (building.hasNext() || position.hasNext()) {
+            if (!position.hasNext() || (building.hasNext() && FleetStore.compareAddressElements(
+                building.languageCode, building.caType, position.languageCode, position.caType) < 0)) {
+                building.putNext(encoder, sink);
+            } else {
+                position.putNext(encoder, sink);
+            }
+        }
+        encoder.endLocationCivic(sink);
+    }
+
+    private static void readCivicAddress(ByteBuffer entries, int offset, LcrState lcrState) {
+        if (offset == NONE) {
+            return;
+        }
+        entries.position(offset + ENTRY_LENGTH_LENGTH);
+        String country = getString(entries);
+        if (country != null) {
+            lcrState.setCountry(country);
+        }
+        int count = entries.get() & 0xff;
+        for (int i = 0; i < count; i++) {
+            byte caType = entries.get();
+            byte[] languageCode = new byte[entries.get() & 0xff];
+            entries.get(languageCode);
+            String name = getString(entries);
+            lcrState.addAddressElement(new StringBuilder(name),
+                new StringBuilder(LanguageCodes.getLanguageName(new String(languageCode, StandardCharsets.US_ASCII))),
+                new StringBuilder(CivicAddressElementKeys.getAddressElementKey(caType)));
+        }
+    }
+
+    private static String getString(ByteBuffer entries) {
+        int length = entries.getChar();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        entries.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rebuilds an access point.
+     *
+     * @param index the index of the access point
+     * @return a new access point
+     */
+    public AccessPoint getAccessPoint(int index) {
+        return new AccessPoint(getBssid(index), getState(index));
+    }
+
+    /**
+     * Forces the content of the store to the storage device.
+     */
+    public void flush() {
+        checkOpen();
+        if (writable) {
+            records.force();
+            side.force();
+            header.force();
+        }
+    }
+
+    /**
+     * Flushes the store and closes its file. The mapped regions are released once unreachable.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            flush();
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException(ERROR_CLOSED);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+    }
+
+    /**
+     * Reads the address elements of a civic address side entry one at a time, for encoding them
+     *  without rebuilding their AddressElement.
+     */
+    private static final class AddressElementReader {
+        private final ByteBuffer entries;
+        private int remaining;
+        private boolean hasNext;
+        private byte caType;
+        private String languageCode;
+        private int nameLength;
+
+        /**
+         * Constructor.
+         *
+         * @param side the side region
+         * @param offset the offset of the civic address side entry, or NONE if there is none
+         */
+        private AddressElementReader(ByteBuffer side, int offset) {
+            entries = side.duplicate();
+            if (offset != NONE) {
+                entries.position(offset + ENTRY_LENGTH_LENGTH);
+                int countryLength = entries.getChar();
+                if (countryLength != NULL_STRING) {
+                    entries.position(entries.position() + countryLength);
+                }
+                remaining = entries.get() & 0xff;
+            }
+            readNext();
+        }
+
+        private boolean hasNext() {
+            return hasNext;
+        }
+
+        private void readNext() {
+            hasNext = remaining > 0;
+            if (hasNext) {
+                remaining--;
+                caType = entries.get();
+                byte[] languageCodeBytes = new byte[entries.get() & 0xff];
+                entries.get(languageCodeBytes);
+                languageCode = new String(languageCodeBytes, StandardCharsets.US_ASCII);
+                nameLength = entries.getChar();
+            }
+        }
+
+        /**
+         * Appends the next address element to the Location Civic subelement being written.
+         */
+        private void putNext(FieldEncoder encoder, ByteSink sink) {
+            int nameEnd = entries.position() + nameLength;
+            ByteBuffer name = entries.duplicate();
+            name.limit(nameEnd);
+            encoder.putAddressElement(sink, languageCode, caType, name);
+            entries.position(nameEnd);
+            readNext();
+        }
+    }
+}
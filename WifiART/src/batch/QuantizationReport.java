@@ -0,0 +1,546 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.LciBatchDecoder;
+import encoding.LciBatchEncoder;
+import geodesy.Ellipsoid;
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the precision that the access points of a fleet lose in their LCI subelements: every
+ * location is encoded and decoded again, and the decoded values are compared with the original ones.
+ *
+ * <p>The LCI subelement rounds latitudes and longitudes to 2^-25 degrees (about 3 mm) and altitudes
+ * to 2^-8 meters or floors, and rounds every uncertainty up to a power of two, within the range of
+ * its encoding. For each access point with an LCI subelement, the report holds the horizontal
+ * position error, in meters on the ellipsoid of its map datum, the altitude error, in the units of
+ * its altitude, and both the given and the encoded uncertainties, the latitude and longitude ones
+ * in meters. Fleet-wide statistics of the errors and of the growth of the uncertainties are
+ * computed from them.
+ *
+ * <p>The locations are copied into columns of primitive values, a chunk at a time, and encoded and
+ * decoded by {@link LciBatchEncoder} and {@link LciBatchDecoder}, so that no subelement is encoded
+ * per access point and a whole fleet is analyzed in a few seconds. The locations of a FleetStore are
+ * read from its columns, without rebuilding any state.
+ */
+public final class QuantizationReport {
+    // Constants
+    private static final int CHUNK_SIZE = 4096;
+    private static final char SEPARATOR = '\t';
+    private static final String HEADER = "bssid\thorizontal_error_m\taltitude_error\taltitude_type"
+        + "\tlatitude_uncertainty_m\tencoded_latitude_uncertainty_m\tlongitude_uncertainty_m"
+        + "\tencoded_longitude_uncertainty_m\taltitude_uncertainty\tencoded_altitude_uncertainty\n";
+    private static final int MICROS_PER_UNIT = 1000000;
+    private static final int MICROS_DIGITS = 6;
+    private static final double MILLIMETERS_PER_METER = 1000;
+
+    // Error messages
+    private static final String ERROR_PERCENTILE_OUT_OF_RANGE = "Percentile out of range: ";
+
+    private final int size;
+    private final String[] bssids;
+    private final byte[] altitudeTypes;
+    private final double[] horizontalErrors;
+    private final double[] altitudeErrors;
+    private final double[] latitudeUncertainties;
+    private final double[] encodedLatitudeUncertainties;
+    private final double[] longitudeUncertainties;
+    private final double[] encodedLongitudeUncertainties;
+    private final double[] altitudeUncertainties;
+    private final double[] encodedAltitudeUncertainties;
+
+    /** The horizontal errors, sorted, for percentiles. */
+    private final double[] sortedHorizontalErrors;
+    /** The absolute altitude errors of the access points with altitudes in meters, sorted. */
+    private final double[] sortedAltitudeErrors;
+    private int altitudeErrorCount;
+    private double horizontalErrorSum;
+    private double horizontalErrorSquareSum;
+    private double maxUncertaintyGrowth = 1;
+
+    private QuantizationReport(int size) {
+        this.size = size;
+        bssids = new String[size];
+        altitudeTypes = new byte[size];
+        horizontalErrors = new double[size];
+        altitudeErrors = new double[size];
+        latitudeUncertainties = new double[size];
+        encodedLatitudeUncertainties = new double[size];
+        longitudeUncertainties = new double[size];
+        encodedLongitudeUncertainties = new double[size];
+        altitudeUncertainties = new double[size];
+        encodedAltitudeUncertainties = new double[size];
+        sortedHorizontalErrors = new double[size];
+        sortedAltitudeErrors = new double[size];
+    }
+
+    /**
+     * Analyzes the LCI subelements of the access points of a fleet. Access points without an LCI
+     *  subelement are left out of the report.
+     *
+     * @param accessPoints the access points
+     * @return the report
+     */
+    public static QuantizationReport analyze(List<AccessPoint> accessPoints) {
+        int[] included = new int[accessPoints.size()];
+        int size = 0;
+        for (int i = 0; i < accessPoints.size(); i++) {
+            if (accessPoints.get(i).getState().isLciIncluded()) {
+                included[size++] = i;
+            }
+        }
+        return analyze(size, (position, chunk, i) -> {
+            AccessPoint accessPoint = accessPoints.get(included[position]);
+            LciState lciState = accessPoint.getState().getLciState();
+            chunk.set(i, accessPoint.getBssid(), lciState.getLatitude(), lciState.getLatitudeUncertainty(),
+                lciState.getLongitude(), lciState.getLongitudeUncertainty(), lciState.getAltitude(),
+                lciState.getAltitudeUncertainty(), lciState.getAltitudeType(), lciState.getMapDatum());
+        });
+    }
+
+    /**
+     * Analyzes the LCI subelements of some of the access points of a fleet store, read from its
+     *  columns without rebuilding their states. Access points without an LCI subelement are left
+     *  out of the report.
+     *
+     * @param store the fleet store
+     * @param indices the indices of the access points to analyze
+     * @return the report
+     */
+    public static QuantizationReport analyze(FleetStore store, int[] indices) {
+        int[] included = new int[indices.length];
+        int size = 0;
+        for (int index : indices) {
+            if (store.isLciIncluded(index)) {
+                included[size++] = index;
+            }
+        }
+        return analyze(size, (position, chunk, i) -> {
+            int index = included[position];
+            chunk.set(i, store.getBssid(index), store.getLatitude(index), store.getLatitudeUncertainty(index),
+                store.getLongitude(index), store.getLongitudeUncertainty(index), store.getAltitude(index),
+                store.getAltitudeUncertainty(index), store.getAltitudeType(index), store.getMapDatum(index));
+        });
+    }
+
+    /**
+     * Analyzes the locations of the access points, a chunk at a time.
+     *
+     * @param size the number of access points
+     * @param locations the source of the location of each access point
+     * @return the report
+     */
+    private static QuantizationReport analyze(int size, LocationSource locations) {
+        QuantizationReport report = new QuantizationReport(size);
+        Chunk chunk = new Chunk();
+        // The altitude type and map datum are not rounded, so one template serves every access point.
+        LciBatchEncoder encoder = new LciBatchEncoder(new LciState());
+        LciBatchDecoder decoder = new LciBatchDecoder();
+
+        for (int start = 0; start < size; start += CHUNK_SIZE) {
+            int count = Math.min(CHUNK_SIZE, size - start);
+            for (int i = 0; i < count; i++) {
+                locations.copyTo(start + i, chunk, i);
+            }
+            System.arraycopy(chunk.bssids, 0, report.bssids, start, count);
+            System.arraycopy(chunk.altitudeTypes, 0, report.altitudeTypes, start, count);
+            encoder.encode(chunk.latitude, chunk.latitudeUncertainty, chunk.longitude, chunk.longitudeUncertainty,
+                chunk.altitude, chunk.altitudeUncertainty, count, chunk.payloads, 0);
+            decoder.decode(chunk.payloads, 0, count, chunk.decodedLatitude, chunk.decodedLatitudeUncertainty,
+                chunk.decodedLongitude, chunk.decodedLongitudeUncertainty, chunk.decodedAltitude,
+                chunk.decodedAltitudeUncertainty);
+            for (int i = 0; i < count; i++) {
+                report.add(start + i, chunk, i);
+            }
+        }
+        Arrays.sort(report.sortedHorizontalErrors);
+        Arrays.sort(report.sortedAltitudeErrors, 0, report.altitudeErrorCount);
+        return report;
+    }
+
+    /**
+     * Records the errors of an access point of a decoded chunk.
+     *
+     * @param r the index of the access point in the report
+     * @param chunk the chunk
+     * @param i the index of the access point in the chunk
+     */
+    private void add(int r, Chunk chunk, int i) {
+        double northError = (chunk.decodedLatitude[i] - chunk.latitude[i]) * chunk.northMetersPerDegree[i];
+        double eastError = (chunk.decodedLongitude[i] - chunk.longitude[i]) * chunk.eastMetersPerDegree[i];
+        double horizontalError = Math.sqrt(northError * northError + eastError * eastError);
+        horizontalErrors[r] = horizontalError;
+        sortedHorizontalErrors[r] = horizontalError;
+        horizontalErrorSum += horizontalError;
+        horizontalErrorSquareSum += horizontalError * horizontalError;
+
+        int altitudeType = altitudeTypes[r];
+        if (altitudeType == AltitudeType.NO_KNOWN_ALTITUDE.getEncoding()) {
+            altitudeErrors[r] = Double.NaN;
+        } else {
+            altitudeErrors[r] = chunk.decodedAltitude[i] - chunk.altitude[i];
+            addUncertaintyGrowth(chunk.altitudeUncertainty[i], chunk.decodedAltitudeUncertainty[i]);
+            if (altitudeType == AltitudeType.ALTITUDE_IN_METERS.getEncoding()) {
+                sortedAltitudeErrors[altitudeErrorCount++] = Math.abs(altitudeErrors[r]);
+            }
+        }
+
+        latitudeUncertainties[r] = chunk.latitudeUncertainty[i] * chunk.northMetersPerDegree[i];
+        encodedLatitudeUncertainties[r] = chunk.decodedLatitudeUncertainty[i] * chunk.northMetersPerDegree[i];
+        longitudeUncertainties[r] = chunk.longitudeUncertainty[i] * chunk.eastMetersPerDegree[i];
+        encodedLongitudeUncertainties[r] = chunk.decodedLongitudeUncertainty[i] * chunk.eastMetersPerDegree[i];
+        altitudeUncertainties[r] = chunk.altitudeUncertainty[i];
+        encodedAltitudeUncertainties[r] = chunk.decodedAltitudeUncertainty[i];
+        addUncertaintyGrowth(chunk.latitudeUncertainty[i], chunk.decodedLatitudeUncertainty[i]);
+        addUncertaintyGrowth(chunk.longitudeUncertainty[i], chunk.decodedLongitudeUncertainty[i]);
+    }
+
+    private void addUncertaintyGrowth(double uncertainty, double encodedUncertainty) {
+        if (uncertainty > 0) {
+            maxUncertaintyGrowth = Math.max(maxUncertaintyGrowth, encodedUncertainty / uncertainty);
+        }
+    }
+
+    /**
+     * Gets the number of access points in the report, those with an LCI subelement.
+     *
+     * @return the number of access points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the BSSID of an access point.
+     *
+     * @param index the index of the access point in the report
+     * @return the BSSID
+     */
+    public String getBssid(int index) {
+        return bssids[index];
+    }
+
+    /**
+     * Gets the horizontal position error of an access point, the distance between its encoded and
+     *  its original location.
+     *
+     * @param index the index of the access point in the report
+     * @return the error, in meters
+     */
+    public double getHorizontalError(int index) {
+        return horizontalErrors[index];
+    }
+
+    /**
+     * Gets the altitude error of an access point, its encoded altitude minus its original altitude.
+     *
+     * @param index the index of the access point in the report
+     * @return the error, in meters or floors, or NaN if the access point has no known altitude
+     */
+    public double getAltitudeError(int index) {
+        return altitudeErrors[index];
+    }
+
+    /**
+     * Gets the altitude type of an access point.
+     *
+     * @param index the index of the access point in the report
+     * @return the altitude type
+     */
+    public AltitudeType getAltitudeType(int index) {
+        return AltitudeType.fromEncoding(altitudeTypes[index]);
+    }
+
+    /**
+     * Gets the latitude uncertainty given for an access point.
+     *
+     * @param index the index of the access point in the report
+     * @return the uncertainty, in meters, or 0 if unknown
+     */
+    public double getLatitudeUncertainty(int index) {
+        return latitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the latitude uncertainty of an access point after encoding.
+     *
+     * @param index the index of the access point in the report
+     * @return the uncertainty, in meters, or 0 if unknown
+     */
+    public double getEncodedLatitudeUncertainty(int index) {
+        return encodedLatitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the longitude uncertainty given for an access point.
+     *
+     * @param index the index of the access point in the report
+     * @return the uncertainty, in meters, or 0 if unknown
+     */
+    public double getLongitudeUncertainty(int index) {
+        return longitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the longitude uncertainty of an access point after encoding.
+     *
+     * @param index the index of the access point in the report
+     * @return the uncertainty, in meters, or 0 if unknown
+     */
+    public double getEncodedLongitudeUncertainty(int index) {
+        return encodedLongitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the altitude uncertainty given for an access point.
+     *
+     * @param index the index of the access point in the report
+     * @return the uncertainty, in meters or floors, or 0 if unknown
+     */
+    public double getAltitudeUncertainty(int index) {
+        return altitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the altitude uncertainty of an access point after encoding.
+     *
+     * @param index the index of the access point in the report
+     * @return the uncertainty, in meters or floors, or 0 if unknown
+     */
+    public double getEncodedAltitudeUncertainty(int index) {
+        return encodedAltitudeUncertainties[index];
+    }
+
+    /**
+     * Gets the largest horizontal position error of the fleet.
+     *
+     * @return the error, in meters, or NaN if the report is empty
+     */
+    public double getMaxHorizontalError() {
+        return size > 0 ? sortedHorizontalErrors[size - 1] : Double.NaN;
+    }
+
+    /**
+     * Gets the mean horizontal position error of the fleet.
+     *
+     * @return the error, in meters, or NaN if the report is empty
+     */
+    public double getMeanHorizontalError() {
+        return size > 0 ? horizontalErrorSum / size : Double.NaN;
+    }
+
+    /**
+     * Gets the root mean square horizontal position error of the fleet.
+     *
+     * @return the error, in meters, or NaN if the report is empty
+     */
+    public double getRmsHorizontalError() {
+        return size > 0 ? Math.sqrt(horizontalErrorSquareSum / size) : Double.NaN;
+    }
+
+    /**
+     * Gets a percentile of the horizontal position errors of the fleet, by the nearest-rank method.
+     *
+     * @param percentile the percentile, greater than 0 and at most 100
+     * @return the error, in meters, or NaN if the report is empty
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public double getHorizontalErrorPercentile(double percentile) throws IllegalArgumentException {
+        return getPercentile(sortedHorizontalErrors, size, percentile);
+    }
+
+    /**
+     * Gets the number of access points with an altitude in meters, over which the altitude
+     *  statistics are computed.
+     *
+     * @return the number of access points
+     */
+    public int getAltitudeErrorCount() {
+        return altitudeErrorCount;
+    }
+
+    /**
+     * Gets the largest absolute altitude error of the access points with an altitude in meters.
+     *
+     * @return the error, in meters, or NaN if there are none
+     */
+    public double getMaxAltitudeError() {
+        return altitudeErrorCount > 0 ? sortedAltitudeErrors[altitudeErrorCount - 1] : Double.NaN;
+    }
+
+    /**
+     * Gets a percentile of the absolute altitude errors of the access points with an altitude in
+     *  meters, by the nearest-rank method.
+     *
+     * @param percentile the percentile, greater than 0 and at most 100
+     * @return the error, in meters, or NaN if there are none
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public double getAltitudeErrorPercentile(double percentile) throws IllegalArgumentException {
+        return getPercentile(sortedAltitudeErrors, altitudeErrorCount, percentile);
+    }
+
+    /**
+     * Gets the largest ratio of an encoded uncertainty to the given one, over the known latitude,
+     *  longitude and altitude uncertainties of the fleet. Uncertainties are rounded up to a power
+     *  of two, so the ratio is below 2 unless an uncertainty is beyond the range of its encoding.
+     *
+     * @return the ratio, or 1 if no uncertainty is known
+     */
+    public double getMaxUncertaintyGrowth() {
+        return maxUncertaintyGrowth;
+    }
+
+    private static double getPercentile(double[] sorted, int count, double percentile)
+        throws IllegalArgumentException {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException(ERROR_PERCENTILE_OUT_OF_RANGE + percentile);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Writes the report of every access point, as a header line and one line per access point of
+     *  values separated by tabs. Values are rounded to millionths, and an unknown altitude error is
+     *  left empty.
+     *
+     * @param output the destination of the report
+     * @throws IOException if the output cannot be written
+     */
+    public void writeTo(Writer output) throws IOException {
+        output.write(HEADER);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            line.setLength(0);
+            line.append(bssids[i]).append(SEPARATOR);
+            appendMicros(line, horizontalErrors[i]).append(SEPARATOR);
+            appendMicros(line, altitudeErrors[i]).append(SEPARATOR);
+            line.append(altitudeTypes[i]).append(SEPARATOR);
+            appendMicros(line, latitudeUncertainties[i]).append(SEPARATOR);
+            appendMicros(line, encodedLatitudeUncertainties[i]).append(SEPARATOR);
+            appendMicros(line, longitudeUncertainties[i]).append(SEPARATOR);
+            appendMicros(line, encodedLongitudeUncertainties[i]).append(SEPARATOR);
+            appendMicros(line, altitudeUncertainties[i]).append(SEPARATOR);
+            appendMicros(line, encodedAltitudeUncertainties[i]).append('\n');
+            output.append(line);
+        }
+    }
+
+    /**
+     * Appends a value rounded to millionths in plain decimal notation, much faster than
+     *  String.format for the millions of values of a fleet.
+     */
+    private static StringBuilder appendMicros(StringBuilder line, double value) {
+        if (Double.isNaN(value)) {
+            return line;
+        }
+        long micros = Math.round(value * MICROS_PER_UNIT);
+        if (micros < 0) {
+            line.append('-');
+            micros = -micros;
+        }
+        line.append(micros / MICROS_PER_UNIT).append('.');
+        String fraction = Long.toString(micros % MICROS_PER_UNIT);
+        for (int i = fraction.length(); i < MICROS_DIGITS; i++) {
+            line.append('0');
+        }
+        return line.append(fraction);
+    }
+
+    /**
+     * Gets a summary of the fleet-wide statistics.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        String summary = String.format(Locale.ROOT, "Quantized %d access points: horizontal error max %.3f mm, "
+                + "mean %.3f mm, RMS %.3f mm, 95th percentile %.3f mm", size,
+            getMaxHorizontalError() * MILLIMETERS_PER_METER, getMeanHorizontalError() * MILLIMETERS_PER_METER,
+            getRmsHorizontalError() * MILLIMETERS_PER_METER,
+            getHorizontalErrorPercentile(95) * MILLIMETERS_PER_METER);
+        if (altitudeErrorCount > 0) {
+            summary += String.format(Locale.ROOT, "; altitude error max %.3f mm over %d altitudes in meters",
+                getMaxAltitudeError() * MILLIMETERS_PER_METER, altitudeErrorCount);
+        }
+        return summary + String.format(Locale.ROOT, "; encoded uncertainties up to %.2f times the given ones",
+            maxUncertaintyGrowth);
+    }
+
+    /**
+     * Copies the location of an access point into a chunk.
+     */
+    @FunctionalInterface
+    private interface LocationSource {
+        void copyTo(int position, Chunk chunk, int i);
+    }
+
+    /**
+     * The original and decoded columns of a chunk of access points, and the meters per degree at
+     *  each location.
+     */
+    private static final class Chunk {
+        final String[] bssids = new String[CHUNK_SIZE];
+        final byte[] altitudeTypes = new byte[CHUNK_SIZE];
+        final double[] latitude = new double[CHUNK_SIZE];
+        final double[] latitudeUncertainty = new double[CHUNK_SIZE];
+        final double[] longitude = new double[CHUNK_SIZE];
+        final double[] longitudeUncertainty = new double[CHUNK_SIZE];
+        final double[] altitude = new double[CHUNK_SIZE];
+        final double[] altitudeUncertainty = new double[CHUNK_SIZE];
+        final double[] decodedLatitude = new double[CHUNK_SIZE];
+        final double[] decodedLatitudeUncertainty = new double[CHUNK_SIZE];
+        final double[] decodedLongitude = new double[CHUNK_SIZE];
+        final double[] decodedLongitudeUncertainty = new double[CHUNK_SIZE];
+        final double[] decodedAltitude = new double[CHUNK_SIZE];
+        final double[] decodedAltitudeUncertainty = new double[CHUNK_SIZE];
+        final double[] northMetersPerDegree = new double[CHUNK_SIZE];
+        final double[] eastMetersPerDegree = new double[CHUNK_SIZE];
+        final byte[] payloads = new byte[CHUNK_SIZE * LciBatchEncoder.PAYLOAD_LENGTH];
+
+        void set(int i, String bssid, double latitude, double latitudeUncertainty, double longitude,
+                 double longitudeUncertainty, double altitude, double altitudeUncertainty, AltitudeType altitudeType,
+                 MapDatum mapDatum) {
+            bssids[i] = bssid;
+            altitudeTypes[i] = (byte) altitudeType.getEncoding();
+            this.latitude[i] = latitude;
+            this.latitudeUncertainty[i] = latitudeUncertainty;
+            this.longitude[i] = longitude;
+            this.longitudeUncertainty[i] = longitudeUncertainty;
+            this.altitude[i] = altitude;
+            this.altitudeUncertainty[i] = altitudeUncertainty;
+            Ellipsoid ellipsoid = mapDatum == MapDatum.WGS84 ? Ellipsoid.WGS84 : Ellipsoid.GRS80;
+            double latitudeRadians = Math.toRadians(latitude);
+            double sinLatitude = Math.sin(latitudeRadians);
+            northMetersPerDegree[i] = Math.toRadians(ellipsoid.getMeridianRadius(sinLatitude));
+            eastMetersPerDegree[i] =
+                Math.toRadians(ellipsoid.getPrimeVerticalRadius(sinLatitude) * Math.cos(latitudeRadians));
+        }
+    }
+}
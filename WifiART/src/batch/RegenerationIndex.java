@@ -0,0 +1,184 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.HexCodec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The content hashes of the access points of a batch output, used to regenerate only the access
+ * points whose input changed since the previous run.
+ *
+ * <p>The index is a text file. Its first line holds a version and the configuration of the run (the
+ * options and the hash of the CSV header); every other line holds, separated by tabs, the BSSID of
+ * an access point, the hash of its input records, the hash of its output, and the byte offset and
+ * length of its output in the output file. An access point is unchanged if its input hash is the
+ * same as in the index of the previous run and its output is still found in the previous output
+ * file, with the same output hash.
+ */
+public final class RegenerationIndex {
+    // Constants
+    private static final String VERSION = "wifirtt-regeneration-index-1";
+    private static final char SEPARATOR = '\t';
+    private static final int FIELD_COUNT = 5;
+
+    // Error messages
+    private static final String ERROR_NOT_AN_INDEX = "Not a regeneration index.";
+    private static final String ERROR_MALFORMED_ENTRY = "Malformed regeneration index entry: ";
+
+    private final String configuration;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Constructs an empty index, as before the first run.
+     */
+    public RegenerationIndex() {
+        configuration = "";
+    }
+
+    private RegenerationIndex(String configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Reads an index written by a previous run.
+     *
+     * @param input the text of the index
+     * @return the index
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if the input is not a regeneration index
+     */
+    public static RegenerationIndex read(Reader input) throws IOException, IllegalArgumentException {
+        BufferedReader reader = new BufferedReader(input);
+        String header = reader.readLine();
+        if (header == null || !header.startsWith(VERSION + SEPARATOR)) {
+            throw new IllegalArgumentException(ERROR_NOT_AN_INDEX);
+        }
+        RegenerationIndex index = new RegenerationIndex(header.substring(VERSION.length() + 1));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length != FIELD_COUNT) {
+                throw new IllegalArgumentException(ERROR_MALFORMED_ENTRY + line);
+            }
+            try {
+                index.entries.put(fields[0], new Entry(HexCodec.decode(fields[1]), HexCodec.decode(fields[2]),
+                    Long.parseLong(fields[3]), Integer.parseInt(fields[4])));
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException(ERROR_MALFORMED_ENTRY + line, exception);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Writes the first line of an index.
+     *
+     * @param configuration the configuration of the run
+     * @param output the destination of the index
+     * @throws IOException if the output cannot be written
+     */
+    static void writeHeader(String configuration, Writer output) throws IOException {
+        output.write(VERSION + SEPARATOR + configuration + '\n');
+    }
+
+    /**
+     * Writes the line of an access point to an index. Access points whose BSSID cannot be written on
+     *  a single line are left out, and so are always regenerated.
+     *
+     * @param bssid the BSSID of the access point
+     * @param entry the hashes and location of the output of the access point
+     * @param output the destination of the index
+     * @throws IOException if the output cannot be written
+     */
+    static void writeEntry(String bssid, Entry entry, Writer output) throws IOException {
+        if (bssid.indexOf(SEPARATOR) >= 0 || bssid.indexOf('\n') >= 0 || bssid.indexOf('\r') >= 0) {
+            return;
+        }
+        output.write(bssid + SEPARATOR + HexCodec.toHexString(entry.inputHash) + SEPARATOR
+            + HexCodec.toHexString(entry.outputHash) + SEPARATOR + entry.offset + SEPARATOR + entry.length + '\n');
+    }
+
+    /**
+     * Gets the configuration of the run that wrote the index. Access points are only unchanged
+     *  between runs with the same configuration.
+     *
+     * @return the configuration, empty for an empty index
+     */
+    String getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Gets the entry of an access point.
+     *
+     * @param bssid the BSSID of the access point
+     * @return the entry, or null if the access point is not in the index
+     */
+    Entry get(String bssid) {
+        return entries.get(bssid);
+    }
+
+    /**
+     * Counts the access points of the index that were not found in the input of the current run.
+     *
+     * @return the number of access points not found
+     */
+    long countNotFound() {
+        long count = 0;
+        for (Entry entry : entries.values()) {
+            if (!entry.found) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of access points in the index.
+     *
+     * @return the number of access points
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The hashes and location of the output of an access point.
+     */
+    static final class Entry {
+        final byte[] inputHash;
+        final byte[] outputHash;
+        final long offset;
+        final int length;
+        /** Whether the access point was found in the input of the current run. */
+        boolean found;
+
+        Entry(byte[] inputHash, byte[] outputHash, long offset, int length) {
+            this.inputHash = inputHash;
+            this.outputHash = outputHash;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The list of the shards of a sharded batch output, with the content hash of each shard, so that
+ * deployment agents can fetch only the shards they need and check them.
+ *
+ * <p>The manifest is a text file. Its first line holds a version and the configuration of the run
+ * (the options and the geohash precision of the shards); every other line holds, separated by tabs,
+ * the name of a shard (the geohash prefix of its access points), its file name, its number of
+ * access points, its length in bytes and the hexadecimal SHA-256 digest of its content. The shards
+ * are listed in the order of their names.
+ */
+public final class ShardManifest {
+    // Constants
+    private static final String VERSION = "wifirtt-shard-manifest-1";
+    private static final char SEPARATOR = '\t';
+    private static final int FIELD_COUNT = 5;
+
+    // Error messages
+    private static final String ERROR_NOT_A_MANIFEST = "Not a shard manifest.";
+    private static final String ERROR_MALFORMED_ENTRY = "Malformed shard manifest entry: ";
+
+    private final String configuration;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * Constructs an empty manifest.
+     *
+     * @param configuration the configuration of the run writing the shards
+     */
+    public ShardManifest(String configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Reads a manifest.
+     *
+     * @param input the text of the manifest
+     * @return the manifest
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if the input is not a shard manifest
+     */
+    public static ShardManifest read(Reader input) throws IOException, IllegalArgumentException {
+        BufferedReader reader = new BufferedReader(input);
+        String header = reader.readLine();
+        if (header == null || !header.startsWith(VERSION + SEPARATOR)) {
+            throw new IllegalArgumentException(ERROR_NOT_A_MANIFEST);
+        }
+        ShardManifest manifest = new ShardManifest(header.substring(VERSION.length() + 1));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length != FIELD_COUNT) {
+                throw new IllegalArgumentException(ERROR_MALFORMED_ENTRY + line);
+            }
+            try {
+                manifest.add(new Entry(fields[0], fields[1], Integer.parseInt(fields[2]), Long.parseLong(fields[3]),
+                    fields[4]));
+            } catch (NumberFormatException exception) {
+                throw new IllegalArgumentException(ERROR_MALFORMED_ENTRY + line, exception);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest.
+     *
+     * @param output the destination of the manifest
+     * @throws IOException if the output cannot be written
+     */
+    public void write(Writer output) throws IOException {
+        output.write(VERSION + SEPARATOR + configuration + '\n');
+        for (Entry entry : entries.values()) {
+            output.write(entry.name + SEPARATOR + entry.fileName + SEPARATOR + entry.accessPointCount + SEPARATOR
+                + entry.length + SEPARATOR + entry.sha256 + '\n');
+        }
+    }
+
+    /**
+     * Adds a shard to the manifest, replacing the shard of the same name.
+     *
+     * @param entry the shard
+     */
+    public void add(Entry entry) {
+        entries.put(entry.name, entry);
+    }
+
+    /**
+     * Gets the configuration of the run that wrote the shards.
+     *
+     * @return the configuration
+     */
+    public String getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Gets a shard.
+     *
+     * @param name the name of the shard
+     * @return the shard, or null if there is none of that name
+     */
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Gets the shards, in the order of their names.
+     *
+     * @return the shards
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * A shard of the output.
+     */
+    public static final class Entry {
+        private final String name;
+        private final String fileName;
+        private final int accessPointCount;
+        private final long length;
+        private final String sha256;
+
+        /**
+         * Constructor.
+         *
+         * @param name the name of the shard
+         * @param fileName the name of the file of the shard, in the directory of the manifest
+         * @param accessPointCount the number of access points encoded in the shard
+         * @param length the length of the shard, in bytes
+         * @param sha256 the hexadecimal SHA-256 digest of the content of the shard
+         */
+        public Entry(String name, String fileName, int accessPointCount, long length, String sha256) {
+            this.name = name;
+            this.fileName = fileName;
+            this.accessPointCount = accessPointCount;
+            this.length = length;
+            this.sha256 = sha256;
+        }
+
+        /**
+         * Gets the name of the shard: the geohash prefix of its access points.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the name of the file of the shard, in the directory of the manifest.
+         *
+         * @return the file name
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Gets the number of access points encoded in the shard.
+         *
+         * @return the number of access points
+         */
+        public int getAccessPointCount() {
+            return accessPointCount;
+        }
+
+        /**
+         * Gets the length of the shard.
+         *
+         * @return the length, in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the SHA-256 digest of the content of the shard.
+         *
+         * @return the digest, in hexadecimal
+         */
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
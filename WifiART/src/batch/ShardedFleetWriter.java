@@ -0,0 +1,378 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.HexCodec;
+import geodesy.Geohash;
+import structs.LciState;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Writes the LCI/LCR lines of a fleet as shards: one file per geohash prefix of the locations of
+ * the access points, plus a {@link ShardManifest} listing the shards with their content hashes, so
+ * that deployment agents can fetch only the shards of their area.
+ *
+ * <p>The shards are encoded and written concurrently on a ForkJoinPool, each one atomically with an
+ * AtomicFileWriter. The access points without an LCI subelement go to the "unlocated" shard. A
+ * shard whose content is the same as in the previous manifest of the directory is not rewritten.
+ * The manifest is replaced once every shard is written, and the shards of the previous manifest
+ * that are no longer needed are then deleted. An agent reading the directory while it is being
+ * written can find a shard whose hash does not match the manifest, and should retry.
+ */
+public final class ShardedFleetWriter {
+    // Constants
+    public static final String MANIFEST_NAME = "manifest.txt";
+    public static final int DEFAULT_PRECISION = 4;
+    private static final String UNLOCATED_SHARD = "unlocated";
+    private static final String SHARD_SUFFIX = ".conf";
+    private static final String ALGORITHM = "SHA-256";
+    private static final int MIN_BUFFER_SIZE = 1 << 10;
+    private static final int MAX_BUFFER_SIZE = 1 << 18;
+
+    // Error messages
+    private static final String ERROR_PREVIOUS_MANIFEST = "Ignoring the previous manifest: ";
+
+    private final ForkJoinPool pool;
+    private final FleetEncoder fleetEncoder;
+    private final int precision;
+    private final AtomicFileWriter.SyncPolicy syncPolicy;
+
+    private int writtenShardCount;
+    private int unchangedShardCount;
+    private int removedShardCount;
+    private int failedAccessPointCount;
+
+    /**
+     * Constructs a sharded writer running on the common ForkJoinPool.
+     *
+     * @param androidVersionAtLeastS whether the Z subelement is encoded for Android S or later
+     * @param precision the number of geohash digits naming the shards, from 1 to 12
+     * @param syncPolicy the sync policy of the shards and of the manifest
+     * @throws IllegalArgumentException if the precision is not valid
+     */
+    public ShardedFleetWriter(boolean androidVersionAtLeastS, int precision, AtomicFileWriter.SyncPolicy syncPolicy)
+        throws IllegalArgumentException {
+        this(ForkJoinPool.commonPool(), androidVersionAtLeastS, precision, syncPolicy);
+    }
+
+    /**
+     * Constructs a sharded writer running on a given ForkJoinPool.
+     *
+     * @param pool the pool running the encoding and writing tasks
+     * @param androidVersionAtLeastS whether the Z subelement is encoded for Android S or later
+     * @param precision the number of geohash digits naming the shards, from 1 to 12
+     * @param syncPolicy the sync policy of the shards and of the manifest
+     * @throws IllegalArgumentException if the precision is not valid
+     */
+    public ShardedFleetWriter(ForkJoinPool pool, boolean androidVersionAtLeastS, int precision,
+                              AtomicFileWriter.SyncPolicy syncPolicy) throws IllegalArgumentException {
+        Geohash.encode(0, 0, precision); // Checks the precision.
+        this.pool = pool;
+        this.fleetEncoder = new FleetEncoder(pool, androidVersionAtLeastS);
+        this.precision = precision;
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Gets the name of the shard of an access point.
+     *
+     * @param accessPoint the access point
+     * @param precision the number of geohash digits naming the shards
+     * @return the geohash prefix of the location of the access point, or "unlocated"
+     */
+    static String getShardName(AccessPoint accessPoint, int precision) {
+        if (!accessPoint.getState().isLciIncluded()) {
+            return UNLOCATED_SHARD;
+        }
+        LciState lciState = accessPoint.getState().getLciState();
+        return Geohash.encode(lciState.getLatitude(), lciState.getLongitude(), precision);
+    }
+
+    /**
+     * Gets the name of the shard of an access point of a fleet store.
+     *
+     * @param store the fleet store
+     * @param index the index of the access point
+     * @param precision the number of geohash digits naming the shards
+     * @return the geohash prefix of the location of the access point, or "unlocated"
+     */
+    static String getShardName(FleetStore store, int index, int precision) {
+        if (!store.isLciIncluded(index)) {
+            return UNLOCATED_SHARD;
+        }
+        return Geohash.encode(store.getLatitude(index), store.getLongitude(index), precision);
+    }
+
+    /**
+     * Encodes the access points of a fleet into the shards of a directory, and writes their
+     *  manifest. Access points that cannot be encoded are reported and skipped.
+     *
+     * @param accessPoints the access points
+     * @param directory the directory of the shards and of the manifest, which must exist
+     * @param log the destination of the errors of skipped access points
+     * @return the manifest written
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    public ShardManifest write(List<AccessPoint> accessPoints, Path directory, PrintStream log) throws IOException {
+        String[] shardNames = new String[accessPoints.size()];
+        int[] indices = new int[accessPoints.size()];
+        for (int i = 0; i < indices.length; i++) {
+            shardNames[i] = getShardName(accessPoints.get(i), precision);
+            indices[i] = i;
+        }
+        return write(groupShards(shardNames, indices),
+            shardIndices -> fleetEncoder.encode(i -> accessPoints.get(shardIndices[i]), shardIndices.length),
+            i -> accessPoints.get(i).getBssid(), directory, log);
+    }
+
+    /**
+     * Encodes some of the access points of a fleet store into the shards of a directory, and
+     *  writes their manifest. The shard of each access point is found from the columns of the
+     *  store, and each access point is encoded straight from the columns by the worker encoding
+     *  its shard.
+     *
+     * @param store the fleet store
+     * @param indices the indices of the access points to write
+     * @param directory the directory of the shards and of the manifest, which must exist
+     * @param log the destination of the errors of skipped access points
+     * @return the manifest written
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    public ShardManifest write(FleetStore store, int[] indices, Path directory, PrintStream log) throws IOException {
+        String[] shardNames = new String[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            shardNames[i] = getShardName(store, indices[i], precision);
+        }
+        return write(groupShards(shardNames, indices), shardIndices -> fleetEncoder.encode(store, shardIndices),
+            store::getBssid, directory, log);
+    }
+
+    /**
+     * Groups the access points by shard.
+     *
+     * @param shardNames the name of the shard of each access point
+     * @param indices the index of each access point
+     * @return the indices of the access points of each shard, in input order, by shard name
+     */
+    private static Map<String, int[]> groupShards(String[] shardNames, int[] indices) {
+        Map<String, int[]> counts = new TreeMap<>();
+        for (String shardName : shardNames) {
+            counts.computeIfAbsent(shardName, name -> new int[1])[0]++;
+        }
+        Map<String, int[]> shards = new TreeMap<>();
+        for (Map.Entry<String, int[]> count : counts.entrySet()) {
+            shards.put(count.getKey(), new int[count.getValue()[0]]);
+            count.getValue()[0] = 0;
+        }
+        for (int i = 0; i < shardNames.length; i++) {
+            shards.get(shardNames[i])[counts.get(shardNames[i])[0]++] = indices[i];
+        }
+        return shards;
+    }
+
+    private ShardManifest write(Map<String, int[]> shards, Function<int[], FleetEncoding> encoder,
+                                IntFunction<String> bssids, Path directory, PrintStream log) throws IOException {
+        writtenShardCount = 0;
+        unchangedShardCount = 0;
+        removedShardCount = 0;
+        failedAccessPointCount = 0;
+        Path manifestFile = directory.resolve(MANIFEST_NAME);
+        ShardManifest previousManifest = new ShardManifest("");
+        if (Files.exists(manifestFile)) {
+            try (Reader input = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+                previousManifest = ShardManifest.read(input);
+            } catch (IOException | IllegalArgumentException exception) {
+                log.println(ERROR_PREVIOUS_MANIFEST + exception.getMessage());
+            }
+        }
+
+        List<Callable<ShardResult>> tasks = new ArrayList<>(shards.size());
+        for (Map.Entry<String, int[]> shard : shards.entrySet()) {
+            ShardManifest.Entry previous = previousManifest.get(shard.getKey());
+            tasks.add(() -> writeShard(shard.getKey(), shard.getValue(), encoder, bssids, directory, previous));
+        }
+        ShardManifest manifest = new ShardManifest("android-s=" + fleetEncoder.isAndroidVersionAtLeastS()
+            + " precision=" + precision);
+        for (Future<ShardResult> future : pool.invokeAll(tasks)) {
+            ShardResult result = getResult(future);
+            manifest.add(result.entry);
+            for (String failure : result.failures) {
+                log.println(failure);
+            }
+            failedAccessPointCount += result.failures.size();
+            if (result.unchanged) {
+                unchangedShardCount++;
+            } else {
+                writtenShardCount++;
+            }
+        }
+        try (AtomicFileWriter output = new AtomicFileWriter(manifestFile, syncPolicy)) {
+            manifest.write(output);
+            output.commit();
+        }
+
+        for (ShardManifest.Entry previous : previousManifest.getEntries()) {
+            if (manifest.get(previous.getName()) == null && isShardFileName(previous.getFileName())) {
+                if (Files.deleteIfExists(directory.resolve(previous.getFileName()))) {
+                    removedShardCount++;
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Encodes the access points of a shard and writes them, unless the shard file already holds
+     *  the same content.
+     */
+    private ShardResult writeShard(String name, int[] indices, Function<int[], FleetEncoding> encoder,
+                                   IntFunction<String> bssids, Path directory, ShardManifest.Entry previous)
+        throws IOException {
+        FleetEncoding encoding = encoder.apply(indices);
+        List<String> failures = new ArrayList<>();
+        for (int i = 0; i < encoding.size(); i++) {
+            if (encoding.getFailure(i) != null) {
+                failures.add(bssids.apply(indices[i]) + ": " + encoding.getFailure(i).getMessage());
+            }
+        }
+        StringWriter text = new StringWriter();
+        encoding.writeTo(text);
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        String sha256 = HexCodec.toHexString(getDigest().digest(bytes));
+        String fileName = name + SHARD_SUFFIX;
+        ShardManifest.Entry entry = new ShardManifest.Entry(name, fileName, encoding.size() - failures.size(),
+            bytes.length, sha256);
+        Path file = directory.resolve(fileName);
+        if (previous != null && previous.getSha256().equals(sha256) && Files.exists(file)
+            && Files.size(file) == bytes.length) {
+            return new ShardResult(entry, failures, true);
+        }
+        // Most shards are small, so the buffer is sized to the shard rather than to a whole output.
+        int bufferSize = Math.max(MIN_BUFFER_SIZE, Math.min(bytes.length, MAX_BUFFER_SIZE));
+        try (AtomicFileWriter output = new AtomicFileWriter(file, syncPolicy, bufferSize)) {
+            output.write(text.toString());
+            output.commit();
+        }
+        return new ShardResult(entry, failures, false);
+    }
+
+    private static ShardResult getResult(Future<ShardResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException(exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Checks that a file name of the previous manifest names a shard of the directory, and not a
+     *  file elsewhere, before deleting it.
+     */
+    private static boolean isShardFileName(String fileName) {
+        return fileName.endsWith(SHARD_SUFFIX) && fileName.indexOf('/') < 0 && fileName.indexOf('\\') < 0
+            && !fileName.startsWith(".");
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Gets the number of shards written by the last call to write.
+     *
+     * @return the number of shards written
+     */
+    public int getWrittenShardCount() {
+        return writtenShardCount;
+    }
+
+    /**
+     * Gets the number of shards left unchanged by the last call to write.
+     *
+     * @return the number of unchanged shards
+     */
+    public int getUnchangedShardCount() {
+        return unchangedShardCount;
+    }
+
+    /**
+     * Gets the number of shards of the previous manifest deleted by the last call to write.
+     *
+     * @return the number of removed shards
+     */
+    public int getRemovedShardCount() {
+        return removedShardCount;
+    }
+
+    /**
+     * Gets the number of access points that could not be encoded in the last call to write.
+     *
+     * @return the number of skipped access points
+     */
+    public int getFailedAccessPointCount() {
+        return failedAccessPointCount;
+    }
+
+    /**
+     * The outcome of writing a shard.
+     */
+    private static final class ShardResult {
+        final ShardManifest.Entry entry;
+        final List<String> failures;
+        final boolean unchanged;
+
+        ShardResult(ShardManifest.Entry entry, List<String> failures, boolean unchanged) {
+            this.entry = entry;
+            this.failures = failures;
+            this.unchanged = unchanged;
+        }
+    }
+}
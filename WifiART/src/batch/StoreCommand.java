@@ -0,0 +1,87 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The batch mode of a memory-mapped fleet store input that no option needs loaded: encodes the
+ * LCI/LCR lines of its access points from the mapped file in place, a range at a time, with no
+ * load phase.
+ */
+final class StoreCommand {
+    // Constants
+    /** The number of access points of a store file encoded and written at a time. */
+    private static final int RANGE_SIZE = 1 << 16;
+
+    // Private constructor to avoid instance creation.
+    private StoreCommand() {}
+
+    /**
+     * Determines whether the access points of the input are encoded in place by this mode.
+     *
+     * @param options the options of the batch mode
+     * @return true if the input is a store file and no option needs its access points loaded
+     */
+    static boolean accepts(BatchOptions options) {
+        return options.getFleetFormat() == BatchOptions.FleetFormat.STORE && options.getDatumConverter() == null
+            && options.getSnapshotName() == null && options.getStoreName() == null && options.getRegion() == null
+            && !options.isSharded() && options.getReportName() == null;
+    }
+
+    /**
+     * Encodes the LCI/LCR lines of the access points of the store file.
+     *
+     * @param options the options of the batch mode
+     * @param log the destination of the summary and errors
+     * @return the exit status
+     */
+    static int run(BatchOptions options, PrintStream log) {
+        long startNanos = System.nanoTime();
+        FleetEncoder fleetEncoder = new FleetEncoder(options.isAndroidVersionAtLeastS());
+        int accessPointCount;
+        int failedCount = 0;
+        try (MappedFleetStore store = MappedFleetStore.open(Paths.get(options.getInputName()), false);
+             Writer output = BatchCommand.openOutput(options.getOutputName(), options.getSyncPolicy())) {
+            accessPointCount = store.size();
+            for (int from = 0; from < store.size(); from += RANGE_SIZE) {
+                int to = Math.min(store.size(), from + RANGE_SIZE);
+                FleetEncoding encoding = fleetEncoder.encode(store, from, to);
+                for (int i = 0; i < encoding.size(); i++) {
+                    if (encoding.getFailure(i) != null) {
+                        log.println(store.getBssid(from + i) + ": " + encoding.getFailure(i).getMessage());
+                    }
+                }
+                encoding.writeTo(output);
+                failedCount += encoding.getFailedCount();
+            }
+            if (output instanceof AtomicFileWriter) {
+                ((AtomicFileWriter) output).commit();
+            }
+        } catch (IOException | IllegalArgumentException exception) {
+            log.println(exception.getMessage());
+            return BatchCommand.EXIT_ERROR;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        log.println("Encoded " + accessPointCount + " access points in " + millis + " ms, " + failedCount + " failed");
+        return failedCount == 0 ? BatchCommand.EXIT_SUCCESS : BatchCommand.EXIT_ACCESS_POINTS_FAILED;
+    }
+}
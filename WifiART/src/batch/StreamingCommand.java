@@ -0,0 +1,125 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The batch mode of a CSV input that no option needs loaded as a whole: encodes its access points
+ * one at a time with a {@link BatchEncoder}, saving them to a snapshot or store file on the way,
+ * and regenerating only those whose records changed for an incremental run.
+ */
+final class StreamingCommand {
+    // Error messages
+    private static final String ERROR_PREVIOUS_INDEX = "Ignoring the previous index: ";
+
+    // Private constructor to avoid instance creation.
+    private StreamingCommand() {}
+
+    /**
+     * Encodes the LCI/LCR lines of the access points of the CSV input.
+     *
+     * @param options the options of the batch mode
+     * @param log the destination of the progress reports and errors
+     * @return the exit status
+     */
+    static int run(BatchOptions options, PrintStream log) {
+        AtomicFileWriter.SyncPolicy syncPolicy = options.getSyncPolicy();
+        BatchEncoder encoder = new BatchEncoder(options.isAndroidVersionAtLeastS());
+        try (Reader input = BatchCommand.openInput(options.getInputName());
+             Writer output = BatchCommand.openOutput(options.getOutputName(), syncPolicy);
+             AtomicFile snapshotFile = BatchCommand.openFile(options.getSnapshotName(), syncPolicy);
+             AtomicFile storeFile = BatchCommand.openFile(options.getStoreName(), syncPolicy)) {
+            try (FleetSnapshotWriter snapshot = BatchCommand.openSnapshot(snapshotFile);
+                 MappedFleetStore store = BatchCommand.createStore(storeFile)) {
+                encoder.setSnapshot(snapshot);
+                encoder.setStore(store);
+                encoder.setDatumConverter(options.getDatumConverter());
+                if (options.getIndexName() == null) {
+                    encoder.encode(input, output, log);
+                } else {
+                    encodeIncrementally(encoder, input, (AtomicFileWriter) output, Paths.get(options.getOutputName()),
+                        Paths.get(options.getIndexName()), syncPolicy, log);
+                }
+                if (snapshot != null) {
+                    snapshot.finish();
+                }
+            }
+            if (snapshotFile != null) {
+                snapshotFile.commit();
+            }
+            if (storeFile != null) {
+                storeFile.commit();
+            }
+            if (output instanceof AtomicFileWriter) {
+                ((AtomicFileWriter) output).commit();
+            }
+        } catch (IOException | IllegalArgumentException exception) {
+            log.println(exception.getMessage());
+            return BatchCommand.EXIT_ERROR;
+        }
+        log.println(encoder.getSummary());
+        return encoder.getFailedAccessPointCount() == 0 ? BatchCommand.EXIT_SUCCESS
+            : BatchCommand.EXIT_ACCESS_POINTS_FAILED;
+    }
+
+    /**
+     * Encodes the access points whose records changed since the previous run, copying the others
+     *  from the previous output file. The new index is committed once the output is written, just
+     *  before the output itself.
+     *
+     * @param encoder the batch encoder
+     * @param input the CSV input
+     * @param output the writer of the new output file
+     * @param outputFile the output file, holding the output of the previous run if there was one
+     * @param indexFile the index file, holding the index of the previous run if there was one
+     * @param syncPolicy the sync policy of the index file
+     * @param log the destination of the progress reports and errors
+     * @throws IOException if the input or the previous output cannot be read, or the output written
+     */
+    private static void encodeIncrementally(BatchEncoder encoder, Reader input, AtomicFileWriter output,
+        Path outputFile, Path indexFile, AtomicFileWriter.SyncPolicy syncPolicy, PrintStream log) throws IOException {
+        RegenerationIndex previousIndex = new RegenerationIndex();
+        if (Files.exists(indexFile)) {
+            try (Reader indexInput = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                previousIndex = RegenerationIndex.read(indexInput);
+            } catch (IOException | IllegalArgumentException exception) {
+                log.println(ERROR_PREVIOUS_INDEX + exception.getMessage());
+            }
+        }
+        FileChannel previousOutput = Files.exists(outputFile) ? FileChannel.open(outputFile, StandardOpenOption.READ)
+            : null;
+        try (AtomicFileWriter nextIndex = new AtomicFileWriter(indexFile, syncPolicy)) {
+            encoder.setIncremental(previousIndex, previousOutput, nextIndex);
+            encoder.encode(input, output, log);
+            nextIndex.commit();
+        } finally {
+            if (previousOutput != null) {
+                previousOutput.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.DatumConverter;
+import structs.ArtSystemState;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the access points of a survey CSV file one at a time, with the columns described in
+ * AccessPointColumns.
+ *
+ * <p>Consecutive records with the same BSSID describe the same access point, e.g. one record per
+ * co-located BSSID or per language of the civic address, and are merged into a single access point.
+ * The input is read through a fixed-size buffer and only the current access point is held in
+ * memory, so the memory used does not depend on the size of the input.
+ */
+public final class SurveyReader {
+    // Error messages
+    private static final String ERROR_EMPTY_INPUT = "The input has no header record.";
+
+    private final CsvReader csvReader;
+    private final AccessPointColumns columns;
+    private final List<String> record = new ArrayList<>();
+    /** The hash of the records of each access point, or null if they are not hashed. */
+    private final ContentHash recordHash;
+    private byte[] headerHash;
+    private byte[] inputHash;
+
+    /** Whether the record holds the first record of the next access point. */
+    private boolean recordPending;
+    /** A malformed record found after the previous access point, reported by the next call. */
+    private IllegalArgumentException pendingFailure;
+    private long pendingLineNumber;
+    private long lineNumber;
+
+    /**
+     * Constructs a survey reader, reading the header record.
+     *
+     * @param input the CSV input, whose first record is the header
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if the header is missing or not valid
+     */
+    public SurveyReader(Reader input) throws IOException, IllegalArgumentException {
+        this(input, false);
+    }
+
+    /**
+     * Constructs a survey reader, reading the header record.
+     *
+     * @param input the CSV input, whose first record is the header
+     * @param hashRecords whether to compute the content hash of the header and of the records of
+     *                    each access point
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if the header is missing or not valid
+     */
+    SurveyReader(Reader input, boolean hashRecords) throws IOException, IllegalArgumentException {
+        csvReader = new CsvReader(input);
+        if (!csvReader.readRecord(record)) {
+            throw new IllegalArgumentException(ERROR_EMPTY_INPUT);
+        }
+        columns = new AccessPointColumns(record);
+        recordHash = hashRecords ? new ContentHash() : null;
+        if (recordHash != null) {
+            recordHash.update(record);
+            headerHash = recordHash.finish();
+        }
+    }
+
+    /**
+     * Makes the locations of the next access points converted to a map datum.
+     *
+     * @param datumConverter the converter to the map datum, or null to keep the map datum of each
+     *                       record
+     */
+    public void setDatumConverter(DatumConverter datumConverter) {
+        columns.setDatumConverter(datumConverter);
+    }
+
+    /**
+     * Gets the content hash of the header record, if records are hashed.
+     *
+     * @return the hash, or null
+     */
+    byte[] getHeaderHash() {
+        return headerHash;
+    }
+
+    /**
+     * Gets the content hash of the records of the last access point read, if records are hashed.
+     *
+     * @return the hash, or null
+     */
+    byte[] getInputHash() {
+        return inputHash;
+    }
+
+    /**
+     * Gets the line on which the last access point read (or failed) started.
+     *
+     * @return the 1-based line number
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Reads the next access point. If its records are not valid, they are skipped and an exception
+     *  is thrown, after which reading can go on with the following access point.
+     *
+     * @return the access point, or null at the end of the input
+     * @throws IOException if the input cannot be read
+     * @throws IllegalArgumentException if a record is malformed or has a value that is not valid
+     * @throws IndexOutOfBoundsException if the access point has too many co-located BSSIDs
+     */
+    public AccessPoint next() throws IOException, IllegalArgumentException, IndexOutOfBoundsException {
+        if (!recordPending && pendingFailure == null) {
+            readRecord();
+        }
+        if (pendingFailure != null) {
+            IllegalArgumentException failure = pendingFailure;
+            pendingFailure = null;
+            lineNumber = pendingLineNumber;
+            throw failure;
+        }
+        if (!recordPending) {
+            return null;
+        }
+        lineNumber = csvReader.getRecordLineNumber();
+        recordPending = false;
+        String bssid = columns.getBssid(record);
+        ArtSystemState state = new ArtSystemState();
+        RuntimeException failure = null;
+        do {
+            if (recordHash != null) {
+                recordHash.update(record);
+            }
+            if (failure == null) {
+                try {
+                    columns.addTo(record, state);
+                } catch (RuntimeException exception) {
+                    failure = exception; // Skip the other records of the access point first.
+                }
+            }
+            readRecord();
+        } while (recordPending && columns.hasBssid(record, bssid));
+        if (recordHash != null) {
+            inputHash = recordHash.finish();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return new AccessPoint(bssid, state);
+    }
+
+    private void readRecord() throws IOException {
+        try {
+            recordPending = csvReader.readRecord(record);
+        } catch (IllegalArgumentException exception) {
+            recordPending = false;
+            pendingFailure = exception;
+            pendingLineNumber = csvReader.getRecordLineNumber();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the table-driven hex codec with the per-byte String.format loop it replaced, on the
+ * buffer of the Sydney Opera House LCI subelement (18 bytes) and on a Location Civic subelement of
+ * the maximum length (257 bytes). Run with "-prof gc" to also report the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexCodecBenchmark {
+    // Constants
+    private static final String LCI_BUFFER = "001052834d12efd2b08b9b4bf1cc2c000041";
+    private static final int MAXIMUM_CIVIC_LENGTH = 257; // ID, length and 255 bytes of data
+
+    private final byte[] lciBytes = HexCodec.decode(LCI_BUFFER);
+    private final byte[] civicBytes = buildCivicBytes();
+    private final String civicHex = HexCodec.toHexString(civicBytes);
+
+    private static byte[] buildCivicBytes() {
+        byte[] bytes = new byte[MAXIMUM_CIVIC_LENGTH];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes the bytes one at a time with String.format, as the models did before the codec.
+     */
+    private static String formatHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b)); // Convert the byte to a hex string of 2 characters.
+        }
+        return result.toString();
+    }
+
+    /**
+     * Decodes two characters at a time with Integer.parseInt, the usual alternative to the codec.
+     */
+    private static byte[] parseHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public String lciCodec() {
+        return HexCodec.toHexString(lciBytes);
+    }
+
+    @Benchmark
+    public String lciStringFormat() {
+        return formatHex(lciBytes);
+    }
+
+    @Benchmark
+    public String civicCodec() {
+        return HexCodec.toHexString(civicBytes);
+    }
+
+    @Benchmark
+    public String civicStringFormat() {
+        return formatHex(civicBytes);
+    }
+
+    @Benchmark
+    public byte[] civicDecodeCodec() {
+        return HexCodec.decode(civicHex);
+    }
+
+    @Benchmark
+    public byte[] civicDecodeParseInt() {
+        return parseHex(civicHex);
+    }
+}
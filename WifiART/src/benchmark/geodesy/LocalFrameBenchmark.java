@@ -0,0 +1,64 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import structs.LciState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of a position of an access point in a local frame (a building surveyed
+ * in meters) to WGS84 coordinates, as done for each record of a survey CSV file with east, north
+ * and up columns. Run with "-prof gc" to also report the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalFrameBenchmark {
+    private final LocalFrame frame = new LocalFrame(-33.8570095, 151.2152005, 11.2);
+    private final LciState state = new LciState();
+    private final double[] latitudes = new double[1];
+    private final double[] longitudes = new double[1];
+    private final double[] heights = new double[1];
+    private double east = 12.5;
+
+    @Benchmark
+    public double singlePoint() {
+        east += 0.001;
+        frame.toWgs84(east, 30.25, 4.0, latitudes, longitudes, heights, 0);
+        return latitudes[0];
+    }
+
+    @Benchmark
+    public LciState setLocation() {
+        east += 0.001;
+        frame.setLocation(state, east, 30.25, 4.0);
+        return state;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.BssidState;
+import structs.ExpectedToMove;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.MapState;
+import structs.UsageState;
+import structs.ZState;
+
+/**
+ * Builds the subelement states used by the benchmarks, with the same values as the fixtures of the
+ * subelement tests (LciTest, ZTest, UsageTest, BssidTest, LcrTest and MapTest).
+ */
+final class BenchmarkStates {
+    // Constants
+    static final int MAX_SIZE_OF_BSSID_LIST = 42;
+    private static final int MAX_FOR_MAX_BSSID_INDICATOR = 255;
+    private static final String UNITED_STATES = "United States of America";
+    private static final String ENGLISH = "English";
+
+    // Private constructor to avoid instance creation.
+    private BenchmarkStates() {}
+
+    /**
+     * Builds the Sydney Opera House LCI state from LciTest.
+     *
+     * @return the LCI state
+     */
+    static LciState buildSydneyOperaHouseLciState() {
+        LciState state = new LciState();
+        state.setLatitude(-33.8570095);
+        state.setLatitudeUncertainty(0.0007105);
+        state.setLongitude(151.2152005);
+        state.setLongitudeUncertainty(0.0007055);
+        state.setAltitude(11.2);
+        state.setAltitudeUncertainty(33.7);
+        state.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        state.setMapDatum(MapDatum.WGS84);
+        return state;
+    }
+
+    /**
+     * Builds the example Z state from ZTest.
+     *
+     * @return the Z state
+     */
+    static ZState buildExampleZState() {
+        ZState state = new ZState();
+        state.setFloor(4);
+        state.setHeightAboveFloorMeters(2.8);
+        state.setHeightAboveFloorUncertaintyMeters(0.1);
+        state.setExpectedToMove(ExpectedToMove.NOT_EXPECTED_TO_MOVE);
+        return state;
+    }
+
+    /**
+     * Builds a Usage Rules/Policy state with an expire time, as in UsageTest.
+     *
+     * @return the Usage Rules/Policy state
+     */
+    static UsageState buildUsageStateWithExpireTime() {
+        UsageState state = new UsageState();
+        state.setRetentionExpires(true);
+        state.setExpireTimeHours(32768);
+        return state;
+    }
+
+    /**
+     * Builds a BSSID List state with distinct BSSIDs.
+     *
+     * @param bssidCount the number of BSSIDs in the list, from 0 to 42
+     * @return the BSSID List state
+     */
+    static BssidState buildBssidState(int bssidCount) {
+        BssidState state = new BssidState();
+        state.setMaxBssidIndicator(bssidCount == 1 ? 2 : MAX_FOR_MAX_BSSID_INDICATOR);
+        byte[] bssid = {0x01, 0x02, 0x03, 0x04, 0x05, 0x06};
+        for (int i = 0; i < bssidCount; i++) {
+            bssid[5] = (byte) (0x06 + i);
+            state.addBssid(bssid, 0);
+        }
+        return state;
+    }
+
+    /**
+     * Builds the small Mountain View address from LcrTest.
+     *
+     * @return the Location Civic state
+     */
+    static LcrState buildMountainViewLcrState() {
+        return buildLcrState(new String[][] {
+            {"CA", ENGLISH, "State"},
+            {"Mtn View", ENGLISH, "City"},
+            {"Alta Road", ENGLISH, "Street Suffix or Type"},
+            {"15", ENGLISH, "House Number"},
+            {"Floor 8", ENGLISH, "Floor"},
+            {"Room 2", ENGLISH, "Room"},
+            {"Pole 3", ENGLISH, "Type of Place"}
+        });
+    }
+
+    /**
+     * Builds the address from LcrTest whose data field has the maximum length of 255 bytes.
+     *
+     * @return the Location Civic state
+     */
+    static LcrState buildMaximumLengthLcrState() {
+        return buildLcrState(new String[][] {
+            {"a".repeat(247), ENGLISH, "State"}
+        });
+    }
+
+    /**
+     * Builds the example Map Image state from MapTest.
+     *
+     * @return the Map Image state
+     */
+    static MapState buildExampleMapState() {
+        MapState state = new MapState();
+        state.setMapType("URL Defined");
+        state.setMapUrl("http://map.google.com/b40.jpg");
+        return state;
+    }
+
+    /**
+     * Builds a system state with every subelement included, using the example states.
+     *
+     * @return the system state
+     */
+    static ArtSystemState buildSystemState() {
+        ArtSystemState state = new ArtSystemState();
+        state.setLciState(buildSydneyOperaHouseLciState());
+        state.setZState(buildExampleZState());
+        state.setUsageState(buildUsageStateWithExpireTime());
+        state.setBssidState(buildBssidState(1));
+        state.setLcrState(buildMountainViewLcrState());
+        state.setMapState(buildExampleMapState());
+        state.setLciIncluded(true);
+        state.setZIncluded(true);
+        state.setUsageIncluded(true);
+        state.setBssidIncluded(true);
+        state.setLcrIncluded(true);
+        state.setMapIncluded(true);
+        return state;
+    }
+
+    private static LcrState buildLcrState(String[][] addressElements) {
+        LcrState state = new LcrState();
+        state.setCountry(UNITED_STATES);
+        for (String[] addressElement : addressElements) {
+            state.addAddressElement(new StringBuilder(addressElement[0]), new StringBuilder(addressElement[1]),
+                new StringBuilder(addressElement[2]));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import structs.LciState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of assembling the full "lci=" and "civic=" lines, with every subelement
+ * included, as done after each change in the user interface. Run with "-prof gc" to also report
+ * the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocationLineBenchmark {
+    // Constants
+    private static final double LATITUDE = -33.8570095;
+    private static final double EDITED_LATITUDE = -33.8570096;
+
+    private final ArtMvcModel model = new ArtMvcModel(BenchmarkStates.buildSystemState());
+    private boolean edited;
+
+    /**
+     * Assembles the lines when no subelement changed since the last assembly.
+     *
+     * @return the configuration lines
+     */
+    @Benchmark
+    public String lines() {
+        return BufferDisplays.getNotReadableBufferDisplay(model.getLciSubelementBuffersList(),
+            model.getLcrSubelementBuffersList());
+    }
+
+    /**
+     * Assembles the lines after the latitude was edited, so the LCI subelement is encoded again.
+     *
+     * @return the configuration lines
+     */
+    @Benchmark
+    public String linesAfterLciEdit() {
+        LciState lciState = model.getLciModel().getState();
+        lciState.setLatitude(edited ? LATITUDE : EDITED_LATITUDE);
+        edited = !edited;
+        return BufferDisplays.getNotReadableBufferDisplay(model.getLciSubelementBuffersList(),
+            model.getLcrSubelementBuffersList());
+    }
+
+    /**
+     * Assembles the readable display shown in the user interface.
+     *
+     * @return the readable buffer display
+     */
+    @Benchmark
+    public String readableDisplay() {
+        return BufferDisplays.getReadableBufferDisplay(model.getLciSubelementBuffersList(),
+            model.getLcrSubelementBuffersList());
+    }
+}
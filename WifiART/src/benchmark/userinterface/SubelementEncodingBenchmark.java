@@ -0,0 +1,165 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import structs.BssidState;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapState;
+import structs.UsageState;
+import structs.ZState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of encoding every subelement into its hex buffer through its model.
+ *
+ * <p>The models reuse their encoding until the state changes, so each model alternates between two
+ * states with the same values: every invocation encodes the state again, as after an edit in the
+ * user interface. The "Cached" benchmarks measure the reuse path instead. Run with "-prof gc"
+ * to also report the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SubelementEncodingBenchmark {
+
+    private final LciModel lciModel = new LciModel(BenchmarkStates.buildSydneyOperaHouseLciState());
+    private final ZModel zModel = new ZModel(BenchmarkStates.buildExampleZState());
+    private final UsageModel usageModel = new UsageModel(BenchmarkStates.buildUsageStateWithExpireTime());
+    private final BssidModel bssidModel = new BssidModel(BenchmarkStates.buildBssidState(1));
+    private final LcrModel lcrModel = new LcrModel(BenchmarkStates.buildMountainViewLcrState());
+    private final MapModel mapModel = new MapModel(BenchmarkStates.buildExampleMapState());
+
+    private final AlternatingStates<LciState> lciStates =
+        new AlternatingStates<>(BenchmarkStates::buildSydneyOperaHouseLciState);
+    private final AlternatingStates<ZState> zStates = new AlternatingStates<>(BenchmarkStates::buildExampleZState);
+    private final AlternatingStates<UsageState> usageStates =
+        new AlternatingStates<>(BenchmarkStates::buildUsageStateWithExpireTime);
+    private final AlternatingStates<BssidState> singleBssidStates =
+        new AlternatingStates<>(() -> BenchmarkStates.buildBssidState(1));
+    private final AlternatingStates<BssidState> maximumBssidStates =
+        new AlternatingStates<>(() -> BenchmarkStates.buildBssidState(BenchmarkStates.MAX_SIZE_OF_BSSID_LIST));
+    private final AlternatingStates<LcrState> smallLcrStates =
+        new AlternatingStates<>(BenchmarkStates::buildMountainViewLcrState);
+    private final AlternatingStates<LcrState> maximumLengthLcrStates =
+        new AlternatingStates<>(BenchmarkStates::buildMaximumLengthLcrState);
+    private final AlternatingStates<MapState> mapStates =
+        new AlternatingStates<>(BenchmarkStates::buildExampleMapState);
+
+    /**
+     * Uses the new Z encoding, as the Z subelement tests do.
+     */
+    @Setup
+    public void setUp() {
+        zModel.setIfAndroidVersionNew(true);
+    }
+
+    @Benchmark
+    public String lci() {
+        lciModel.setState(lciStates.next());
+        return lciModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String lciCached() {
+        return lciModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String z() {
+        zModel.setState(zStates.next());
+        return zModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String usage() {
+        usageModel.setState(usageStates.next());
+        return usageModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String bssidSingle() {
+        bssidModel.setState(singleBssidStates.next());
+        return bssidModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String bssidMaximum() {
+        bssidModel.setState(maximumBssidStates.next());
+        return bssidModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String lcrSmall() {
+        lcrModel.setState(smallLcrStates.next());
+        return lcrModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String lcrMaximumLength() {
+        lcrModel.setState(maximumLengthLcrStates.next());
+        return lcrModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String lcrCached() {
+        return lcrModel.toHexBuffer();
+    }
+
+    @Benchmark
+    public String map() {
+        mapModel.setState(mapStates.next());
+        return mapModel.toHexBuffer();
+    }
+
+    /**
+     * Two states with the same values, returned in turn.
+     *
+     * @param <S> the state type of the subelement
+     */
+    private static final class AlternatingStates<S> {
+        private final S first;
+        private final S second;
+        private boolean firstIsNext = true;
+
+        private AlternatingStates(Supplier<S> stateBuilder) {
+            first = stateBuilder.get();
+            second = stateBuilder.get();
+        }
+
+        private S next() {
+            S state = firstIsNext ? first : second;
+            firstIsNext = !firstIsNext;
+            return state;
+        }
+    }
+}
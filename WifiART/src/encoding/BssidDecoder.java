@@ -0,0 +1,59 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.BssidState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the BSSID List subelement.
+ */
+public class BssidDecoder implements SubelementDecoder<BssidState> {
+
+    // Error messages
+    private static final String ERROR_WRONG_LENGTH = "The BSSID List subelement has the wrong length.";
+
+    // Lengths (in bytes)
+    private static final int MAX_BSSID_INDICATOR_LENGTH = 1;
+    private static final int BSSID_LENGTH = 6;
+
+    @Override
+    public BssidState decode(ByteBuffer fields) throws IllegalArgumentException {
+        int bssidListLength = fields.remaining() - MAX_BSSID_INDICATOR_LENGTH;
+        if (bssidListLength < 0 || bssidListLength % BSSID_LENGTH != 0) {
+            throw new IllegalArgumentException(ERROR_WRONG_LENGTH);
+        }
+        BssidState state = new BssidState();
+        state.setMaxBssidIndicator(fields.get() & 0xff);
+        if (fields.hasArray()) {
+            byte[] array = fields.array();
+            int offset = fields.arrayOffset() + fields.position();
+            for (int i = 0; i < bssidListLength; i += BSSID_LENGTH) {
+                state.addBssid(array, offset + i);
+            }
+            fields.position(fields.limit());
+        } else {
+            byte[] bssid = new byte[BSSID_LENGTH];
+            while (fields.hasRemaining()) {
+                fields.get(bssid);
+                state.addBssid(bssid, 0);
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package encoding;
+
+import structs.BssidState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * Encodes the BSSID List subelement.
+ */
+public class BssidEncoder implements SubelementEncoder<BssidState> {
+
+    // Constants
+    static final byte SUBELEMENT_ID = 7;
+
+    // Lengths (in bytes)
+    private static final int SUBELEMENT_ID_LENGTH = 1;
+    private static final int LENGTH_FIELD_LENGTH = 1;
+    static final int MAX_BSSID_INDICATOR_LENGTH = 1;
+    static final int BSSID_LENGTH = 6;
+
+    @Override
+    public int getEncodedLength(BssidState state) {
+        return SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + getFieldsLength(state);
+    }
+
+    @Override
+    public void encode(BssidState state, ByteBuffer buffer) {
+        if (buffer.remaining() < getEncodedLength(state)) {
+            throw new BufferOverflowException();
+        }
+        int maxBssidIndicator = state.getMaxBssidIndicator();
+        Set<byte[]> bssidList = state.getBssidList();
+        buffer.put(SUBELEMENT_ID);
+        buffer.put((byte) getFieldsLength(state));
+        buffer.put((byte) maxBssidIndicator);
+        for (byte[] bssid : bssidList) {
+            buffer.put(bssid, 0, BSSID_LENGTH);
+        }
+    }
+
+    private int getFieldsLength(BssidState state) {
+        return MAX_BSSID_INDICATOR_LENGTH + state.getBssidList().size() * BSSID_LENGTH;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable byte array for assembling variable-length encodings.
+ *
+ * <p>Length fields whose value is only known after their contents are written can be reserved
+ * with {@link #reserve()} and filled in afterwards with {@link #patch(int, int)}. A sink can be
+ * reset and reused, keeping its capacity, so repeated encodings do not allocate once the sink
+ * has grown to fit them.
+ */
+public final class ByteSink {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private byte[] bytes;
+    private int size;
+
+    /**
+     * Constructs an empty ByteSink with a default initial capacity.
+     */
+    public ByteSink() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty ByteSink.
+     *
+     * @param initialCapacity the number of bytes the sink can hold before it needs to grow
+     */
+    public ByteSink(int initialCapacity) {
+        bytes = new byte[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Appends a byte.
+     *
+     * @param value the byte to append
+     */
+    public void put(byte value) {
+        ensureCapacity(size + 1);
+        bytes[size++] = value;
+    }
+
+    /**
+     * Appends a range of a byte array.
+     *
+     * @param src the bytes to append
+     * @param offset the index of the first byte to append
+     * @param length the number of bytes to append
+     */
+    public void put(byte[] src, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(src, offset, bytes, size, length);
+        size += length;
+    }
+
+    /**
+     * Appends the remaining bytes of a buffer, advancing its position to its limit.
+     *
+     * @param src the buffer holding the bytes to append
+     */
+    public void put(ByteBuffer src) {
+        int length = src.remaining();
+        ensureCapacity(size + length);
+        src.get(bytes, size, length);
+        size += length;
+    }
+
+    /**
+     * Appends a character sequence encoded as UTF-8.
+     *
+     * @param chars the characters to append
+     * @return the number of bytes appended
+     */
+    public int putUtf8(CharSequence chars) {
+        ensureCapacity(size + Utf8.encodedLength(chars));
+        int length = Utf8.put(bytes, size, chars);
+        size += length;
+        return length;
+    }
+
+    /**
+     * Appends a placeholder byte, to be filled in later with {@link #patch(int, int)}.
+     *
+     * @return the index of the placeholder byte
+     */
+    public int reserve() {
+        put((byte) 0);
+        return size - 1;
+    }
+
+    /**
+     * Overwrites a previously written byte, typically a reserved length field.
+     *
+     * @param index the index of the byte to overwrite
+     * @param value the new value; only the low 8 bits are kept
+     * @throws IndexOutOfBoundsException if the index has not been written yet
+     */
+    public void patch(int index, int value) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        bytes[index] = (byte) value;
+    }
+
+    /**
+     * Get the number of bytes written since the sink was created or last reset.
+     *
+     * @return the number of bytes in the sink
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards the contents of the sink, keeping its capacity for reuse.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Copies the contents of the sink into a buffer, at the buffer's current position.
+     *
+     * @param buffer the buffer receiving the bytes
+     * @throws BufferOverflowException if the buffer does not have enough space remaining
+     */
+    public void writeTo(ByteBuffer buffer) throws BufferOverflowException {
+        buffer.put(bytes, 0, size);
+    }
+
+    /**
+     * Copies the contents of the sink into a new array.
+     *
+     * @return the bytes in the sink
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Appends the hex representation of the contents of the sink to a StringBuilder, 2 characters
+     *  per byte.
+     *
+     * @param out the StringBuilder receiving the hex characters
+     */
+    public void appendHex(StringBuilder out) {
+        HexCodec.appendHex(bytes, 0, size, out, false);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, 2 * bytes.length));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.ImageTypes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes subelements from the values of their fields, as held by the columns or records of a
+ * fleet store, rather than from subelement states. The encodings are bit-identical to those of the
+ * per-state encoders, which pack their fields with the same methods.
+ *
+ * <p>A Location Civic subelement is written in three steps: {@link #startLocationCivic}, one call
+ * to {@link #putAddressElement} per address element in encoding order, and
+ * {@link #endLocationCivic}. The encoder keeps the state of the subelement being written between
+ * these calls, so a FieldEncoder should not be shared between threads.
+ */
+public final class FieldEncoder {
+    private final boolean isFractionBitsPresent;
+    private int lcrStart;
+    private int lcrLengthIndex;
+    private String currentLanguage;
+
+    /**
+     * Constructor.
+     *
+     * @param isFractionBitsPresent true if the Z height above floor uncertainty is encoded in
+     *                              1/4096th-meters, as expected by Android S and later
+     */
+    public FieldEncoder(boolean isFractionBitsPresent) {
+        this.isFractionBitsPresent = isFractionBitsPresent;
+    }
+
+    /**
+     * Packs the map datum, RegLoc Agreement, RegLoc DSE, Dependent STA and version fields of the LCI
+     *  subelement.
+     *
+     * @param mapDatumEncoding the integer encoding of the map datum
+     * @param regLocAgreement the RegLoc Agreement parameter
+     * @param regLocDse the RegLoc DSE parameter
+     * @param dependentSta the Dependent STA parameter
+     * @param version the LCI version
+     * @return the miscellaneous fields octet
+     */
+    public static int getLciMiscellaneousFields(int mapDatumEncoding, boolean regLocAgreement, boolean regLocDse,
+                                                boolean dependentSta, int version) {
+        return LciEncoder.getMiscellaneousFields(mapDatumEncoding, regLocAgreement, regLocDse, dependentSta, version);
+    }
+
+    /**
+     * Appends an LCI subelement.
+     *
+     * @param sink the sink receiving the subelement
+     * @param latitude the latitude, in degrees
+     * @param latitudeUncertainty the latitude uncertainty, in degrees (0 if unknown)
+     * @param longitude the longitude, in degrees
+     * @param longitudeUncertainty the longitude uncertainty, in degrees (0 if unknown)
+     * @param altitudeTypeEncoding the integer encoding of the altitude type
+     * @param altitude the altitude, in meters or floors
+     * @param altitudeUncertainty the altitude uncertainty, in meters or floors (0 if unknown)
+     * @param miscellaneousFields the miscellaneous fields octet, from getLciMiscellaneousFields
+     */
+    public void putLci(ByteSink sink, double latitude, double latitudeUncertainty, double longitude,
+                       double longitudeUncertainty, int altitudeTypeEncoding, double altitude,
+                       double altitudeUncertainty, int miscellaneousFields) {
+        sink.put(LciEncoder.SUBELEMENT_ID);
+        sink.put((byte) LciEncoder.FIELDS_LENGTH);
+        LittleEndian.put(sink, LciEncoder.getLatitudeFields(latitude, latitudeUncertainty),
+            LciEncoder.LATITUDE_FIELDS_LENGTH);
+        LittleEndian.put(sink, LciEncoder.getLongitudeFields(longitude, longitudeUncertainty),
+            LciEncoder.LONGITUDE_FIELDS_LENGTH);
+        LittleEndian.put(sink, LciEncoder.getAltitudeFields(altitudeTypeEncoding, altitude, altitudeUncertainty),
+            LciEncoder.ALTITUDE_FIELDS_LENGTH);
+        LittleEndian.put(sink, miscellaneousFields, LciEncoder.MISCELLANEOUS_FIELDS_LENGTH);
+    }
+
+    /**
+     * Appends a Z subelement.
+     *
+     * @param sink the sink receiving the subelement
+     * @param expectedToMoveEncoding the integer encoding of the expected to move parameter, or a
+     *                               negative value if it was not chosen
+     * @param floor the floor number
+     * @param heightAboveFloor the height above the floor, in meters
+     * @param heightAboveFloorUncertainty the height above floor uncertainty, in meters (0 if unknown)
+     * @throws NullPointerException if the expected to move parameter was not chosen
+     */
+    public void putZ(ByteSink sink, int expectedToMoveEncoding, int floor, double heightAboveFloor,
+                     double heightAboveFloorUncertainty) throws NullPointerException {
+        if (expectedToMoveEncoding < 0) {
+            throw new NullPointerException(ZEncoder.EXPECTED_TO_MOVE_IS_NULL);
+        }
+        sink.put(ZEncoder.SUBELEMENT_ID);
+        sink.put((byte) ZEncoder.FIELDS_LENGTH);
+        LittleEndian.put(sink, ZEncoder.getFloorInfoField(expectedToMoveEncoding, floor), ZEncoder.FLOOR_INFO_LENGTH);
+        LittleEndian.put(sink, ZEncoder.getHeightAboveFloorField(heightAboveFloor),
+            ZEncoder.HEIGHT_ABOVE_FLOOR_LENGTH);
+        LittleEndian.put(sink,
+            ZEncoder.getHeightAboveFloorUncertaintyField(heightAboveFloorUncertainty, isFractionBitsPresent),
+            ZEncoder.HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH);
+    }
+
+    /**
+     * Appends a Usage Rules/Policy subelement.
+     *
+     * @param sink the sink receiving the subelement
+     * @param retransmissionAllowed the RetransmissionAllowed parameter
+     * @param retentionExpires the RetentionExpires parameter
+     * @param staLocationPolicy the StaLocationPolicy parameter
+     * @param expireTimeHours the number of hours before the location expires, if it does
+     */
+    public void putUsage(ByteSink sink, boolean retransmissionAllowed, boolean retentionExpires,
+                         boolean staLocationPolicy, int expireTimeHours) {
+        sink.put(UsageEncoder.SUBELEMENT_ID);
+        sink.put((byte) UsageEncoder.getFieldsLength(retentionExpires));
+        sink.put(UsageEncoder.getUsageRulesPolicyParametersByte(retransmissionAllowed, retentionExpires,
+            staLocationPolicy));
+        if (retentionExpires) {
+            LittleEndian.put(sink, expireTimeHours, UsageEncoder.RETENTION_EXPIRES_RELATIVE_LENGTH);
+        }
+    }
+
+    /**
+     * Appends the fields of a BSSID List subelement preceding its BSSIDs, which are then appended
+     *  with {@link #putBssid(ByteSink, long)}.
+     *
+     * @param sink the sink receiving the subelement
+     * @param maxBssidIndicator the Max BSSID Indicator
+     * @param bssidCount the number of BSSIDs of the list
+     */
+    public void startBssidList(ByteSink sink, int maxBssidIndicator, int bssidCount) {
+        sink.put(BssidEncoder.SUBELEMENT_ID);
+        sink.put((byte) (BssidEncoder.MAX_BSSID_INDICATOR_LENGTH + bssidCount * BssidEncoder.BSSID_LENGTH));
+        sink.put((byte) maxBssidIndicator);
+    }
+
+    /**
+     * Appends a BSSID of a BSSID List subelement.
+     *
+     * @param sink the sink receiving the subelement
+     * @param bssid the BSSID, in the low 48 bits with its first byte most significant
+     */
+    public void putBssid(ByteSink sink, long bssid) {
+        for (int shift = 8 * (BssidEncoder.BSSID_LENGTH - 1); shift >= 0; shift -= 8) {
+            sink.put((byte) (bssid >>> shift));
+        }
+    }
+
+    /**
+     * Starts a Location Civic subelement, appending its header and country code.
+     *
+     * @param sink the sink receiving the subelement
+     * @param countryCode the 2-letter code of the country, or null if the country is not valid
+     * @throws NullPointerException if the country is not valid
+     */
+    public void startLocationCivic(ByteSink sink, String countryCode) throws NullPointerException {
+        if (countryCode == null) {
+            throw new NullPointerException(LcrEncoder.COUNTRY_NOT_CHOSEN);
+        }
+        lcrStart = sink.size();
+        sink.put(LcrEncoder.SUBELEMENT_ID);
+        lcrLengthIndex = sink.reserve();
+        sink.putUtf8(countryCode);
+        currentLanguage = "";
+    }
+
+    /**
+     * Appends an address element to the Location Civic subelement being written, preceded by its
+     *  language when it differs from the language of the previous address element.
+     *
+     * @param sink the sink receiving the subelement
+     * @param languageCode the 2-letter code of the language of the address element
+     * @param caType the Civic Address Type of the address element
+     * @param name the name of the address element, encoded as UTF-8
+     * @param offset the index of the first byte of the name
+     * @param length the length of the name, in bytes
+     * @throws IllegalArgumentException if the name is too long to be encoded
+     */
+    public void putAddressElement(ByteSink sink, String languageCode, byte caType, byte[] name, int offset,
+                                  int length) throws IllegalArgumentException {
+        putAddressElementHeader(sink, languageCode, caType, length);
+        sink.put(name, offset, length);
+    }
+
+    /**
+     * Appends an address element to the Location Civic subelement being written, preceded by its
+     *  language when it differs from the language of the previous address element.
+     *
+     * @param sink the sink receiving the subelement
+     * @param languageCode the 2-letter code of the language of the address element
+     * @param caType the Civic Address Type of the address element
+     * @param name the remaining bytes of the buffer, holding the name of the address element
+     *             encoded as UTF-8; the buffer position is advanced to its limit
+     * @throws IllegalArgumentException if the name is too long to be encoded
+     */
+    public void putAddressElement(ByteSink sink, String languageCode, byte caType, ByteBuffer name)
+        throws IllegalArgumentException {
+        putAddressElementHeader(sink, languageCode, caType, name.remaining());
+        sink.put(name);
+    }
+
+    private void putAddressElementHeader(ByteSink sink, String languageCode, byte caType, int length)
+        throws IllegalArgumentException {
+        if (!languageCode.equals(currentLanguage)) {
+            sink.put(LcrEncoder.LANGUAGE_CA_TYPE);
+            sink.put(LcrEncoder.LANGUAGE_CODE_LENGTH);
+            sink.putUtf8(languageCode);
+            currentLanguage = languageCode;
+        }
+        if (length > LcrEncoder.MAX_BYTE_VALUE) {
+            throw new IllegalArgumentException(LcrEncoder.ADDRESS_IS_TOO_LONG);
+        }
+        sink.put(caType);
+        sink.put((byte) length);
+    }
+
+    /**
+     * Ends the Location Civic subelement being written, filling in its length field.
+     *
+     * @param sink the sink receiving the subelement
+     * @throws IllegalArgumentException if the address is too long to be encoded
+     */
+    public void endLocationCivic(ByteSink sink) throws IllegalArgumentException {
+        int fieldsLength = sink.size() - lcrStart - LcrEncoder.COUNTRY_CODE_INDEX;
+        if (fieldsLength > LcrEncoder.MAX_BYTE_VALUE) {
+            throw new IllegalArgumentException(LcrEncoder.ADDRESS_IS_TOO_LONG);
+        }
+        sink.patch(lcrLengthIndex, fieldsLength);
+    }
+
+    /**
+     * Appends a Map Image subelement.
+     *
+     * @param sink the sink receiving the subelement
+     * @param mapType the map image type, e.g. "png"
+     * @param mapUrl the URL of the map image
+     * @throws NullPointerException if the URL is null or the map type is not one of the image types
+     * @throws IllegalArgumentException if the URL is too long to be encoded
+     */
+    public void putMap(ByteSink sink, String mapType, String mapUrl)
+        throws NullPointerException, IllegalArgumentException {
+        // The length is found first, as the per-state encoders are asked for it before encoding.
+        int fieldsLength = MapEncoder.MAP_TYPE_LENGTH + Utf8.encodedLength(mapUrl);
+        byte mapTypeEncoding;
+        try {
+            mapTypeEncoding = ImageTypes.getImageTypeEncoding(mapType);
+        } catch (NullPointerException exception) {
+            throw new NullPointerException(MapEncoder.ERROR_NOT_A_MAP_TYPE);
+        }
+        if (fieldsLength > MapEncoder.MAX_FIELDS_LENGTH) {
+            throw new IllegalArgumentException(MapEncoder.ERROR_MAP_IMAGE_URL_TOO_LONG);
+        }
+        sink.put(MapEncoder.SUBELEMENT_ID);
+        sink.put((byte) fieldsLength);
+        sink.put(mapTypeEncoding);
+        sink.putUtf8(mapUrl);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+/**
+ * Conversions of LCI values into their fixed-point and uncertainty encodings, shared by the
+ * per-AP and batch LCI encoders so that both produce identical bits.
+ */
+final class FixedPoint {
+
+    private static final long SIGNIFICAND_MASK = 0x000fffffffffffffL;
+
+    // Private constructor to avoid instance creation.
+    private FixedPoint() {}
+
+    /**
+     * Computes an uncertainty encoding of the form (offset - log_2(uncertainty)), rounded down and
+     *  clamped to the given range. The binary logarithm is taken from the exponent of the double,
+     *  so it is exact for every input, including powers of two.
+     *
+     * @param uncertainty the uncertainty, where values that are not positive mean "unknown"
+     * @param offset the offset of the encoding
+     * @param minEncoding the smallest allowed encoding
+     * @param maxEncoding the largest allowed encoding
+     * @return the uncertainty encoding, or 0 if the uncertainty is unknown
+     */
+    static int getUncertaintyEncoding(double uncertainty, int offset, int minEncoding, int maxEncoding) {
+        // offset - log_2(uncertainty) rounded down is offset - ceil(log_2(uncertainty)), and the
+        // ceiling is one above the exponent unless the significand is exactly 1.
+        long significandBits = Double.doubleToRawLongBits(uncertainty) & SIGNIFICAND_MASK;
+        int ceilLog2 = Math.getExponent(uncertainty) + (int) ((significandBits | -significandBits) >>> 63);
+        int encoding = Math.max(minEncoding, Math.min(maxEncoding, offset - ceilLog2));
+        return uncertainty > 0 ? encoding : 0;
+    }
+
+    /**
+     * Converts a value into a two's complement fixed-point field.
+     *
+     * @param value the value to convert
+     * @param fractionBits the number of bits after the binary point
+     * @param length the length of the field, in bits
+     * @return the field, in the low bits of the long
+     */
+    static long getTwosComplement(double value, int fractionBits, int length) {
+        return Math.round(value * (1L << fractionBits)) & ((1L << length) - 1);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+/**
+ * Converts between bytes and their lowercase hex-string representation, as used in the hostapd
+ * configuration ("lci=" and "civic=" lines).
+ *
+ * <p>Encoding uses a lookup table holding both characters of every byte value. The "readable"
+ * form separates consecutive bytes with a single space (e.g. "01 00 08").
+ */
+public final class HexCodec {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final char SEPARATOR = ' ';
+    private static final String ERROR_ODD_LENGTH = "A hex string must have an even number of characters.";
+    private static final String ERROR_NOT_HEX = "Not a hex string: ";
+
+    /** Both hex characters of every byte value: byte b is at indices 2 * b and 2 * b + 1. */
+    private static final char[] BYTE_TO_CHARS = getByteToCharsTable();
+
+    /** The value of every hex digit character, or -1 for characters that are not hex digits. */
+    private static final byte[] CHAR_TO_NIBBLE = getCharToNibbleTable();
+
+    // Private constructor to avoid instance creation.
+    private HexCodec() {}
+
+    private static char[] getByteToCharsTable() {
+        char[] table = new char[2 * 256];
+        for (int i = 0; i < 256; i++) {
+            table[2 * i] = DIGITS[i >>> 4];
+            table[2 * i + 1] = DIGITS[i & 0x0f];
+        }
+        return table;
+    }
+
+    private static byte[] getCharToNibbleTable() {
+        byte[] table = new byte[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = -1;
+        }
+        for (int i = 0; i < DIGITS.length; i++) {
+            table[DIGITS[i]] = (byte) i;
+            table[Character.toUpperCase(DIGITS[i])] = (byte) i;
+        }
+        return table;
+    }
+
+    /**
+     * Gets the number of characters needed for the hex representation of a number of bytes.
+     *
+     * @param byteCount the number of bytes
+     * @param readable whether or not the bytes are separated by spaces
+     * @return the number of hex characters
+     */
+    public static int getEncodedLength(int byteCount, boolean readable) {
+        if (readable) {
+            return byteCount == 0 ? 0 : 3 * byteCount - 1;
+        }
+        return 2 * byteCount;
+    }
+
+    /**
+     * Writes the hex representation of a range of bytes into a character array.
+     *
+     * @param src the bytes to encode
+     * @param srcOffset the index of the first byte to encode
+     * @param length the number of bytes to encode
+     * @param dest the array receiving the hex characters
+     * @param destOffset the index in the array of the first hex character
+     * @param readable whether or not the bytes are separated by spaces
+     * @return the number of characters written
+     */
+    public static int encode(byte[] src, int srcOffset, int length, char[] dest, int destOffset, boolean readable) {
+        int d = destOffset;
+        if (readable) {
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    dest[d++] = SEPARATOR;
+                }
+                int tableIndex = (src[srcOffset + i] & 0xff) << 1;
+                dest[d++] = BYTE_TO_CHARS[tableIndex];
+                dest[d++] = BYTE_TO_CHARS[tableIndex + 1];
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                int tableIndex = (src[srcOffset + i] & 0xff) << 1;
+                dest[d++] = BYTE_TO_CHARS[tableIndex];
+                dest[d++] = BYTE_TO_CHARS[tableIndex + 1];
+            }
+        }
+        return d - destOffset;
+    }
+
+    /**
+     * Converts bytes to their hex representation, 2 characters per byte.
+     *
+     * @param bytes the bytes to encode
+     * @return the hex string
+     */
+    public static String toHexString(byte[] bytes) {
+        char[] chars = new char[getEncodedLength(bytes.length, false)];
+        encode(bytes, 0, bytes.length, chars, 0, false);
+        return new String(chars);
+    }
+
+    /**
+     * Appends the hex representation of a range of bytes to a StringBuilder.
+     *
+     * @param src the bytes to encode
+     * @param srcOffset the index of the first byte to encode
+     * @param length the number of bytes to encode
+     * @param out the StringBuilder receiving the hex characters
+     * @param readable whether or not the bytes are separated by spaces
+     */
+    public static void appendHex(byte[] src, int srcOffset, int length, StringBuilder out, boolean readable) {
+        out.ensureCapacity(out.length() + getEncodedLength(length, readable));
+        for (int i = 0; i < length; i++) {
+            if (readable && i > 0) {
+                out.append(SEPARATOR);
+            }
+            out.append(BYTE_TO_CHARS, (src[srcOffset + i] & 0xff) << 1, 2);
+        }
+    }
+
+    /**
+     * Appends an existing hex string to a StringBuilder in the readable form, with a space between
+     *  every pair of hex characters.
+     *
+     * @param hex the hex string, with 2 characters per byte and no separators
+     * @param out the StringBuilder receiving the readable hex characters
+     */
+    public static void appendReadable(CharSequence hex, StringBuilder out) {
+        int length = hex.length();
+        out.ensureCapacity(out.length() + length + length / 2);
+        for (int i = 0; i < length; i += 2) {
+            if (i > 0) {
+                out.append(SEPARATOR);
+            }
+            out.append(hex.charAt(i)).append(hex.charAt(i + 1));
+        }
+    }
+
+    /**
+     * Decodes a range of a hex string (without separators) into a byte array.
+     *
+     * @param hex the hex characters, upper or lower case
+     * @param start the index of the first hex character
+     * @param end the index after the last hex character
+     * @param dest the array receiving the bytes
+     * @param destOffset the index in the array of the first byte
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the range has an odd length or contains a non-hex character
+     */
+    public static int decode(CharSequence hex, int start, int end, byte[] dest, int destOffset)
+        throws IllegalArgumentException {
+        if (((end - start) & 1) != 0) {
+            throw new IllegalArgumentException(ERROR_ODD_LENGTH);
+        }
+        int invalid = 0;
+        int d = destOffset;
+        for (int i = start; i < end; i += 2) {
+            char high = hex.charAt(i);
+            char low = hex.charAt(i + 1);
+            // Characters above 0xff are never hex digits; flag them instead of branching.
+            invalid |= (high | low) >>> 8;
+            int value = (CHAR_TO_NIBBLE[high & 0xff] << 4) | CHAR_TO_NIBBLE[low & 0xff];
+            // A -1 table entry makes the combined value negative.
+            invalid |= value >>> 31;
+            dest[d++] = (byte) value;
+        }
+        if (invalid != 0) {
+            throw new IllegalArgumentException(ERROR_NOT_HEX + hex.subSequence(start, end));
+        }
+        return d - destOffset;
+    }
+
+    /**
+     * Decodes a hex string (without separators) into bytes.
+     *
+     * @param hex the hex characters, upper or lower case
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the string has an odd length or contains a non-hex character
+     */
+    public static byte[] decode(CharSequence hex) throws IllegalArgumentException {
+        byte[] result = new byte[hex.length() / 2];
+        decode(hex, 0, hex.length(), result, 0);
+        return result;
+    }
+}
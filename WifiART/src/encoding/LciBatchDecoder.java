@@ -0,0 +1,92 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+/**
+ * Decodes the location fields of many LCI payloads in one pass, into columns of primitive values
+ * (a structure of arrays) rather than one LciState per access point.
+ *
+ * <p>The payloads are those of {@link LciBatchEncoder}: packed 16-byte LCI subelements without
+ * their ID and length fields, one after another. Only the latitude, longitude, altitude and their
+ * uncertainties are decoded, as they are the only fields that the encoding rounds; the values are
+ * identical to those of {@link LciDecoder}, which uses the same field unpacking. The values are not
+ * checked to be within range.
+ */
+public class LciBatchDecoder {
+
+    // Indices of field groups within a payload (in bytes)
+    private static final int LATITUDE_FIELDS_INDEX = 0;
+    private static final int LONGITUDE_FIELDS_INDEX = 5;
+    private static final int ALTITUDE_FIELDS_INDEX = 10;
+
+    // Error messages
+    private static final String ERROR_COLUMN_TOO_SHORT = "Every column must hold at least as many values as the batch.";
+    private static final String ERROR_SOURCE_TOO_SHORT = "The source array does not hold the whole batch.";
+
+    /**
+     * Decodes the LCI payloads of a batch of access points from an array, one after another.
+     *
+     * @param src the array holding the payloads
+     * @param srcOffset the index in the array of the first payload
+     * @param count the number of access points to decode
+     * @param latitude the column receiving the latitudes, in degrees
+     * @param latitudeUncertainty the column receiving the latitude uncertainties, in degrees (0 if
+     *                            unknown)
+     * @param longitude the column receiving the longitudes, in degrees
+     * @param longitudeUncertainty the column receiving the longitude uncertainties, in degrees (0
+     *                             if unknown)
+     * @param altitude the column receiving the altitudes, in meters or floors
+     * @param altitudeUncertainty the column receiving the altitude uncertainties, in meters or
+     *                            floors (0 if unknown)
+     * @throws IndexOutOfBoundsException if a column or the source array is too short
+     */
+    public void decode(byte[] src, int srcOffset, int count, double[] latitude, double[] latitudeUncertainty,
+                       double[] longitude, double[] longitudeUncertainty, double[] altitude,
+                       double[] altitudeUncertainty) throws IndexOutOfBoundsException {
+        if (latitude.length < count || latitudeUncertainty.length < count || longitude.length < count
+            || longitudeUncertainty.length < count || altitude.length < count || altitudeUncertainty.length < count) {
+            throw new IndexOutOfBoundsException(ERROR_COLUMN_TOO_SHORT);
+        }
+        if (srcOffset < 0 || src.length - srcOffset < count * LciBatchEncoder.PAYLOAD_LENGTH) {
+            throw new IndexOutOfBoundsException(ERROR_SOURCE_TOO_SHORT);
+        }
+        int s = srcOffset;
+        for (int i = 0; i < count; i++) {
+            long latitudeFields = getFields(src, s + LATITUDE_FIELDS_INDEX);
+            latitude[i] = LciDecoder.getLatitude(latitudeFields);
+            latitudeUncertainty[i] = LciDecoder.getLatitudeUncertainty(latitudeFields);
+            long longitudeFields = getFields(src, s + LONGITUDE_FIELDS_INDEX);
+            longitude[i] = LciDecoder.getLongitude(longitudeFields);
+            longitudeUncertainty[i] = LciDecoder.getLongitudeUncertainty(longitudeFields);
+            long altitudeFields = getFields(src, s + ALTITUDE_FIELDS_INDEX);
+            altitude[i] = LciDecoder.getAltitude(altitudeFields);
+            altitudeUncertainty[i] = LciDecoder.getAltitudeUncertainty(altitudeFields);
+            s += LciBatchEncoder.PAYLOAD_LENGTH;
+        }
+    }
+
+    /**
+     * Reads a 40-bit group of fields from an array in little-endian format.
+     */
+    private static long getFields(byte[] src, int offset) {
+        return (src[offset] & 0xffL)
+            | (src[offset + 1] & 0xffL) << 8
+            | (src[offset + 2] & 0xffL) << 16
+            | (src[offset + 3] & 0xffL) << 24
+            | (src[offset + 4] & 0xffL) << 32;
+    }
+}
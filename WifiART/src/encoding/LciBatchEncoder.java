@@ -0,0 +1,108 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.LciState;
+
+/**
+ * Encodes the LCI fields of many access points in one pass, from columns of primitive values
+ * (a structure of arrays) rather than one LciState per access point.
+ *
+ * <p>Each access point produces a packed 16-byte LCI payload: the LCI subelement without its ID
+ * and length fields. The payloads are bit-identical to those of {@link LciEncoder}, as both use
+ * the same field packing. The altitude type, map datum, RegLoc flags and version are shared by the
+ * whole batch and taken from a template state.
+ */
+public class LciBatchEncoder {
+
+    /** The length of the LCI payload of each access point, in bytes. */
+    public static final int PAYLOAD_LENGTH = 16;
+
+    // Indices of field groups within a payload (in bytes)
+    private static final int LATITUDE_FIELDS_INDEX = 0;
+    private static final int LONGITUDE_FIELDS_INDEX = 5;
+    private static final int ALTITUDE_FIELDS_INDEX = 10;
+    private static final int MISCELLANEOUS_FIELDS_INDEX = 15;
+
+    // Error messages
+    private static final String ERROR_COLUMN_TOO_SHORT = "Every column must hold at least as many values as the batch.";
+    private static final String ERROR_DESTINATION_TOO_SHORT = "The destination array cannot hold the whole batch.";
+
+    private final int altitudeTypeEncoding;
+    private final byte miscellaneousFields;
+
+    /**
+     * Constructs a batch encoder for access points sharing the non-numeric fields of a template.
+     *
+     * @param template the state holding the altitude type, map datum, RegLoc flags and version
+     */
+    public LciBatchEncoder(LciState template) {
+        altitudeTypeEncoding = template.getAltitudeType().getEncoding();
+        miscellaneousFields = (byte) LciEncoder.getMiscellaneousFields(template);
+    }
+
+    /**
+     * Encodes the LCI payloads of a batch of access points into an array, one after another.
+     *
+     * @param latitude the latitudes, in degrees
+     * @param latitudeUncertainty the latitude uncertainties, in degrees (0 if unknown)
+     * @param longitude the longitudes, in degrees
+     * @param longitudeUncertainty the longitude uncertainties, in degrees (0 if unknown)
+     * @param altitude the altitudes, in meters or floors
+     * @param altitudeUncertainty the altitude uncertainties, in meters or floors (0 if unknown)
+     * @param count the number of access points to encode, from the start of the columns
+     * @param dest the array receiving the payloads
+     * @param destOffset the index in the array of the first payload
+     * @return the number of bytes written
+     * @throws IndexOutOfBoundsException if a column or the destination array is too short
+     */
+    public int encode(double[] latitude, double[] latitudeUncertainty, double[] longitude,
+                      double[] longitudeUncertainty, double[] altitude, double[] altitudeUncertainty,
+                      int count, byte[] dest, int destOffset) throws IndexOutOfBoundsException {
+        if (latitude.length < count || latitudeUncertainty.length < count || longitude.length < count
+            || longitudeUncertainty.length < count || altitude.length < count || altitudeUncertainty.length < count) {
+            throw new IndexOutOfBoundsException(ERROR_COLUMN_TOO_SHORT);
+        }
+        int length = count * PAYLOAD_LENGTH;
+        if (destOffset < 0 || dest.length - destOffset < length) {
+            throw new IndexOutOfBoundsException(ERROR_DESTINATION_TOO_SHORT);
+        }
+        int d = destOffset;
+        for (int i = 0; i < count; i++) {
+            putFields(dest, d + LATITUDE_FIELDS_INDEX,
+                LciEncoder.getLatitudeFields(latitude[i], latitudeUncertainty[i]));
+            putFields(dest, d + LONGITUDE_FIELDS_INDEX,
+                LciEncoder.getLongitudeFields(longitude[i], longitudeUncertainty[i]));
+            putFields(dest, d + ALTITUDE_FIELDS_INDEX,
+                LciEncoder.getAltitudeFields(altitudeTypeEncoding, altitude[i], altitudeUncertainty[i]));
+            dest[d + MISCELLANEOUS_FIELDS_INDEX] = miscellaneousFields;
+            d += PAYLOAD_LENGTH;
+        }
+        return length;
+    }
+
+    /**
+     * Writes a 40-bit group of fields into an array in little-endian format.
+     */
+    private static void putFields(byte[] dest, int offset, long fields) {
+        dest[offset] = (byte) fields;
+        dest[offset + 1] = (byte) (fields >>> 8);
+        dest[offset + 2] = (byte) (fields >>> 16);
+        dest[offset + 3] = (byte) (fields >>> 24);
+        dest[offset + 4] = (byte) (fields >>> 32);
+    }
+}
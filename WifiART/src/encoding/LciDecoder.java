@@ -0,0 +1,251 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the LCI subelement.
+ *
+ * <p>Uncertainties are decoded to the largest value represented by their encoding (a power of
+ * two), which encodes back to the same value.
+ */
+public class LciDecoder implements SubelementDecoder<LciState> {
+
+    // Error messages
+    private static final String ERROR_WRONG_LENGTH = "The LCI subelement must have 16 bytes of fields.";
+    private static final String ERROR_UNKNOWN_ALTITUDE_TYPE = "Unknown LCI altitude type: ";
+    private static final String ERROR_UNKNOWN_MAP_DATUM = "Unknown LCI map datum: ";
+    private static final String ERROR_LATITUDE_OUT_OF_RANGE = "LCI latitude is out of range: ";
+    private static final String ERROR_LONGITUDE_OUT_OF_RANGE = "LCI longitude is out of range: ";
+
+    // Constants
+    private static final int LATITUDE_UNCERTAINTY_OFFSET = 8; // LatUnc = 8 - log_2(uncertainty)
+    private static final int LONGITUDE_UNCERTAINTY_OFFSET = 8; // LongUnc = 8 - log_2(uncertainty)
+    private static final int ALTITUDE_UNCERTAINTY_OFFSET = 21; // AltUnc = 21 - log_2(uncertainty)
+
+    // Lengths of field groups (in bytes)
+    private static final int LATITUDE_FIELDS_LENGTH = 5;
+    private static final int LONGITUDE_FIELDS_LENGTH = 5;
+    private static final int ALTITUDE_FIELDS_LENGTH = 5;
+    private static final int MISCELLANEOUS_FIELDS_LENGTH = 1;
+    private static final int FIELDS_LENGTH = LATITUDE_FIELDS_LENGTH + LONGITUDE_FIELDS_LENGTH
+        + ALTITUDE_FIELDS_LENGTH + MISCELLANEOUS_FIELDS_LENGTH;
+
+    // Indices of fields within groups (in bits)
+    private static final int LATITUDE_UNCERTAINTY_INDEX = 0;
+    private static final int LATITUDE_INDEX = 6;
+
+    private static final int LONGITUDE_UNCERTAINTY_INDEX = 0;
+    private static final int LONGITUDE_INDEX = 6;
+
+    private static final int ALTITUDE_TYPE_INDEX = 0;
+    private static final int ALTITUDE_UNCERTAINTY_INDEX = 4;
+    private static final int ALTITUDE_INDEX = 10;
+
+    private static final int MAP_DATUM_INDEX = 0;
+    private static final int REG_LOC_AGREEMENT_INDEX = 3;
+    private static final int REG_LOC_DSE_INDEX = 4;
+    private static final int DEPENDENT_STA_INDEX = 5;
+    private static final int VERSION_INDEX = 6;
+
+    // Lengths of fields within groups (in bits)
+    private static final int LATITUDE_LENGTH = 34;
+    private static final int LONGITUDE_LENGTH = 34;
+    private static final int ALTITUDE_LENGTH = 30;
+
+    // Number of fraction bits for fields (bits after the binary point)
+    private static final int LATITUDE_FRACTION_BITS = 25;
+    private static final int LONGITUDE_FRACTION_BITS = 25;
+    private static final int ALTITUDE_FRACTION_BITS = 8;
+
+    // Masks for fields within field groups
+    private static final long LATITUDE_UNCERTAINTY_MASK = 0x000000000000003fL; // Bits 0 - 5
+    private static final long LATITUDE_MASK = 0x000000ffffffffc0L; // Bits 6 - 39
+
+    private static final long LONGITUDE_UNCERTAINTY_MASK = 0x000000000000003fL; // Bits 0 - 5
+    private static final long LONGITUDE_MASK = 0x000000ffffffffc0L; // Bits 6 - 39
+
+    private static final long ALTITUDE_TYPE_MASK = 0x000000000000000fL; // Bits 0 - 3
+    private static final long ALTITUDE_UNCERTAINTY_MASK = 0x00000000000003f0L; // Bits 4 - 9
+    private static final long ALTITUDE_MASK = 0x000000fffffffc00L; // Bits 10 - 39
+
+    private static final int MAP_DATUM_MASK = 0x00000007; // Bits 0 - 2
+    private static final int REG_LOC_AGREEMENT_MASK = 0x00000008; // Bit 3
+    private static final int REG_LOC_DSE_MASK = 0x00000010; // Bit 4
+    private static final int DEPENDENT_STA_MASK = 0x00000020; // Bit 5
+    private static final int VERSION_MASK = 0x000000c0; // Bits 6 - 7
+
+    @Override
+    public LciState decode(ByteBuffer fields) throws IllegalArgumentException {
+        if (fields.remaining() != FIELDS_LENGTH) {
+            throw new IllegalArgumentException(ERROR_WRONG_LENGTH);
+        }
+        LciState state = new LciState();
+        setLatitudeFields(state, LittleEndian.get(fields, LATITUDE_FIELDS_LENGTH));
+        setLongitudeFields(state, LittleEndian.get(fields, LONGITUDE_FIELDS_LENGTH));
+        setAltitudeFields(state, LittleEndian.get(fields, ALTITUDE_FIELDS_LENGTH));
+        setMiscellaneousFields(state, (int) LittleEndian.get(fields, MISCELLANEOUS_FIELDS_LENGTH));
+        return state;
+    }
+
+    private void setLatitudeFields(LciState state, long latitudeFields) throws IllegalArgumentException {
+        state.setLatitudeUncertainty(getLatitudeUncertainty(latitudeFields));
+        double latitude = getLatitude(latitudeFields);
+        try {
+            state.setLatitude(latitude);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(ERROR_LATITUDE_OUT_OF_RANGE + latitude);
+        }
+    }
+
+    private void setLongitudeFields(LciState state, long longitudeFields) throws IllegalArgumentException {
+        state.setLongitudeUncertainty(getLongitudeUncertainty(longitudeFields));
+        double longitude = getLongitude(longitudeFields);
+        try {
+            state.setLongitude(longitude);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(ERROR_LONGITUDE_OUT_OF_RANGE + longitude);
+        }
+    }
+
+    private void setAltitudeFields(LciState state, long altitudeFields) throws IllegalArgumentException {
+        int altitudeTypeEncoding = (int) ((altitudeFields & ALTITUDE_TYPE_MASK) >>> ALTITUDE_TYPE_INDEX);
+        AltitudeType altitudeType = AltitudeType.fromEncoding(altitudeTypeEncoding);
+        if (altitudeType == null) {
+            throw new IllegalArgumentException(ERROR_UNKNOWN_ALTITUDE_TYPE + altitudeTypeEncoding);
+        }
+        state.setAltitudeType(altitudeType);
+
+        state.setAltitudeUncertainty(getAltitudeUncertainty(altitudeFields));
+        state.setAltitude(getAltitude(altitudeFields));
+    }
+
+    private void setMiscellaneousFields(LciState state, int miscellaneousFields) throws IllegalArgumentException {
+        int mapDatumEncoding = (miscellaneousFields & MAP_DATUM_MASK) >>> MAP_DATUM_INDEX;
+        MapDatum mapDatum = MapDatum.fromEncoding(mapDatumEncoding);
+        if (mapDatum == null) {
+            throw new IllegalArgumentException(ERROR_UNKNOWN_MAP_DATUM + mapDatumEncoding);
+        }
+        state.setMapDatum(mapDatum);
+        state.setRegLocAgreement((miscellaneousFields & REG_LOC_AGREEMENT_MASK) >>> REG_LOC_AGREEMENT_INDEX == 1);
+        state.setRegLocDse((miscellaneousFields & REG_LOC_DSE_MASK) >>> REG_LOC_DSE_INDEX == 1);
+        state.setDependentSta((miscellaneousFields & DEPENDENT_STA_MASK) >>> DEPENDENT_STA_INDEX == 1);
+        state.setLciVersion((miscellaneousFields & VERSION_MASK) >>> VERSION_INDEX);
+    }
+
+    /**
+     * Gets the latitude from the latitude fields of an LCI subelement.
+     *
+     * @param latitudeFields the 40-bit group of the latitude and its uncertainty
+     * @return the latitude, in degrees (not checked to be within range)
+     */
+    static double getLatitude(long latitudeFields) {
+        long latitudeEncoding = (latitudeFields & LATITUDE_MASK) >>> LATITUDE_INDEX;
+        return getFixedPointValue(latitudeEncoding, LATITUDE_LENGTH, LATITUDE_FRACTION_BITS);
+    }
+
+    /**
+     * Gets the latitude uncertainty from the latitude fields of an LCI subelement.
+     *
+     * @param latitudeFields the 40-bit group of the latitude and its uncertainty
+     * @return the latitude uncertainty, in degrees, or 0 if no uncertainty was given
+     */
+    static double getLatitudeUncertainty(long latitudeFields) {
+        int latitudeUncertaintyEncoding =
+            (int) ((latitudeFields & LATITUDE_UNCERTAINTY_MASK) >>> LATITUDE_UNCERTAINTY_INDEX);
+        return getUncertainty(latitudeUncertaintyEncoding, LATITUDE_UNCERTAINTY_OFFSET);
+    }
+
+    /**
+     * Gets the longitude from the longitude fields of an LCI subelement.
+     *
+     * @param longitudeFields the 40-bit group of the longitude and its uncertainty
+     * @return the longitude, in degrees (not checked to be within range)
+     */
+    static double getLongitude(long longitudeFields) {
+        long longitudeEncoding = (longitudeFields & LONGITUDE_MASK) >>> LONGITUDE_INDEX;
+        return getFixedPointValue(longitudeEncoding, LONGITUDE_LENGTH, LONGITUDE_FRACTION_BITS);
+    }
+
+    /**
+     * Gets the longitude uncertainty from the longitude fields of an LCI subelement.
+     *
+     * @param longitudeFields the 40-bit group of the longitude and its uncertainty
+     * @return the longitude uncertainty, in degrees, or 0 if no uncertainty was given
+     */
+    static double getLongitudeUncertainty(long longitudeFields) {
+        int longitudeUncertaintyEncoding =
+            (int) ((longitudeFields & LONGITUDE_UNCERTAINTY_MASK) >>> LONGITUDE_UNCERTAINTY_INDEX);
+        return getUncertainty(longitudeUncertaintyEncoding, LONGITUDE_UNCERTAINTY_OFFSET);
+    }
+
+    /**
+     * Gets the altitude from the altitude fields of an LCI subelement.
+     *
+     * @param altitudeFields the 40-bit group of the altitude type, altitude and its uncertainty
+     * @return the altitude, in meters or floors
+     */
+    static double getAltitude(long altitudeFields) {
+        long altitudeEncoding = (altitudeFields & ALTITUDE_MASK) >>> ALTITUDE_INDEX;
+        return getFixedPointValue(altitudeEncoding, ALTITUDE_LENGTH, ALTITUDE_FRACTION_BITS);
+    }
+
+    /**
+     * Gets the altitude uncertainty from the altitude fields of an LCI subelement.
+     *
+     * @param altitudeFields the 40-bit group of the altitude type, altitude and its uncertainty
+     * @return the altitude uncertainty, in meters or floors, or 0 if no uncertainty was given
+     */
+    static double getAltitudeUncertainty(long altitudeFields) {
+        int altitudeUncertaintyEncoding =
+            (int) ((altitudeFields & ALTITUDE_UNCERTAINTY_MASK) >>> ALTITUDE_UNCERTAINTY_INDEX);
+        return getUncertainty(altitudeUncertaintyEncoding, ALTITUDE_UNCERTAINTY_OFFSET);
+    }
+
+    /**
+     * Converts an uncertainty encoding of the form (offset - log_2(uncertainty)) back into an
+     *  uncertainty.
+     *
+     * @param encoding the uncertainty encoding, where 0 means that no uncertainty was given
+     * @param offset the offset used by the encoding
+     * @return the uncertainty, or 0 if no uncertainty was given
+     */
+    private static double getUncertainty(int encoding, int offset) {
+        if (encoding == 0) {
+            return 0;
+        }
+        return Math.scalb(1.0, offset - encoding);
+    }
+
+    /**
+     * Converts a two's complement fixed-point field into its value.
+     *
+     * @param encoding the field, in the low bits of the long
+     * @param length the length of the field, in bits
+     * @param fractionBits the number of bits after the binary point
+     * @return the value of the field
+     */
+    private static double getFixedPointValue(long encoding, int length, int fractionBits) {
+        long signExtended = (encoding << (Long.SIZE - length)) >> (Long.SIZE - length);
+        return Math.scalb((double) signExtended, -fractionBits);
+    }
+}
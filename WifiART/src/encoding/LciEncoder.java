@@ -0,0 +1,215 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package encoding;
+
+import structs.LciState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the LCI subelement.
+ */
+public class LciEncoder implements SubelementEncoder<LciState> {
+
+    // Constants
+    static final byte SUBELEMENT_ID = 0;
+    private static final int MAX_LATITUDE_UNCERTAINTY_ENCODING = 34;
+    private static final int MIN_LATITUDE_UNCERTAINTY_ENCODING = 1;
+    private static final int MAX_LONGITUDE_UNCERTAINTY_ENCODING = 34;
+    private static final int MIN_LONGITUDE_UNCERTAINTY_ENCODING = 1;
+    private static final int MAX_ALTITUDE_UNCERTAINTY_ENCODING = 30;
+    private static final int MIN_ALTITUDE_UNCERTAINTY_ENCODING = 1;
+    private static final int LATITUDE_UNCERTAINTY_OFFSET = 8;
+    private static final int LONGITUDE_UNCERTAINTY_OFFSET = 8;
+    private static final int ALTITUDE_UNCERTAINTY_OFFSET = 21;
+
+    // Lengths of field groups (in bytes)
+    private static final int SUBELEMENT_ID_LENGTH = 1;
+    private static final int LENGTH_FIELD_LENGTH = 1;
+    static final int LATITUDE_FIELDS_LENGTH = 5;
+    static final int LONGITUDE_FIELDS_LENGTH = 5;
+    static final int ALTITUDE_FIELDS_LENGTH = 5;
+    static final int MISCELLANEOUS_FIELDS_LENGTH = 1;
+    static final int FIELDS_LENGTH = LATITUDE_FIELDS_LENGTH + LONGITUDE_FIELDS_LENGTH
+        + ALTITUDE_FIELDS_LENGTH + MISCELLANEOUS_FIELDS_LENGTH;
+
+    // Indices of fields within groups (in bits)
+    private static final int LATITUDE_UNCERTAINTY_INDEX = 0;
+    private static final int LATITUDE_INDEX = 6;
+
+    private static final int LONGITUDE_UNCERTAINTY_INDEX = 0;
+    private static final int LONGITUDE_INDEX = 6;
+
+    private static final int ALTITUDE_TYPE_INDEX = 0;
+    private static final int ALTITUDE_UNCERTAINTY_INDEX = 4;
+    private static final int ALTITUDE_INDEX = 10;
+
+    private static final int MAP_DATUM_INDEX = 0;
+    private static final int REG_LOC_AGREEMENT_INDEX = 3;
+    private static final int REG_LOC_DSE_INDEX = 4;
+    private static final int DEPENDENT_STA_INDEX = 5;
+    private static final int VERSION_INDEX = 6;
+
+    // Lengths of fields within groups (in bits)
+    private static final int LATITUDE_LENGTH = 34;
+    private static final int LONGITUDE_LENGTH = 34;
+    private static final int ALTITUDE_LENGTH = 30;
+
+    // Number of fraction bits for fields (bits after the binary point)
+    private static final int LATITUDE_FRACTION_BITS = 25;
+    private static final int LONGITUDE_FRACTION_BITS = 25;
+    private static final int ALTITUDE_FRACTION_BITS = 8;
+
+    // Masks for fields within field groups
+    private static final long LATITUDE_UNCERTAINTY_MASK = 0x000000000000003fL; // Bits 0 - 5
+    private static final long LATITUDE_MASK = 0x000000ffffffffc0L; // Bits 6 - 39
+
+    private static final long LONGITUDE_UNCERTAINTY_MASK = 0x000000000000003fL; // Bits 0 - 5
+    private static final long LONGITUDE_MASK = 0x000000ffffffffc0L; // Bits 6 - 39
+
+    private static final long ALTITUDE_TYPE_MASK = 0x000000000000000fL; // Bits 0 - 3
+    private static final long ALTITUDE_UNCERTAINTY_MASK = 0x00000000000003f0L; // Bits 4 - 9
+    private static final long ALTITUDE_MASK = 0x000000fffffffc00L; // Bits 10 - 39
+
+    private static final int MAP_DATUM_MASK = 0x00000007; // Bits 0 - 2
+    private static final int REG_LOC_AGREEMENT_MASK = 0x00000008; // Bit 3
+    private static final int REG_LOC_DSE_MASK = 0x00000010; // Bit 4
+    private static final int DEPENDENT_STA_MASK = 0x00000020; // Bit 5
+    private static final int VERSION_MASK = 0x000000c0; // Bits 6 - 7
+
+    @Override
+    public int getEncodedLength(LciState state) {
+        return SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + FIELDS_LENGTH;
+    }
+
+    @Override
+    public void encode(LciState state, ByteBuffer buffer) {
+        if (buffer.remaining() < getEncodedLength(state)) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(SUBELEMENT_ID);
+        buffer.put((byte) FIELDS_LENGTH);
+        LittleEndian.put(buffer,
+            getLatitudeFields(state.getLatitude(), state.getLatitudeUncertainty()), LATITUDE_FIELDS_LENGTH);
+        LittleEndian.put(buffer,
+            getLongitudeFields(state.getLongitude(), state.getLongitudeUncertainty()), LONGITUDE_FIELDS_LENGTH);
+        LittleEndian.put(buffer, getAltitudeFields(state.getAltitudeType().getEncoding(),
+            state.getAltitude(), state.getAltitudeUncertainty()), ALTITUDE_FIELDS_LENGTH);
+        LittleEndian.put(buffer, getMiscellaneousFields(state), MISCELLANEOUS_FIELDS_LENGTH);
+    }
+
+    /**
+     * Packs the latitude fields: the latitude uncertainty in bits 0-5 and the latitude in bits 6-39.
+     *
+     * @param latitude the latitude, in degrees
+     * @param latitudeUncertainty the latitude uncertainty, in degrees
+     * @return the latitude fields, in the low 40 bits
+     */
+    static long getLatitudeFields(double latitude, double latitudeUncertainty) {
+        // LatUnc = 8 - log_2(uncertainty) -> rounded down
+        int latitudeUncertaintyEncoding = FixedPoint.getUncertaintyEncoding(latitudeUncertainty,
+            LATITUDE_UNCERTAINTY_OFFSET, MIN_LATITUDE_UNCERTAINTY_ENCODING, MAX_LATITUDE_UNCERTAINTY_ENCODING);
+
+        long latitudeEncoding = FixedPoint.getTwosComplement(latitude, LATITUDE_FRACTION_BITS, LATITUDE_LENGTH);
+
+        long result = 0;
+        result |= ((latitudeUncertaintyEncoding << LATITUDE_UNCERTAINTY_INDEX) & LATITUDE_UNCERTAINTY_MASK);
+        result |= ((latitudeEncoding << LATITUDE_INDEX) & LATITUDE_MASK);
+        return result;
+    }
+
+    /**
+     * Packs the longitude fields: the longitude uncertainty in bits 0-5 and the longitude in bits 6-39.
+     *
+     * @param longitude the longitude, in degrees
+     * @param longitudeUncertainty the longitude uncertainty, in degrees
+     * @return the longitude fields, in the low 40 bits
+     */
+    static long getLongitudeFields(double longitude, double longitudeUncertainty) {
+        // LongUnc = 8 - log_2(uncertainty) -> rounded down
+        int longitudeUncertaintyEncoding = FixedPoint.getUncertaintyEncoding(longitudeUncertainty,
+            LONGITUDE_UNCERTAINTY_OFFSET, MIN_LONGITUDE_UNCERTAINTY_ENCODING, MAX_LONGITUDE_UNCERTAINTY_ENCODING);
+
+        long longitudeEncoding = FixedPoint.getTwosComplement(longitude, LONGITUDE_FRACTION_BITS, LONGITUDE_LENGTH);
+
+        long result = 0;
+        result |= ((longitudeUncertaintyEncoding << LONGITUDE_UNCERTAINTY_INDEX) & LONGITUDE_UNCERTAINTY_MASK);
+        result |= ((longitudeEncoding << LONGITUDE_INDEX) & LONGITUDE_MASK);
+        return result;
+    }
+
+    /**
+     * Packs the altitude fields: the altitude type in bits 0-3, the altitude uncertainty in bits 4-9
+     *  and the altitude in bits 10-39.
+     *
+     * @param altitudeTypeEncoding the integer encoding of the altitude type
+     * @param altitude the altitude, in meters or floors
+     * @param altitudeUncertainty the altitude uncertainty, in meters or floors
+     * @return the altitude fields, in the low 40 bits
+     */
+    static long getAltitudeFields(int altitudeTypeEncoding, double altitude, double altitudeUncertainty) {
+        // AltUnc = 21 - log_2(uncertainty) -> rounded down
+        int altitudeUncertaintyEncoding = FixedPoint.getUncertaintyEncoding(altitudeUncertainty,
+            ALTITUDE_UNCERTAINTY_OFFSET, MIN_ALTITUDE_UNCERTAINTY_ENCODING, MAX_ALTITUDE_UNCERTAINTY_ENCODING);
+
+        long altitudeEncoding = FixedPoint.getTwosComplement(altitude, ALTITUDE_FRACTION_BITS, ALTITUDE_LENGTH);
+
+        long result = 0;
+        result |= ((altitudeTypeEncoding << ALTITUDE_TYPE_INDEX) & ALTITUDE_TYPE_MASK);
+        result |= ((altitudeUncertaintyEncoding << ALTITUDE_UNCERTAINTY_INDEX) & ALTITUDE_UNCERTAINTY_MASK);
+        result |= ((altitudeEncoding << ALTITUDE_INDEX) & ALTITUDE_MASK);
+        return result;
+    }
+
+    /**
+     * Packs the map datum, RegLoc Agreement, RegLoc DSE, Dependent STA and version fields.
+     *
+     * @param state the LCI subelement state
+     * @return the miscellaneous fields octet
+     */
+    static int getMiscellaneousFields(LciState state) {
+        return getMiscellaneousFields(state.getMapDatum().getEncoding(), state.getRegLocAgreement(),
+            state.getRegLocDse(), state.getDependentSta(), state.getLciVersion());
+    }
+
+    /**
+     * Packs the map datum, RegLoc Agreement, RegLoc DSE, Dependent STA and version fields.
+     *
+     * @param mapDatumEncoding the integer encoding of the map datum
+     * @param regLocAgreement the RegLoc Agreement parameter
+     * @param regLocDse the RegLoc DSE parameter
+     * @param dependentSta the Dependent STA parameter
+     * @param version the LCI version
+     * @return the miscellaneous fields octet
+     */
+    static int getMiscellaneousFields(int mapDatumEncoding, boolean regLocAgreement, boolean regLocDse,
+                                      boolean dependentSta, int version) {
+        int regLocAgreementEncoding = regLocAgreement ? 1 : 0;
+        int regLocDseEncoding = regLocDse ? 1 : 0;
+        int dependentStaEncoding = dependentSta ? 1 : 0;
+
+        int result = 0;
+        result |= ((mapDatumEncoding << MAP_DATUM_INDEX) & MAP_DATUM_MASK);
+        result |= ((regLocAgreementEncoding << REG_LOC_AGREEMENT_INDEX) & REG_LOC_AGREEMENT_MASK);
+        result |= ((regLocDseEncoding << REG_LOC_DSE_INDEX) & REG_LOC_DSE_MASK);
+        result |= ((dependentStaEncoding << DEPENDENT_STA_INDEX) & DEPENDENT_STA_MASK);
+        result |= ((version << VERSION_INDEX) & VERSION_MASK);
+        return result;
+    }
+}
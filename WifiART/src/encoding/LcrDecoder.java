@@ -0,0 +1,91 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.CivicAddressElementKeys;
+import structs.CountryCodes;
+import structs.LanguageCodes;
+import structs.LcrState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the Location Civic subelement.
+ *
+ * <p>Civic Address Types shared by several address element keys (e.g. "City" and "Town") are
+ * decoded to a single key with the same encoding.
+ */
+public class LcrDecoder implements SubelementDecoder<LcrState> {
+    // Constants
+    private static final byte LANGUAGE_CA_TYPE = 0; // Civic Address Type for language field
+
+    // Lengths (in bytes)
+    private static final int COUNTRY_CODE_LENGTH = 2;
+    private static final int CA_TYPE_LENGTH = 1;
+    private static final int CA_LENGTH_LENGTH = 1;
+
+    // Error messages
+    private static final String ERROR_TRUNCATED = "The Location Civic subelement is truncated.";
+    private static final String ERROR_UNKNOWN_COUNTRY = "Unknown country code: ";
+    private static final String ERROR_UNKNOWN_LANGUAGE = "Unknown language code: ";
+    private static final String ERROR_UNKNOWN_CA_TYPE = "Unknown Civic Address Type: ";
+    private static final String ERROR_LANGUAGE_NOT_GIVEN = "An address element appears before any language.";
+
+    @Override
+    public LcrState decode(ByteBuffer fields) throws IllegalArgumentException {
+        if (fields.remaining() < COUNTRY_CODE_LENGTH) {
+            throw new IllegalArgumentException(ERROR_TRUNCATED);
+        }
+        LcrState state = new LcrState();
+        String countryCode = Utf8.get(fields, COUNTRY_CODE_LENGTH);
+        String country = CountryCodes.getCountryName(countryCode);
+        if (country == null) {
+            throw new IllegalArgumentException(ERROR_UNKNOWN_COUNTRY + countryCode);
+        }
+        state.setCountry(country);
+
+        String currentLanguage = null;
+        while (fields.hasRemaining()) {
+            if (fields.remaining() < CA_TYPE_LENGTH + CA_LENGTH_LENGTH) {
+                throw new IllegalArgumentException(ERROR_TRUNCATED);
+            }
+            byte caType = fields.get();
+            int caLength = fields.get() & 0xff;
+            if (fields.remaining() < caLength) {
+                throw new IllegalArgumentException(ERROR_TRUNCATED);
+            }
+            String value = Utf8.get(fields, caLength);
+            if (caType == LANGUAGE_CA_TYPE) {
+                currentLanguage = LanguageCodes.getLanguageName(value);
+                if (currentLanguage == null) {
+                    throw new IllegalArgumentException(ERROR_UNKNOWN_LANGUAGE + value);
+                }
+            } else {
+                String addressElementKey = CivicAddressElementKeys.getAddressElementKey(caType);
+                if (addressElementKey == null) {
+                    throw new IllegalArgumentException(ERROR_UNKNOWN_CA_TYPE + caType);
+                }
+                if (currentLanguage == null) {
+                    throw new IllegalArgumentException(ERROR_LANGUAGE_NOT_GIVEN);
+                }
+                state.addAddressElement(
+                    new StringBuilder(value), new StringBuilder(currentLanguage), new StringBuilder(addressElementKey));
+            }
+        }
+        return state;
+    }
+}
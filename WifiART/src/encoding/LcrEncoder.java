@@ -0,0 +1,117 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package encoding;
+
+import structs.AddressElement;
+import structs.CountryCodes;
+import structs.LcrState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the Location Civic subelement.
+ *
+ * <p>The encoding is assembled in a ByteSink that is reused between calls, so an LcrEncoder
+ * should not be shared between threads.
+ */
+public class LcrEncoder implements SubelementEncoder<LcrState> {
+    // Constants
+    static final byte SUBELEMENT_ID = 0;
+    static final byte LANGUAGE_CA_TYPE = 0; // Civic Address Type for language field
+    static final byte LANGUAGE_CODE_LENGTH = 2; // 2-letter language codes
+    static final int MAX_BYTE_VALUE = 255;
+
+    // Error messages
+    static final String COUNTRY_NOT_CHOSEN = "You must select a valid country.";
+    static final String ADDRESS_IS_TOO_LONG = "Address is too long to be encoded.";
+    private static final String ADDRESS_ELEMENT_NOT_RECOGNIZED = "Address element not recognized: ";
+
+    // Indices (in bytes)
+    static final int COUNTRY_CODE_INDEX = 2;
+
+    /** Room for the subelement header, the country code, and a few short address elements. */
+    private static final int INITIAL_BUFFER_CAPACITY = 128;
+
+    private final ByteSink byteBuffer = new ByteSink(INITIAL_BUFFER_CAPACITY);
+
+    @Override
+    public int getEncodedLength(LcrState state) {
+        fillByteBuffer(state);
+        return byteBuffer.size();
+    }
+
+    @Override
+    public void encode(LcrState state, ByteBuffer buffer) {
+        fillByteBuffer(state);
+        if (buffer.remaining() < byteBuffer.size()) {
+            throw new BufferOverflowException();
+        }
+        byteBuffer.writeTo(buffer);
+    }
+
+    @Override
+    public byte[] encode(LcrState state) {
+        fillByteBuffer(state);
+        return byteBuffer.toByteArray();
+    }
+
+    private void fillByteBuffer(LcrState state) {
+        byteBuffer.reset();
+        byteBuffer.put(SUBELEMENT_ID); // Byte 0
+        int lengthIndex = byteBuffer.reserve(); // Byte 1, placeholder for length field
+
+        // Encode the country,
+        String country = state.getCountry();
+        try {
+            String countryCode = CountryCodes.COUNTRY_NAMES_TO_CODES_MAP.get(country);
+            byteBuffer.putUtf8(countryCode); // Bytes 2-3
+        } catch (NullPointerException exception) {
+            throw new NullPointerException(COUNTRY_NOT_CHOSEN);
+        }
+
+        // Encode the address elements, which the state keeps sorted by language and CA Type.
+        String currentLanguage = "";
+        for (AddressElement addressElement : state.getAddressElementsList()) {
+            if (!addressElement.isRecognized()) {
+                throw new IllegalArgumentException(ADDRESS_ELEMENT_NOT_RECOGNIZED + addressElement.getName());
+            }
+            String languageCode = addressElement.getLanguageCode();
+            if (!(languageCode.equals(currentLanguage))) {
+                byteBuffer.put(LANGUAGE_CA_TYPE);
+                byteBuffer.put(LANGUAGE_CODE_LENGTH);
+                byteBuffer.putUtf8(languageCode);
+                currentLanguage = languageCode;
+            }
+            byteBuffer.put(addressElement.getCivicAddressType());
+            int addressElementLengthIndex = byteBuffer.reserve(); // Placeholder for the length
+            int addressElementLength = byteBuffer.putUtf8(addressElement.getNameChars());
+            if (addressElementLength > MAX_BYTE_VALUE) {
+                throw new IllegalArgumentException(ADDRESS_IS_TOO_LONG);
+            }
+            byteBuffer.patch(addressElementLengthIndex, addressElementLength);
+        }
+
+        // Add length field.
+        int fieldsLength = byteBuffer.size() - COUNTRY_CODE_INDEX;
+        if (fieldsLength > MAX_BYTE_VALUE) {
+            throw new IllegalArgumentException(ADDRESS_IS_TOO_LONG);
+        }
+        byteBuffer.patch(lengthIndex, fieldsLength); // Byte 1
+    }
+}
@@ -0,0 +1,71 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for reading and writing little-endian fields of arbitrary byte length in a buffer or sink.
+ */
+final class LittleEndian {
+
+    // Private constructor to avoid instance creation.
+    private LittleEndian() {}
+
+    /**
+     * Insert an integer into a buffer in little-endian format, at the buffer's current position.
+     *
+     * @param buffer the buffer being populated
+     * @param num the integer to insert into the buffer
+     * @param length the number of bytes being populated
+     */
+    static void put(ByteBuffer buffer, long num, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) (num & 0xff)); // Insert the least-significant byte into the buffer.
+            num >>= 8; // Move the next byte into the least-significant position.
+        }
+    }
+
+    /**
+     * Append an integer to a sink in little-endian format.
+     *
+     * @param sink the sink being populated
+     * @param num the integer to append to the sink
+     * @param length the number of bytes being populated
+     */
+    static void put(ByteSink sink, long num, int length) {
+        for (int i = 0; i < length; i++) {
+            sink.put((byte) (num & 0xff)); // Append the least-significant byte to the sink.
+            num >>= 8; // Move the next byte into the least-significant position.
+        }
+    }
+
+    /**
+     * Read an unsigned little-endian integer from a buffer, at the buffer's current position.
+     *
+     * @param buffer the buffer being read
+     * @param length the number of bytes to read, at most 7
+     * @return the integer read from the buffer
+     */
+    static long get(ByteBuffer buffer, int length) {
+        long num = 0;
+        for (int i = 0; i < length; i++) {
+            num |= (buffer.get() & 0xffL) << (8 * i); // Bytes arrive least-significant first.
+        }
+        return num;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.ArtSystemState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the "lci=" and "civic=" lines of a hostapd configuration back into the system state,
+ * so that deployed configurations can be audited or reloaded for editing.
+ *
+ * <p>Each line holds a measurement report header followed by a sequence of subelements. The LCI,
+ * Z, Usage Rules/Policy and BSSID List subelements are read from the "lci=" line, and the
+ * Location Civic and Map Image subelements from the "civic=" line. Subelements with other IDs are
+ * skipped. The bytes of each line are decoded into a buffer that is reused between calls, so a
+ * LocationBufferDecoder should not be shared between threads.
+ */
+public class LocationBufferDecoder {
+
+    // Constants
+    private static final String LCI_PREFIX = "lci=";
+    private static final String CIVIC_PREFIX = "civic=";
+    private static final int LCI_MEASUREMENT_TYPE = 8;
+    private static final int CIVIC_MEASUREMENT_TYPE = 11;
+
+    // Subelement IDs
+    private static final int LCI_SUBELEMENT_ID = 0;
+    private static final int Z_SUBELEMENT_ID = 4;
+    private static final int USAGE_SUBELEMENT_ID = 6;
+    private static final int BSSID_SUBELEMENT_ID = 7;
+    private static final int LCR_SUBELEMENT_ID = 0;
+    private static final int MAP_SUBELEMENT_ID = 5;
+
+    // Lengths (in bytes)
+    private static final int HEADER_LENGTH = 3; // Measurement token, mode, and type
+    private static final int MEASUREMENT_TYPE_INDEX = 2;
+    private static final int SUBELEMENT_ID_LENGTH = 1;
+    private static final int LENGTH_FIELD_LENGTH = 1;
+
+    /** Room for the header and every subelement at its maximum length. */
+    private static final int INITIAL_BUFFER_CAPACITY = 1024;
+
+    // Error messages
+    private static final String ERROR_WRONG_MEASUREMENT_TYPE = "Unexpected measurement type in line: ";
+    private static final String ERROR_TRUNCATED = "A subelement is truncated in line: ";
+
+    private final LciDecoder lciDecoder = new LciDecoder();
+    private final ZDecoder zDecoder = new ZDecoder();
+    private final UsageDecoder usageDecoder = new UsageDecoder();
+    private final BssidDecoder bssidDecoder = new BssidDecoder();
+    private final LcrDecoder lcrDecoder = new LcrDecoder();
+    private final MapDecoder mapDecoder = new MapDecoder();
+
+    private byte[] bytes = new byte[INITIAL_BUFFER_CAPACITY];
+    private ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    /**
+     * Decodes every "lci=" and "civic=" line of a configuration into a new system state. Other
+     *  lines are ignored.
+     *
+     * @param configuration the text of the configuration
+     * @return the system state, with the decoded subelements included
+     * @throws IllegalArgumentException if a line holds an invalid encoding
+     */
+    public ArtSystemState decode(CharSequence configuration) throws IllegalArgumentException {
+        ArtSystemState state = new ArtSystemState();
+        int length = configuration.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && configuration.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            decodeLine(configuration, lineStart, lineEnd, state);
+            lineStart = lineEnd + 1;
+        }
+        return state;
+    }
+
+    /**
+     * Decodes a single configuration line into a system state, if it is an "lci=" or "civic=" line.
+     *  The decoded subelements replace those in the state and are marked as included.
+     *
+     * @param line the line of the configuration
+     * @param state the system state receiving the decoded subelements
+     * @return whether or not the line was an "lci=" or "civic=" line
+     * @throws IllegalArgumentException if the line holds an invalid encoding
+     */
+    public boolean decodeLine(CharSequence line, ArtSystemState state) throws IllegalArgumentException {
+        return decodeLine(line, 0, line.length(), state);
+    }
+
+    private boolean decodeLine(CharSequence text, int start, int end, ArtSystemState state)
+        throws IllegalArgumentException {
+        // Ignore surrounding whitespace, including the carriage return of Windows line endings.
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (startsWith(text, start, end, LCI_PREFIX)) {
+            int length = decodeHex(text, start + LCI_PREFIX.length(), end, LCI_MEASUREMENT_TYPE);
+            decodeLciSubelements(length, state, text, start, end);
+            return true;
+        }
+        if (startsWith(text, start, end, CIVIC_PREFIX)) {
+            int length = decodeHex(text, start + CIVIC_PREFIX.length(), end, CIVIC_MEASUREMENT_TYPE);
+            decodeCivicSubelements(length, state, text, start, end);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether or not the Z subelement height above floor uncertainty is decoded from
+     *  1/4096th-meters, as expected by Android S and later.
+     *
+     * @param isFractionBitsPresent true if the uncertainty was encoded in 1/4096th-meters
+     */
+    public void setFractionBitsPresent(boolean isFractionBitsPresent) {
+        zDecoder.setFractionBitsPresent(isFractionBitsPresent);
+    }
+
+    private static boolean startsWith(CharSequence text, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the hex characters of a line into the reusable byte buffer and checks the
+     *  measurement report header.
+     *
+     * @return the number of bytes decoded
+     */
+    private int decodeHex(CharSequence text, int start, int end, int measurementType) throws IllegalArgumentException {
+        int length = (end - start) / 2;
+        if (length > bytes.length) {
+            bytes = new byte[Math.max(length, 2 * bytes.length)];
+            buffer = ByteBuffer.wrap(bytes);
+        }
+        HexCodec.decode(text, start, end, bytes, 0);
+        if (length < HEADER_LENGTH || bytes[MEASUREMENT_TYPE_INDEX] != measurementType) {
+            throw new IllegalArgumentException(ERROR_WRONG_MEASUREMENT_TYPE + text.subSequence(start, end));
+        }
+        return length;
+    }
+
+    private void decodeLciSubelements(int length, ArtSystemState state, CharSequence text, int start, int end)
+        throws IllegalArgumentException {
+        int position = HEADER_LENGTH;
+        while (position < length) {
+            int subelementId = bytes[position] & 0xff;
+            ByteBuffer fields = getFields(position, length, text, start, end);
+            switch (subelementId) {
+                case LCI_SUBELEMENT_ID:
+                    state.setLciState(lciDecoder.decode(fields));
+                    state.setLciIncluded(true);
+                    break;
+                case Z_SUBELEMENT_ID:
+                    state.setZState(zDecoder.decode(fields));
+                    state.setZIncluded(true);
+                    break;
+                case USAGE_SUBELEMENT_ID:
+                    state.setUsageState(usageDecoder.decode(fields));
+                    state.setUsageIncluded(true);
+                    break;
+                case BSSID_SUBELEMENT_ID:
+                    state.setBssidState(bssidDecoder.decode(fields));
+                    state.setBssidIncluded(true);
+                    break;
+                default:
+                    break; // Skip subelements this tool does not produce.
+            }
+            position = fields.limit();
+        }
+    }
+
+    private void decodeCivicSubelements(int length, ArtSystemState state, CharSequence text, int start, int end)
+        throws IllegalArgumentException {
+        int position = HEADER_LENGTH;
+        while (position < length) {
+            int subelementId = bytes[position] & 0xff;
+            ByteBuffer fields = getFields(position, length, text, start, end);
+            switch (subelementId) {
+                case LCR_SUBELEMENT_ID:
+                    state.setLcrState(lcrDecoder.decode(fields));
+                    state.setLcrIncluded(true);
+                    break;
+                case MAP_SUBELEMENT_ID:
+                    state.setMapState(mapDecoder.decode(fields));
+                    state.setMapIncluded(true);
+                    break;
+                default:
+                    break; // Skip subelements this tool does not produce.
+            }
+            position = fields.limit();
+        }
+    }
+
+    /**
+     * Frames the fields of the subelement starting at a given position of the byte buffer.
+     *
+     * @param position the index of the subelement ID
+     * @param length the number of bytes decoded from the line
+     * @return the reusable buffer, positioned at the first field and limited to the end of the subelement
+     */
+    private ByteBuffer getFields(int position, int length, CharSequence text, int start, int end)
+        throws IllegalArgumentException {
+        int fieldsStart = position + SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH;
+        if (fieldsStart > length) {
+            throw new IllegalArgumentException(ERROR_TRUNCATED + text.subSequence(start, end));
+        }
+        int fieldsEnd = fieldsStart + (bytes[position + SUBELEMENT_ID_LENGTH] & 0xff);
+        if (fieldsEnd > length) {
+            throw new IllegalArgumentException(ERROR_TRUNCATED + text.subSequence(start, end));
+        }
+        buffer.clear();
+        buffer.limit(fieldsEnd);
+        buffer.position(fieldsStart);
+        return buffer;
+    }
+}
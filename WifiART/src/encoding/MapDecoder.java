@@ -0,0 +1,48 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.ImageTypes;
+import structs.MapState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the Map Image subelement.
+ */
+public class MapDecoder implements SubelementDecoder<MapState> {
+
+    // Error messages
+    private static final String ERROR_WRONG_LENGTH = "The Map Image subelement must include a map type.";
+    private static final String ERROR_UNKNOWN_MAP_TYPE = "Unknown map type: ";
+
+    @Override
+    public MapState decode(ByteBuffer fields) throws IllegalArgumentException {
+        if (!fields.hasRemaining()) {
+            throw new IllegalArgumentException(ERROR_WRONG_LENGTH);
+        }
+        int mapTypeEncoding = fields.get() & 0xff;
+        String mapType = ImageTypes.getImageType(mapTypeEncoding);
+        if (mapType == null) {
+            throw new IllegalArgumentException(ERROR_UNKNOWN_MAP_TYPE + mapTypeEncoding);
+        }
+        MapState state = new MapState();
+        state.setMapType(mapType);
+        state.setMapUrl(Utf8.get(fields, fields.remaining()));
+        return state;
+    }
+}
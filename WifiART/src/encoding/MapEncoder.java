@@ -0,0 +1,73 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package encoding;
+
+import structs.ImageTypes;
+import structs.MapState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the Map Image subelement.
+ */
+public class MapEncoder implements SubelementEncoder<MapState> {
+
+    // Constants
+    static final byte SUBELEMENT_ID = 5;
+    static final int MAX_FIELDS_LENGTH = 255; // Length field is 1 byte
+    static final String ERROR_MAP_IMAGE_URL_TOO_LONG = "Map Image Url can be at most 254 characters.";
+    static final String ERROR_NOT_A_MAP_TYPE = "You must choose a map type.";
+
+    // Lengths (in bytes)
+    private static final int SUBELEMENT_ID_LENGTH = 1;
+    private static final int LENGTH_FIELD_LENGTH = 1;
+    static final int MAP_TYPE_LENGTH = 1;
+
+    @Override
+    public int getEncodedLength(MapState state) {
+        return SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + getFieldsLength(state);
+    }
+
+    @Override
+    public void encode(MapState state, ByteBuffer buffer) throws NullPointerException, IllegalArgumentException {
+        String mapType = state.getMapType();
+        byte mapTypeEncoding;
+        try {
+            mapTypeEncoding = ImageTypes.getImageTypeEncoding(mapType);
+        } catch (NullPointerException exception) {
+            throw new NullPointerException(ERROR_NOT_A_MAP_TYPE);
+        }
+
+        int fieldsLength = getFieldsLength(state);
+        if (fieldsLength > MAX_FIELDS_LENGTH) {
+            throw new IllegalArgumentException(ERROR_MAP_IMAGE_URL_TOO_LONG);
+        }
+        if (buffer.remaining() < SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + fieldsLength) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(SUBELEMENT_ID);
+        buffer.put((byte) fieldsLength);
+        buffer.put(mapTypeEncoding);
+        Utf8.put(buffer, state.getMapUrl());
+    }
+
+    private int getFieldsLength(MapState state) {
+        return MAP_TYPE_LENGTH + Utf8.encodedLength(state.getMapUrl());
+    }
+}
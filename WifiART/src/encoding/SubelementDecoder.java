@@ -0,0 +1,39 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the binary representation of an LCI/LCR subelement back into its state, independently
+ * of the user interface.
+ *
+ * @param <S> the state type of the subelement
+ */
+public interface SubelementDecoder<S> {
+
+    /**
+     * Reads the fields of a subelement into a new state. The subelement ID and length fields have
+     *  already been read: the buffer's position is at the first field, and its limit is at the end
+     *  of the subelement.
+     *
+     * @param fields the buffer holding the subelement fields
+     * @return the decoded subelement state
+     * @throws IllegalArgumentException if the fields are not a valid encoding of the subelement
+     */
+    S decode(ByteBuffer fields) throws IllegalArgumentException;
+}
@@ -0,0 +1,59 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the state of an LCI/LCR subelement into its binary representation, independently of
+ * the user interface.
+ *
+ * @param <S> the state type of the subelement
+ */
+public interface SubelementEncoder<S> {
+
+    /**
+     * Gets the number of bytes the encoding of a subelement takes up, including the subelement ID
+     *  and length fields.
+     *
+     * @param state the subelement state to encode
+     * @return the length of the encoded subelement, in bytes
+     */
+    int getEncodedLength(S state);
+
+    /**
+     * Writes the binary encoding for a subelement into a buffer, starting at the buffer's current
+     *  position. Nothing is written if the state cannot be encoded.
+     *
+     * @param state the subelement state to encode
+     * @param buffer the buffer receiving the encoded subelement
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space remaining
+     */
+    void encode(S state, ByteBuffer buffer);
+
+    /**
+     * Produces the binary encoding for a subelement, including the subelement ID and length fields.
+     *
+     * @param state the subelement state to encode
+     * @return the encoded subelement
+     */
+    default byte[] encode(S state) {
+        byte[] result = new byte[getEncodedLength(state)];
+        encode(state, ByteBuffer.wrap(result));
+        return result;
+    }
+}
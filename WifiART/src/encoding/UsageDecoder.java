@@ -0,0 +1,61 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.UsageState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the Usage Rules/Policy subelement.
+ */
+public class UsageDecoder implements SubelementDecoder<UsageState> {
+
+    // Error messages
+    private static final String ERROR_WRONG_LENGTH = "The Usage Rules/Policy subelement has the wrong length.";
+
+    // Lengths (in bytes)
+    private static final int USAGE_RULES_POLICY_PARAMETERS_LENGTH = 1;
+    private static final int RETENTION_EXPIRES_RELATIVE_LENGTH = 2;
+
+    // Masks for individual bits within the Usage Rules/Policy Parameters octet.
+    private static final int RETRANSMISSION_ALLOWED_MASK = 0x01; // bit 0
+    private static final int RETENTION_EXPIRES_MASK = 0x02;      // bit 1
+    private static final int STA_LOCATION_POLICY_MASK = 0x04;    // bit 3
+
+    @Override
+    public UsageState decode(ByteBuffer fields) throws IllegalArgumentException {
+        if (fields.remaining() < USAGE_RULES_POLICY_PARAMETERS_LENGTH) {
+            throw new IllegalArgumentException(ERROR_WRONG_LENGTH);
+        }
+        int parameters = fields.get();
+        boolean retentionExpires = (parameters & RETENTION_EXPIRES_MASK) != 0;
+        int expectedRemaining = retentionExpires ? RETENTION_EXPIRES_RELATIVE_LENGTH : 0;
+        if (fields.remaining() != expectedRemaining) {
+            throw new IllegalArgumentException(ERROR_WRONG_LENGTH);
+        }
+
+        UsageState state = new UsageState();
+        state.setRetransmissionAllowed((parameters & RETRANSMISSION_ALLOWED_MASK) != 0);
+        state.setRetentionExpires(retentionExpires);
+        state.setStaLocationPolicy((parameters & STA_LOCATION_POLICY_MASK) != 0);
+        if (retentionExpires) {
+            state.setExpireTimeHours((int) LittleEndian.get(fields, RETENTION_EXPIRES_RELATIVE_LENGTH));
+        }
+        return state;
+    }
+}
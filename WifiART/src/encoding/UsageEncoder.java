@@ -0,0 +1,106 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package encoding;
+
+import structs.UsageState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the Usage Rules/Policy subelement.
+ */
+public class UsageEncoder implements SubelementEncoder<UsageState> {
+
+    // Constants
+    static final byte SUBELEMENT_ID = 6;
+
+    // Lengths (in bytes)
+    private static final int SUBELEMENT_ID_LENGTH = 1;
+    private static final int LENGTH_FIELD_LENGTH = 1;
+    static final int USAGE_RULES_POLICY_PARAMETERS_LENGTH = 1;
+    static final int RETENTION_EXPIRES_RELATIVE_LENGTH = 2;
+
+    // Masks for turning on individual bits within the Usage Rules/Policy Parameters octet.
+    private static final int RETRANSMISSION_ALLOWED_MASK = 0x01; // bit 0
+    private static final int RETENTION_EXPIRES_MASK = 0x02;      // bit 1
+    private static final int STA_LOCATION_POLICY_MASK = 0x04;    // bit 3
+
+    @Override
+    public int getEncodedLength(UsageState state) {
+        return SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + getFieldsLength(state);
+    }
+
+    @Override
+    public void encode(UsageState state, ByteBuffer buffer) {
+        if (buffer.remaining() < getEncodedLength(state)) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(SUBELEMENT_ID);
+        buffer.put((byte) getFieldsLength(state));
+        buffer.put(getUsageRulesPolicyParametersByte(state.getRetransmissionAllowed(), state.getRetentionExpires(),
+            state.getStaLocationPolicy()));
+        if (state.getRetentionExpires()) {
+            int expireTimeHours = state.getExpireTimeHours();
+            LittleEndian.put(buffer, expireTimeHours, RETENTION_EXPIRES_RELATIVE_LENGTH);
+        }
+    }
+
+    private int getFieldsLength(UsageState state) {
+        return getFieldsLength(state.getRetentionExpires());
+    }
+
+    /**
+     * Gets the length of the fields of the subelement, which only hold the expire time when the
+     *  location retention expires.
+     *
+     * @param retentionExpires the RetentionExpires parameter
+     * @return the length of the fields, in bytes
+     */
+    static int getFieldsLength(boolean retentionExpires) {
+        int fieldsLength = USAGE_RULES_POLICY_PARAMETERS_LENGTH;
+        if (retentionExpires) {
+            fieldsLength += RETENTION_EXPIRES_RELATIVE_LENGTH;
+        }
+        return fieldsLength;
+    }
+
+    /**
+     * Constructs the octet encoding the "Usage Rules/Policy Parameters" field, containing the
+     *  RetransmissionAllowed, RetentionExpires, and StaLocationPolicy parameters.
+     *
+     * @param retransmissionAllowed the RetransmissionAllowed parameter
+     * @param retentionExpires the RetentionExpires parameter
+     * @param staLocationPolicy the StaLocationPolicy parameter
+     * @return the octet encoding for the Usage Rules/Policy Parameters field
+     */
+    static byte getUsageRulesPolicyParametersByte(boolean retransmissionAllowed, boolean retentionExpires,
+                                                  boolean staLocationPolicy) {
+        byte result = 0;
+        if (retransmissionAllowed) {
+            result |= RETRANSMISSION_ALLOWED_MASK;
+        }
+        if (retentionExpires) {
+            result |= RETENTION_EXPIRES_MASK;
+        }
+        if (staLocationPolicy) {
+            result |= STA_LOCATION_POLICY_MASK;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes character sequences as UTF-8 without allocating an intermediate byte array, and reads
+ * them back.
+ *
+ * <p>Unpaired surrogates are replaced by '?', matching {@code String.getBytes(UTF_8)}.
+ */
+final class Utf8 {
+
+    private static final byte REPLACEMENT_BYTE = (byte) '?';
+
+    // Private constructor to avoid instance creation.
+    private Utf8() {}
+
+    /**
+     * Gets the number of bytes needed to encode a character sequence as UTF-8.
+     *
+     * @param chars the characters to encode
+     * @return the length of the UTF-8 encoding, in bytes
+     */
+    static int encodedLength(CharSequence chars) {
+        int length = 0;
+        int count = chars.length();
+        for (int i = 0; i < count; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (isSurrogatePair(chars, i)) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes a character sequence as UTF-8 at the buffer's current position.
+     *
+     * @param buffer the buffer being populated
+     * @param chars the characters to encode
+     * @return the number of bytes written
+     */
+    static int put(ByteBuffer buffer, CharSequence chars) {
+        int start = buffer.position();
+        int count = chars.length();
+        for (int i = 0; i < count; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xc0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else if (isSurrogatePair(chars, i)) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                buffer.put((byte) (0xf0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(REPLACEMENT_BYTE);
+            } else {
+                buffer.put((byte) (0xe0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buffer.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        return buffer.position() - start;
+    }
+
+    /**
+     * Writes a character sequence as UTF-8 into a byte array, which must have room for
+     *  {@link #encodedLength(CharSequence)} bytes.
+     *
+     * @param dest the array being populated
+     * @param offset the index in the array of the first byte
+     * @param chars the characters to encode
+     * @return the number of bytes written
+     */
+    static int put(byte[] dest, int offset, CharSequence chars) {
+        int d = offset;
+        int count = chars.length();
+        for (int i = 0; i < count; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                dest[d++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[d++] = (byte) (0xc0 | (c >> 6));
+                dest[d++] = (byte) (0x80 | (c & 0x3f));
+            } else if (isSurrogatePair(chars, i)) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                dest[d++] = (byte) (0xf0 | (codePoint >> 18));
+                dest[d++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                dest[d++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                dest[d++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                dest[d++] = REPLACEMENT_BYTE;
+            } else {
+                dest[d++] = (byte) (0xe0 | (c >> 12));
+                dest[d++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dest[d++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return d - offset;
+    }
+
+    /**
+     * Reads a UTF-8 encoded string from a buffer, at the buffer's current position.
+     *
+     * @param buffer the buffer being read
+     * @param length the length of the UTF-8 encoding, in bytes
+     * @return the decoded string
+     * @throws BufferUnderflowException if the buffer has fewer bytes remaining than the length
+     */
+    static String get(ByteBuffer buffer, int length) {
+        if (buffer.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        String result;
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            result = new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    private static boolean isSurrogatePair(CharSequence chars, int index) {
+        return Character.isHighSurrogate(chars.charAt(index))
+            && index + 1 < chars.length()
+            && Character.isLowSurrogate(chars.charAt(index + 1));
+    }
+}
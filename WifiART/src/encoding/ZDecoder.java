@@ -0,0 +1,121 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import structs.ExpectedToMove;
+import structs.ZState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the Z subelement.
+ */
+public class ZDecoder implements SubelementDecoder<ZState> {
+
+    /**
+     * Represents whether or not the height above floor uncertainty encoding uses the uncertainty
+     * in 1/4096th-meters.
+     */
+    private boolean isFractionBitsPresent = true;
+
+    // Error messages
+    private static final String ERROR_WRONG_LENGTH = "The Z subelement must have 6 bytes of fields.";
+    private static final String ERROR_UNKNOWN_EXPECTED_TO_MOVE = "Unknown Z location movement: ";
+
+    // Constants
+    /** Floor number is represented in 1/16ths of a floor. */
+    private static final double FLOOR_FRACTION_FACTOR = 16;
+
+    /** Height above floor is represented in 1/4096ths of a meter. */
+    private static final int HEIGHT_ABOVE_FLOOR_FRACTION_BITS = 12;
+
+    /** Uncertainty encoding = 11 - log2(uncertainty). */
+    private static final int HEIGHT_ABOVE_FLOOR_UNCERTAINTY_OFFSET = 11;
+
+    // Lengths (in bytes)
+    private static final int FLOOR_INFO_LENGTH = 2;
+    private static final int HEIGHT_ABOVE_FLOOR_LENGTH = 3;
+    private static final int HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH = 1;
+    private static final int FIELDS_LENGTH =
+        FLOOR_INFO_LENGTH + HEIGHT_ABOVE_FLOOR_LENGTH + HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH;
+
+    // Indices for the Floor Info field (in bits).
+    private static final int FLOOR_INDEX = 2;
+
+    // Masks for the fields within the 16-bit Floor Info field.
+    private static final int EXPECTED_TO_MOVE_MASK = 0x0003; // bits 0-1
+
+    // Lengths of the signed fields (in bits), including their sign bits.
+    private static final int FLOOR_INFO_BITS = 16;
+    private static final int HEIGHT_ABOVE_FLOOR_BITS = 24;
+
+    @Override
+    public ZState decode(ByteBuffer fields) throws IllegalArgumentException {
+        if (fields.remaining() != FIELDS_LENGTH) {
+            throw new IllegalArgumentException(ERROR_WRONG_LENGTH);
+        }
+        int floorInfo = (int) LittleEndian.get(fields, FLOOR_INFO_LENGTH);
+        int heightAboveFloor = (int) LittleEndian.get(fields, HEIGHT_ABOVE_FLOOR_LENGTH);
+        int heightAboveFloorUncertainty = (int) LittleEndian.get(fields, HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH);
+
+        ZState state = new ZState();
+        setFloorInfoFields(state, floorInfo);
+        // Sign-extend the 24-bit field, then convert from 1/4096-ths of a meter.
+        int heightAboveFloorEncoding =
+            (heightAboveFloor << (Integer.SIZE - HEIGHT_ABOVE_FLOOR_BITS)) >> (Integer.SIZE - HEIGHT_ABOVE_FLOOR_BITS);
+        state.setHeightAboveFloorMeters(
+            Math.scalb((double) heightAboveFloorEncoding, -HEIGHT_ABOVE_FLOOR_FRACTION_BITS));
+        state.setHeightAboveFloorUncertaintyMeters(getHeightAboveFloorUncertainty(heightAboveFloorUncertainty));
+        return state;
+    }
+
+    private void setFloorInfoFields(ZState state, int floorInfo) throws IllegalArgumentException {
+        int expectedToMoveEncoding = floorInfo & EXPECTED_TO_MOVE_MASK;
+        ExpectedToMove expectedToMove = ExpectedToMove.fromEncoding(expectedToMoveEncoding);
+        if (expectedToMove == null) {
+            throw new IllegalArgumentException(ERROR_UNKNOWN_EXPECTED_TO_MOVE + expectedToMoveEncoding);
+        }
+        state.setExpectedToMove(expectedToMove);
+
+        // Bits 2-15 hold the floor number in 1/16-ths of a floor, in two's complement.
+        int floorNumberEncoding = (floorInfo << (Integer.SIZE - FLOOR_INFO_BITS)) >> (Integer.SIZE - FLOOR_INFO_BITS);
+        floorNumberEncoding >>= FLOOR_INDEX;
+        state.setFloor((int) Math.round(floorNumberEncoding / FLOOR_FRACTION_FACTOR));
+    }
+
+    private double getHeightAboveFloorUncertainty(int encoding) {
+        if (encoding == 0) {
+            return 0;
+        }
+        int exponent = HEIGHT_ABOVE_FLOOR_UNCERTAINTY_OFFSET - encoding;
+        if (isFractionBitsPresent) {
+            // The uncertainty was encoded in 1/4096-ths of a meter.
+            exponent -= HEIGHT_ABOVE_FLOOR_FRACTION_BITS;
+        }
+        return Math.scalb(1.0, exponent);
+    }
+
+    /**
+     * Determines whether or not the height above floor uncertainty is decoded from 1/4096th-meters,
+     *  as expected by Android S and later.
+     *
+     * @param isFractionBitsPresent true if the uncertainty was encoded in 1/4096th-meters
+     */
+    public void setFractionBitsPresent(boolean isFractionBitsPresent) {
+        this.isFractionBitsPresent = isFractionBitsPresent;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package encoding;
+
+import structs.ExpectedToMove;
+import structs.ZState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the Z subelement.
+ */
+public class ZEncoder implements SubelementEncoder<ZState> {
+
+    /**
+     * Represents whether or not the height above floor uncertainty encoding uses the uncertainty
+     * in 1/4096th-meters.
+     */
+    private boolean isFractionBitsPresent = true;
+
+    // Error message
+    static final String EXPECTED_TO_MOVE_IS_NULL =
+        "You must choose one of the Location Movement options for the Z subelement.";
+
+    // Constants
+    static final byte SUBELEMENT_ID = 4;
+
+    /** Floor number magnitude can be up to 8191/16ths of a floor. */
+    private static final int MAX_FLOOR_MAGNITUDE = 8191;
+
+    /** Floor number is represented in 1/16ths of a floor. */
+    private static final int FLOOR_FRACTION_BITS = 4;
+
+    /** Height above floor magnitude can be up to 8388607/4096ths of a meter. */
+    private static final int MAX_HEIGHT_ABOVE_FLOOR_MAGNITUDE = 8388607;
+
+    /** Height above floor is represented in 1/4096ths of a meter. */
+    private static final int HEIGHT_ABOVE_FLOOR_FRACTION_FACTOR = 4096;
+    private static final int MIN_HEIGHT_ABOVE_FLOOR_UNCERTAINTY_ENCODING = 1;
+    private static final int MAX_HEIGHT_ABOVE_FLOOR_UNCERTAINTY_ENCODING = 24;
+
+    // Lengths (in bytes)
+    private static final int SUBELEMENT_ID_LENGTH = 1;
+    private static final int LENGTH_FIELD_LENGTH = 1;
+    static final int FLOOR_INFO_LENGTH = 2;
+    static final int HEIGHT_ABOVE_FLOOR_LENGTH = 3;
+    static final int HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH = 1;
+    static final int FIELDS_LENGTH =
+        FLOOR_INFO_LENGTH + HEIGHT_ABOVE_FLOOR_LENGTH + HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH;
+
+    // Indices for the Floor Info field (in bits).
+    private static final int FLOOR_INDEX = 2;
+
+    // Masks for turning on individual bits within the 16-bit Floor Info field.
+    private static final int FLOOR_SIGN_MASK = 0x8000;      // bit 15
+    private static final int FLOOR_MAGNITUDE_MASK = 0x7ffc; // bits 2-14
+
+    // Masks for turning on individual bits within the 24-bit Height Above Floor field.
+    private static final int HEIGHT_SIGN_MASK = 0x800000;      // bit 24
+    private static final int HEIGHT_MAGNITUDE_MASK = 0x7fffff; // bits 0-23
+
+    @Override
+    public int getEncodedLength(ZState state) {
+        return SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + FIELDS_LENGTH;
+    }
+
+    @Override
+    public void encode(ZState state, ByteBuffer buffer) throws NullPointerException {
+        if (buffer.remaining() < getEncodedLength(state)) {
+            throw new BufferOverflowException();
+        }
+        ExpectedToMove locationMovement = state.getExpectedToMove();
+        if (locationMovement == null) {
+            throw new NullPointerException(EXPECTED_TO_MOVE_IS_NULL);
+        }
+        int floorInfo = getFloorInfoField(locationMovement.getEncoding(), state.getFloor());
+        int heightAboveFloor = getHeightAboveFloorField(state.getHeightAboveFloorMeters());
+        int heightAboveFloorUncertainty = getHeightAboveFloorUncertaintyField(
+            state.getHeightAboveFloorUncertaintyMeters(), isFractionBitsPresent);
+
+        buffer.put(SUBELEMENT_ID);
+        buffer.put((byte) FIELDS_LENGTH);
+        LittleEndian.put(buffer, floorInfo, FLOOR_INFO_LENGTH);
+        LittleEndian.put(buffer, heightAboveFloor, HEIGHT_ABOVE_FLOOR_LENGTH);
+        LittleEndian.put(buffer, heightAboveFloorUncertainty, HEIGHT_ABOVE_FLOOR_UNCERTAINTY_LENGTH);
+    }
+
+    /**
+     * Packs the Floor Info field: the expected to move parameter in bits 0-1 and the floor number in
+     *  bits 2-15.
+     *
+     * @param expectedToMoveEncoding the integer encoding of the expected to move parameter
+     * @param floorNumber the floor number
+     * @return the Floor Info field
+     */
+    static int getFloorInfoField(int expectedToMoveEncoding, int floorNumber) {
+        int result = expectedToMoveEncoding; // Bits 0 and 1
+
+        int floorNumberEncoding = floorNumber << FLOOR_FRACTION_BITS; // Convert to 1/16-ths of a floor.
+        if (floorNumberEncoding > MAX_FLOOR_MAGNITUDE) {
+            floorNumberEncoding = MAX_FLOOR_MAGNITUDE;
+        } else if (floorNumberEncoding < -MAX_FLOOR_MAGNITUDE) {
+            floorNumberEncoding = -MAX_FLOOR_MAGNITUDE;
+        }
+        if (floorNumber < 0) {
+            result |= FLOOR_SIGN_MASK; // Set the sign bit
+        }
+        // Place bits 0-12 of floorNumberEncoding into bits 2-14 of the result.
+        result |= ((floorNumberEncoding << FLOOR_INDEX) & FLOOR_MAGNITUDE_MASK);
+
+        return result;
+    }
+
+    /**
+     * Packs the Height Above Floor field, in 1/4096ths of a meter with a sign bit.
+     *
+     * @param heightAboveFloor the height above the floor, in meters
+     * @return the Height Above Floor field
+     */
+    static int getHeightAboveFloorField(double heightAboveFloor) {
+        int result = 0;
+
+        // Convert to 1/4096-ths of a meter, rounded.
+        long heightAboveFloorEncoding = Math.round(heightAboveFloor * HEIGHT_ABOVE_FLOOR_FRACTION_FACTOR);
+        if (heightAboveFloorEncoding > MAX_HEIGHT_ABOVE_FLOOR_MAGNITUDE) {
+            heightAboveFloorEncoding = MAX_HEIGHT_ABOVE_FLOOR_MAGNITUDE;
+        } else if (heightAboveFloorEncoding < -MAX_HEIGHT_ABOVE_FLOOR_MAGNITUDE) {
+            heightAboveFloorEncoding = -MAX_HEIGHT_ABOVE_FLOOR_MAGNITUDE;
+        }
+        if (heightAboveFloor < 0) {
+            result |= HEIGHT_SIGN_MASK; // Set the sign bit
+        }
+        result |= (heightAboveFloorEncoding & HEIGHT_MAGNITUDE_MASK); // Set the magnitude bits
+
+        return result;
+    }
+
+    /**
+     * Packs the Height Above Floor Uncertainty field.
+     *
+     * @param heightAboveFloorUncertainty the height above floor uncertainty, in meters (0 if unknown)
+     * @param isFractionBitsPresent true if the uncertainty is encoded in 1/4096th-meters
+     * @return the Height Above Floor Uncertainty field
+     */
+    static int getHeightAboveFloorUncertaintyField(double heightAboveFloorUncertainty,
+                                                   boolean isFractionBitsPresent) {
+        int result = 0;
+
+        double heightAboveFloorUncertaintyEncoding = 0;
+        if (heightAboveFloorUncertainty > 0) {
+            if (isFractionBitsPresent) {
+                // Convert to 1/4096-ths of a meter.
+                heightAboveFloorUncertaintyEncoding = heightAboveFloorUncertainty * HEIGHT_ABOVE_FLOOR_FRACTION_FACTOR;
+            } else {
+                heightAboveFloorUncertaintyEncoding = heightAboveFloorUncertainty;
+            }
+            // encoding = 11 - log2(uncertainty)
+            heightAboveFloorUncertaintyEncoding = 11 - Math.log(heightAboveFloorUncertaintyEncoding) / Math.log(2);
+
+            // Convert to integer, rounding down so the bound still applies.
+            result = (int) (heightAboveFloorUncertaintyEncoding);
+            if (result < MIN_HEIGHT_ABOVE_FLOOR_UNCERTAINTY_ENCODING) {
+                result = MIN_HEIGHT_ABOVE_FLOOR_UNCERTAINTY_ENCODING;
+            } else if (result > MAX_HEIGHT_ABOVE_FLOOR_UNCERTAINTY_ENCODING) {
+                result = MAX_HEIGHT_ABOVE_FLOOR_UNCERTAINTY_ENCODING;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Determines whether or not the height above floor uncertainty is encoded in 1/4096th-meters,
+     *  as expected by Android S and later.
+     *
+     * @param isFractionBitsPresent true if the uncertainty should be encoded in 1/4096th-meters
+     */
+    public void setFractionBitsPresent(boolean isFractionBitsPresent) {
+        this.isFractionBitsPresent = isFractionBitsPresent;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+import java.util.List;
+
+/**
+ * Converts the location of LCI subelements between the map datums of the LCI subelement, with the
+ * Helmert transformation between ITRF2008 (standing for WGS84) and NAD83(2011) at a given epoch.
+ *
+ * <p>An altitude in meters is a height above the ellipsoid for WGS84, but a height above the
+ * NAVD88 or MLLW vertical datum for the NAD83 datums. Converting it requires the height of that
+ * vertical datum above the NAD83 ellipsoid at the location (the geoid height for NAVD88, e.g. from
+ * GEOID18, or the height of the tidal datum for MLLW), which the caller must provide; altitudes in
+ * floors, or unknown, are kept as they are. Converting between NAD83 (NAVD88) and NAD83 (MLLW)
+ * would need both heights, and is not supported.
+ */
+public final class DatumConverter {
+    // Constants
+    /** The epoch of the NAD83(2011) realization, as a decimal year. */
+    public static final double DEFAULT_EPOCH = 2010.0;
+
+    // Error messages
+    private static final String ERROR_MISSING_VERTICAL_DATUM_HEIGHT =
+        "Missing height of the vertical datum above the ellipsoid";
+    private static final String ERROR_VERTICAL_DATUMS = "Cannot convert between vertical datums: ";
+
+    private final MapDatum target;
+    private final double epoch;
+
+    /**
+     * Constructor.
+     *
+     * @param target the map datum to convert to
+     * @param epoch the epoch of the locations, as a decimal year
+     */
+    public DatumConverter(MapDatum target, double epoch) {
+        this.target = target;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Gets the map datum the locations are converted to.
+     *
+     * @return the map datum
+     */
+    public MapDatum getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the epoch of the locations.
+     *
+     * @return the epoch, as a decimal year
+     */
+    public double getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Checks that the location of an LCI subelement can be converted to the target map datum.
+     *
+     * @param state the LCI subelement
+     * @param verticalDatumHeight the height of the NAVD88 or MLLW vertical datum above the NAD83
+     *                            ellipsoid at the location, in meters, or NaN if it is unknown
+     * @throws IllegalArgumentException if the altitude is in meters and the vertical datum height
+     *                                  is unknown, or the datums only differ by their vertical datum
+     */
+    public void check(LciState state, double verticalDatumHeight) throws IllegalArgumentException {
+        MapDatum source = state.getMapDatum();
+        if (source == target) {
+            return;
+        }
+        if (source != MapDatum.WGS84 && target != MapDatum.WGS84) {
+            throw new IllegalArgumentException(ERROR_VERTICAL_DATUMS + source + ", " + target);
+        }
+        if (state.getAltitudeType() == AltitudeType.ALTITUDE_IN_METERS && Double.isNaN(verticalDatumHeight)) {
+            throw new IllegalArgumentException(ERROR_MISSING_VERTICAL_DATUM_HEIGHT);
+        }
+    }
+
+    /**
+     * Converts the location of an LCI subelement to the target map datum. A location already in
+     *  the target map datum is left as it is, without allocating.
+     *
+     * @param state the LCI subelement
+     * @param verticalDatumHeight the height of the NAVD88 or MLLW vertical datum above the NAD83
+     *                            ellipsoid at the location, in meters, or NaN if it is unknown
+     * @throws IllegalArgumentException if the altitude is in meters and the vertical datum height
+     *                                  is unknown, or the datums only differ by their vertical datum
+     */
+    public void convert(LciState state, double verticalDatumHeight) throws IllegalArgumentException {
+        check(state, verticalDatumHeight);
+        if (state.getMapDatum() == target) {
+            return;
+        }
+        double[] latitude = {state.getLatitude()};
+        double[] longitude = {state.getLongitude()};
+        double[] height = {getHeight(state, verticalDatumHeight)};
+        getTransformation(state.getMapDatum()).transform(latitude, longitude, height, 1, epoch);
+        setLocation(state, latitude[0], longitude[0], height[0], verticalDatumHeight);
+    }
+
+    /**
+     * Converts the locations of many LCI subelements to the target map datum, transforming the
+     *  locations of each source datum as one batch. No location is converted if one of them cannot
+     *  be.
+     *
+     * @param states the LCI subelements
+     * @param verticalDatumHeights the height of the NAVD88 or MLLW vertical datum above the NAD83
+     *                             ellipsoid at each location, in meters, or NaN if it is unknown
+     * @throws IllegalArgumentException if an altitude is in meters and its vertical datum height is
+     *                                  unknown, or two datums only differ by their vertical datum
+     */
+    public void convert(List<LciState> states, double[] verticalDatumHeights) throws IllegalArgumentException {
+        int count = states.size();
+        int[] indices = new int[count];
+        int fromNad83Count = 0;
+        int toNad83Count = 0;
+        for (int i = 0; i < count; i++) {
+            LciState state = states.get(i);
+            check(state, verticalDatumHeights[i]);
+            MapDatum source = state.getMapDatum();
+            if (source == target) {
+                continue;
+            }
+            // Sources from NAD83 fill the indices from the start, sources from WGS84 from the end.
+            if (source != MapDatum.WGS84) {
+                indices[fromNad83Count++] = i;
+            } else {
+                indices[count - ++toNad83Count] = i;
+            }
+        }
+        convert(states, verticalDatumHeights, indices, 0, fromNad83Count, HelmertTransformation.NAD83_2011_TO_ITRF2008);
+        convert(states, verticalDatumHeights, indices, count - toNad83Count, toNad83Count,
+            HelmertTransformation.ITRF2008_TO_NAD83_2011);
+    }
+
+    private void convert(List<LciState> states, double[] verticalDatumHeights, int[] indices, int from, int count,
+                         HelmertTransformation transformation) {
+        if (count == 0) {
+            return;
+        }
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double[] heights = new double[count];
+        for (int j = 0; j < count; j++) {
+            int i = indices[from + j];
+            LciState state = states.get(i);
+            latitudes[j] = state.getLatitude();
+            longitudes[j] = state.getLongitude();
+            heights[j] = getHeight(state, verticalDatumHeights[i]);
+        }
+        transformation.transform(latitudes, longitudes, heights, count, epoch);
+        for (int j = 0; j < count; j++) {
+            int i = indices[from + j];
+            setLocation(states.get(i), latitudes[j], longitudes[j], heights[j], verticalDatumHeights[i]);
+        }
+    }
+
+    private HelmertTransformation getTransformation(MapDatum source) {
+        return source != MapDatum.WGS84
+            ? HelmertTransformation.NAD83_2011_TO_ITRF2008 : HelmertTransformation.ITRF2008_TO_NAD83_2011;
+    }
+
+    /**
+     * Gets the height of a location above the ellipsoid of its map datum.
+     *
+     * @param state the LCI subelement
+     * @param verticalDatumHeight the height of the vertical datum above the NAD83 ellipsoid
+     * @return the height, in meters, or 0 if the altitude is not in meters
+     */
+    private double getHeight(LciState state, double verticalDatumHeight) {
+        if (state.getAltitudeType() != AltitudeType.ALTITUDE_IN_METERS) {
+            return 0;
+        }
+        return target != MapDatum.WGS84 ? state.getAltitude() : state.getAltitude() + verticalDatumHeight;
+    }
+
+    private void setLocation(LciState state, double latitude, double longitude, double height,
+                             double verticalDatumHeight) {
+        state.setLatitude(latitude);
+        state.setLongitude(longitude);
+        if (state.getAltitudeType() == AltitudeType.ALTITUDE_IN_METERS) {
+            state.setAltitude(target != MapDatum.WGS84 ? height - verticalDatumHeight : height);
+        }
+        state.setMapDatum(target);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+/**
+ * A reference ellipsoid, converting between geodetic coordinates (latitude, longitude and height
+ * above the ellipsoid) and Earth-Centered, Earth-Fixed (ECEF) Cartesian coordinates.
+ *
+ * <p>Geodetic coordinates are computed from ECEF coordinates with Bowring's formula, which needs
+ * no iteration and is accurate to well under a millimeter for points within 10 km of the surface
+ * of the Earth. It takes two arctangents and three square roots per point, and no other
+ * trigonometric function.
+ */
+public final class Ellipsoid {
+    /** The WGS84 ellipsoid, used by GPS and by the LCI subelement. */
+    public static final Ellipsoid WGS84 = new Ellipsoid(6378137.0, 1 / 298.257223563);
+    /** The GRS80 ellipsoid, used by NAD83. */
+    public static final Ellipsoid GRS80 = new Ellipsoid(6378137.0, 1 / 298.257222101);
+
+    private final double semiMajorAxis;
+    private final double semiMinorAxis;
+    private final double eccentricitySquared;
+    private final double secondEccentricitySquared;
+
+    /**
+     * Constructor.
+     *
+     * @param semiMajorAxis the equatorial radius, in meters
+     * @param flattening the flattening, (a - b) / a
+     */
+    public Ellipsoid(double semiMajorAxis, double flattening) {
+        this.semiMajorAxis = semiMajorAxis;
+        semiMinorAxis = semiMajorAxis * (1 - flattening);
+        eccentricitySquared = flattening * (2 - flattening);
+        secondEccentricitySquared = eccentricitySquared / (1 - eccentricitySquared);
+    }
+
+    /**
+     * Gets the equatorial radius.
+     *
+     * @return the semi-major axis, in meters
+     */
+    public double getSemiMajorAxis() {
+        return semiMajorAxis;
+    }
+
+    /**
+     * Gets the square of the first eccentricity.
+     *
+     * @return the first eccentricity squared
+     */
+    public double getEccentricitySquared() {
+        return eccentricitySquared;
+    }
+
+    /**
+     * Gets the radius of curvature in the prime vertical at a latitude.
+     *
+     * @param sinLatitude the sine of the latitude
+     * @return the radius of curvature, in meters
+     */
+    public double getPrimeVerticalRadius(double sinLatitude) {
+        return semiMajorAxis / Math.sqrt(1 - eccentricitySquared * sinLatitude * sinLatitude);
+    }
+
+    /**
+     * Gets the radius of curvature in the meridian at a latitude.
+     *
+     * @param sinLatitude the sine of the latitude
+     * @return the radius of curvature, in meters
+     */
+    public double getMeridianRadius(double sinLatitude) {
+        double w2 = 1 - eccentricitySquared * sinLatitude * sinLatitude;
+        return semiMajorAxis * (1 - eccentricitySquared) / (w2 * Math.sqrt(w2));
+    }
+
+    /**
+     * Converts geodetic coordinates to ECEF coordinates.
+     *
+     * @param latitude the latitude, in degrees
+     * @param longitude the longitude, in degrees
+     * @param height the height above the ellipsoid, in meters
+     * @param ecef the array receiving the X, Y and Z coordinates, in meters
+     */
+    public void toEcef(double latitude, double longitude, double height, double[] ecef) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double sinLatitude = Math.sin(latitudeRadians);
+        double cosLatitude = Math.cos(latitudeRadians);
+        double primeVerticalRadius = getPrimeVerticalRadius(sinLatitude);
+        double radius = (primeVerticalRadius + height) * cosLatitude;
+        ecef[0] = radius * Math.cos(longitudeRadians);
+        ecef[1] = radius * Math.sin(longitudeRadians);
+        ecef[2] = (primeVerticalRadius * (1 - eccentricitySquared) + height) * sinLatitude;
+    }
+
+    /**
+     * Converts ECEF coordinates to geodetic coordinates, storing them at an index of the output
+     *  arrays so that batches of points can be converted without allocating.
+     *
+     * @param x the X coordinate, in meters
+     * @param y the Y coordinate, in meters
+     * @param z the Z coordinate, in meters
+     * @param latitudes the array receiving the latitude, in degrees
+     * @param longitudes the array receiving the longitude, in degrees
+     * @param heights the array receiving the height above the ellipsoid, in meters
+     * @param index the index in the output arrays
+     */
+    public void toGeodetic(double x, double y, double z, double[] latitudes, double[] longitudes, double[] heights,
+                           int index) {
+        double p = Math.sqrt(x * x + y * y);
+        // The sine and cosine of the parametric latitude of the point, and those of Bowring's
+        // latitude computed from it, are taken from normalized vectors rather than trigonometry.
+        double thetaY = z * semiMajorAxis;
+        double thetaX = p * semiMinorAxis;
+        double thetaNorm = Math.sqrt(thetaY * thetaY + thetaX * thetaX);
+        double sinTheta = thetaY / thetaNorm;
+        double cosTheta = thetaX / thetaNorm;
+        double latitudeY = z + secondEccentricitySquared * semiMinorAxis * sinTheta * sinTheta * sinTheta;
+        double latitudeX = p - eccentricitySquared * semiMajorAxis * cosTheta * cosTheta * cosTheta;
+        double latitudeNorm = Math.sqrt(latitudeY * latitudeY + latitudeX * latitudeX);
+        double sinLatitude = latitudeY / latitudeNorm;
+        double cosLatitude = latitudeX / latitudeNorm;
+        double latitude = Math.atan2(latitudeY, latitudeX);
+        // This form of the height stays accurate near the poles, unlike p / cos(latitude) - N.
+        double height = p * cosLatitude + z * sinLatitude
+            - semiMajorAxis * Math.sqrt(1 - eccentricitySquared * sinLatitude * sinLatitude);
+        latitudes[index] = Math.toDegrees(latitude);
+        longitudes[index] = Math.toDegrees(Math.atan2(y, x));
+        heights[index] = height;
+    }
+}
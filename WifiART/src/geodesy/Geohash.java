@@ -0,0 +1,77 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+/**
+ * Encodes locations as geohashes: strings of base-32 digits naming the cells of a grid that is
+ * refined by each digit, alternately along longitude and latitude, so that locations sharing a
+ * prefix are within the cell of the prefix.
+ */
+public final class Geohash {
+    // Constants
+    public static final int MAX_PRECISION = 12;
+    private static final String ALPHABET = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int BITS_PER_DIGIT = 5;
+
+    // Error messages
+    private static final String ERROR_PRECISION = "The precision must be between 1 and " + MAX_PRECISION + ": ";
+
+    // Private constructor to avoid instance creation.
+    private Geohash() {}
+
+    /**
+     * Encodes a location.
+     *
+     * @param latitude the latitude, in degrees
+     * @param longitude the longitude, in degrees
+     * @param precision the number of digits
+     * @return the geohash of the cell holding the location
+     * @throws IllegalArgumentException if the precision is not between 1 and MAX_PRECISION
+     */
+    public static String encode(double latitude, double longitude, int precision) throws IllegalArgumentException {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(ERROR_PRECISION + precision);
+        }
+        int bitCount = precision * BITS_PER_DIGIT;
+        // The first bit is a longitude bit, so longitude gets the extra bit of an odd count.
+        int longitudeBits = (bitCount + 1) / 2;
+        int latitudeBits = bitCount / 2;
+        long longitudeCell = getCell((longitude + 180) / 360, longitudeBits);
+        long latitudeCell = getCell((latitude + 90) / 180, latitudeBits);
+        long bits = 0;
+        for (int i = 0; i < bitCount; i++) {
+            // Even bits, from the most significant, come from the longitude.
+            long bit = i % 2 == 0 ? longitudeCell >>> (longitudeBits - 1 - i / 2)
+                : latitudeCell >>> (latitudeBits - 1 - i / 2);
+            bits = (bits << 1) | (bit & 1);
+        }
+        char[] digits = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            digits[i] = ALPHABET.charAt((int) (bits & ((1 << BITS_PER_DIGIT) - 1)));
+            bits >>>= BITS_PER_DIGIT;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Gets the cell of a fraction of a range divided into 2^bits cells.
+     */
+    private static long getCell(double fraction, int bits) {
+        long cellCount = 1L << bits;
+        return Math.max(0, Math.min(cellCount - 1, (long) Math.floor(fraction * cellCount)));
+    }
+}
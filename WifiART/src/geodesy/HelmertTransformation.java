@@ -0,0 +1,188 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A 14-parameter Helmert transformation between two geodetic reference frames: 3 translations, 3
+ * rotations and a scale factor, and their rates of change per year from a reference epoch.
+ *
+ * <p>Points are converted to ECEF coordinates on the ellipsoid of the source frame, transformed
+ * with x' = T + (1 + s) x + R x, and converted back to geodetic coordinates on the ellipsoid of
+ * the target frame, following the convention of the National Geodetic Survey (NGS) for the
+ * rotations. The translation and the matrix for an epoch are computed once and cached, as the
+ * points of a fleet are usually transformed at a handful of epochs.
+ */
+public final class HelmertTransformation {
+    // Constants
+    private static final double RADIANS_PER_MILLIARCSECOND = Math.toRadians(1.0 / 3600000);
+    private static final double PARTS_PER_BILLION = 1e-9;
+    private static final int MAX_CACHED_EPOCHS = 256;
+
+    /**
+     * From ITRF2008 (to which the current WGS84 realization is aligned at the centimeter level) to
+     *  NAD83(2011), at reference epoch 1997.0, as published by the NGS (Pearson and Snay, 2013).
+     */
+    public static final HelmertTransformation ITRF2008_TO_NAD83_2011 = new HelmertTransformation(
+        Ellipsoid.WGS84, Ellipsoid.GRS80, 1997.0,
+        new double[] {0.99343, -1.90331, -0.52655, 25.91467, 9.42645, 11.59935, 1.71504},
+        new double[] {0.00079, -0.00060, -0.00134, 0.06667, -0.75744, -0.05133, -0.10201});
+
+    /** From NAD83(2011) to ITRF2008, the inverse of {@link #ITRF2008_TO_NAD83_2011}. */
+    public static final HelmertTransformation NAD83_2011_TO_ITRF2008 = ITRF2008_TO_NAD83_2011.inverse();
+
+    // Error messages
+    private static final String ERROR_PARAMETER_COUNT = "A Helmert transformation has 7 parameters and 7 rates.";
+
+    private final Ellipsoid source;
+    private final Ellipsoid target;
+    private final double referenceEpoch;
+    private final double[] parameters;
+    private final double[] rates;
+    private final Map<Double, Coefficients> coefficientsByEpoch = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param source the ellipsoid of the source frame
+     * @param target the ellipsoid of the target frame
+     * @param referenceEpoch the epoch of the parameters, as a decimal year
+     * @param parameters the translations along X, Y and Z (meters), the rotations around X, Y and Z
+     *                   (milliarcseconds) and the scale difference (parts per billion)
+     * @param rates the rates of change of the parameters, in the same units per year
+     * @throws IllegalArgumentException if there are not 7 parameters and 7 rates
+     */
+    public HelmertTransformation(Ellipsoid source, Ellipsoid target, double referenceEpoch, double[] parameters,
+                                 double[] rates) throws IllegalArgumentException {
+        if (parameters.length != 7 || rates.length != 7) {
+            throw new IllegalArgumentException(ERROR_PARAMETER_COUNT);
+        }
+        this.source = source;
+        this.target = target;
+        this.referenceEpoch = referenceEpoch;
+        this.parameters = parameters.clone();
+        this.rates = rates.clone();
+    }
+
+    /**
+     * Gets the inverse transformation, with every parameter and rate negated. The parameters being
+     *  small, it is exact to well under a millimeter.
+     *
+     * @return the inverse transformation
+     */
+    public HelmertTransformation inverse() {
+        double[] inverseParameters = new double[parameters.length];
+        double[] inverseRates = new double[rates.length];
+        for (int i = 0; i < parameters.length; i++) {
+            inverseParameters[i] = -parameters[i];
+            inverseRates[i] = -rates[i];
+        }
+        return new HelmertTransformation(target, source, referenceEpoch, inverseParameters, inverseRates);
+    }
+
+    /**
+     * Gets the translation and matrix of the transformation at an epoch, computing them the first
+     *  time the epoch is used.
+     *
+     * @param epoch the epoch of the points, as a decimal year
+     * @return the coefficients
+     */
+    Coefficients getCoefficients(double epoch) {
+        Coefficients coefficients = coefficientsByEpoch.get(epoch);
+        if (coefficients == null) {
+            if (coefficientsByEpoch.size() >= MAX_CACHED_EPOCHS) {
+                coefficientsByEpoch.clear();
+            }
+            double[] values = new double[parameters.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = parameters[i] + rates[i] * (epoch - referenceEpoch);
+            }
+            coefficients = new Coefficients(values);
+            coefficientsByEpoch.put(epoch, coefficients);
+        }
+        return coefficients;
+    }
+
+    /**
+     * Transforms a batch of points in place.
+     *
+     * @param latitudes the latitudes, in degrees
+     * @param longitudes the longitudes, in degrees
+     * @param heights the heights above the ellipsoid of the source frame, in meters
+     * @param count the number of points to transform, from index 0
+     * @param epoch the epoch of the points, as a decimal year
+     */
+    public void transform(double[] latitudes, double[] longitudes, double[] heights, int count, double epoch) {
+        Coefficients c = getCoefficients(epoch);
+        double[] ecef = new double[3];
+        for (int i = 0; i < count; i++) {
+            source.toEcef(latitudes[i], longitudes[i], heights[i], ecef);
+            double x = ecef[0];
+            double y = ecef[1];
+            double z = ecef[2];
+            target.toGeodetic(c.translationX + c.xx * x + c.xy * y + c.xz * z,
+                c.translationY + c.yx * x + c.yy * y + c.yz * z,
+                c.translationZ + c.zx * x + c.zy * y + c.zz * z,
+                latitudes, longitudes, heights, i);
+        }
+    }
+
+    /**
+     * The translation and matrix of the transformation at an epoch.
+     */
+    static final class Coefficients {
+        final double translationX;
+        final double translationY;
+        final double translationZ;
+        final double xx;
+        final double xy;
+        final double xz;
+        final double yx;
+        final double yy;
+        final double yz;
+        final double zx;
+        final double zy;
+        final double zz;
+
+        /**
+         * Constructor.
+         *
+         * @param values the translations (meters), rotations (milliarcseconds) and scale
+         *               difference (parts per billion) at the epoch
+         */
+        private Coefficients(double[] values) {
+            translationX = values[0];
+            translationY = values[1];
+            translationZ = values[2];
+            double rotationX = values[3] * RADIANS_PER_MILLIARCSECOND;
+            double rotationY = values[4] * RADIANS_PER_MILLIARCSECOND;
+            double rotationZ = values[5] * RADIANS_PER_MILLIARCSECOND;
+            double scale = 1 + values[6] * PARTS_PER_BILLION;
+            xx = scale;
+            xy = rotationZ;
+            xz = -rotationY;
+            yx = -rotationZ;
+            yy = scale;
+            yz = rotationX;
+            zx = rotationY;
+            zy = -rotationX;
+            zz = scale;
+        }
+    }
+}
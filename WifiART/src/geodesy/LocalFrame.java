@@ -0,0 +1,136 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+/**
+ * A local East-North-Up frame, tangent to the WGS84 ellipsoid at a surveyed origin (e.g. a corner
+ * of a building), converting the positions of access points given in meters east, north and up of
+ * the origin to WGS84 latitude, longitude and height.
+ *
+ * <p>The ECEF coordinates of the origin and the terms of the rotation from the local frame to
+ * ECEF are computed once per frame, so converting a point takes 9 multiplications and a conversion
+ * from ECEF to geodetic coordinates. A frame is immutable, and can be shared between threads.
+ */
+public final class LocalFrame {
+
+    private final Ellipsoid ellipsoid;
+    private final double originX;
+    private final double originY;
+    private final double originZ;
+
+    // The rotation from the local frame to ECEF, by rows.
+    private final double eastToX;
+    private final double northToX;
+    private final double upToX;
+    private final double eastToY;
+    private final double northToY;
+    private final double upToY;
+    private final double northToZ;
+    private final double upToZ;
+
+    /**
+     * Constructs the local frame at an origin.
+     *
+     * @param latitude the latitude of the origin, in degrees
+     * @param longitude the longitude of the origin, in degrees
+     * @param height the height of the origin above the WGS84 ellipsoid, in meters
+     */
+    public LocalFrame(double latitude, double longitude, double height) {
+        ellipsoid = Ellipsoid.WGS84;
+        double[] origin = new double[3];
+        ellipsoid.toEcef(latitude, longitude, height, origin);
+        originX = origin[0];
+        originY = origin[1];
+        originZ = origin[2];
+        double sinLatitude = Math.sin(Math.toRadians(latitude));
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double sinLongitude = Math.sin(Math.toRadians(longitude));
+        double cosLongitude = Math.cos(Math.toRadians(longitude));
+        eastToX = -sinLongitude;
+        northToX = -sinLatitude * cosLongitude;
+        upToX = cosLatitude * cosLongitude;
+        eastToY = cosLongitude;
+        northToY = -sinLatitude * sinLongitude;
+        upToY = cosLatitude * sinLongitude;
+        northToZ = cosLatitude;
+        upToZ = sinLatitude;
+    }
+
+    /**
+     * Converts a batch of local positions to WGS84 coordinates.
+     *
+     * @param east the distances east of the origin, in meters
+     * @param north the distances north of the origin, in meters
+     * @param up the heights above the origin, in meters
+     * @param count the number of positions to convert, from index 0
+     * @param latitudes the array receiving the latitudes, in degrees
+     * @param longitudes the array receiving the longitudes, in degrees
+     * @param heights the array receiving the heights above the WGS84 ellipsoid, in meters
+     */
+    public void toWgs84(double[] east, double[] north, double[] up, int count,
+                        double[] latitudes, double[] longitudes, double[] heights) {
+        for (int i = 0; i < count; i++) {
+            toWgs84(east[i], north[i], up[i], latitudes, longitudes, heights, i);
+        }
+    }
+
+    /**
+     * Converts a local position to WGS84 coordinates, storing them at an index of the output
+     *  arrays so that single points can be converted without allocating.
+     *
+     * @param east the distance east of the origin, in meters
+     * @param north the distance north of the origin, in meters
+     * @param up the height above the origin, in meters
+     * @param latitudes the array receiving the latitude, in degrees
+     * @param longitudes the array receiving the longitude, in degrees
+     * @param heights the array receiving the height above the WGS84 ellipsoid, in meters
+     * @param index the index in the output arrays
+     */
+    public void toWgs84(double east, double north, double up, double[] latitudes, double[] longitudes,
+                        double[] heights, int index) {
+        ellipsoid.toGeodetic(originX + eastToX * east + northToX * north + upToX * up,
+            originY + eastToY * east + northToY * north + upToY * up,
+            originZ + northToZ * north + upToZ * up,
+            latitudes, longitudes, heights, index);
+    }
+
+    /**
+     * Sets the location of an LCI subelement to a local position, as WGS84 coordinates with an
+     *  altitude in meters above the ellipsoid. The uncertainties are left unchanged.
+     *
+     * @param state the LCI subelement state
+     * @param east the distance east of the origin, in meters
+     * @param north the distance north of the origin, in meters
+     * @param up the height above the origin, in meters
+     * @throws NumberFormatException if the altitude is out of the range of the LCI subelement
+     */
+    public void setLocation(LciState state, double east, double north, double up) throws NumberFormatException {
+        double[] latitude = new double[1];
+        double[] longitude = new double[1];
+        double[] height = new double[1];
+        toWgs84(east, north, up, latitude, longitude, height, 0);
+        state.setLatitude(latitude[0]);
+        state.setLongitude(longitude[0]);
+        state.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        state.setAltitude(height[0]);
+        state.setMapDatum(MapDatum.WGS84);
+    }
+}
@@ -20,11 +20,25 @@ import org.jetbrains.annotations.NotNull;
 
 /**
  * A class for representing a civic address element with a name, key, and associated language.
+ *
+ * <p>The language code and Civic Address Type are looked up once, when the element is created or
+ * its language or key changes (see {@link #updateSortKey()}), and packed into a single integer
+ * that orders elements by language code and then by Civic Address Type.
  */
 public class AddressElement implements Comparable<AddressElement> {
+
+    /** Sort key for elements whose language or key is not recognized, placing them last. */
+    private static final int UNRESOLVED_SORT_KEY = Integer.MAX_VALUE;
+
     private final StringBuilder nameBuilder;
     private final StringBuilder languageBuilder;
     private final StringBuilder addressElementKeyBuilder;
+    /** The name handed out, the name StringBuilder itself or, for a read-only copy, a String. */
+    private final CharSequence nameChars;
+
+    private String languageCode;
+    private Byte civicAddressType;
+    private int sortKey;
 
     /**
      * Creates a new AddressElement with a description, name, and associated language.
@@ -37,6 +51,55 @@ public class AddressElement implements Comparable<AddressElement> {
         nameBuilder = name;
         languageBuilder = language;
         addressElementKeyBuilder = key;
+        nameChars = name;
+        updateSortKey();
+    }
+
+    private AddressElement(AddressElement source) {
+        nameBuilder = new StringBuilder(source.nameBuilder);
+        languageBuilder = new StringBuilder(source.languageBuilder);
+        addressElementKeyBuilder = new StringBuilder(source.addressElementKeyBuilder);
+        nameChars = nameBuilder.toString();
+        languageCode = source.languageCode;
+        civicAddressType = source.civicAddressType;
+        sortKey = source.sortKey;
+    }
+
+    /**
+     * Creates a copy of this address element for a read-only LcrState, with its own StringBuilders
+     *  and handing out its name as an immutable String.
+     *
+     * @return the copy
+     */
+    AddressElement readOnlyCopy() {
+        return new AddressElement(this);
+    }
+
+    /**
+     * Get the StringBuilder holding the name, which identifies this address element in an LcrState.
+     *
+     * @return the name StringBuilder
+     */
+    public StringBuilder getNameBuilder() {
+        return nameBuilder;
+    }
+
+    /**
+     * Get the StringBuilder holding the language, which the view of the address element shares.
+     *
+     * @return the language StringBuilder (e.g. "English")
+     */
+    public StringBuilder getLanguageBuilder() {
+        return languageBuilder;
+    }
+
+    /**
+     * Get the StringBuilder holding the key, which the view of the address element shares.
+     *
+     * @return the key StringBuilder (e.g. "City")
+     */
+    public StringBuilder getKeyBuilder() {
+        return addressElementKeyBuilder;
     }
 
     /**
@@ -45,7 +108,17 @@ public class AddressElement implements Comparable<AddressElement> {
      * @return the String name of the address element (e.g. "New York")
      */
     public String getName() {
-        return nameBuilder.toString();
+        return nameChars.toString();
+    }
+
+    /**
+     * Get the characters of the name of this address element, without copying them. The returned
+     *  sequence changes if the name is edited, so it should not be kept.
+     *
+     * @return the characters of the name of the address element
+     */
+    public CharSequence getNameChars() {
+        return nameChars;
     }
 
     /**
@@ -54,25 +127,48 @@ public class AddressElement implements Comparable<AddressElement> {
      * @return the language code String for this address element's language
      */
     public String getLanguageCode() {
-        return LanguageCodes.getLanguageCode(languageBuilder.toString());
+        return languageCode;
     }
 
     /**
      * Get CA Type encoding for the key of this address element.
      * 
      * @return the Civic Address Type integer for the address element key
+     * @throws NullPointerException if the address element key is not recognized
      */
-    public byte getCivicAddressType() {
-        return CivicAddressElementKeys.getCivicAddressType(this.addressElementKeyBuilder.toString());
+    public byte getCivicAddressType() throws NullPointerException {
+        return civicAddressType;
     }
 
-    @Override
-    public int compareTo(@NotNull AddressElement other) {
-        int languageComparison = this.getLanguageCode().compareTo(other.getLanguageCode());
-        if (languageComparison == 0) {
-            return Integer.compare(this.getCivicAddressType(), other.getCivicAddressType());
+    /**
+     * Checks whether the language and the key of this address element are both recognized, so that
+     *  it can be encoded.
+     *
+     * @return true if the language code and the Civic Address Type are known
+     */
+    public boolean isRecognized() {
+        return languageCode != null && civicAddressType != null;
+    }
+
+    /**
+     * Looks up the language code and Civic Address Type again after the language or key of this
+     *  address element has been edited.
+     */
+    void updateSortKey() {
+        languageCode = LanguageCodes.getLanguageCode(languageBuilder.toString());
+        civicAddressType = CivicAddressElementKeys.findCivicAddressType(addressElementKeyBuilder.toString());
+        if (languageCode == null || languageCode.length() != 2 || civicAddressType == null) {
+            sortKey = UNRESOLVED_SORT_KEY;
         } else {
-            return languageComparison;
+            // Both (ASCII) language code characters, then the CA Type offset to keep its signed order.
+            sortKey = (languageCode.charAt(0) << 16)
+                | (languageCode.charAt(1) << 8)
+                | (civicAddressType - Byte.MIN_VALUE);
         }
     }
+
+    @Override
+    public int compareTo(@NotNull AddressElement other) {
+        return Integer.compare(sortKey, other.sortKey);
+    }
 }
@@ -29,6 +29,9 @@ public enum AltitudeType {
     /** Altitude is in floors. */
     ALTITUDE_IN_FLOORS(2);
 
+    /** All values, cached because values() copies the array on every call. */
+    private static final AltitudeType[] VALUES = values();
+
     private final int value;
 
     AltitudeType(int value) {
@@ -43,4 +46,19 @@ public enum AltitudeType {
     public int getEncoding() {
         return value;
     }
+
+    /**
+     * Get the altitude type represented by an integer encoding.
+     *
+     * @param encoding the integer encoding
+     * @return the altitude type, or null if the encoding does not represent one
+     */
+    public static AltitudeType fromEncoding(int encoding) {
+        for (AltitudeType candidate : VALUES) {
+            if (candidate.value == encoding) {
+                return candidate;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,450 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package structs;
+
+import java.util.EnumSet;
+
+/**
+ * An immutable snapshot of the system state, which encoders, validators and writers can use on
+ * worker threads while the user keeps editing the live ArtSystemState.
+ *
+ * <p>The subelement states of a snapshot are read-only copies. Snapshots are built with a
+ * {@link Builder}, which shares the copies of a previous snapshot and only copies the subelement
+ * states that changed since then (according to their modification counts), so taking a snapshot
+ * after each edit is cheap.
+ */
+public final class ArtSystemSnapshot {
+
+    private static final int SUBELEMENT_COUNT = SubelementName.values().length;
+
+    /** The read-only subelement states, indexed by SubelementName ordinal. */
+    private final SubelementState[] states;
+
+    /**
+     * The live states that the read-only states were copied from, and their modification counts at
+     *  the time, used by {@link Builder#update(ArtSystemState)} to tell which states changed. They
+     *  are only compared, never read, so they do not need to be thread-safe.
+     */
+    private final SubelementState[] sources;
+    private final int[] sourceModCounts;
+
+    private final EnumSet<SubelementName> includedSubelements;
+    private final String inputFileName;
+    private final String inputDir;
+    private final String outputFileName;
+    private final String outputDir;
+    private final boolean readable;
+    private final boolean androidVersionAtLeastS;
+
+    private ArtSystemSnapshot(Builder builder) {
+        states = builder.states.clone();
+        sources = builder.sources.clone();
+        sourceModCounts = builder.sourceModCounts.clone();
+        includedSubelements = EnumSet.copyOf(builder.includedSubelements);
+        inputFileName = builder.inputFileName;
+        inputDir = builder.inputDir;
+        outputFileName = builder.outputFileName;
+        outputDir = builder.outputDir;
+        readable = builder.readable;
+        androidVersionAtLeastS = builder.androidVersionAtLeastS;
+    }
+
+    /**
+     * Takes a snapshot of a system state.
+     *
+     * @param state the system state
+     * @return the snapshot
+     */
+    public static ArtSystemSnapshot of(ArtSystemState state) {
+        return new Builder().update(state).build();
+    }
+
+    /**
+     * Takes a new snapshot of a system state, sharing the read-only copies of this snapshot for
+     *  the subelement states that have not changed since it was taken.
+     *
+     * @param state the system state, usually the one this snapshot was taken from
+     * @return the new snapshot
+     */
+    public ArtSystemSnapshot update(ArtSystemState state) {
+        return toBuilder().update(state).build();
+    }
+
+    /**
+     * Gets a builder for a new snapshot with default values.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets a builder for a new snapshot, starting from the values of this snapshot.
+     *
+     * @return the builder
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Gets the read-only subelement state for the LCI subelement.
+     *
+     * @return the LCI subelement state
+     */
+    public LciState getLciState() {
+        return (LciState) states[SubelementName.LCI.ordinal()];
+    }
+
+    /**
+     * Gets the read-only subelement state for the Z subelement.
+     *
+     * @return the Z subelement state
+     */
+    public ZState getZState() {
+        return (ZState) states[SubelementName.Z.ordinal()];
+    }
+
+    /**
+     * Gets the read-only subelement state for the Usage Rules/Policy subelement.
+     *
+     * @return the Usage Rules/Policy subelement state
+     */
+    public UsageState getUsageState() {
+        return (UsageState) states[SubelementName.USAGE.ordinal()];
+    }
+
+    /**
+     * Gets the read-only subelement state for the BSSID List subelement.
+     *
+     * @return the BSSID List subelement state
+     */
+    public BssidState getBssidState() {
+        return (BssidState) states[SubelementName.BSSID.ordinal()];
+    }
+
+    /**
+     * Gets the read-only subelement state for the Location Civic subelement.
+     *
+     * @return the Location Civic subelement state
+     */
+    public LcrState getLcrState() {
+        return (LcrState) states[SubelementName.LCR.ordinal()];
+    }
+
+    /**
+     * Gets the read-only subelement state for the Map Image subelement.
+     *
+     * @return the Map Image subelement state
+     */
+    public MapState getMapState() {
+        return (MapState) states[SubelementName.MAP.ordinal()];
+    }
+
+    /**
+     * Gets whether or not a given subelement is to be included in the output.
+     *
+     * @param subelementName the subelement being inquired about
+     * @return whether or not the given subelement should be included in the output
+     */
+    public boolean isSubelementIncluded(SubelementName subelementName) {
+        return includedSubelements.contains(subelementName);
+    }
+
+    /**
+     * Gets whether or not the output should be displayed in a readable format.
+     *
+     * @return whether or not the buffer display should be readable
+     */
+    public boolean isReadable() {
+        return readable;
+    }
+
+    /**
+     * Gets whether or not the android version is S or later.
+     *
+     * @return whether or not the Android version used is at least S
+     */
+    public boolean isAndroidVersionAtLeastS() {
+        return androidVersionAtLeastS;
+    }
+
+    /**
+     * Gets the input file name.
+     *
+     * @return the input file name
+     */
+    public String getInputFileName() {
+        return inputFileName;
+    }
+
+    /**
+     * Gets the input file directory.
+     *
+     * @return the input file directory
+     */
+    public String getInputDir() {
+        return inputDir;
+    }
+
+    /**
+     * Gets the output file name.
+     *
+     * @return the output file name
+     */
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    /**
+     * Gets the output file directory.
+     *
+     * @return the output file directory
+     */
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * Builds snapshots. Setting a subelement state stores a read-only copy of it, unless it is
+     *  already read-only or is the same unchanged state that the current copy was taken from.
+     */
+    public static final class Builder {
+        private final SubelementState[] states = new SubelementState[SUBELEMENT_COUNT];
+        private final SubelementState[] sources = new SubelementState[SUBELEMENT_COUNT];
+        private final int[] sourceModCounts = new int[SUBELEMENT_COUNT];
+        private final EnumSet<SubelementName> includedSubelements = EnumSet.noneOf(SubelementName.class);
+        private String inputFileName = "";
+        private String inputDir = "";
+        private String outputFileName = "";
+        private String outputDir = "";
+        private boolean readable;
+        private boolean androidVersionAtLeastS;
+
+        private Builder() {
+            states[SubelementName.LCI.ordinal()] = new LciState().readOnlyCopy();
+            states[SubelementName.Z.ordinal()] = new ZState().readOnlyCopy();
+            states[SubelementName.USAGE.ordinal()] = new UsageState().readOnlyCopy();
+            states[SubelementName.BSSID.ordinal()] = new BssidState().readOnlyCopy();
+            states[SubelementName.LCR.ordinal()] = new LcrState().readOnlyCopy();
+            states[SubelementName.MAP.ordinal()] = new MapState().readOnlyCopy();
+        }
+
+        private Builder(ArtSystemSnapshot snapshot) {
+            System.arraycopy(snapshot.states, 0, states, 0, SUBELEMENT_COUNT);
+            System.arraycopy(snapshot.sources, 0, sources, 0, SUBELEMENT_COUNT);
+            System.arraycopy(snapshot.sourceModCounts, 0, sourceModCounts, 0, SUBELEMENT_COUNT);
+            includedSubelements.addAll(snapshot.includedSubelements);
+            inputFileName = snapshot.inputFileName;
+            inputDir = snapshot.inputDir;
+            outputFileName = snapshot.outputFileName;
+            outputDir = snapshot.outputDir;
+            readable = snapshot.readable;
+            androidVersionAtLeastS = snapshot.androidVersionAtLeastS;
+        }
+
+        /**
+         * Sets every value from a system state.
+         *
+         * @param state the system state
+         * @return this builder
+         */
+        public Builder update(ArtSystemState state) {
+            setLciState(state.getLciState());
+            setZState(state.getZState());
+            setUsageState(state.getUsageState());
+            setBssidState(state.getBssidState());
+            setLcrState(state.getLcrState());
+            setMapState(state.getMapState());
+            for (SubelementName subelementName : SubelementName.values()) {
+                setSubelementIncluded(subelementName, state.isSubelementIncluded(subelementName));
+            }
+            inputFileName = state.getInputFileName();
+            inputDir = state.getInputDir();
+            outputFileName = state.getOutputFileName();
+            outputDir = state.getOutputDir();
+            readable = state.isReadable();
+            androidVersionAtLeastS = state.isAndroidVersionAtLeastS();
+            return this;
+        }
+
+        /**
+         * Sets the subelement state for the LCI subelement.
+         *
+         * @param lciState the LCI subelement state, copied unless it is read-only
+         * @return this builder
+         */
+        public Builder setLciState(LciState lciState) {
+            return setState(SubelementName.LCI, lciState);
+        }
+
+        /**
+         * Sets the subelement state for the Z subelement.
+         *
+         * @param zState the Z subelement state, copied unless it is read-only
+         * @return this builder
+         */
+        public Builder setZState(ZState zState) {
+            return setState(SubelementName.Z, zState);
+        }
+
+        /**
+         * Sets the subelement state for the Usage Rules/Policy subelement.
+         *
+         * @param usageState the Usage Rules/Policy subelement state, copied unless it is read-only
+         * @return this builder
+         */
+        public Builder setUsageState(UsageState usageState) {
+            return setState(SubelementName.USAGE, usageState);
+        }
+
+        /**
+         * Sets the subelement state for the BSSID List subelement.
+         *
+         * @param bssidState the BSSID List subelement state, copied unless it is read-only
+         * @return this builder
+         */
+        public Builder setBssidState(BssidState bssidState) {
+            return setState(SubelementName.BSSID, bssidState);
+        }
+
+        /**
+         * Sets the subelement state for the Location Civic subelement.
+         *
+         * @param lcrState the Location Civic subelement state, copied unless it is read-only
+         * @return this builder
+         */
+        public Builder setLcrState(LcrState lcrState) {
+            return setState(SubelementName.LCR, lcrState);
+        }
+
+        /**
+         * Sets the subelement state for the Map Image subelement.
+         *
+         * @param mapState the Map Image subelement state, copied unless it is read-only
+         * @return this builder
+         */
+        public Builder setMapState(MapState mapState) {
+            return setState(SubelementName.MAP, mapState);
+        }
+
+        private Builder setState(SubelementName subelementName, SubelementState state) {
+            int index = subelementName.ordinal();
+            if (state.isReadOnly()) {
+                states[index] = state;
+                sources[index] = null;
+            } else if (state != sources[index] || state.getModCount() != sourceModCounts[index]) {
+                states[index] = state.readOnlyCopy();
+                sources[index] = state;
+                sourceModCounts[index] = state.getModCount();
+            }
+            return this;
+        }
+
+        /**
+         * Sets whether or not a given subelement is to be included in the output.
+         *
+         * @param subelementName the subelement
+         * @param included whether or not the subelement should be included in the output
+         * @return this builder
+         */
+        public Builder setSubelementIncluded(SubelementName subelementName, boolean included) {
+            if (included) {
+                includedSubelements.add(subelementName);
+            } else {
+                includedSubelements.remove(subelementName);
+            }
+            return this;
+        }
+
+        /**
+         * Sets whether or not the output should be displayed in a readable format.
+         *
+         * @param readable whether or not the buffer should be readable
+         * @return this builder
+         */
+        public Builder setReadable(boolean readable) {
+            this.readable = readable;
+            return this;
+        }
+
+        /**
+         * Sets whether or not the android version is S or later.
+         *
+         * @param androidVersionAtLeastS whether or not Android version is used is at least S
+         * @return this builder
+         */
+        public Builder setAndroidVersionAtLeastS(boolean androidVersionAtLeastS) {
+            this.androidVersionAtLeastS = androidVersionAtLeastS;
+            return this;
+        }
+
+        /**
+         * Sets the input file name.
+         *
+         * @param inputFileName the input file name
+         * @return this builder
+         */
+        public Builder setInputFileName(String inputFileName) {
+            this.inputFileName = inputFileName;
+            return this;
+        }
+
+        /**
+         * Sets the input file directory.
+         *
+         * @param inputDir the input file directory
+         * @return this builder
+         */
+        public Builder setInputDir(String inputDir) {
+            this.inputDir = inputDir;
+            return this;
+        }
+
+        /**
+         * Sets the output file name.
+         *
+         * @param outputFileName the output file name
+         * @return this builder
+         */
+        public Builder setOutputFileName(String outputFileName) {
+            this.outputFileName = outputFileName;
+            return this;
+        }
+
+        /**
+         * Sets the output file directory.
+         *
+         * @param outputDir the output file directory
+         * @return this builder
+         */
+        public Builder setOutputDir(String outputDir) {
+            this.outputDir = outputDir;
+            return this;
+        }
+
+        /**
+         * Builds the snapshot. The builder can be reused afterwards.
+         *
+         * @return the immutable snapshot
+         */
+        public ArtSystemSnapshot build() {
+            return new ArtSystemSnapshot(this);
+        }
+    }
+}
@@ -203,6 +203,53 @@ public class ArtSystemState {
         return readable;
     }
 
+    /**
+     * Gets whether or not the android version is S or later.
+     *
+     * @return whether or not the Android version used is at least S
+     */
+    public boolean isAndroidVersionAtLeastS() {
+        return androidVersionAtLeastS;
+    }
+
+    // Getters for the input and output files
+
+    /**
+     * Gets the input file name.
+     *
+     * @return the input file name
+     */
+    public String getInputFileName() {
+        return inputFileName;
+    }
+
+    /**
+     * Gets the input file directory.
+     *
+     * @return the input file directory
+     */
+    public String getInputDir() {
+        return inputDir;
+    }
+
+    /**
+     * Gets the output file name.
+     *
+     * @return the output file name
+     */
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    /**
+     * Gets the output file directory.
+     *
+     * @return the output file directory
+     */
+    public String getOutputDir() {
+        return outputDir;
+    }
+
     // Setters for the subelement states
 
     /**
@@ -16,14 +16,17 @@ limitations under the License.
 
 package structs;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
  * The state representation for the BSSID List subelement.
  */
-public class BssidState {
+public class BssidState extends SubelementState {
 
     private static final int BSSID_LENGTH = 6; // length in bytes
     private static final int MAX_BSSID_LIST_SIZE = 42;
@@ -35,7 +38,12 @@ public class BssidState {
     private int maxBssidIndicator;
 
     public BssidState() {
-        bssidList = new HashSet<>();
+        this(false);
+    }
+
+    private BssidState(boolean readOnly) {
+        super(readOnly);
+        bssidList = readOnly ? new LinkedHashSet<>() : new HashSet<>();
     }
 
     /**
@@ -46,6 +54,7 @@ public class BssidState {
      * @throws IndexOutOfBoundsException if the BSSID list cannot be expanded any more
      */
     public void addBssid(String bssidString) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkWritable();
         if (bssidList.size() == MAX_BSSID_LIST_SIZE) {
             throw new IndexOutOfBoundsException();
         }
@@ -54,6 +63,23 @@ public class BssidState {
         }
         byte[] bssid = getBssidFromString(bssidString);
         bssidList.add(bssid);
+        markModified();
+    }
+
+    /**
+     * Adds a BSSID to the list from its 6-byte representation.
+     *
+     * @param bssid the array holding the BSSID
+     * @param offset the index of the first byte of the BSSID in the array
+     * @throws IndexOutOfBoundsException if the BSSID list cannot be expanded any more
+     */
+    public void addBssid(byte[] bssid, int offset) throws IndexOutOfBoundsException {
+        checkWritable();
+        if (bssidList.size() == MAX_BSSID_LIST_SIZE) {
+            throw new IndexOutOfBoundsException();
+        }
+        bssidList.add(Arrays.copyOfRange(bssid, offset, offset + BSSID_LENGTH));
+        markModified();
     }
 
     /**
@@ -62,7 +88,10 @@ public class BssidState {
      * @param bssid the BSSID to be removed
      */
     public void removeBssid(String bssid) {
-        bssidList.remove(bssid);
+        checkWritable();
+        if (bssidList.remove(bssid)) {
+            markModified();
+        }
     }
 
     /**
@@ -73,6 +102,7 @@ public class BssidState {
      * @throws IllegalArgumentException if the new BSSID is incorrectly formatted
      */
     public void editBssid(String oldBssid, String newBssid) throws IllegalArgumentException {
+        checkWritable();
         removeBssid(oldBssid);
         addBssid(newBssid);
     }
@@ -84,19 +114,31 @@ public class BssidState {
      * @throws NumberFormatException if the value is outside the acceptable range
      */
     public void setMaxBssidIndicator(int maxBssidIndicator) throws NumberFormatException {
+        checkWritable();
         if (maxBssidIndicator > MAX_FOR_MAX_BSSID_INDICATOR
             || maxBssidIndicator < MIN_FOR_MAX_BSSID_INDICATOR) {
             throw new NumberFormatException();
         }
-        this.maxBssidIndicator = maxBssidIndicator;
+        if (this.maxBssidIndicator != maxBssidIndicator) {
+            this.maxBssidIndicator = maxBssidIndicator;
+            markModified();
+        }
     }
 
     /**
      * Get the list of BSSIDs.
      *
-     * @return the list of BSSIDs, represented as 6-byte arrays
+     * @return the list of BSSIDs, represented as 6-byte arrays (for a read-only copy, an
+     *         unmodifiable set of copies of the arrays, in the same order on every call)
      */
     public Set<byte[]> getBssidList() {
+        if (isReadOnly()) {
+            Set<byte[]> copies = new LinkedHashSet<>();
+            for (byte[] bssid : bssidList) {
+                copies.add(bssid.clone());
+            }
+            return Collections.unmodifiableSet(copies);
+        }
         return bssidList;
     }
 
@@ -118,4 +160,17 @@ public class BssidState {
         }
         return result;
     }
+
+    @Override
+    public BssidState readOnlyCopy() {
+        if (isReadOnly()) {
+            return this;
+        }
+        BssidState copy = new BssidState(true);
+        for (byte[] bssid : bssidList) {
+            copy.bssidList.add(bssid.clone());
+        }
+        copy.maxBssidIndicator = maxBssidIndicator;
+        return copy;
+    }
 }
@@ -81,6 +81,20 @@ public class CivicAddressElementKeys {
 
     private static final HashMap<String, Byte> KEY_TO_CA_TYPE_MAP = getKeyToCaTypeMap();
 
+    /**
+     * The keys reported for Civic Address Types shared by several keys, following the order in
+     * which RFC 4776 lists them. Other shared types use the first key in the table.
+     */
+    private static final String[] PREFERRED_KEYS = {"State", "County", "City", "City Division", "Neighborhood"};
+
+    private static final HashMap<Byte, String> CA_TYPE_TO_KEY_MAP = getCaTypeToKeyMap();
+
+    /**
+     * Whether each Civic Address Type describes a position within a building: additional location
+     * information, occupant name, unit, floor, room and seat.
+     */
+    private static final boolean[] WITHIN_BUILDING = getWithinBuildingTable(22, 23, 26, 27, 28, 33);
+
     // Private constructor to avoid instance creation.
     private CivicAddressElementKeys() {}
 
@@ -137,6 +151,22 @@ public class CivicAddressElementKeys {
         return map;
     }
 
+    /**
+     * Constructs a HashMap mapping each CA Type encoding to a single address element key.
+     *
+     * @return the HashMap with Civic Address Type bytes mapped to address element keys
+     */
+    private static HashMap<Byte, String> getCaTypeToKeyMap() {
+        HashMap<Byte, String> map = new HashMap<>();
+        for (AddressElementKey addressElementKey : CIVIC_ADDRESS_TYPE_LIST) {
+            map.putIfAbsent(addressElementKey.caType, addressElementKey.name);
+        }
+        for (String preferredKey : PREFERRED_KEYS) {
+            map.put(KEY_TO_CA_TYPE_MAP.get(preferredKey), preferredKey);
+        }
+        return map;
+    }
+
     /**
      * Get the Civic Address Type integer encoding associated with a given address element key.
      *
@@ -146,4 +176,43 @@ public class CivicAddressElementKeys {
     public static byte getCivicAddressType(String addressElementKey) {
         return KEY_TO_CA_TYPE_MAP.get(addressElementKey);
     }
+
+    /**
+     * Find the Civic Address Type encoding associated with a given address element key, if any.
+     *
+     * @param addressElementKey the String address element key (e.g. "City")
+     * @return the Civic Address Type encoding, or null if the key is not recognized
+     */
+    static Byte findCivicAddressType(String addressElementKey) {
+        return KEY_TO_CA_TYPE_MAP.get(addressElementKey);
+    }
+
+    /**
+     * Get an address element key associated with a given Civic Address Type encoding.
+     *
+     * @param caType the Civic Address Type encoding
+     * @return the String address element key (e.g. "City"), or null if the type is not recognized
+     */
+    public static String getAddressElementKey(byte caType) {
+        return CA_TYPE_TO_KEY_MAP.get(caType);
+    }
+
+    private static boolean[] getWithinBuildingTable(int... caTypes) {
+        boolean[] table = new boolean[256];
+        for (int caType : caTypes) {
+            table[caType] = true;
+        }
+        return table;
+    }
+
+    /**
+     * Check whether a Civic Address Type describes a position within a building (e.g. the floor or
+     *  room), rather than the building itself, which the access points of a building share.
+     *
+     * @param caType the Civic Address Type encoding
+     * @return true if the Civic Address Type describes a position within a building
+     */
+    public static boolean isWithinBuilding(byte caType) {
+        return WITHIN_BUILDING[caType & 0xff];
+    }
 }
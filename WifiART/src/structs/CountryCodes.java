@@ -286,6 +286,8 @@ public class CountryCodes {
      */
     public static final HashMap<String, String> COUNTRY_NAMES_TO_CODES_MAP = getCountryNamesToCodesMap();
 
+    private static final HashMap<String, String> COUNTRY_CODES_TO_NAMES_MAP = getCountryCodesToNamesMap();
+
     // Private constructor to avoid instance creation.
     private CountryCodes() {}
 
@@ -317,4 +319,26 @@ public class CountryCodes {
         return countryNamesToCodesMap;
     }
 
+    /**
+     * Constructs a HashMap with country codes as keys and country names as values.
+     *
+     * @return the HashMap mapping country codes to country names
+     */
+    private static HashMap<String, String> getCountryCodesToNamesMap() {
+        HashMap<String, String> countryCodesToNamesMap = new HashMap<>();
+        for (String[] countryNameAndCode : COUNTRIES_NAMES_AND_CODES) {
+            countryCodesToNamesMap.put(countryNameAndCode[1], countryNameAndCode[0]);
+        }
+        return countryCodesToNamesMap;
+    }
+
+    /**
+     * Get the country name associated with a given country code.
+     *
+     * @param countryCode the 2-letter country code according to ISO-3166
+     * @return the country name, or null if the code is not recognized
+     */
+    public static String getCountryName(String countryCode) {
+        return COUNTRY_CODES_TO_NAMES_MAP.get(countryCode);
+    }
 }
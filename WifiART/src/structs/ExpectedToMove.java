@@ -31,6 +31,9 @@ public enum ExpectedToMove {
     /** Unknown movement pattern */
     MOVEMENT_UNKNOWN(2);
 
+    /** All values, cached because values() copies the array on every call. */
+    private static final ExpectedToMove[] VALUES = values();
+
     private final int value;
 
     ExpectedToMove(int value) {
@@ -45,4 +48,19 @@ public enum ExpectedToMove {
     public int getEncoding() {
         return value;
     }
+
+    /**
+     * Get the ExpectedToMove parameter represented by an integer encoding.
+     *
+     * @param encoding the integer encoding
+     * @return the ExpectedToMove parameter, or null if the encoding does not represent one
+     */
+    public static ExpectedToMove fromEncoding(int encoding) {
+        for (ExpectedToMove candidate : VALUES) {
+            if (candidate.value == encoding) {
+                return candidate;
+            }
+        }
+        return null;
+    }
 }
@@ -93,4 +93,17 @@ public class ImageTypes {
     public static byte getImageTypeEncoding(String imageType) throws NullPointerException {
         return IMAGE_TYPES_MAP.get(imageType);
     }
+
+    /**
+     * Get the image type String for a given integer encoding.
+     *
+     * @param imageTypeEncoding the integer encoding for the image file type
+     * @return the String representing the image file format, or null if the encoding is not one of the options
+     */
+    public static String getImageType(int imageTypeEncoding) {
+        if (imageTypeEncoding < 0 || imageTypeEncoding >= IMAGE_TYPES.length) {
+            return null;
+        }
+        return IMAGE_TYPES[imageTypeEncoding];
+    }
 }
@@ -219,6 +219,8 @@ public class LanguageCodes {
      */
     public static final HashMap<String, String> LANGUAGE_NAMES_TO_CODES_MAP = getLanguageNamesToCodesMap();
 
+    private static final HashMap<String, String> LANGUAGE_CODES_TO_NAMES_MAP = getLanguageCodesToNamesMap();
+
     // Private constructor to avoid instance creation.
     private LanguageCodes() {}
 
@@ -251,6 +253,19 @@ public class LanguageCodes {
         return languageNamesToCodesMap;
     }
 
+    /**
+     * Constructs a HashMap with 2-letter language codes as keys and language names as values.
+     *
+     * @return the HashMap mapping language codes to language names
+     */
+    private static HashMap<String, String> getLanguageCodesToNamesMap() {
+        HashMap<String, String> languageCodesToNamesMap = new HashMap<>();
+        for (String[] languageNameAndCode : LANGUAGE_NAMES_AND_CODES) {
+            languageCodesToNamesMap.put(languageNameAndCode[1], languageNameAndCode[0]);
+        }
+        return languageCodesToNamesMap;
+    }
+
     /**
      * Get the language code associated with a given language.
      *
@@ -260,4 +275,14 @@ public class LanguageCodes {
     public static String getLanguageCode(String language) {
         return LANGUAGE_NAMES_TO_CODES_MAP.get(language);
     }
+
+    /**
+     * Get the language associated with a given language code.
+     *
+     * @param languageCode the 2-letter language code according to ISO 639-1
+     * @return the String language name, or null if the code is not recognized
+     */
+    public static String getLanguageName(String languageCode) {
+        return LANGUAGE_CODES_TO_NAMES_MAP.get(languageCode);
+    }
 }
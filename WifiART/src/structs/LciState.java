@@ -16,7 +16,7 @@ limitations under the License.
 
 package structs;
 
-public class LciState {
+public class LciState extends SubelementState {
     // Constants
     private static final int DEFAULT_LCI_VERSION = 1;
     private static final AltitudeType DEFAULT_ALTITUDE_TYPE = AltitudeType.NO_KNOWN_ALTITUDE;
@@ -64,6 +64,11 @@ public class LciState {
      * Constructs an LciState, assigning default values when needed.
      */
     public LciState() {
+        this(false);
+    }
+
+    private LciState(boolean readOnly) {
+        super(readOnly);
         lciVersion = DEFAULT_LCI_VERSION;
         altitudeType = DEFAULT_ALTITUDE_TYPE;
         mapDatum = DEFAULT_MAP_DATUM;
@@ -193,7 +198,11 @@ public class LciState {
      * @param lciVersion the LCI version
      */
     public void setLciVersion(int lciVersion) {
-        this.lciVersion = lciVersion;
+        checkWritable();
+        if (this.lciVersion != lciVersion) {
+            this.lciVersion = lciVersion;
+            markModified();
+        }
     }
 
     /**
@@ -202,10 +211,14 @@ public class LciState {
      * @param latitude the latitude, in degrees
      */
     public void setLatitude(double latitude) {
+        checkWritable();
         if (latitude < MIN_LATITUDE || latitude > MAX_LATITUDE) {
             throw new NumberFormatException("Latitude");
         }
-        this.latitude = latitude;
+        if (Double.compare(this.latitude, latitude) != 0) {
+            this.latitude = latitude;
+            markModified();
+        }
     }
 
     /**
@@ -214,7 +227,11 @@ public class LciState {
      * @param latitudeUncertainty the latitude uncertainty, in degrees
      */
     public void setLatitudeUncertainty(double latitudeUncertainty) {
-        this.latitudeUncertainty = latitudeUncertainty;
+        checkWritable();
+        if (Double.compare(this.latitudeUncertainty, latitudeUncertainty) != 0) {
+            this.latitudeUncertainty = latitudeUncertainty;
+            markModified();
+        }
     }
 
     /**
@@ -223,10 +240,14 @@ public class LciState {
      * @param longitude the longitude, in degrees
      */
     public void setLongitude(double longitude) {
+        checkWritable();
         if (longitude < MIN_LONGITUDE || longitude > MAX_LONGITUDE) {
             throw new NumberFormatException();
         }
-        this.longitude = longitude;
+        if (Double.compare(this.longitude, longitude) != 0) {
+            this.longitude = longitude;
+            markModified();
+        }
     }
 
     /**
@@ -235,7 +256,11 @@ public class LciState {
      * @param longitudeUncertainty the longitude uncertainty, in degrees
      */
     public void setLongitudeUncertainty(double longitudeUncertainty) {
-        this.longitudeUncertainty = longitudeUncertainty;
+        checkWritable();
+        if (Double.compare(this.longitudeUncertainty, longitudeUncertainty) != 0) {
+            this.longitudeUncertainty = longitudeUncertainty;
+            markModified();
+        }
     }
 
     /**
@@ -244,10 +269,14 @@ public class LciState {
      * @param altitude the altitude, in meters or floors
      */
     public void setAltitude(double altitude) {
+        checkWritable();
         if (altitude < -MAX_ALTITUDE_MAGNITUDE || altitude >= MAX_ALTITUDE_MAGNITUDE) {
             throw new NumberFormatException();
         }
-        this.altitude = altitude;
+        if (Double.compare(this.altitude, altitude) != 0) {
+            this.altitude = altitude;
+            markModified();
+        }
     }
 
     /**
@@ -256,7 +285,11 @@ public class LciState {
      * @param altitudeUncertainty the altitude uncertainty, in meters or floors
      */
     public void setAltitudeUncertainty(double altitudeUncertainty) {
-        this.altitudeUncertainty = altitudeUncertainty;
+        checkWritable();
+        if (Double.compare(this.altitudeUncertainty, altitudeUncertainty) != 0) {
+            this.altitudeUncertainty = altitudeUncertainty;
+            markModified();
+        }
     }
 
     /**
@@ -265,7 +298,11 @@ public class LciState {
      * @param altitudeType the altitude type (meters, floors, or no known altitude)
      */
     public void setAltitudeType(AltitudeType altitudeType) {
-        this.altitudeType = altitudeType;
+        checkWritable();
+        if (this.altitudeType != altitudeType) {
+            this.altitudeType = altitudeType;
+            markModified();
+        }
     }
 
     /**
@@ -274,7 +311,11 @@ public class LciState {
      * @param mapDatum the map datum
      */
     public void setMapDatum(MapDatum mapDatum) {
-        this.mapDatum = mapDatum;
+        checkWritable();
+        if (this.mapDatum != mapDatum) {
+            this.mapDatum = mapDatum;
+            markModified();
+        }
     }
 
     /**
@@ -285,7 +326,11 @@ public class LciState {
      * @param regLocAgreement the boolean value of the parameter.
      */
     public void setRegLocAgreement(boolean regLocAgreement) {
-        this.regLocAgreement = regLocAgreement;
+        checkWritable();
+        if (this.regLocAgreement != regLocAgreement) {
+            this.regLocAgreement = regLocAgreement;
+            markModified();
+        }
     }
 
     /**
@@ -295,7 +340,11 @@ public class LciState {
      * @param regLocDse the boolean value of the parameter.
      */
     public void setRegLocDse(boolean regLocDse) {
-        this.regLocDse = regLocDse;
+        checkWritable();
+        if (this.regLocDse != regLocDse) {
+            this.regLocDse = regLocDse;
+            markModified();
+        }
     }
 
     /**
@@ -305,8 +354,31 @@ public class LciState {
      * @param dependentSta the boolean value of the parameter.
      */
     public void setDependentSta(boolean dependentSta) {
-        this.dependentSta = dependentSta;
+        checkWritable();
+        if (this.dependentSta != dependentSta) {
+            this.dependentSta = dependentSta;
+            markModified();
+        }
     }
 
-
+    @Override
+    public LciState readOnlyCopy() {
+        if (isReadOnly()) {
+            return this;
+        }
+        LciState copy = new LciState(true);
+        copy.lciVersion = lciVersion;
+        copy.latitude = latitude;
+        copy.latitudeUncertainty = latitudeUncertainty;
+        copy.longitude = longitude;
+        copy.longitudeUncertainty = longitudeUncertainty;
+        copy.altitude = altitude;
+        copy.altitudeUncertainty = altitudeUncertainty;
+        copy.altitudeType = altitudeType;
+        copy.mapDatum = mapDatum;
+        copy.regLocAgreement = regLocAgreement;
+        copy.regLocDse = regLocDse;
+        copy.dependentSta = dependentSta;
+        return copy;
+    }
 }
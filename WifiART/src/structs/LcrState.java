@@ -17,22 +17,36 @@ limitations under the License.
 package structs;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * The state representation for the Location Civic subelement.
+ *
+ * <p>The address elements are kept sorted in encoding order (by language code, then by Civic
+ * Address Type) as they are added, so that encoding does not need to sort them again.
  */
-public class LcrState {
+public class LcrState extends SubelementState {
 
     private String country;
     private final HashMap<StringBuilder, AddressElement> addressElements;
+    private final List<AddressElement> sortedAddressElements;
+    private final List<AddressElement> sortedAddressElementsView;
 
     /**
      * Constructs a LcrState to represent the value of the Location Civic subelement.
      */
     public LcrState() {
+        this(false);
+    }
+
+    private LcrState(boolean readOnly) {
+        super(readOnly);
         addressElements = new HashMap<>();
+        sortedAddressElements = new ArrayList<>();
+        sortedAddressElementsView = Collections.unmodifiableList(sortedAddressElements);
     }
 
     /**
@@ -41,7 +55,11 @@ public class LcrState {
      * @param country the name of the country where the access point is located
      */
     public void setCountry(String country) {
-        this.country = country;
+        checkWritable();
+        if (!Objects.equals(this.country, country)) {
+            this.country = country;
+            markModified();
+        }
     }
 
     /**
@@ -52,7 +70,32 @@ public class LcrState {
      * @param addressType the StringBuilder for the address type (state, city, etc.) of the address element
      */
     public void addAddressElement(StringBuilder name, StringBuilder language, StringBuilder addressType) {
-        addressElements.put(name, new AddressElement(name, language, addressType));
+        checkWritable();
+        AddressElement addressElement = new AddressElement(name, language, addressType);
+        AddressElement replacedAddressElement = addressElements.put(name, addressElement);
+        if (replacedAddressElement != null) {
+            sortedAddressElements.remove(replacedAddressElement);
+        }
+        insertSorted(addressElement);
+        markModified();
+    }
+
+    /**
+     * Update an address element after its name, language or address type was edited, moving it to
+     *  its new position in the sorted list.
+     *
+     * @param addressElementName the StringBuilder for the name of the edited address element
+     */
+    public void updateAddressElement(StringBuilder addressElementName) {
+        checkWritable();
+        AddressElement addressElement = addressElements.get(addressElementName);
+        if (addressElement == null) {
+            return;
+        }
+        sortedAddressElements.remove(addressElement);
+        addressElement.updateSortKey();
+        insertSorted(addressElement);
+        markModified();
     }
 
     /**
@@ -61,7 +104,32 @@ public class LcrState {
      * @param addressElementName the StringBuilder for the name of the address element to be removed
      */
     public void removeAddressElement(StringBuilder addressElementName) {
-        addressElements.remove(addressElementName);
+        checkWritable();
+        AddressElement removedAddressElement = addressElements.remove(addressElementName);
+        if (removedAddressElement != null) {
+            sortedAddressElements.remove(removedAddressElement);
+            markModified();
+        }
+    }
+
+    /**
+     * Inserts an address element into the sorted list, after any elements that compare equal to it
+     *  so that elements with the same language and type keep the order they were added in.
+     *
+     * @param addressElement the address element to insert
+     */
+    private void insertSorted(AddressElement addressElement) {
+        int low = 0;
+        int high = sortedAddressElements.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedAddressElements.get(middle).compareTo(addressElement) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        sortedAddressElements.add(low, addressElement);
     }
 
 
@@ -75,15 +143,26 @@ public class LcrState {
     }
 
     /**
-     * Get the list of address elements.
+     * Get the list of address elements, sorted by language code and then by Civic Address Type.
      *
-     * @return a List containing all AddressElements
+     * @return an unmodifiable List containing all AddressElements
      */
     public List<AddressElement> getAddressElementsList() {
-        List<AddressElement> addressElementsList = new ArrayList<>();
-        for (StringBuilder key : addressElements.keySet()) {
-            addressElementsList.add(addressElements.get(key));
+        return sortedAddressElementsView;
+    }
+
+    @Override
+    public LcrState readOnlyCopy() {
+        if (isReadOnly()) {
+            return this;
+        }
+        LcrState copy = new LcrState(true);
+        copy.country = country;
+        for (AddressElement addressElement : sortedAddressElements) {
+            AddressElement elementCopy = addressElement.readOnlyCopy();
+            copy.addressElements.put(elementCopy.getNameBuilder(), elementCopy);
+            copy.sortedAddressElements.add(elementCopy); // Already in sorted order
         }
-        return addressElementsList;
+        return copy;
     }
 }
@@ -36,6 +36,9 @@ public enum MapDatum {
      */
     NAD83_MLLW(3);
 
+    /** All values, cached because values() copies the array on every call. */
+    private static final MapDatum[] VALUES = values();
+
     private final int value;
 
     MapDatum(int value) {
@@ -51,4 +54,18 @@ public enum MapDatum {
         return value;
     }
 
+    /**
+     * Get the map datum represented by an integer encoding.
+     *
+     * @param encoding the integer encoding
+     * @return the map datum, or null if the encoding does not represent one
+     */
+    public static MapDatum fromEncoding(int encoding) {
+        for (MapDatum candidate : VALUES) {
+            if (candidate.value == encoding) {
+                return candidate;
+            }
+        }
+        return null;
+    }
 }
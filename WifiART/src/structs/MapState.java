@@ -16,14 +16,25 @@ limitations under the License.
 
 package structs;
 
+import java.util.Objects;
+
 /**
  * The state representation for the Map Image subelement.
  */
-public class MapState {
+public class MapState extends SubelementState {
 
     private String mapType;
     private String mapUrl;
 
+    /**
+     * Constructs a MapState, without setting values.
+     */
+    public MapState() {}
+
+    private MapState(boolean readOnly) {
+        super(readOnly);
+    }
+
     /**
      * Get the Map Type parameter, which represents image file format for the map image.
      *
@@ -48,7 +59,11 @@ public class MapState {
      * @param mapType The image file format for the map image
      */
     public void setMapType(String mapType) {
-        this.mapType = mapType;
+        checkWritable();
+        if (!Objects.equals(this.mapType, mapType)) {
+            this.mapType = mapType;
+            markModified();
+        }
     }
 
     /**
@@ -57,6 +72,21 @@ public class MapState {
      * @param mapUrl the URL location of the map image file
      */
     public void setMapUrl(String mapUrl) {
-        this.mapUrl = mapUrl;
+        checkWritable();
+        if (!Objects.equals(this.mapUrl, mapUrl)) {
+            this.mapUrl = mapUrl;
+            markModified();
+        }
+    }
+
+    @Override
+    public MapState readOnlyCopy() {
+        if (isReadOnly()) {
+            return this;
+        }
+        MapState copy = new MapState(true);
+        copy.mapType = mapType;
+        copy.mapUrl = mapUrl;
+        return copy;
     }
 }
@@ -16,6 +16,8 @@ limitations under the License.
 
 package structs;
 
+import java.nio.ByteBuffer;
+
 /**
  * Represents an LCI/LCR subelement
  */
@@ -27,4 +29,20 @@ public interface Subelement {
      * @return The hex-buffer encoding
      */
     String toHexBuffer();
+
+    /**
+     * Gets the length of the binary encoding for the current state of this LCI/LCR subelement.
+     *
+     * @return the length of the encoding, in bytes
+     */
+    int getEncodedLength();
+
+    /**
+     * Writes the binary encoding for the current state of this LCI/LCR subelement into a buffer,
+     *  starting at the buffer's current position.
+     *
+     * @param buffer the buffer receiving the encoding
+     * @throws java.nio.BufferOverflowException if the buffer does not have enough space remaining
+     */
+    void encode(ByteBuffer buffer);
 }
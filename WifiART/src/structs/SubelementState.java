@@ -0,0 +1,95 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package structs;
+
+/**
+ * The base class for the subelement states. It counts modifications, so that cached encodings
+ * can tell when they are out of date, and supports read-only copies for system state snapshots.
+ */
+public abstract class SubelementState {
+
+    // Error messages
+    private static final String ERROR_READ_ONLY = "A subelement state taken for a snapshot cannot be modified.";
+
+    /** The number of changes made to this state, used to tell whether a cached encoding is stale. */
+    private int modCount;
+
+    /**
+     * Whether or not this state is a read-only copy, which can be shared between threads. It is
+     *  final so that it is safely published with the state.
+     */
+    private final boolean readOnly;
+
+    /**
+     * Constructs a state that may be modified.
+     */
+    protected SubelementState() {
+        this(false);
+    }
+
+    /**
+     * Constructs a state, which is a read-only copy if requested. The values of a read-only copy
+     *  are set by readOnlyCopy() before the copy is published.
+     *
+     * @param readOnly whether or not the state is a read-only copy
+     */
+    SubelementState(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Gets the number of changes made to this state. The count only increases, and only when a
+     *  value actually changes, so an encoding cached with the same count is still up to date.
+     *
+     * @return the modification count
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Gets whether or not this state is a read-only copy.
+     *
+     * @return true if the setters of this state throw UnsupportedOperationException
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Gets a read-only copy of this state, or this state itself if it is already read-only.
+     *
+     * @return the read-only state
+     */
+    public abstract SubelementState readOnlyCopy();
+
+    /** Records that a value of this state changed. */
+    protected void markModified() {
+        modCount++;
+    }
+
+    /**
+     * Checks that this state may be modified, before a setter changes it.
+     *
+     * @throws UnsupportedOperationException if this state is a read-only copy
+     */
+    protected void checkWritable() throws UnsupportedOperationException {
+        if (readOnly) {
+            throw new UnsupportedOperationException(ERROR_READ_ONLY);
+        }
+    }
+}
@@ -19,7 +19,7 @@ package structs;
 /**
  * Contains the parameters for the Usage Rules/Policy subelement.
  */
-public class UsageState {
+public class UsageState extends SubelementState {
 
     // Constants
     private static final int MAX_EXPIRE_TIME_HOURS = 65535;
@@ -51,6 +51,10 @@ public class UsageState {
      */
     public UsageState() {}
 
+    private UsageState(boolean readOnly) {
+        super(readOnly);
+    }
+
 
     // Getter methods for the parameters
 
@@ -99,7 +103,11 @@ public class UsageState {
      * @param retransmissionAllowed the boolean value of the parameter.
      */
     public void setRetransmissionAllowed(boolean retransmissionAllowed) {
-        this.retransmissionAllowed = retransmissionAllowed;
+        checkWritable();
+        if (this.retransmissionAllowed != retransmissionAllowed) {
+            this.retransmissionAllowed = retransmissionAllowed;
+            markModified();
+        }
     }
 
     /**
@@ -108,7 +116,11 @@ public class UsageState {
      * @param retentionExpires the boolean value of the parameter.
      */
     public void setRetentionExpires(boolean retentionExpires) {
-        this.retentionExpires = retentionExpires;
+        checkWritable();
+        if (this.retentionExpires != retentionExpires) {
+            this.retentionExpires = retentionExpires;
+            markModified();
+        }
     }
 
     /**
@@ -117,10 +129,14 @@ public class UsageState {
      * @param expireTimeHours the expire time, in hours.
      */
     public void setExpireTimeHours(int expireTimeHours) throws NumberFormatException {
+        checkWritable();
         if (expireTimeHours < MIN_EXPIRE_TIME_HOURS || expireTimeHours > MAX_EXPIRE_TIME_HOURS) {
             throw new NumberFormatException();
         }
-        this.expireTimeHours = expireTimeHours;
+        if (this.expireTimeHours != expireTimeHours) {
+            this.expireTimeHours = expireTimeHours;
+            markModified();
+        }
     }
 
     /**
@@ -129,7 +145,23 @@ public class UsageState {
      * @param staLocationPolicy the boolean value of the parameter.
      */
     public void setStaLocationPolicy(boolean staLocationPolicy) {
-        this.staLocationPolicy = staLocationPolicy;
+        checkWritable();
+        if (this.staLocationPolicy != staLocationPolicy) {
+            this.staLocationPolicy = staLocationPolicy;
+            markModified();
+        }
     }
 
+    @Override
+    public UsageState readOnlyCopy() {
+        if (isReadOnly()) {
+            return this;
+        }
+        UsageState copy = new UsageState(true);
+        copy.retransmissionAllowed = retransmissionAllowed;
+        copy.retentionExpires = retentionExpires;
+        copy.expireTimeHours = expireTimeHours;
+        copy.staLocationPolicy = staLocationPolicy;
+        return copy;
+    }
 }
@@ -16,7 +16,7 @@ limitations under the License.
 
 package structs;
 
-public class ZState {
+public class ZState extends SubelementState {
 
     // Parameters
     private int floor;
@@ -29,6 +29,15 @@ public class ZState {
      */
     private ExpectedToMove expectedToMove;
 
+    /**
+     * Constructs a ZState, without setting values.
+     */
+    public ZState() {}
+
+    private ZState(boolean readOnly) {
+        super(readOnly);
+    }
+
     /**
      * Get the floor number.
      *
@@ -71,7 +80,11 @@ public class ZState {
      * @param floor the floor number.
      */
     public void setFloor(int floor) {
-        this.floor = floor;
+        checkWritable();
+        if (this.floor != floor) {
+            this.floor = floor;
+            markModified();
+        }
     }
 
     /**
@@ -80,7 +93,11 @@ public class ZState {
      * @param heightAboveFloorMeters the height above the floor (in meters)
      */
     public void setHeightAboveFloorMeters(double heightAboveFloorMeters) {
-        this.heightAboveFloorMeters = heightAboveFloorMeters;
+        checkWritable();
+        if (Double.compare(this.heightAboveFloorMeters, heightAboveFloorMeters) != 0) {
+            this.heightAboveFloorMeters = heightAboveFloorMeters;
+            markModified();
+        }
     }
 
     /**
@@ -89,7 +106,11 @@ public class ZState {
      * @param heightAboveFloorUncertaintyMeters the uncertainty for the height (in meters)
      */
     public void setHeightAboveFloorUncertaintyMeters(double heightAboveFloorUncertaintyMeters) {
-        this.heightAboveFloorUncertaintyMeters = heightAboveFloorUncertaintyMeters;
+        checkWritable();
+        if (Double.compare(this.heightAboveFloorUncertaintyMeters, heightAboveFloorUncertaintyMeters) != 0) {
+            this.heightAboveFloorUncertaintyMeters = heightAboveFloorUncertaintyMeters;
+            markModified();
+        }
     }
 
     /**
@@ -98,7 +119,23 @@ public class ZState {
      * @param expectedToMove the enum representing the STA location movement pattern.
      */
     public void setExpectedToMove(ExpectedToMove expectedToMove) {
-        this.expectedToMove = expectedToMove;
+        checkWritable();
+        if (this.expectedToMove != expectedToMove) {
+            this.expectedToMove = expectedToMove;
+            markModified();
+        }
     }
 
+    @Override
+    public ZState readOnlyCopy() {
+        if (isReadOnly()) {
+            return this;
+        }
+        ZState copy = new ZState(true);
+        copy.floor = floor;
+        copy.heightAboveFloorMeters = heightAboveFloorMeters;
+        copy.heightAboveFloorUncertaintyMeters = heightAboveFloorUncertaintyMeters;
+        copy.expectedToMove = expectedToMove;
+        return copy;
+    }
 }
@@ -0,0 +1,76 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for replacing binary files atomically.
+ */
+class AtomicFileTest {
+    // Constants
+    private static final byte[] PREVIOUS_CONTENT = {1, 2, 3};
+    private static final byte[] CONTENT = {4, 5, 6, 7};
+
+    @TempDir
+    Path directory;
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testCommitReplacesTheTargetFile() throws IOException {
+        Path target = directory.resolve("fleet.wfs");
+        Files.write(target, PREVIOUS_CONTENT);
+
+        try (AtomicFile file = new AtomicFile(target, AtomicFileWriter.SyncPolicy.FILE_AND_DIRECTORY)) {
+            Files.write(file.getTemporaryFile(), CONTENT);
+            assertArrayEquals(PREVIOUS_CONTENT, Files.readAllBytes(target));
+            file.commit();
+            assertThrows(IOException.class, file::commit);
+        }
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void testCloseWithoutCommitKeepsTheTargetFile() throws IOException {
+        Path target = directory.resolve("fleet.snapshot");
+        Files.write(target, PREVIOUS_CONTENT);
+
+        try (AtomicFile file = new AtomicFile(target, AtomicFileWriter.SyncPolicy.NONE)) {
+            Files.write(file.getTemporaryFile(), CONTENT);
+        }
+
+        assertArrayEquals(PREVIOUS_CONTENT, Files.readAllBytes(target));
+        assertEquals(1, countFiles());
+    }
+}
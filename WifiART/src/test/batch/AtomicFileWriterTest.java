@@ -0,0 +1,105 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for writing files atomically.
+ */
+class AtomicFileWriterTest {
+    // Constants
+    private static final String PREVIOUS_CONTENT = "lci=010008\n";
+    private static final String CONTENT = "# Access point 01:02:03:04:05:06\ncivic=01000b0013"
+        + "München 📡\n";
+
+    @TempDir
+    Path directory;
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testCommitReplacesTheTargetFile() throws IOException {
+        Path target = directory.resolve("hostapd.conf");
+        Files.write(target, PREVIOUS_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        try (AtomicFileWriter writer = new AtomicFileWriter(target, AtomicFileWriter.SyncPolicy.FILE_AND_DIRECTORY)) {
+            writer.write(CONTENT);
+            assertEquals(PREVIOUS_CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+            writer.commit();
+        }
+
+        assertEquals(CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void testCloseWithoutCommitKeepsTheTargetFile() throws IOException {
+        Path target = directory.resolve("hostapd.conf");
+        Files.write(target, PREVIOUS_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        try (AtomicFileWriter writer = new AtomicFileWriter(target, AtomicFileWriter.SyncPolicy.NONE)) {
+            writer.write(CONTENT);
+            writer.flush();
+        }
+
+        assertEquals(PREVIOUS_CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void testSmallBufferSplittingCharacters() throws IOException {
+        Path target = directory.resolve("fleet.conf");
+        StringBuilder expected = new StringBuilder();
+
+        try (AtomicFileWriter writer = new AtomicFileWriter(target, AtomicFileWriter.SyncPolicy.NONE, 7)) {
+            for (int i = 0; i < 100; i++) {
+                writer.append(CONTENT);
+                writer.write(CONTENT.toCharArray(), 0, CONTENT.length());
+                writer.write('\n');
+                expected.append(CONTENT).append(CONTENT).append('\n');
+            }
+            writer.commit();
+        }
+
+        assertEquals(expected.toString(), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testWriteAfterCommit() throws IOException {
+        AtomicFileWriter writer = new AtomicFileWriter(directory.resolve("hostapd.conf"),
+            AtomicFileWriter.SyncPolicy.NONE);
+        writer.commit();
+
+        assertThrows(IOException.class, () -> writer.write(CONTENT));
+        assertEquals(0, Files.size(directory.resolve("hostapd.conf")));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the command-line batch mode, from input files to output files.
+ */
+class BatchCommandTest {
+    // Constants
+    private static final String SURVEY = "bssid,latitude,latitude_uncertainty,longitude,longitude_uncertainty,"
+        + "altitude,altitude_uncertainty,floor,country,language,civic:City,civic:Room\n"
+        + "01:02:03:04:05:06,-33.8570095,0.0007105,151.2152005,0.0007055,11.2,33.7,4,"
+        + "United States of America,English,Mtn View,Room 2\n"
+        + "0a:0b:0c:0d:0e:0f,48.8583701,0.0001,2.2944813,0.0001,35.5,3,1,France,French,Paris,Salle 1\n"
+        + "11:12:13:14:15:16,,,,,,,,US,en,Mtn View,Room 3\n";
+    private static final int SURVEY_SIZE = 3;
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
+    private final PrintStream log = new PrintStream(logBytes, true);
+
+    /**
+     * Runs the batch mode.
+     *
+     * @param args the arguments following the batch option
+     * @return the exit status
+     */
+    private int run(String... args) {
+        String[] batchArgs = new String[args.length + 1];
+        batchArgs[0] = BatchCommand.OPTION;
+        System.arraycopy(args, 0, batchArgs, 1, args.length);
+        return BatchCommand.run(batchArgs, log);
+    }
+
+    private Path writeSurvey() throws IOException {
+        Path survey = directory.resolve("survey.csv");
+        Files.write(survey, SURVEY.getBytes(StandardCharsets.UTF_8));
+        return survey;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testStoreRoundTrip() throws IOException {
+        Path survey = writeSurvey();
+        Path csvOutput = directory.resolve("csv.conf");
+        Path store = directory.resolve("fleet.wfs");
+        Path storeOutput = directory.resolve("store.conf");
+
+        assertEquals(0, run(survey.toString(), csvOutput.toString(), "--save-store", store.toString()));
+        try (MappedFleetStore mappedStore = MappedFleetStore.open(store, false)) {
+            assertEquals(SURVEY_SIZE, mappedStore.size());
+        }
+        assertEquals(0, run(store.toString(), storeOutput.toString()));
+
+        assertEquals(read(csvOutput), read(storeOutput));
+    }
+
+    @Test
+    void testStoreInputWithRegion() throws IOException {
+        Path store = directory.resolve("fleet.wfs");
+        Path output = directory.resolve("paris.conf");
+        assertEquals(0, run(writeSurvey().toString(), directory.resolve("all.conf").toString(), "--save-store",
+            store.toString()));
+
+        assertEquals(0, run(store.toString(), output.toString(), "--region", "48,2,49,3"));
+
+        assertEquals(1, read(output).split("# Access point ", -1).length - 1);
+    }
+
+    /**
+     * Test that the datum of a fleet input is converted, except for the altitudes in meters, which
+     *  need a vertical datum height that fleet inputs do not have.
+     */
+    @Test
+    void testDatumOfSnapshotInput() throws IOException {
+        Path csvOutput = directory.resolve("csv.conf");
+        Path snapshot = directory.resolve("fleet.snapshot");
+        Path wgs84Output = directory.resolve("wgs84.conf");
+        Path nad83Output = directory.resolve("nad83.conf");
+        assertEquals(0, run(writeSurvey().toString(), csvOutput.toString(), "--save-snapshot", snapshot.toString()));
+
+        assertEquals(0, run(snapshot.toString(), wgs84Output.toString(), "--datum", "wgs84"));
+        assertEquals(1, run(snapshot.toString(), nad83Output.toString(), "--datum", "nad83_navd88", "--epoch",
+            "2020.5"));
+
+        assertEquals(read(csvOutput), read(wgs84Output));
+        assertEquals(1, read(nad83Output).split("# Access point ", -1).length - 1);
+        assertTrue(logBytes.toString().contains("01:02:03:04:05:06: Missing height of the vertical datum"));
+    }
+
+    @Test
+    void testEpochWithoutDatum() throws IOException {
+        assertEquals(2, run(writeSurvey().toString(), "--epoch", "2020.5"));
+    }
+
+    @Test
+    void testCsvInputWithRegion() throws IOException {
+        Path output = directory.resolve("paris.conf");
+
+        assertEquals(0, run(writeSurvey().toString(), output.toString(), "--region", "48,2,49,3"));
+
+        assertEquals(1, read(output).split("# Access point ", -1).length - 1);
+        assertTrue(read(output).contains("# Access point 0a:0b:0c:0d:0e:0f"));
+    }
+
+    @Test
+    void testCsvInputWithShards() throws IOException {
+        Path csvOutput = directory.resolve("csv.conf");
+        Path shards = directory.resolve("shards");
+        Path snapshot = directory.resolve("fleet.snapshot");
+        Path snapshotShards = directory.resolve("snapshot-shards");
+        assertEquals(0, run(writeSurvey().toString(), csvOutput.toString(), "--save-snapshot", snapshot.toString()));
+
+        assertEquals(0, run(writeSurvey().toString(), shards.toString(), "--shards", "--shard-precision", "2"));
+        assertEquals(0, run(snapshot.toString(), snapshotShards.toString(), "--shards", "--shard-precision", "2"));
+
+        assertEquals(read(snapshotShards.resolve(ShardedFleetWriter.MANIFEST_NAME)),
+            read(shards.resolve(ShardedFleetWriter.MANIFEST_NAME)));
+    }
+
+    @Test
+    void testInvalidRegion() throws IOException {
+        String survey = writeSurvey().toString();
+
+        assertEquals(2, run(survey, "--region", "49,2,48,3"));
+        assertEquals(2, run(survey, "--region", "NaN,2,49,3"));
+        assertEquals(2, run(survey, "--region", "48,-Infinity,49,3"));
+        assertEquals(2, run(survey, "--region", "48,2,91,3"));
+        assertEquals(2, run(survey, directory.resolve("paris.conf").toString(), "--region", "48,2,49,3",
+            "--incremental", directory.resolve("index").toString()));
+        assertTrue(logBytes.toString().contains("--incremental cannot be combined with --region"));
+    }
+
+    @Test
+    void testCsvInputWithQuantizationReport() throws IOException {
+        Path survey = writeSurvey();
+        Path csvOutput = directory.resolve("csv.conf");
+        Path output = directory.resolve("reported.conf");
+        Path report = directory.resolve("report.tsv");
+        Path snapshot = directory.resolve("fleet.snapshot");
+        Path snapshotReport = directory.resolve("snapshot-report.tsv");
+        assertEquals(0, run(survey.toString(), csvOutput.toString(), "--save-snapshot", snapshot.toString()));
+
+        assertEquals(0, run(survey.toString(), output.toString(), "--quantization-report", report.toString()));
+        assertEquals(0, run(snapshot.toString(), directory.resolve("snapshot.conf").toString(),
+            "--quantization-report", snapshotReport.toString()));
+
+        assertEquals(read(csvOutput), read(output));
+        assertEquals(read(snapshotReport), read(report));
+        // The header, and the two access points with an LCI subelement.
+        assertEquals(3, read(report).split("\n").length);
+    }
+
+    /**
+     * Test that the locations of a configuration input, decoded from LCI subelements, lose nothing
+     *  when they are encoded again.
+     */
+    @Test
+    void testConfigurationInputHasNoQuantizationError() throws IOException {
+        Path configuration = directory.resolve("survey.conf");
+        Path report = directory.resolve("report.tsv");
+        assertEquals(0, run(writeSurvey().toString(), configuration.toString()));
+
+        assertEquals(0, run(configuration.toString(), directory.resolve("regenerated.conf").toString(),
+            "--quantization-report", report.toString()));
+
+        String[] lines = read(report).split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split("\t");
+            assertEquals(0, Double.parseDouble(fields[1]));
+            assertEquals(0, Double.parseDouble(fields[2]));
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.DatumConverter;
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for encoding the LCI/LCR lines of the access points of a CSV file.
+ */
+class BatchEncoderTest {
+    // Constants
+    private static final String HEADER = "bssid,latitude,latitude_uncertainty,longitude,longitude_uncertainty,"
+        + "altitude,altitude_uncertainty,floor,height_above_floor,height_above_floor_uncertainty,"
+        + "country,language,civic:City,civic:Room,map_url\n";
+    private static final String SYDNEY_OPERA_HOUSE = "01:02:03:04:05:06,-33.8570095,0.0007105,151.2152005,0.0007055,"
+        + "11.2,33.7,4,2.8,0.1,United States of America,English,Mtn View,Room 2,http://map.google.com/b40.jpg\n";
+    private static final String OUTPUT_SYDNEY_OPERA_HOUSE = "# Access point 01:02:03:04:05:06\n"
+        + "# Responder Location Configuration Information (LCI)\n"
+        + "lci=010008"
+        + "001052834d12efd2b08b9b4bf1cc2c000041" // LCI
+        + "04060001cd2c0002" // Z
+        + "\n\n"
+        + "# Responder Location Civic Report (LCR)\n"
+        + "civic=01000b"
+        + "0018" + "5553" + "0002656e" + "03084d746e2056696577" + "1c06526f6f6d2032" // Location Civic
+        + "051e00687474703a2f2f6d61702e676f6f676c652e636f6d2f6234302e6a7067" // Map Image
+        + "\n\n";
+    private static final String CIVIC_ONLY = "0a:0b:0c:0d:0e:0f,,,,,,,,,,US,en,Mtn View,Room 2,\n";
+    private static final String OUTPUT_CIVIC_ONLY = "# Access point 0a:0b:0c:0d:0e:0f\n"
+        + "# Responder Location Civic Report (LCR)\n"
+        + "civic=01000b"
+        + "0018" + "5553" + "0002656e" + "03084d746e2056696577" + "1c06526f6f6d2032"
+        + "\n\n";
+
+    private final ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
+    private final PrintStream log = new PrintStream(logBytes, true);
+
+    /**
+     * Encodes a CSV input.
+     *
+     * @param encoder the batch encoder
+     * @param input the CSV input
+     * @return the encoded lines
+     */
+    private String encode(BatchEncoder encoder, String input) throws IOException {
+        StringWriter output = new StringWriter();
+        encoder.encode(new StringReader(input), output, log);
+        return output.toString();
+    }
+
+    @Test
+    void testRecordsMatchTheSubelementEncodings() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(true);
+
+        String output = encode(encoder, HEADER + SYDNEY_OPERA_HOUSE + CIVIC_ONLY);
+
+        assertEquals(OUTPUT_SYDNEY_OPERA_HOUSE + OUTPUT_CIVIC_ONLY, output);
+        assertEquals(2, encoder.getAccessPointCount());
+        assertEquals(0, encoder.getFailedAccessPointCount());
+    }
+
+    @Test
+    void testColumnsInAnyOrder() throws IOException {
+        String input = "country,civic:Room,bssid,civic:City\n"
+            + "United States of America,Room 2,0a:0b:0c:0d:0e:0f,Mtn View\n";
+
+        String output = encode(new BatchEncoder(true), input);
+
+        assertEquals(OUTPUT_CIVIC_ONLY, output);
+    }
+
+    @Test
+    void testInvalidAccessPointsAreSkipped() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(true);
+        String invalidLatitude = "0a:0b:0c:0d:0e:0f,95,0,0,0,,,,,,,,,,\n";
+        String unknownCountry = "0a:0b:0c:0d:0e:0f,,,,,,,,,,Atlantis,,,,\n";
+
+        String output = encode(encoder, HEADER + invalidLatitude + SYDNEY_OPERA_HOUSE + unknownCountry);
+
+        assertEquals(OUTPUT_SYDNEY_OPERA_HOUSE, output);
+        assertEquals(3, encoder.getAccessPointCount());
+        assertEquals(2, encoder.getFailedAccessPointCount());
+        String logText = logBytes.toString();
+        assertTrue(logText.contains("Line 2: "));
+        assertTrue(logText.contains("Line 4: Unknown country: Atlantis"));
+    }
+
+    @Test
+    void testEncodingFailuresAreReportedWithTheirLine() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(new FleetEncoder(true), 2);
+        String tooLongAddress = "0a:0b:0c:0d:0e:ff,,,,,,,,,,US,,x" + "a".repeat(255) + ",,\n";
+
+        String output = encode(encoder, HEADER + SYDNEY_OPERA_HOUSE + CIVIC_ONLY + tooLongAddress + CIVIC_ONLY);
+
+        assertEquals(OUTPUT_SYDNEY_OPERA_HOUSE + OUTPUT_CIVIC_ONLY + OUTPUT_CIVIC_ONLY, output);
+        assertEquals(1, encoder.getFailedAccessPointCount());
+        assertTrue(logBytes.toString().startsWith("Line 4: "));
+    }
+
+    @Test
+    void testOutputKeepsTheInputOrderAcrossChunks() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(new FleetEncoder(true), 3);
+        StringBuilder input = new StringBuilder(HEADER);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            input.append(i % 2 == 0 ? SYDNEY_OPERA_HOUSE : CIVIC_ONLY);
+            expected.append(i % 2 == 0 ? OUTPUT_SYDNEY_OPERA_HOUSE : OUTPUT_CIVIC_ONLY);
+        }
+
+        String output = encode(encoder, input.toString());
+
+        assertEquals(expected.toString(), output);
+        assertEquals(10, encoder.getAccessPointCount());
+    }
+
+    @Test
+    void testProgressIsReported() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(true);
+        encoder.setProgressInterval(1);
+
+        encode(encoder, HEADER + SYDNEY_OPERA_HOUSE + CIVIC_ONLY);
+
+        assertTrue(logBytes.toString().contains("Encoded 2 access points"));
+        assertTrue(encoder.getSummary().startsWith("Encoded 2 access points"));
+    }
+
+    @Test
+    void testLocalPositionFromItsOrigin() throws IOException {
+        String header = "bssid,east,north,up,origin_latitude,origin_longitude,origin_altitude,latitude_uncertainty,"
+            + "longitude_uncertainty,altitude_uncertainty,floor,height_above_floor,height_above_floor_uncertainty,"
+            + "country,language,civic:City,civic:Room,map_url\n";
+        String record = "01:02:03:04:05:06,0,0,0,-33.8570095,151.2152005,11.2,0.0007105,0.0007055,33.7,4,2.8,0.1,"
+            + "United States of America,English,Mtn View,Room 2,http://map.google.com/b40.jpg\n";
+
+        String output = encode(new BatchEncoder(true), header + record);
+
+        assertEquals(OUTPUT_SYDNEY_OPERA_HOUSE, output);
+    }
+
+    @Test
+    void testLocalPositionWithoutOrigin() throws IOException {
+        String output = encode(new BatchEncoder(true), "bssid,east,north\n01:02:03:04:05:06,10,20\n");
+
+        assertEquals("", output);
+        assertTrue(logBytes.toString().contains("Missing origin"));
+    }
+
+    @Test
+    void testNad83ConvertedToWgs84() throws IOException {
+        String header = "bssid,latitude,longitude,altitude,map_datum,vertical_datum_height\n";
+        String record = "01:02:03:04:05:06,37.4220,-122.0841,30,NAD83_NAVD88,-32.5\n";
+        LciState expected = new LciState();
+        expected.setLatitude(37.4220);
+        expected.setLongitude(-122.0841);
+        expected.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        expected.setAltitude(30);
+        expected.setMapDatum(MapDatum.NAD83_NAVD88);
+        new DatumConverter(MapDatum.WGS84, 2010).convert(expected, -32.5);
+        String wgs84Record = "01:02:03:04:05:06," + expected.getLatitude() + "," + expected.getLongitude() + ","
+            + expected.getAltitude() + ",WGS84,\n";
+        BatchEncoder encoder = new BatchEncoder(true);
+        encoder.setDatumConverter(new DatumConverter(MapDatum.WGS84, 2010));
+
+        String output = encode(encoder, header + record);
+
+        assertEquals(encode(new BatchEncoder(true), header + wgs84Record), output);
+        assertNotEquals(encode(new BatchEncoder(true), header + record), output);
+    }
+
+    @Test
+    void testNad83AltitudeWithoutVerticalDatumHeight() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(true);
+        encoder.setDatumConverter(new DatumConverter(MapDatum.WGS84, 2010));
+
+        String output = encode(encoder,
+            "bssid,latitude,longitude,altitude,map_datum\n01:02:03:04:05:06,37,-122,30,2\n");
+
+        assertEquals("", output);
+        assertTrue(logBytes.toString().contains("Missing height of the vertical datum"));
+    }
+
+    @Test
+    void testSnapshotOfTheInput() throws IOException {
+        BatchEncoder encoder = new BatchEncoder(true);
+        ByteArrayOutputStream snapshotBytes = new ByteArrayOutputStream();
+        FleetSnapshotWriter snapshot = new FleetSnapshotWriter(snapshotBytes);
+        encoder.setSnapshot(snapshot);
+
+        String output = encode(encoder, HEADER + SYDNEY_OPERA_HOUSE + CIVIC_ONLY);
+        snapshot.finish();
+
+        FleetSnapshotReader reader = new FleetSnapshotReader(new ByteArrayInputStream(snapshotBytes.toByteArray()));
+        StringWriter loadedOutput = new StringWriter();
+        new FleetEncoder(true).encode(Arrays.asList(reader.next(), reader.next())).writeTo(loadedOutput);
+        assertEquals(output, loadedOutput.toString());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testUnknownColumn() {
+        String input = "bssid,latitud\n01:02:03:04:05:06,0\n";
+
+        assertThrows(IllegalArgumentException.class, () -> encode(new BatchEncoder(true), input));
+    }
+
+    @Test
+    void testMissingBssidColumn() {
+        String input = "latitude,longitude\n0,0\n";
+
+        assertThrows(IllegalArgumentException.class, () -> encode(new BatchEncoder(true), input));
+    }
+
+    @Test
+    void testEmptyInput() {
+        assertThrows(IllegalArgumentException.class, () -> encode(new BatchEncoder(true), ""));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import structs.ArtSystemState;
+import structs.LciState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for importing the location configuration of hostapd configuration files.
+ */
+class ConfigurationImporterTest {
+    // Constants
+    private static final String BSSID = "0a:0b:0c:0d:0e:0f";
+    private static final String SECOND_BSSID = "0a:0b:0c:0d:0e:10";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Builds an access point with LCI and Location Civic subelements.
+     *
+     * @param bssid the BSSID of the access point
+     * @param room the room of the civic address
+     * @return the access point
+     */
+    private static AccessPoint buildAccessPoint(String bssid, String room) {
+        ArtSystemState state = new ArtSystemState();
+        LciState lciState = state.getLciState();
+        lciState.setLatitude(-33.8570095);
+        lciState.setLatitudeUncertainty(0.0007105);
+        lciState.setLongitude(151.2152005);
+        lciState.setLongitudeUncertainty(0.0007055);
+        state.setLciIncluded(true);
+        state.getLcrState().setCountry("Australia");
+        state.getLcrState().addAddressElement(new StringBuilder(room), new StringBuilder("English"),
+            new StringBuilder("Room"));
+        state.setLcrIncluded(true);
+        return new AccessPoint(bssid, state);
+    }
+
+    /**
+     * Gets the configuration lines generated for an access point, without the comment line.
+     *
+     * @param accessPoint the access point
+     * @return the "lci=" and "civic=" lines
+     */
+    private static String getLocationLines(AccessPoint accessPoint) {
+        StringBuilder text = new StringBuilder();
+        new AccessPointLines(false).append(accessPoint.getBssid(), accessPoint.getState(), text);
+        return text.substring(text.indexOf("\n") + 1);
+    }
+
+    private Path writeFile(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testImportedFileRegeneratesTheSameLines() throws IOException {
+        AccessPoint accessPoint = buildAccessPoint(BSSID, "Room 2");
+        String locationLines = getLocationLines(accessPoint);
+        Path file = writeFile("hostapd.conf", "interface=wlan0\r\nssid=test\r\nbssid=" + BSSID + "\r\n"
+            + locationLines.replace("\n", "\r\n") + "ieee80211d=1\r\n");
+
+        List<AccessPoint> imported = new ConfigurationImporter(false).importFile(file);
+
+        assertEquals(1, imported.size());
+        assertEquals(BSSID, imported.get(0).getBssid());
+        assertEquals(locationLines, getLocationLines(imported.get(0)));
+    }
+
+    @Test
+    void testEveryBssSectionIsImported() throws IOException {
+        AccessPoint first = buildAccessPoint(BSSID, "Room 2");
+        AccessPoint second = buildAccessPoint(SECOND_BSSID, "Room 3");
+        Path file = writeFile("hostapd.conf", "interface=wlan0\n" + getLocationLines(first)
+            + "bss=wlan0_1\nbssid=" + SECOND_BSSID + "\n" + getLocationLines(second)
+            + "bss=wlan0_2\nssid=guest\n");
+
+        List<AccessPoint> imported = new ConfigurationImporter(false).importFile(file);
+
+        assertEquals(2, imported.size());
+        assertEquals("wlan0", imported.get(0).getBssid());
+        assertEquals(getLocationLines(first), getLocationLines(imported.get(0)));
+        assertEquals(SECOND_BSSID, imported.get(1).getBssid());
+        assertEquals(getLocationLines(second), getLocationLines(imported.get(1)));
+    }
+
+    @Test
+    void testBatchOutputIsImportedPerAccessPoint() throws IOException {
+        AccessPoint first = buildAccessPoint(BSSID, "Room 2");
+        AccessPoint second = buildAccessPoint(SECOND_BSSID, "Room 3");
+        StringBuilder batchOutput = new StringBuilder();
+        AccessPointLines lines = new AccessPointLines(false);
+        lines.append(first.getBssid(), first.getState(), batchOutput);
+        lines.append(second.getBssid(), second.getState(), batchOutput);
+        Path file = writeFile("fleet.conf", batchOutput.toString());
+
+        List<AccessPoint> imported = new ConfigurationImporter(false).importFile(file);
+
+        assertEquals(2, imported.size());
+        assertEquals(BSSID, imported.get(0).getBssid());
+        assertEquals(SECOND_BSSID, imported.get(1).getBssid());
+        assertEquals(getLocationLines(second), getLocationLines(imported.get(1)));
+    }
+
+    @Test
+    void testFileWithoutInterfaceIsIdentifiedByName() throws IOException {
+        Path file = writeFile("ap1.conf", getLocationLines(buildAccessPoint(BSSID, "Room 2")));
+
+        List<AccessPoint> imported = new ConfigurationImporter(false).importFile(file);
+
+        assertEquals("ap1.conf", imported.get(0).getBssid());
+    }
+
+    @Test
+    void testInvalidLineFailsTheFile() throws IOException {
+        Path file = writeFile("hostapd.conf", "lci=0100080010zz\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new ConfigurationImporter(false).importFile(file));
+    }
+
+    @Test
+    void testDirectoryImportSkipsInvalidFiles() throws IOException {
+        writeFile("b.conf", getLocationLines(buildAccessPoint(SECOND_BSSID, "Room 3")));
+        writeFile("a.conf", getLocationLines(buildAccessPoint(BSSID, "Room 2")));
+        writeFile("c.conf", "civic=01000b00\n");
+        writeFile("notes.txt", getLocationLines(buildAccessPoint(BSSID, "Room 4")));
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        ConfigurationImporter importer = new ConfigurationImporter(false);
+
+        List<AccessPoint> imported = importer.importDirectory(directory,
+            new PrintStream(log, true, StandardCharsets.UTF_8));
+
+        assertEquals(2, imported.size());
+        assertEquals("a.conf", imported.get(0).getBssid());
+        assertEquals("b.conf", imported.get(1).getBssid());
+        assertEquals(1, importer.getFailedFileCount());
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("c.conf"));
+    }
+}
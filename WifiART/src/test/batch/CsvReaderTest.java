@@ -0,0 +1,127 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for reading comma-separated values.
+ */
+class CsvReaderTest {
+
+    private final List<String> record = new ArrayList<>();
+
+    @Test
+    void testPlainRecords() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b,c\r\n1,,3\n"));
+
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("a", "b", "c"), record);
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("1", "", "3"), record);
+        assertEquals(2, reader.getRecordLineNumber());
+        assertFalse(reader.readRecord(record));
+    }
+
+    @Test
+    void testLastRecordWithoutLineBreak() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b\n1,2"));
+
+        reader.readRecord(record);
+        assertTrue(reader.readRecord(record));
+
+        assertEquals(Arrays.asList("1", "2"), record);
+        assertFalse(reader.readRecord(record));
+    }
+
+    @Test
+    void testEmptyLinesAreSkipped() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\n\r\na\r\rb\n"));
+
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("a"), record);
+        assertEquals(3, reader.getRecordLineNumber());
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("b"), record);
+        assertEquals(5, reader.getRecordLineNumber());
+    }
+
+    @Test
+    void testQuotedFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\nnext\n"));
+
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("a,b", "say \"hi\"", "two\nlines"), record);
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("next"), record);
+        assertEquals(3, reader.getRecordLineNumber());
+    }
+
+    @Test
+    void testTextAfterQuotedFieldSkipsTheLine() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"a\"b,c\nnext\n"));
+
+        assertThrows(IllegalArgumentException.class, () -> reader.readRecord(record));
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("next"), record);
+    }
+
+    @Test
+    void testUnterminatedQuote() {
+        CsvReader reader = new CsvReader(new StringReader("a,\"b\n"));
+
+        assertThrows(IllegalArgumentException.class, () -> reader.readRecord(record));
+    }
+
+    @Test
+    void testStrayQuoteIsReportedAfterTheMaximumNumberOfLines() throws IOException {
+        StringBuilder input = new StringBuilder("a,\"b\n");
+        for (int i = 2; i <= CsvReader.MAX_QUOTED_FIELD_LINES + 1; i++) {
+            input.append(i).append('\n');
+        }
+        CsvReader reader = new CsvReader(new StringReader(input.toString()));
+
+        IllegalArgumentException exception =
+            assertThrows(IllegalArgumentException.class, () -> reader.readRecord(record));
+        assertTrue(exception.getMessage().endsWith("starting on line 1"));
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList(String.valueOf(CsvReader.MAX_QUOTED_FIELD_LINES + 1)), record);
+        assertEquals(CsvReader.MAX_QUOTED_FIELD_LINES + 1, reader.getRecordLineNumber());
+    }
+
+    @Test
+    void testQuotedFieldOnTheMaximumNumberOfLines() throws IOException {
+        String value = "x\n".repeat(CsvReader.MAX_QUOTED_FIELD_LINES - 1) + "x";
+        CsvReader reader = new CsvReader(new StringReader("\"" + value + "\"\nnext\n"));
+
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList(value), record);
+        assertTrue(reader.readRecord(record));
+        assertEquals(Arrays.asList("next"), record);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import structs.ArtSystemState;
+import structs.LciState;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for encoding a fleet of access points in parallel.
+ */
+class FleetEncoderTest {
+    // Constants
+    private static final int FLEET_SIZE = 5000;
+    private static final int FAILURE_PERIOD = 97;
+
+    /**
+     * Builds a fleet with distinct LCI and Location Civic subelements, where every FAILURE_PERIOD-th
+     *  access point has no country and cannot be encoded.
+     *
+     * @return the access points
+     */
+    private static List<AccessPoint> buildFleet() {
+        List<AccessPoint> fleet = new ArrayList<>();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            ArtSystemState state = new ArtSystemState();
+            LciState lciState = state.getLciState();
+            lciState.setLatitude(-80.0 + i * 0.03);
+            lciState.setLatitudeUncertainty(0.001);
+            lciState.setLongitude(-170.0 + i * 0.06);
+            lciState.setLongitudeUncertainty(0.001);
+            state.setLciIncluded(true);
+            if (i % FAILURE_PERIOD != 0) {
+                state.getLcrState().setCountry("United States of America");
+            }
+            state.getLcrState().addAddressElement(new StringBuilder("Room " + i), new StringBuilder("English"),
+                new StringBuilder("Room"));
+            state.setLcrIncluded(true);
+            fleet.add(new AccessPoint(String.format("00:00:00:00:%02x:%02x", i >> 8, i & 0xff), state));
+        }
+        return fleet;
+    }
+
+    @Test
+    void testParallelEncodingMatchesSequentialEncoding() throws IOException {
+        List<AccessPoint> fleet = buildFleet();
+        AccessPointLines sequentialLines = new AccessPointLines(true);
+        StringBuilder expected = new StringBuilder();
+        for (AccessPoint accessPoint : fleet) {
+            try {
+                sequentialLines.append(accessPoint.getBssid(), accessPoint.getState(), expected);
+            } catch (RuntimeException exception) {
+                // Skipped, as in the fleet output.
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        FleetEncoding encoding = new FleetEncoder(pool, true).encode(fleet);
+        StringWriter output = new StringWriter();
+        encoding.writeTo(output);
+        pool.shutdown();
+
+        assertEquals(FLEET_SIZE, encoding.size());
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test
+    void testFailuresKeepTheirIndex() {
+        List<AccessPoint> fleet = buildFleet();
+
+        FleetEncoding encoding = new FleetEncoder(true).encode(fleet);
+
+        assertEquals((FLEET_SIZE + FAILURE_PERIOD - 1) / FAILURE_PERIOD, encoding.getFailedCount());
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            if (i % FAILURE_PERIOD == 0) {
+                assertNull(encoding.getLines(i));
+                assertNotNull(encoding.getFailure(i));
+            } else {
+                assertNull(encoding.getFailure(i));
+                assertEquals("# Access point " + fleet.get(i).getBssid(), encoding.getLines(i).split("\n")[0]);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyFleet() {
+        FleetEncoding encoding = new FleetEncoder(true).encode(Collections.emptyList());
+
+        assertEquals(0, encoding.size());
+        assertEquals(0, encoding.getFailedCount());
+    }
+}
@@ -0,0 +1,263 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import structs.ArtSystemState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the spatial index over the locations of a fleet, against a scan of every access point.
+ */
+class FleetIndexTest {
+    // Constants
+    private static final int FLEET_SIZE = 5000;
+    private static final int QUERY_COUNT = 200;
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private static AccessPoint buildAccessPoint(double latitude, double longitude, Integer floor) {
+        ArtSystemState state = new ArtSystemState();
+        state.getLciState().setLatitude(latitude);
+        state.getLciState().setLongitude(longitude);
+        state.setLciIncluded(true);
+        if (floor != null) {
+            state.getZState().setFloor(floor);
+            state.setZIncluded(true);
+        }
+        return new AccessPoint("00:00:00:00:00:01", state);
+    }
+
+    /**
+     * Builds a fleet of access points clustered in buildings around the world, some without a Z
+     *  subelement and some without an LCI subelement.
+     */
+    private static List<AccessPoint> buildFleet(Random random) {
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        double buildingLatitude = 0;
+        double buildingLongitude = 0;
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            if (i % 50 == 0) {
+                buildingLatitude = random.nextDouble() * 160 - 80;
+                buildingLongitude = random.nextDouble() * 360 - 180;
+            }
+            if (i % 97 == 0) {
+                accessPoints.add(new AccessPoint("00:00:00:00:00:02", new ArtSystemState()));
+                continue;
+            }
+            double longitude = buildingLongitude + random.nextDouble() * 0.001;
+            accessPoints.add(buildAccessPoint(buildingLatitude + random.nextDouble() * 0.001,
+                longitude > 180 ? longitude - 360 : longitude, i % 7 == 0 ? null : random.nextInt(10)));
+        }
+        return accessPoints;
+    }
+
+    private static double getDistance(double latitude, double longitude, AccessPoint accessPoint) {
+        double otherLatitude = accessPoint.getState().getLciState().getLatitude();
+        double otherLongitude = accessPoint.getState().getLciState().getLongitude();
+        double sinLatitude = Math.sin(Math.toRadians(otherLatitude - latitude) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(otherLongitude - longitude) / 2);
+        double h = sinLatitude * sinLatitude + Math.cos(Math.toRadians(latitude))
+            * Math.cos(Math.toRadians(otherLatitude)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, h)));
+    }
+
+    private static int[] scanBox(List<AccessPoint> accessPoints, double minLatitude, double minLongitude,
+                                 double maxLatitude, double maxLongitude, int minFloor, int maxFloor) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < accessPoints.size(); i++) {
+            ArtSystemState state = accessPoints.get(i).getState();
+            double latitude = state.getLciState().getLatitude();
+            double longitude = state.getLciState().getLongitude();
+            boolean withinLongitudes = minLongitude <= maxLongitude
+                ? longitude >= minLongitude && longitude <= maxLongitude
+                : longitude >= minLongitude || longitude <= maxLongitude;
+            boolean onFloor = minFloor == Integer.MIN_VALUE && maxFloor == Integer.MAX_VALUE
+                || state.isZIncluded() && state.getZState().getFloor() >= minFloor
+                && state.getZState().getFloor() <= maxFloor;
+            if (state.isLciIncluded() && latitude >= minLatitude && latitude <= maxLatitude && withinLongitudes
+                && onFloor) {
+                found.add(i);
+            }
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void testBoxQueries() {
+        Random random = new Random(1);
+        List<AccessPoint> accessPoints = buildFleet(random);
+        FleetIndex index = FleetIndex.build(accessPoints);
+
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            double minLatitude = random.nextDouble() * 180 - 90;
+            double minLongitude = random.nextDouble() * 360 - 180;
+            double maxLatitude = Math.min(90, minLatitude + random.nextDouble() * 40);
+            double maxLongitude = Math.min(180, minLongitude + random.nextDouble() * 60);
+
+            assertArrayEquals(scanBox(accessPoints, minLatitude, minLongitude, maxLatitude, maxLongitude,
+                Integer.MIN_VALUE, Integer.MAX_VALUE),
+                index.findInBox(minLatitude, minLongitude, maxLatitude, maxLongitude));
+            assertArrayEquals(scanBox(accessPoints, minLatitude, minLongitude, maxLatitude, maxLongitude, 2, 4),
+                index.findInBox(minLatitude, minLongitude, maxLatitude, maxLongitude, 2, 4));
+        }
+    }
+
+    @Test
+    void testBoxAcrossTheAntimeridian() {
+        List<AccessPoint> accessPoints = Arrays.asList(buildAccessPoint(-17.7, 179.9, 0),
+            buildAccessPoint(-17.7, -179.9, 0), buildAccessPoint(-17.7, 178, 0), buildAccessPoint(-17.7, 0, 0));
+        FleetIndex index = FleetIndex.build(accessPoints);
+
+        assertArrayEquals(new int[] {0, 1}, index.findInBox(-18, 179, -17, -179));
+        assertArrayEquals(new int[] {0, 1}, index.findWithinRadius(-17.7, 180, 20000));
+    }
+
+    @Test
+    void testRadiusQueries() {
+        Random random = new Random(2);
+        List<AccessPoint> accessPoints = buildFleet(random);
+        FleetIndex index = FleetIndex.build(accessPoints);
+
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            // Query around an access point, so that queries find some.
+            AccessPoint center = accessPoints.get(1 + random.nextInt(FLEET_SIZE - 1));
+            double latitude = center.getState().getLciState().getLatitude() + random.nextGaussian() * 0.001;
+            double longitude = center.getState().getLciState().getLongitude();
+            double radius = q % 10 == 0 ? random.nextDouble() * 5000000 : random.nextDouble() * 200;
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < accessPoints.size(); i++) {
+                if (accessPoints.get(i).getState().isLciIncluded()
+                    && getDistance(latitude, longitude, accessPoints.get(i)) <= radius) {
+                    expected.add(i);
+                }
+            }
+
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(),
+                index.findWithinRadius(latitude, longitude, radius));
+        }
+    }
+
+    @Test
+    void testNearestQueries() {
+        Random random = new Random(3);
+        List<AccessPoint> accessPoints = buildFleet(random);
+        FleetIndex index = FleetIndex.build(accessPoints);
+
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            int count = 1 + random.nextInt(20);
+            int floor = random.nextInt(10);
+            List<Double> distances = new ArrayList<>();
+            List<Double> floorDistances = new ArrayList<>();
+            for (AccessPoint accessPoint : accessPoints) {
+                ArtSystemState state = accessPoint.getState();
+                if (state.isLciIncluded()) {
+                    distances.add(getDistance(latitude, longitude, accessPoint));
+                    if (state.isZIncluded() && state.getZState().getFloor() == floor) {
+                        floorDistances.add(getDistance(latitude, longitude, accessPoint));
+                    }
+                }
+            }
+            distances.sort(null);
+            floorDistances.sort(null);
+
+            int[] nearest = index.findNearest(latitude, longitude, count);
+            assertEquals(count, nearest.length);
+            for (int i = 0; i < count; i++) {
+                assertEquals(distances.get(i), getDistance(latitude, longitude, accessPoints.get(nearest[i])), 1e-6);
+            }
+            int[] nearestOnFloor = index.findNearest(latitude, longitude, count, floor);
+            assertEquals(Math.min(count, floorDistances.size()), nearestOnFloor.length);
+            for (int i = 0; i < nearestOnFloor.length; i++) {
+                ArtSystemState state = accessPoints.get(nearestOnFloor[i]).getState();
+                assertEquals(floor, state.getZState().getFloor());
+                double distance = getDistance(latitude, longitude, accessPoints.get(nearestOnFloor[i]));
+                assertEquals(floorDistances.get(i), distance, 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void testSmallFleets() {
+        FleetIndex empty = FleetIndex.build(new ArrayList<>());
+        FleetIndex single = FleetIndex.build(Arrays.asList(buildAccessPoint(48.85, 2.35, null)));
+
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.findInBox(-90, -180, 90, 180).length);
+        assertEquals(0, empty.findNearest(0, 0, 3).length);
+        assertEquals(1, single.size());
+        assertArrayEquals(new int[] {0}, single.findInBox(48, 2, 49, 3));
+        assertArrayEquals(new int[] {0}, single.findNearest(0, 0, 3));
+        assertEquals(0, single.findNearest(0, 0, 3, 0).length);
+        assertEquals(0, single.findInBox(48, 2, 49, 3, 0, 10).length);
+    }
+
+    @Test
+    void testBuildFromStore() {
+        FleetStore store = new FleetStore();
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            accessPoints.add(FleetStoreTest.buildAccessPoint(i));
+            store.add(accessPoints.get(i));
+        }
+        FleetIndex listIndex = FleetIndex.build(accessPoints);
+        FleetIndex storeIndex = FleetIndex.build(store);
+
+        assertEquals(300, storeIndex.size());
+        assertArrayEquals(listIndex.findInBox(37.41, -122.1, 37.42, -122.09, 1, 1),
+            storeIndex.findInBox(37.41, -122.1, 37.42, -122.09, 1, 1));
+        assertArrayEquals(listIndex.findNearest(37.41, -122.09, 10), storeIndex.findNearest(37.41, -122.09, 10));
+        assertTrue(storeIndex.findInBox(37.41, -122.1, 37.42, -122.09, 1, 1).length > 0);
+    }
+
+    @Test
+    void testHilbertCurveIsContinuous() {
+        // Consecutive positions along the curve are neighboring cells.
+        int[] xs = new int[256];
+        int[] ys = new int[256];
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                // The first 256 positions fill the 16 by 16 corner at the origin.
+                int position = FleetIndex.hilbert(x, y);
+                assertTrue(position >= 0 && position < 256, "Position " + position);
+                xs[position] = x;
+                ys[position] = y;
+            }
+        }
+        for (int position = 1; position < 256; position++) {
+            assertEquals(1, Math.abs(xs[position] - xs[position - 1]) + Math.abs(ys[position] - ys[position - 1]));
+        }
+    }
+
+    @Test
+    void testNegativeArguments() {
+        FleetIndex index = FleetIndex.build(Arrays.asList(buildAccessPoint(0, 0, 0)));
+
+        assertThrows(IllegalArgumentException.class, () -> index.findWithinRadius(0, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> index.findNearest(0, 0, -1));
+    }
+}
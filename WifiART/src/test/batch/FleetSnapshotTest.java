@@ -0,0 +1,264 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import structs.ArtSystemState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for saving access points to a binary snapshot and loading them back.
+ */
+class FleetSnapshotTest {
+    // Constants
+    private static final int FLEET_SIZE = 300;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes access points to a finished snapshot.
+     *
+     * @param accessPoints the access points
+     * @return the snapshot
+     */
+    private static byte[] write(List<AccessPoint> accessPoints) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FleetSnapshotWriter writer = new FleetSnapshotWriter(bytes)) {
+            for (AccessPoint accessPoint : accessPoints) {
+                writer.write(accessPoint);
+            }
+            writer.finish();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<AccessPoint> read(byte[] snapshot) throws IOException {
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        try (FleetSnapshotReader reader = new FleetSnapshotReader(new ByteArrayInputStream(snapshot))) {
+            for (AccessPoint accessPoint = reader.next(); accessPoint != null; accessPoint = reader.next()) {
+                accessPoints.add(accessPoint);
+            }
+            assertNull(reader.next());
+        }
+        return accessPoints;
+    }
+
+    private static List<AccessPoint> buildFleet() {
+        List<AccessPoint> fleet = new ArrayList<>();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            fleet.add(FleetStoreTest.buildAccessPoint(i));
+        }
+        return fleet;
+    }
+
+    @Test
+    void testLoadedAccessPointsEncodeTheSame() throws IOException {
+        List<AccessPoint> fleet = buildFleet();
+
+        List<AccessPoint> loaded = read(write(fleet));
+
+        FleetEncoder encoder = new FleetEncoder(true);
+        FleetEncoding expected = encoder.encode(fleet);
+        FleetEncoding actual = encoder.encode(loaded);
+        assertEquals(FLEET_SIZE, actual.size());
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            assertEquals(fleet.get(i).getBssid(), loaded.get(i).getBssid());
+            assertNull(actual.getFailure(i));
+            assertEquals(expected.getLines(i), actual.getLines(i));
+        }
+    }
+
+    @Test
+    void testSessionSettingsAreSaved() throws IOException {
+        ArtSystemState state = new ArtSystemState();
+        state.setInputFileName("survey.csv");
+        state.setInputDir("/home/surveys");
+        state.setOutputFileName("hostapd.conf");
+        state.setOutputDir("/etc/hostapd");
+        state.setReadable(true);
+        state.setAndroidVersionAtLeastS(true);
+
+        ArtSystemState loaded = read(write(Arrays.asList(new AccessPoint("wlan0", state)))).get(0).getState();
+
+        assertEquals("survey.csv", loaded.getInputFileName());
+        assertEquals("/home/surveys", loaded.getInputDir());
+        assertEquals("hostapd.conf", loaded.getOutputFileName());
+        assertEquals("/etc/hostapd", loaded.getOutputDir());
+        assertTrue(loaded.isReadable());
+        assertTrue(loaded.isAndroidVersionAtLeastS());
+        assertNull(loaded.getZState().getExpectedToMove());
+        assertNull(loaded.getLcrState().getCountry());
+    }
+
+    /**
+     * Test that the names shared by access points are only stored once.
+     */
+    @Test
+    void testSharedStringsAreStoredOnce() throws IOException {
+        List<AccessPoint> fleet = buildFleet();
+
+        int firstLength = write(fleet.subList(0, 1)).length;
+        int secondLength = write(fleet.subList(0, 2)).length - firstLength;
+
+        // The second access point references the country and map URL of the first one.
+        int header = 2 * Integer.BYTES + 1;
+        assertTrue(secondLength <= firstLength - header - "United States of America".length()
+            - "http://map.google.com/b0.jpg".length(), secondLength + " / " + firstLength);
+    }
+
+    @Test
+    void testIncompleteSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FleetSnapshotWriter writer = new FleetSnapshotWriter(bytes)) {
+            writer.write(FleetStoreTest.buildAccessPoint(0));
+        }
+
+        FleetSnapshotReader reader = new FleetSnapshotReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        reader.next();
+        assertThrows(EOFException.class, reader::next);
+    }
+
+    @Test
+    void testNotASnapshot() {
+        byte[] csv = "bssid,latitude\n".getBytes();
+
+        assertThrows(IllegalArgumentException.class, () -> new FleetSnapshotReader(new ByteArrayInputStream(csv)));
+        assertThrows(IllegalArgumentException.class,
+            () -> new FleetSnapshotReader(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    void testUnrecognizedAddressElementIsNotWritten() throws IOException {
+        ArtSystemState state = new ArtSystemState();
+        state.getLcrState().addAddressElement(new StringBuilder("Somewhere"), new StringBuilder("English"),
+            new StringBuilder("Not a key"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (FleetSnapshotWriter writer = new FleetSnapshotWriter(bytes)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(new AccessPoint("wlan0", state)));
+            writer.write(FleetStoreTest.buildAccessPoint(1));
+            writer.finish();
+            assertEquals(1, writer.getAccessPointCount());
+        }
+
+        assertEquals(1, read(bytes.toByteArray()).size());
+    }
+
+    @Test
+    void testLongStringIsNotWritten() throws IOException {
+        StringBuilder mapUrl = new StringBuilder("http://map.google.com/");
+        while (mapUrl.length() <= FleetSnapshotWriter.MAX_STRING_LENGTH) {
+            mapUrl.append('é');
+        }
+        AccessPoint accessPoint = FleetStoreTest.buildAccessPoint(0);
+        accessPoint.getState().getMapState().setMapUrl(mapUrl.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (FleetSnapshotWriter writer = new FleetSnapshotWriter(bytes)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(accessPoint));
+            writer.write(FleetStoreTest.buildAccessPoint(1));
+            writer.finish();
+            assertEquals(1, writer.getAccessPointCount());
+        }
+
+        assertEquals(1, read(bytes.toByteArray()).size());
+    }
+
+    /**
+     * Test that the length of a string of a corrupt snapshot is checked before it is buffered.
+     */
+    @Test
+    void testStringLengthIsLimited() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FleetSnapshotWriter.MAGIC);
+            output.writeInt(FleetSnapshotWriter.VERSION);
+            output.writeByte(FleetSnapshotWriter.ACCESS_POINT_TAG);
+            output.writeByte(FleetSnapshotWriter.NEW_STRING);
+            output.write(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07}); // 2^31 - 1
+        }
+
+        FleetSnapshotReader reader = new FleetSnapshotReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+
+    @Test
+    void testUnknownLanguageCodeIsMalformed() throws IOException {
+        byte[] snapshot = write(Arrays.asList(FleetStoreTest.buildAccessPoint(0)));
+        // Replace the first "en" string of the string table with "zz".
+        byte[] english = {FleetSnapshotWriter.NEW_STRING, 2, 'e', 'n'};
+        int index = indexOf(snapshot, english);
+        assertTrue(index >= 0);
+        snapshot[index + 2] = 'z';
+        snapshot[index + 3] = 'z';
+
+        FleetSnapshotReader reader = new FleetSnapshotReader(new ByteArrayInputStream(snapshot));
+
+        assertThrows(IllegalArgumentException.class, reader::next);
+    }
+
+    @Test
+    void testReadIntoFleetStore() throws IOException {
+        List<AccessPoint> fleet = buildFleet();
+        AccessPoint notAMacAddress = new AccessPoint("wlan0", new ArtSystemState());
+        List<AccessPoint> accessPoints = new ArrayList<>(fleet);
+        accessPoints.add(notAMacAddress);
+        Path file = directory.resolve("fleet.snapshot");
+        Files.write(file, write(accessPoints));
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        FleetStore store = new FleetStore();
+
+        int failedCount = FleetSnapshotReader.readInto(file, store, new PrintStream(log, true, "UTF-8"));
+
+        assertEquals(1, failedCount);
+        assertTrue(new String(log.toByteArray(), StandardCharsets.UTF_8).startsWith("wlan0: "));
+        assertEquals(FLEET_SIZE, store.size());
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            assertEquals(fleet.get(i).getBssid(), store.getBssid(i));
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
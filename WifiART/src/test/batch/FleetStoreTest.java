@@ -0,0 +1,202 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.ExpectedToMove;
+import structs.LciState;
+import structs.LcrState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for holding a fleet of access points in columns.
+ */
+class FleetStoreTest {
+    // Constants
+    private static final int FLEET_SIZE = 300;
+    private static final int ACCESS_POINTS_PER_BUILDING = 100;
+
+    /**
+     * Builds an access point with every subelement included, in one of a few buildings.
+     *
+     * @param i the number of the access point
+     * @return the access point
+     */
+    static AccessPoint buildAccessPoint(int i) {
+        ArtSystemState state = new ArtSystemState();
+        LciState lciState = state.getLciState();
+        lciState.setLatitude(37.4 + i * 0.0001);
+        lciState.setLatitudeUncertainty(0.001);
+        lciState.setLongitude(-122.08 - i * 0.0001);
+        lciState.setLongitudeUncertainty(0.001);
+        lciState.setAltitude(10 + i % 4);
+        lciState.setAltitudeUncertainty(2.5);
+        lciState.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        lciState.setRegLocDse(i % 2 == 0);
+        state.getZState().setFloor(i % 4);
+        state.getZState().setHeightAboveFloorMeters(2.8);
+        state.getZState().setHeightAboveFloorUncertaintyMeters(0.1);
+        state.getZState().setExpectedToMove(ExpectedToMove.NOT_EXPECTED_TO_MOVE);
+        state.getUsageState().setRetentionExpires(true);
+        state.getUsageState().setExpireTimeHours(100 + i);
+        state.getBssidState().setMaxBssidIndicator(2);
+        state.getBssidState().addBssid(String.format("02:00:00:00:%02x:%02x", i >> 8, i & 0xff));
+        LcrState lcrState = state.getLcrState();
+        lcrState.setCountry("United States of America");
+        lcrState.addAddressElement(new StringBuilder("Mtn View"), new StringBuilder("English"),
+            new StringBuilder("City"));
+        lcrState.addAddressElement(new StringBuilder("Building " + i / ACCESS_POINTS_PER_BUILDING),
+            new StringBuilder("English"), new StringBuilder("Building (Structure)"));
+        lcrState.addAddressElement(new StringBuilder("Étage " + i % 4), new StringBuilder("French"),
+            new StringBuilder("Floor"));
+        lcrState.addAddressElement(new StringBuilder("Room " + i), new StringBuilder("English"),
+            new StringBuilder("Room"));
+        state.getMapState().setMapType("URL Defined");
+        state.getMapState().setMapUrl("http://map.google.com/b" + i / ACCESS_POINTS_PER_BUILDING + ".jpg");
+        state.setLciIncluded(true);
+        state.setZIncluded(true);
+        state.setUsageIncluded(true);
+        state.setBssidIncluded(true);
+        state.setLcrIncluded(true);
+        state.setMapIncluded(true);
+        return new AccessPoint(String.format("00:00:00:00:%02x:%02x", i >> 8, i & 0xff), state);
+    }
+
+    private static List<AccessPoint> buildFleet() {
+        List<AccessPoint> fleet = new ArrayList<>();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            fleet.add(buildAccessPoint(i));
+        }
+        return fleet;
+    }
+
+    private static FleetStore buildStore(List<AccessPoint> fleet) {
+        FleetStore store = new FleetStore(4);
+        for (AccessPoint accessPoint : fleet) {
+            store.add(accessPoint);
+        }
+        return store;
+    }
+
+    @Test
+    void testStoredAccessPointsEncodeTheSame() {
+        List<AccessPoint> fleet = buildFleet();
+        FleetStore store = buildStore(fleet);
+        store.trimToSize();
+        FleetEncoder encoder = new FleetEncoder(true);
+
+        FleetEncoding expected = encoder.encode(fleet);
+        FleetEncoding actual = encoder.encode(store, 0, store.size());
+
+        assertEquals(FLEET_SIZE, actual.size());
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            assertNull(actual.getFailure(i));
+            assertEquals(expected.getLines(i), actual.getLines(i));
+        }
+    }
+
+    @Test
+    void testRangeOfTheStore() {
+        List<AccessPoint> fleet = buildFleet();
+        FleetStore store = buildStore(fleet);
+        FleetEncoder encoder = new FleetEncoder(false);
+
+        FleetEncoding actual = encoder.encode(store, 150, 160);
+
+        assertEquals(10, actual.size());
+        assertEquals(encoder.encode(fleet.subList(150, 160)).getLines(3), actual.getLines(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> encoder.encode(store, 0, FLEET_SIZE + 1));
+    }
+
+    @Test
+    void testBuildingAddressesAreShared() {
+        FleetStore store = buildStore(buildFleet());
+
+        assertEquals(FLEET_SIZE / ACCESS_POINTS_PER_BUILDING, store.getBuildingAddressCount());
+    }
+
+    @Test
+    void testBssidsArePackedInLowercase() {
+        FleetStore store = new FleetStore();
+
+        store.add(new AccessPoint("0A:0B:0C:0D:0E:FF", new ArtSystemState()));
+
+        assertEquals("0a:0b:0c:0d:0e:ff", store.getBssid(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> store.add(new AccessPoint("wlan0", new ArtSystemState())));
+        assertThrows(IllegalArgumentException.class,
+            () -> store.add(new AccessPoint("0a-0b-0c-0d-0e-ff", new ArtSystemState())));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testUnrecognizedAddressElement() {
+        ArtSystemState state = new ArtSystemState();
+        state.getLcrState().addAddressElement(new StringBuilder("Somewhere"), new StringBuilder("English"),
+            new StringBuilder("Not a key"));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new FleetStore().add(new AccessPoint("0a:0b:0c:0d:0e:0f", state)));
+    }
+
+    @Test
+    void testFailuresMatchTheStateEncoders() {
+        List<AccessPoint> fleet = new ArrayList<>();
+        ArtSystemState noCountry = buildAccessPoint(0).getState();
+        noCountry.getLcrState().setCountry(null);
+        fleet.add(new AccessPoint("0a:0b:0c:0d:0e:00", noCountry));
+        ArtSystemState noExpectedToMove = buildAccessPoint(1).getState();
+        noExpectedToMove.getZState().setExpectedToMove(null);
+        fleet.add(new AccessPoint("0a:0b:0c:0d:0e:01", noExpectedToMove));
+        ArtSystemState noMapImage = new ArtSystemState();
+        noMapImage.setMapIncluded(true);
+        fleet.add(new AccessPoint("0a:0b:0c:0d:0e:02", noMapImage));
+        FleetStore store = buildStore(fleet);
+        FleetEncoder encoder = new FleetEncoder(true);
+
+        FleetEncoding expected = encoder.encode(fleet);
+        FleetEncoding actual = encoder.encode(store, 0, store.size());
+
+        assertEquals(fleet.size(), actual.getFailedCount());
+        for (int i = 0; i < fleet.size(); i++) {
+            assertEquals(expected.getFailure(i).getClass(), actual.getFailure(i).getClass());
+            assertEquals(expected.getFailure(i).getMessage(), actual.getFailure(i).getMessage());
+        }
+    }
+
+    @Test
+    void testEmptyStateRoundTrip() {
+        FleetStore store = new FleetStore();
+        store.add(new AccessPoint("0a:0b:0c:0d:0e:0f", new ArtSystemState()));
+
+        ArtSystemState state = store.getState(0);
+
+        assertNull(state.getLcrState().getCountry());
+        assertNull(state.getZState().getExpectedToMove());
+        assertNull(state.getMapState().getMapUrl());
+        assertEquals(0, state.getBssidState().getBssidList().size());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.getState(1));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import structs.ArtSystemState;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for holding a fleet of access points in a memory-mapped file.
+ */
+class MappedFleetStoreTest {
+    // Constants
+    private static final int FLEET_SIZE = 2000;
+
+    @TempDir
+    Path directory;
+
+    private static List<AccessPoint> buildFleet(int from, int to) {
+        List<AccessPoint> fleet = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            fleet.add(FleetStoreTest.buildAccessPoint(i));
+        }
+        return fleet;
+    }
+
+    private static void assertEncodedTheSame(List<AccessPoint> fleet, MappedFleetStore store) {
+        FleetEncoder encoder = new FleetEncoder(true);
+        FleetEncoding expected = encoder.encode(fleet);
+        FleetEncoding actual = encoder.encode(store, 0, store.size());
+
+        assertEquals(fleet.size(), actual.size());
+        for (int i = 0; i < fleet.size(); i++) {
+            assertNull(actual.getFailure(i));
+            assertEquals(expected.getLines(i), actual.getLines(i));
+        }
+    }
+
+    /**
+     * Test that a store starting small grows both regions while keeping the stored access points.
+     */
+    @Test
+    void testStoredAccessPointsEncodeTheSame() throws IOException {
+        List<AccessPoint> fleet = buildFleet(0, FLEET_SIZE);
+
+        try (MappedFleetStore store = MappedFleetStore.create(directory.resolve("fleet.store"), 4)) {
+            for (AccessPoint accessPoint : fleet) {
+                store.add(accessPoint);
+            }
+
+            assertEquals(FLEET_SIZE, store.size());
+            assertEquals("00:00:00:00:07:cf", store.getBssid(FLEET_SIZE - 1));
+            assertEncodedTheSame(fleet, store);
+        }
+    }
+
+    @Test
+    void testReopenWithoutLoading() throws IOException {
+        Path file = directory.resolve("fleet.store");
+        List<AccessPoint> fleet = buildFleet(0, FLEET_SIZE);
+        try (MappedFleetStore store = MappedFleetStore.create(file)) {
+            for (AccessPoint accessPoint : fleet) {
+                store.add(accessPoint);
+            }
+        }
+
+        try (MappedFleetStore store = MappedFleetStore.open(file, false)) {
+            assertEncodedTheSame(fleet, store);
+            assertThrows(IllegalStateException.class, () -> store.add(fleet.get(0)));
+        }
+    }
+
+    @Test
+    void testAddAfterReopening() throws IOException {
+        Path file = directory.resolve("fleet.store");
+        List<AccessPoint> fleet = buildFleet(0, 300);
+        try (MappedFleetStore store = MappedFleetStore.create(file, 16)) {
+            for (AccessPoint accessPoint : fleet.subList(0, 100)) {
+                store.add(accessPoint);
+            }
+        }
+        long sizeBefore = Files.size(file);
+
+        try (MappedFleetStore store = MappedFleetStore.open(file, true)) {
+            for (AccessPoint accessPoint : fleet.subList(100, 300)) {
+                store.add(accessPoint);
+            }
+        }
+
+        try (MappedFleetStore store = MappedFleetStore.open(file, false)) {
+            assertEquals(300, store.size());
+            assertEncodedTheSame(fleet, store);
+        }
+        assertTrue(Files.size(file) > sizeBefore);
+    }
+
+    @Test
+    void testFailuresMatchTheStateEncoders() throws IOException {
+        List<AccessPoint> fleet = new ArrayList<>();
+        ArtSystemState noCountry = FleetStoreTest.buildAccessPoint(0).getState();
+        noCountry.getLcrState().setCountry(null);
+        fleet.add(new AccessPoint("0a:0b:0c:0d:0e:00", noCountry));
+        ArtSystemState noExpectedToMove = FleetStoreTest.buildAccessPoint(1).getState();
+        noExpectedToMove.getZState().setExpectedToMove(null);
+        fleet.add(new AccessPoint("0a:0b:0c:0d:0e:01", noExpectedToMove));
+        ArtSystemState noMapImage = new ArtSystemState();
+        noMapImage.setMapIncluded(true);
+        fleet.add(new AccessPoint("0a:0b:0c:0d:0e:02", noMapImage));
+        FleetEncoder encoder = new FleetEncoder(true);
+        FleetEncoding expected = encoder.encode(fleet);
+
+        try (MappedFleetStore store = MappedFleetStore.create(directory.resolve("fleet.store"))) {
+            for (AccessPoint accessPoint : fleet) {
+                store.add(accessPoint);
+            }
+            FleetEncoding actual = encoder.encode(store, 0, store.size());
+
+            assertEquals(fleet.size(), actual.getFailedCount());
+            for (int i = 0; i < fleet.size(); i++) {
+                assertEquals(expected.getFailure(i).getClass(), actual.getFailure(i).getClass());
+                assertEquals(expected.getFailure(i).getMessage(), actual.getFailure(i).getMessage());
+            }
+        }
+    }
+
+    @Test
+    void testEmptyStateRoundTrip() throws IOException {
+        try (MappedFleetStore store = MappedFleetStore.create(directory.resolve("fleet.store"))) {
+            store.add(new AccessPoint("0A:0B:0C:0D:0E:0F", new ArtSystemState()));
+
+            ArtSystemState state = store.getState(0);
+
+            assertEquals("0a:0b:0c:0d:0e:0f", store.getBssid(0));
+            assertNull(state.getLcrState().getCountry());
+            assertNull(state.getZState().getExpectedToMove());
+            assertNull(state.getMapState().getMapUrl());
+            assertEquals(0, state.getBssidState().getBssidList().size());
+            assertThrows(IndexOutOfBoundsException.class, () -> store.getState(1));
+            assertThrows(IllegalArgumentException.class,
+                () -> store.add(new AccessPoint("wlan0", new ArtSystemState())));
+        }
+    }
+
+    @Test
+    void testNotAStore() throws IOException {
+        Path file = directory.resolve("survey.csv");
+        Files.write(file, "bssid,latitude,longitude,altitude,floor,building,room\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> MappedFleetStore.open(file, false));
+    }
+
+    @Test
+    void testAddAfterClosing() throws IOException {
+        MappedFleetStore store = MappedFleetStore.create(directory.resolve("fleet.store"));
+        store.close();
+
+        assertThrows(IllegalStateException.class,
+            () -> store.add(new AccessPoint("0a:0b:0c:0d:0e:0f", new ArtSystemState())));
+    }
+}
@@ -0,0 +1,217 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import geodesy.Ellipsoid;
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.LciState;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the measurement of the precision lost by the LCI encoding of a fleet.
+ */
+class QuantizationReportTest {
+    // Constants
+    private static final int FLEET_SIZE = 10000;
+    private static final double LATITUDE_STEP = Math.scalb(1.0, -25); // degrees
+    private static final double ALTITUDE_STEP = Math.scalb(1.0, -8);
+    private static final double TOLERANCE = 1e-9; // meters
+
+    private static AccessPoint buildAccessPoint(String bssid, double latitude, double longitude,
+                                                AltitudeType altitudeType, double altitude) {
+        ArtSystemState state = new ArtSystemState();
+        LciState lciState = state.getLciState();
+        lciState.setLatitude(latitude);
+        lciState.setLongitude(longitude);
+        lciState.setAltitudeType(altitudeType);
+        lciState.setAltitude(altitude);
+        state.setLciIncluded(true);
+        return new AccessPoint(bssid, state);
+    }
+
+    /**
+     * Test that a location on the grid of the fixed-point fields, with uncertainties that are
+     *  powers of two, loses nothing.
+     */
+    @Test
+    void testExactLocation() {
+        AccessPoint accessPoint = buildAccessPoint("00:00:00:00:00:01", 37 + 3 * LATITUDE_STEP,
+            -122 - 5 * LATITUDE_STEP, AltitudeType.ALTITUDE_IN_METERS, 12 + 7 * ALTITUDE_STEP);
+        accessPoint.getState().getLciState().setLatitudeUncertainty(Math.scalb(1.0, -10));
+        accessPoint.getState().getLciState().setAltitudeUncertainty(4);
+
+        QuantizationReport report = QuantizationReport.analyze(List.of(accessPoint));
+
+        assertEquals(1, report.size());
+        assertEquals("00:00:00:00:00:01", report.getBssid(0));
+        assertEquals(0, report.getHorizontalError(0));
+        assertEquals(0, report.getAltitudeError(0));
+        assertEquals(report.getLatitudeUncertainty(0), report.getEncodedLatitudeUncertainty(0));
+        assertEquals(0, report.getEncodedLongitudeUncertainty(0));
+        assertEquals(4, report.getEncodedAltitudeUncertainty(0));
+        assertEquals(1, report.getMaxUncertaintyGrowth());
+    }
+
+    /**
+     * Test the error of a latitude half a step off the grid at the equator, which rounds up to the
+     *  next step, and of an uncertainty just above a power of two, which doubles.
+     */
+    @Test
+    void testHalfStepError() {
+        AccessPoint accessPoint = buildAccessPoint("00:00:00:00:00:01", LATITUDE_STEP / 2, 0,
+            AltitudeType.ALTITUDE_IN_METERS, ALTITUDE_STEP / 4);
+        accessPoint.getState().getLciState().setLongitudeUncertainty(Math.nextUp(Math.scalb(1.0, -12)));
+
+        QuantizationReport report = QuantizationReport.analyze(List.of(accessPoint));
+
+        double expected = Math.toRadians(LATITUDE_STEP / 2) * Ellipsoid.WGS84.getMeridianRadius(0);
+        assertEquals(expected, report.getHorizontalError(0), TOLERANCE);
+        assertEquals(-ALTITUDE_STEP / 4, report.getAltitudeError(0));
+        assertEquals(ALTITUDE_STEP / 4, report.getMaxAltitudeError());
+        assertEquals(2 * report.getLongitudeUncertainty(0), report.getEncodedLongitudeUncertainty(0), TOLERANCE);
+        assertEquals(2, report.getMaxUncertaintyGrowth(), 1e-12);
+    }
+
+    /**
+     * Test the errors and statistics of a random fleet: every error is within half a step of the
+     *  fixed-point fields, and every known uncertainty grows by less than a factor of 2.
+     */
+    @Test
+    void testRandomFleet() {
+        Random random = new Random(42);
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            AccessPoint accessPoint = buildAccessPoint("00:00:00:00:00:01", random.nextDouble() * 180 - 90,
+                random.nextDouble() * 360 - 180, AltitudeType.ALTITUDE_IN_METERS, random.nextDouble() * 1000);
+            LciState lciState = accessPoint.getState().getLciState();
+            lciState.setLatitudeUncertainty(random.nextDouble() * 0.001);
+            lciState.setLongitudeUncertainty(random.nextDouble() * 0.001);
+            lciState.setAltitudeUncertainty(random.nextDouble() * 10);
+            accessPoints.add(accessPoint);
+        }
+
+        QuantizationReport report = QuantizationReport.analyze(accessPoints);
+
+        assertEquals(FLEET_SIZE, report.size());
+        // Half a step of latitude and longitude, at most about 1.67 mm each at the equator
+        double maxStepError = Math.toRadians(LATITUDE_STEP / 2) * Ellipsoid.WGS84.getPrimeVerticalRadius(0)
+            * Math.sqrt(2);
+        double sum = 0;
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            assertTrue(report.getHorizontalError(i) <= maxStepError);
+            assertTrue(Math.abs(report.getAltitudeError(i)) <= ALTITUDE_STEP / 2);
+            assertTrue(report.getEncodedLatitudeUncertainty(i) >= report.getLatitudeUncertainty(i));
+            assertTrue(report.getEncodedLatitudeUncertainty(i) < 2 * report.getLatitudeUncertainty(i));
+            assertTrue(report.getEncodedAltitudeUncertainty(i) >= report.getAltitudeUncertainty(i));
+            sum += report.getHorizontalError(i);
+        }
+        assertEquals(sum / FLEET_SIZE, report.getMeanHorizontalError(), TOLERANCE);
+        assertTrue(report.getMeanHorizontalError() <= report.getRmsHorizontalError());
+        assertTrue(report.getHorizontalErrorPercentile(50) <= report.getHorizontalErrorPercentile(95));
+        assertTrue(report.getHorizontalErrorPercentile(95) <= report.getMaxHorizontalError());
+        assertEquals(report.getMaxHorizontalError(), report.getHorizontalErrorPercentile(100));
+        assertEquals(FLEET_SIZE, report.getAltitudeErrorCount());
+        assertTrue(report.getMaxUncertaintyGrowth() < 2);
+    }
+
+    /**
+     * Test that access points without an LCI subelement are left out, and that altitudes that are
+     *  not in meters are left out of the altitude statistics.
+     */
+    @Test
+    void testAltitudeTypes() throws IOException {
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        accessPoints.add(new AccessPoint("00:00:00:00:00:01", new ArtSystemState()));
+        accessPoints.add(buildAccessPoint("00:00:00:00:00:02", 10, 20, AltitudeType.NO_KNOWN_ALTITUDE, 0));
+        accessPoints.add(buildAccessPoint("00:00:00:00:00:03", 10, 20, AltitudeType.ALTITUDE_IN_FLOORS, 2.001));
+
+        QuantizationReport report = QuantizationReport.analyze(accessPoints);
+
+        assertEquals(2, report.size());
+        assertEquals("00:00:00:00:00:02", report.getBssid(0));
+        assertTrue(Double.isNaN(report.getAltitudeError(0)));
+        assertEquals(AltitudeType.ALTITUDE_IN_FLOORS, report.getAltitudeType(1));
+        assertEquals(Math.round(2.001 * 256) / 256.0 - 2.001, report.getAltitudeError(1), 1e-12);
+        assertEquals(0, report.getAltitudeErrorCount());
+        assertTrue(Double.isNaN(report.getMaxAltitudeError()));
+
+        StringWriter output = new StringWriter();
+        report.writeTo(output);
+        String[] lines = output.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("bssid\thorizontal_error_m\t"));
+        String[] fields = lines[1].split("\t", -1);
+        assertEquals(10, fields.length);
+        assertEquals("00:00:00:00:00:02", fields[0]);
+        assertEquals("", fields[2]);
+        assertEquals("0", fields[3]);
+        assertEquals("0.000000", fields[4]);
+        assertEquals("-0.001000", lines[2].split("\t")[2]);
+    }
+
+    /**
+     * Test that the report of some of the access points of a fleet store, read from its columns, is
+     *  that of the same access points.
+     */
+    @Test
+    void testFleetStoreMatchesAccessPoints() throws IOException {
+        Random random = new Random(7);
+        FleetStore store = new FleetStore();
+        List<AccessPoint> selected = new ArrayList<>();
+        int[] indices = new int[50];
+        for (int i = 0; i < 100; i++) {
+            AccessPoint accessPoint = buildAccessPoint(FleetStore.formatBssid(i), random.nextDouble() * 180 - 90,
+                random.nextDouble() * 360 - 180, AltitudeType.ALTITUDE_IN_METERS, random.nextDouble() * 1000);
+            accessPoint.getState().getLciState().setLatitudeUncertainty(random.nextDouble() * 0.001);
+            accessPoint.getState().setLciIncluded(i % 10 != 0);
+            store.add(accessPoint);
+            if (i % 2 == 0) {
+                indices[i / 2] = i;
+                selected.add(accessPoint);
+            }
+        }
+
+        StringWriter expected = new StringWriter();
+        QuantizationReport.analyze(selected).writeTo(expected);
+        StringWriter actual = new StringWriter();
+        QuantizationReport.analyze(store, indices).writeTo(actual);
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    void testEmptyFleet() {
+        QuantizationReport report = QuantizationReport.analyze(new ArrayList<>());
+
+        assertEquals(0, report.size());
+        assertTrue(Double.isNaN(report.getMaxHorizontalError()));
+        assertTrue(Double.isNaN(report.getHorizontalErrorPercentile(95)));
+        assertThrows(IllegalArgumentException.class, () -> report.getHorizontalErrorPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> report.getHorizontalErrorPercentile(101));
+    }
+}
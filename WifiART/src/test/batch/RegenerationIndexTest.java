@@ -0,0 +1,166 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for regenerating only the access points whose records changed since the previous run.
+ */
+class RegenerationIndexTest {
+    // Constants
+    private static final String HEADER = "bssid,latitude,latitude_uncertainty,longitude,longitude_uncertainty,"
+        + "country,civic:Room\n";
+    private static final String FIRST = "01:02:03:04:05:06,-33.8570095,0.0007105,151.2152005,0.0007055,AU,Room 2\n";
+    private static final String SECOND = "0a:0b:0c:0d:0e:0f,37.4,0.001,-122.08,0.001,US,Room 3\n";
+    private static final String SECOND_MOVED = "0a:0b:0c:0d:0e:0f,37.5,0.001,-122.08,0.001,US,Room 3\n";
+    private static final String THIRD = "0a:0b:0c:0d:0e:10,37.4,0.001,-122.08,0.001,DE,München\n";
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
+    private final PrintStream log = new PrintStream(logBytes, true, StandardCharsets.UTF_8);
+
+    /**
+     * Runs an incremental batch on the output and index files of the previous run, if any.
+     *
+     * @param input the CSV input
+     * @return the batch encoder, holding the counts of the run
+     */
+    private BatchEncoder encodeIncrementally(String input) throws IOException {
+        Path outputFile = directory.resolve("hostapd.conf");
+        Path indexFile = directory.resolve("hostapd.index");
+        RegenerationIndex previousIndex = new RegenerationIndex();
+        if (Files.exists(indexFile)) {
+            try (Reader indexInput = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                previousIndex = RegenerationIndex.read(indexInput);
+            }
+        }
+        BatchEncoder encoder = new BatchEncoder(false);
+        try (FileChannel previousOutput = Files.exists(outputFile)
+                ? FileChannel.open(outputFile, StandardOpenOption.READ) : null;
+             AtomicFileWriter output = new AtomicFileWriter(outputFile, AtomicFileWriter.SyncPolicy.NONE);
+             AtomicFileWriter nextIndex = new AtomicFileWriter(indexFile, AtomicFileWriter.SyncPolicy.NONE)) {
+            encoder.setIncremental(previousIndex, previousOutput, nextIndex);
+            encoder.encode(new StringReader(input), output, log);
+            nextIndex.commit();
+            output.commit();
+        }
+        return encoder;
+    }
+
+    private String readOutput() throws IOException {
+        return new String(Files.readAllBytes(directory.resolve("hostapd.conf")), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes every access point of a CSV input, as without an index.
+     *
+     * @param input the CSV input
+     * @return the encoded lines
+     */
+    private String encodeFully(String input) throws IOException {
+        StringWriter output = new StringWriter();
+        new BatchEncoder(false).encode(new StringReader(input), output, log);
+        return output.toString();
+    }
+
+    @Test
+    void testUnchangedAccessPointsAreNotRegenerated() throws IOException {
+        encodeIncrementally(HEADER + FIRST + SECOND + THIRD);
+        logBytes.reset();
+
+        BatchEncoder encoder = encodeIncrementally(HEADER + FIRST + SECOND_MOVED + THIRD);
+
+        assertEquals(2, encoder.getUnchangedAccessPointCount());
+        assertEquals(0, encoder.getRemovedAccessPointCount());
+        assertEquals(encodeFully(HEADER + FIRST + SECOND_MOVED + THIRD), readOutput());
+        String logText = logBytes.toString(StandardCharsets.UTF_8);
+        assertTrue(logText.contains("Regenerated 0a:0b:0c:0d:0e:0f"));
+        assertFalse(logText.contains("Regenerated 01:02:03:04:05:06"));
+    }
+
+    @Test
+    void testFirstRunRegeneratesEverything() throws IOException {
+        BatchEncoder encoder = encodeIncrementally(HEADER + FIRST + SECOND);
+
+        assertEquals(0, encoder.getUnchangedAccessPointCount());
+        assertEquals(encodeFully(HEADER + FIRST + SECOND), readOutput());
+        assertTrue(encoder.getSummary().contains("2 regenerated"));
+    }
+
+    @Test
+    void testRemovedAndReorderedAccessPoints() throws IOException {
+        encodeIncrementally(HEADER + FIRST + SECOND + THIRD);
+
+        BatchEncoder encoder = encodeIncrementally(HEADER + THIRD + FIRST);
+
+        assertEquals(2, encoder.getUnchangedAccessPointCount());
+        assertEquals(1, encoder.getRemovedAccessPointCount());
+        assertEquals(encodeFully(HEADER + THIRD + FIRST), readOutput());
+    }
+
+    @Test
+    void testEditedOutputIsRegenerated() throws IOException {
+        encodeIncrementally(HEADER + FIRST + SECOND);
+        Path outputFile = directory.resolve("hostapd.conf");
+        Files.write(outputFile, readOutput().replace("civic=", "civic=00").getBytes(StandardCharsets.UTF_8));
+
+        BatchEncoder encoder = encodeIncrementally(HEADER + FIRST + SECOND);
+
+        assertEquals(0, encoder.getUnchangedAccessPointCount());
+        assertEquals(encodeFully(HEADER + FIRST + SECOND), readOutput());
+    }
+
+    @Test
+    void testChangedHeaderRegeneratesEverything() throws IOException {
+        encodeIncrementally(HEADER + FIRST + SECOND);
+
+        // Swapped column names with the same values change every access point.
+        String swappedHeader = HEADER.replace("latitude,latitude_uncertainty,longitude,longitude_uncertainty",
+            "longitude,longitude_uncertainty,latitude,latitude_uncertainty");
+        BatchEncoder encoder = encodeIncrementally(swappedHeader + FIRST + SECOND);
+
+        assertEquals(0, encoder.getUnchangedAccessPointCount());
+        assertEquals(encodeFully(swappedHeader + FIRST + SECOND), readOutput());
+    }
+
+    @Test
+    void testMalformedIndex() {
+        assertThrows(IllegalArgumentException.class,
+            () -> RegenerationIndex.read(new StringReader("bssid,latitude\n")));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import encoding.HexCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import structs.ArtSystemState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for writing a fleet as geohash shards with a manifest.
+ */
+class ShardedFleetWriterTest {
+    // Constants
+    private static final int FLEET_SIZE = 300;
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
+    private final PrintStream log = new PrintStream(logBytes, true);
+
+    /**
+     * Builds a fleet in two cities, with an access point without location.
+     */
+    private static List<AccessPoint> buildFleet() {
+        List<AccessPoint> accessPoints = new ArrayList<>();
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            AccessPoint accessPoint = FleetStoreTest.buildAccessPoint(i);
+            if (i % 2 == 1) {
+                // Move to Paris.
+                accessPoint.getState().getLciState().setLatitude(48.85 + i * 0.0001);
+                accessPoint.getState().getLciState().setLongitude(2.35 + i * 0.0001);
+            }
+            accessPoints.add(accessPoint);
+        }
+        ArtSystemState state = new ArtSystemState();
+        state.getMapState().setMapType("URL Defined");
+        state.getMapState().setMapUrl("http://map.google.com/unlocated.jpg");
+        state.setMapIncluded(true);
+        accessPoints.add(new AccessPoint("0a:00:00:00:00:01", state));
+        return accessPoints;
+    }
+
+    private ShardManifest readManifest() throws IOException {
+        try (Reader input = Files.newBufferedReader(directory.resolve(ShardedFleetWriter.MANIFEST_NAME))) {
+            return ShardManifest.read(input);
+        }
+    }
+
+    private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return HexCodec.toHexString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    @Test
+    void testShardsHoldEveryAccessPointOnce() throws Exception {
+        List<AccessPoint> accessPoints = buildFleet();
+        ShardedFleetWriter writer = new ShardedFleetWriter(true, 3, AtomicFileWriter.SyncPolicy.NONE);
+
+        ShardManifest manifest = writer.write(accessPoints, directory, log);
+
+        assertEquals(3, manifest.getEntries().size());
+        assertEquals(3, writer.getWrittenShardCount());
+        assertEquals(FLEET_SIZE / 2, manifest.get("9q9").getAccessPointCount());
+        assertEquals(FLEET_SIZE / 2, manifest.get("u09").getAccessPointCount());
+        assertEquals(1, manifest.get("unlocated").getAccessPointCount());
+        StringWriter expected = new StringWriter();
+        new FleetEncoder(true).encode(accessPoints).writeTo(expected);
+        int totalLength = 0;
+        for (ShardManifest.Entry entry : readManifest().getEntries()) {
+            byte[] bytes = Files.readAllBytes(directory.resolve(entry.getFileName()));
+            assertEquals(entry.getLength(), bytes.length);
+            assertEquals(entry.getSha256(), sha256(bytes));
+            totalLength += bytes.length;
+            // Each access point of the shard is found in the output of the whole fleet.
+            for (String block : new String(bytes, StandardCharsets.UTF_8).split("(?=# Access point)")) {
+                assertTrue(expected.toString().contains(block));
+            }
+        }
+        assertEquals(expected.toString().getBytes(StandardCharsets.UTF_8).length, totalLength);
+    }
+
+    @Test
+    void testUnchangedShardsAreKept() throws Exception {
+        List<AccessPoint> accessPoints = buildFleet();
+        ShardedFleetWriter writer = new ShardedFleetWriter(true, 3, AtomicFileWriter.SyncPolicy.NONE);
+        writer.write(accessPoints, directory, log);
+        Path parisShard = directory.resolve("u09.conf");
+        Files.setLastModifiedTime(parisShard, FileTime.fromMillis(0));
+
+        accessPoints.get(0).getState().getLciState().setAltitude(42);
+        writer.write(accessPoints, directory, log);
+
+        assertEquals(1, writer.getWrittenShardCount());
+        assertEquals(2, writer.getUnchangedShardCount());
+        assertEquals(0, Files.getLastModifiedTime(parisShard).toMillis());
+        assertEquals(sha256(Files.readAllBytes(directory.resolve("9q9.conf"))), readManifest().get("9q9").getSha256());
+    }
+
+    @Test
+    void testStaleShardsAreRemoved() throws Exception {
+        List<AccessPoint> accessPoints = buildFleet();
+        ShardedFleetWriter writer = new ShardedFleetWriter(true, 3, AtomicFileWriter.SyncPolicy.NONE);
+        writer.write(accessPoints, directory, log);
+
+        writer.write(accessPoints.subList(0, 1), directory, log);
+
+        assertEquals(2, writer.getRemovedShardCount());
+        assertTrue(Files.exists(directory.resolve("9q9.conf")));
+        assertFalse(Files.exists(directory.resolve("u09.conf")));
+        assertFalse(Files.exists(directory.resolve("unlocated.conf")));
+        assertNull(readManifest().get("u09"));
+    }
+
+    @Test
+    void testFailuresAreReported() throws IOException {
+        List<AccessPoint> accessPoints = buildFleet();
+        accessPoints.get(2).getState().getLcrState().setCountry("");
+        ShardedFleetWriter writer = new ShardedFleetWriter(true, 3, AtomicFileWriter.SyncPolicy.NONE);
+
+        ShardManifest manifest = writer.write(accessPoints, directory, log);
+
+        assertEquals(1, writer.getFailedAccessPointCount());
+        assertEquals(FLEET_SIZE / 2 - 1, manifest.get("9q9").getAccessPointCount());
+        assertTrue(logBytes.toString().startsWith(accessPoints.get(2).getBssid() + ": "));
+    }
+
+    @Test
+    void testFleetStoreMatchesAccessPoints() throws IOException {
+        List<AccessPoint> accessPoints = buildFleet();
+        FleetStore store = new FleetStore();
+        for (AccessPoint accessPoint : accessPoints) {
+            store.add(accessPoint);
+        }
+        int[] indices = new int[store.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        Path listDirectory = Files.createDirectory(directory.resolve("list"));
+        Path storeDirectory = Files.createDirectory(directory.resolve("store"));
+        ShardedFleetWriter writer = new ShardedFleetWriter(true, 3, AtomicFileWriter.SyncPolicy.NONE);
+
+        ShardManifest expected = writer.write(accessPoints, listDirectory, log);
+        ShardManifest actual = writer.write(store, indices, storeDirectory, log);
+
+        assertEquals(expected.getEntries().size(), actual.getEntries().size());
+        for (ShardManifest.Entry entry : expected.getEntries()) {
+            assertEquals(entry.getSha256(), actual.get(entry.getName()).getSha256());
+            assertEquals(entry.getAccessPointCount(), actual.get(entry.getName()).getAccessPointCount());
+        }
+    }
+
+    @Test
+    void testManifestRoundTrip() throws IOException {
+        ShardManifest manifest = new ShardManifest("android-s=true precision=3");
+        manifest.add(new ShardManifest.Entry("9q9", "9q9.conf", 12, 3456, "ab01"));
+        StringWriter text = new StringWriter();
+
+        manifest.write(text);
+        ShardManifest read = ShardManifest.read(new StringReader(text.toString()));
+
+        assertEquals("android-s=true precision=3", read.getConfiguration());
+        ShardManifest.Entry entry = read.get("9q9");
+        assertEquals("9q9.conf", entry.getFileName());
+        assertEquals(12, entry.getAccessPointCount());
+        assertEquals(3456, entry.getLength());
+        assertEquals("ab01", entry.getSha256());
+        assertThrows(IllegalArgumentException.class, () -> ShardManifest.read(new StringReader("manifest\n")));
+        assertThrows(IllegalArgumentException.class,
+            () -> ShardManifest.read(new StringReader("wifirtt-shard-manifest-1\t\n9q9h\t9q9h.conf\tx\t1\tab\n")));
+    }
+
+    @Test
+    void testPrecisionOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new ShardedFleetWriter(true, 13, AtomicFileWriter.SyncPolicy.NONE));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package batch;
+
+import org.junit.jupiter.api.Test;
+import structs.AddressElement;
+import structs.ArtSystemState;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for reading the access points of a survey file.
+ */
+class SurveyReaderTest {
+    // Constants
+    private static final String HEADER = "bssid,latitude,longitude,colocated_bssids,country,language,civic:City\n";
+
+    @Test
+    void testRecordsOfAnAccessPointAreMerged() throws IOException {
+        SurveyReader reader = new SurveyReader(new StringReader(HEADER
+            + "01:02:03:04:05:06,48.137,11.575,01:02:03:04:05:07,DE,de,München\n"
+            + "01:02:03:04:05:06,,,01:02:03:04:05:08,DE,en,Munich\n"
+            + "0a:0b:0c:0d:0e:0f,37.4,-122.08,,,,\n"));
+
+        AccessPoint munich = reader.next();
+        long munichLineNumber = reader.getLineNumber();
+        AccessPoint mountainView = reader.next();
+
+        assertEquals("01:02:03:04:05:06", munich.getBssid());
+        assertEquals(2, munichLineNumber);
+        ArtSystemState state = munich.getState();
+        assertEquals(48.137, state.getLciState().getLatitude());
+        assertEquals(2, state.getBssidState().getBssidList().size());
+        List<AddressElement> addressElements = state.getLcrState().getAddressElementsList();
+        assertEquals(2, addressElements.size());
+        assertEquals("de", addressElements.get(0).getLanguageCode());
+        assertEquals("en", addressElements.get(1).getLanguageCode());
+        assertTrue(state.isLciIncluded() && state.isBssidIncluded() && state.isLcrIncluded());
+        assertEquals("0a:0b:0c:0d:0e:0f", mountainView.getBssid());
+        assertEquals(4, reader.getLineNumber());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testInvalidAccessPointIsSkippedWhole() throws IOException {
+        SurveyReader reader = new SurveyReader(new StringReader(HEADER
+            + "01:02:03:04:05:06,95,0,,,,\n"
+            + "01:02:03:04:05:06,,,01:02:03:04:05:07,,,\n"
+            + "0a:0b:0c:0d:0e:0f,37.4,-122.08,,,,\n"));
+
+        assertThrows(NumberFormatException.class, reader::next);
+        assertEquals(2, reader.getLineNumber());
+        assertEquals("0a:0b:0c:0d:0e:0f", reader.next().getBssid());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testMalformedRecordIsReportedAfterThePreviousAccessPoint() throws IOException {
+        SurveyReader reader = new SurveyReader(new StringReader(HEADER
+            + "01:02:03:04:05:06,48.137,11.575,,,,\n"
+            + "\"0a:0b\"x,,,,,,\n"
+            + "0a:0b:0c:0d:0e:0f,37.4,-122.08,,,,\n"));
+
+        assertEquals("01:02:03:04:05:06", reader.next().getBssid());
+        assertThrows(IllegalArgumentException.class, reader::next);
+        assertEquals(3, reader.getLineNumber());
+        assertEquals("0a:0b:0c:0d:0e:0f", reader.next().getBssid());
+        assertNull(reader.next());
+    }
+}
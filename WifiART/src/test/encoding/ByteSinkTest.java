@@ -0,0 +1,105 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the growable byte sink used to assemble variable-length encodings.
+ */
+class ByteSinkTest {
+
+    private static final String MUNICH = "München";
+
+    /**
+     * Test that a reserved length field can be filled in after its contents are written.
+     */
+    @Test
+    void testReserveAndPatch() {
+        ByteSink sink = new ByteSink();
+
+        sink.put((byte) 3);
+        int lengthIndex = sink.reserve();
+        int length = sink.putUtf8(MUNICH);
+        sink.patch(lengthIndex, length);
+
+        assertArrayEquals(HexCodec.decode("03084dc3bc6e6368656e"), sink.toByteArray());
+    }
+
+    /**
+     * Test that the sink grows past its initial capacity.
+     */
+    @Test
+    void testGrowth() {
+        ByteSink sink = new ByteSink(1);
+        String name = "a".repeat(300);
+
+        sink.putUtf8(name);
+
+        assertEquals(300, sink.size());
+        assertArrayEquals(name.getBytes(StandardCharsets.UTF_8), sink.toByteArray());
+    }
+
+    /**
+     * Test that a reset sink can be reused.
+     */
+    @Test
+    void testReset() {
+        ByteSink sink = new ByteSink();
+        sink.putUtf8(MUNICH);
+
+        sink.reset();
+        sink.put((byte) 1);
+
+        assertArrayEquals(new byte[] {1}, sink.toByteArray());
+    }
+
+    /**
+     * Test that only bytes which have been written can be patched.
+     */
+    @Test
+    void testPatchUnwrittenIndex() {
+        ByteSink sink = new ByteSink();
+        sink.put((byte) 1);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> sink.patch(1, 0));
+    }
+
+    /**
+     * Test that the remaining bytes of a buffer are appended, and the sink is appended as hex.
+     */
+    @Test
+    void testPutBufferAndAppendHex() {
+        ByteSink sink = new ByteSink(1);
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] {0x01, 0x0b, (byte) 0xff, 0x20});
+        buffer.position(1);
+        StringBuilder hex = new StringBuilder("civic=");
+
+        sink.put(buffer);
+        sink.appendHex(hex);
+
+        assertEquals(4, buffer.position());
+        assertEquals("civic=0bff20", hex.toString());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for converting bytes to and from hex strings.
+ */
+class HexCodecTest {
+
+    private static final byte[] LCI_HEADER_BYTES = {0x01, 0x00, 0x08};
+    private static final String LCI_HEADER = "010008";
+    private static final String LCI_HEADER_READABLE = "01 00 08";
+
+    /**
+     * Gets an array containing every byte value once.
+     *
+     * @return the array of all 256 byte values
+     */
+    private static byte[] getAllByteValues() {
+        byte[] result = new byte[256];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) i;
+        }
+        return result;
+    }
+
+    /**
+     * Test that every byte value is encoded as String.format("%02x") would encode it.
+     */
+    @Test
+    void testToHexStringAllByteValues() {
+        byte[] bytes = getAllByteValues();
+        StringBuilder expected = new StringBuilder();
+        for (byte b : bytes) {
+            expected.append(String.format("%02x", b));
+        }
+
+        assertEquals(expected.toString(), HexCodec.toHexString(bytes));
+    }
+
+    /**
+     * Test encoding into a character array in the readable form.
+     */
+    @Test
+    void testEncodeReadable() {
+        char[] chars = new char[HexCodec.getEncodedLength(LCI_HEADER_BYTES.length, true)];
+
+        int written = HexCodec.encode(LCI_HEADER_BYTES, 0, LCI_HEADER_BYTES.length, chars, 0, true);
+
+        assertEquals(chars.length, written);
+        assertEquals(LCI_HEADER_READABLE, new String(chars));
+    }
+
+    /**
+     * Test appending bytes to a StringBuilder in both forms.
+     */
+    @Test
+    void testAppendHex() {
+        StringBuilder notReadable = new StringBuilder("lci=");
+        StringBuilder readable = new StringBuilder("LCI: ");
+
+        HexCodec.appendHex(LCI_HEADER_BYTES, 0, LCI_HEADER_BYTES.length, notReadable, false);
+        HexCodec.appendHex(LCI_HEADER_BYTES, 0, LCI_HEADER_BYTES.length, readable, true);
+
+        assertEquals("lci=" + LCI_HEADER, notReadable.toString());
+        assertEquals("LCI: " + LCI_HEADER_READABLE, readable.toString());
+    }
+
+    /**
+     * Test adding spaces to an existing hex string.
+     */
+    @Test
+    void testAppendReadable() {
+        StringBuilder result = new StringBuilder();
+
+        HexCodec.appendReadable(LCI_HEADER, result);
+
+        assertEquals(LCI_HEADER_READABLE, result.toString());
+    }
+
+    /**
+     * Test that decoding reverses encoding for every byte value, in either case.
+     */
+    @Test
+    void testDecodeAllByteValues() {
+        byte[] bytes = getAllByteValues();
+        String hex = HexCodec.toHexString(bytes);
+
+        assertArrayEquals(bytes, HexCodec.decode(hex));
+        assertArrayEquals(bytes, HexCodec.decode(hex.toUpperCase()));
+    }
+
+    /**
+     * Test that decoding rejects characters that are not hex digits.
+     */
+    @Test
+    void testDecodeNotHex() {
+        assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("01g0"));
+        assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("01İ0"));
+        assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("01 000"));
+    }
+
+    /**
+     * Test that decoding rejects a string with an odd number of characters.
+     */
+    @Test
+    void testDecodeOddLength() {
+        assertThrows(IllegalArgumentException.class, () -> HexCodec.decode("010"));
+    }
+}
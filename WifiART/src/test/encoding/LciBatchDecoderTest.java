@@ -0,0 +1,96 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.LciState;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the batch LCI decoder matches the per-AP LCI decoder.
+ */
+class LciBatchDecoderTest {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Test that every value decoded from a random batch is identical to the per-AP decoding.
+     */
+    @Test
+    void testBatchMatchesPerApDecoding() {
+        Random random = new Random(7);
+        double[] latitude = new double[BATCH_SIZE];
+        double[] latitudeUncertainty = new double[BATCH_SIZE];
+        double[] longitude = new double[BATCH_SIZE];
+        double[] longitudeUncertainty = new double[BATCH_SIZE];
+        double[] altitude = new double[BATCH_SIZE];
+        double[] altitudeUncertainty = new double[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            latitude[i] = random.nextDouble() * 180 - 90;
+            longitude[i] = random.nextDouble() * 360 - 180;
+            altitude[i] = random.nextDouble() * 20000 - 1000;
+            latitudeUncertainty[i] = i % 10 == 0 ? 0 : Math.scalb(random.nextDouble(), 12 - random.nextInt(40));
+            longitudeUncertainty[i] = random.nextDouble();
+            altitudeUncertainty[i] = Math.scalb(random.nextDouble() + 1, 22 - random.nextInt(40));
+        }
+        LciState template = new LciState();
+        template.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        byte[] payloads = new byte[BATCH_SIZE * LciBatchEncoder.PAYLOAD_LENGTH + 3];
+        new LciBatchEncoder(template).encode(latitude, latitudeUncertainty, longitude, longitudeUncertainty,
+            altitude, altitudeUncertainty, BATCH_SIZE, payloads, 3);
+        double[][] decoded = new double[6][BATCH_SIZE];
+
+        new LciBatchDecoder().decode(payloads, 3, BATCH_SIZE, decoded[0], decoded[1], decoded[2], decoded[3],
+            decoded[4], decoded[5]);
+
+        LciDecoder decoder = new LciDecoder();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int offset = 3 + i * LciBatchEncoder.PAYLOAD_LENGTH;
+            LciState expected = decoder.decode(ByteBuffer.wrap(payloads, offset, LciBatchEncoder.PAYLOAD_LENGTH));
+            assertEquals(expected.getLatitude(), decoded[0][i]);
+            assertEquals(expected.getLatitudeUncertainty(), decoded[1][i]);
+            assertEquals(expected.getLongitude(), decoded[2][i]);
+            assertEquals(expected.getLongitudeUncertainty(), decoded[3][i]);
+            assertEquals(expected.getAltitude(), decoded[4][i]);
+            assertEquals(expected.getAltitudeUncertainty(), decoded[5][i]);
+            // The rounding is within half a step of the fixed-point fields.
+            assertEquals(latitude[i], decoded[0][i], Math.scalb(1.0, -26));
+            assertEquals(altitude[i], decoded[4][i], Math.scalb(1.0, -9));
+        }
+    }
+
+    /**
+     * Test that a batch reaching past the end of the source array is rejected.
+     */
+    @Test
+    void testSourceTooShort() {
+        double[] column = new double[2];
+        byte[] src = new byte[LciBatchEncoder.PAYLOAD_LENGTH];
+        LciBatchDecoder decoder = new LciBatchDecoder();
+
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> decoder.decode(src, 0, 2, column, column, column, column, column, column));
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> decoder.decode(src, 0, 3, column, column, column, column, column, column));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the batch LCI encoder matches the per-AP LCI encoder.
+ */
+class LciBatchEncoderTest {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int HEADER_LENGTH = 2; // Subelement ID and length fields
+
+    /**
+     * Test that every payload of a random batch is identical to the per-AP encoding.
+     */
+    @Test
+    void testBatchMatchesPerApEncoding() {
+        Random random = new Random(42);
+        double[] latitude = new double[BATCH_SIZE];
+        double[] latitudeUncertainty = new double[BATCH_SIZE];
+        double[] longitude = new double[BATCH_SIZE];
+        double[] longitudeUncertainty = new double[BATCH_SIZE];
+        double[] altitude = new double[BATCH_SIZE];
+        double[] altitudeUncertainty = new double[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            latitude[i] = random.nextDouble() * 180 - 90;
+            longitude[i] = random.nextDouble() * 360 - 180;
+            altitude[i] = random.nextDouble() * 20000 - 1000;
+            // Include unknown (0) uncertainties and exact powers of two.
+            latitudeUncertainty[i] = i % 10 == 0 ? 0 : Math.scalb(random.nextDouble(), 12 - random.nextInt(40));
+            longitudeUncertainty[i] = i % 7 == 0 ? Math.scalb(1.0, 8 - i % 35) : random.nextDouble();
+            altitudeUncertainty[i] = Math.scalb(random.nextDouble() + 1, 22 - random.nextInt(40));
+        }
+        LciState template = new LciState();
+        template.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        template.setMapDatum(MapDatum.NAD83_NAVD88);
+        template.setRegLocDse(true);
+        byte[] payloads = new byte[BATCH_SIZE * LciBatchEncoder.PAYLOAD_LENGTH];
+
+        int length = new LciBatchEncoder(template).encode(latitude, latitudeUncertainty, longitude,
+            longitudeUncertainty, altitude, altitudeUncertainty, BATCH_SIZE, payloads, 0);
+
+        assertEquals(payloads.length, length);
+        LciEncoder encoder = new LciEncoder();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            template.setLatitude(latitude[i]);
+            template.setLatitudeUncertainty(latitudeUncertainty[i]);
+            template.setLongitude(longitude[i]);
+            template.setLongitudeUncertainty(longitudeUncertainty[i]);
+            template.setAltitude(altitude[i]);
+            template.setAltitudeUncertainty(altitudeUncertainty[i]);
+            byte[] expected = encoder.encode(template);
+            int offset = i * LciBatchEncoder.PAYLOAD_LENGTH;
+            assertArrayEquals(Arrays.copyOfRange(expected, HEADER_LENGTH, expected.length),
+                Arrays.copyOfRange(payloads, offset, offset + LciBatchEncoder.PAYLOAD_LENGTH));
+        }
+    }
+
+    /**
+     * Test that the uncertainty encoding is exact at powers of two, where 8 - log_2(uncertainty)
+     *  is a whole number.
+     */
+    @Test
+    void testUncertaintyEncodingAtPowersOfTwo() {
+        for (int encoding = 1; encoding <= 34; encoding++) {
+            double uncertainty = Math.scalb(1.0, 8 - encoding);
+            assertEquals(encoding, FixedPoint.getUncertaintyEncoding(uncertainty, 8, 1, 34));
+            // Any larger uncertainty needs the next larger range.
+            assertEquals(Math.max(1, encoding - 1),
+                FixedPoint.getUncertaintyEncoding(Math.nextUp(uncertainty), 8, 1, 34));
+        }
+        assertEquals(0, FixedPoint.getUncertaintyEncoding(0, 8, 1, 34));
+        assertEquals(0, FixedPoint.getUncertaintyEncoding(-1, 8, 1, 34));
+        assertEquals(1, FixedPoint.getUncertaintyEncoding(Double.POSITIVE_INFINITY, 8, 1, 34));
+        assertEquals(34, FixedPoint.getUncertaintyEncoding(Double.MIN_VALUE, 8, 1, 34));
+    }
+
+    /**
+     * Test that nothing is written when the destination cannot hold the batch.
+     */
+    @Test
+    void testDestinationTooShort() {
+        double[] column = new double[2];
+        byte[] dest = new byte[LciBatchEncoder.PAYLOAD_LENGTH];
+        LciBatchEncoder encoder = new LciBatchEncoder(new LciState());
+
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> encoder.encode(column, column, column, column, column, column, 2, dest, 0));
+        assertArrayEquals(new byte[LciBatchEncoder.PAYLOAD_LENGTH], dest);
+    }
+}
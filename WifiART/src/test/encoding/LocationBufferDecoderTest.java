@@ -0,0 +1,141 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.junit.jupiter.api.Test;
+import structs.AddressElement;
+import structs.AltitudeType;
+import structs.ArtSystemState;
+import structs.ExpectedToMove;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.ZState;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that hostapd configuration lines decode back into states that encode to the same bytes.
+ */
+class LocationBufferDecoderTest {
+
+    private static final String LCI_LINE = "lci=010008"
+        + "001052834d12efd2b08b9b4bf1cc2c000041" // LCI for the Sydney Opera House
+        + "04060001cd2c0002" // Z
+        + "0603020080" // Usage Rules/Policy
+        + "070702010203040506"; // BSSID List
+    private static final String CIVIC_LINE = "civic=01000b"
+        + "0018" + "5553" + "0002656e" + "03084d746e2056696577" + "1c06526f6f6d2032" // Location Civic
+        + "051e00687474703a2f2f6d61702e676f6f676c652e636f6d2f6234302e6a7067"; // Map Image
+
+    /**
+     * Test that a whole configuration decodes into the expected states, which re-encode identically.
+     */
+    @Test
+    void testRoundTrip() {
+        String configuration = "interface=wlan0\r\n" + LCI_LINE + "\r\n" + CIVIC_LINE + "\n";
+
+        ArtSystemState state = new LocationBufferDecoder().decode(configuration);
+
+        assertTrue(state.isLciIncluded());
+        assertTrue(state.isZIncluded());
+        assertTrue(state.isUsageIncluded());
+        assertTrue(state.isBssidIncluded());
+        assertTrue(state.isLcrIncluded());
+        assertTrue(state.isMapIncluded());
+
+        LciState lciState = state.getLciState();
+        assertEquals(-33.8570095, lciState.getLatitude(), 1e-7);
+        assertEquals(151.2152005, lciState.getLongitude(), 1e-7);
+        assertEquals(11.2, lciState.getAltitude(), 1e-2);
+        assertEquals(AltitudeType.ALTITUDE_IN_METERS, lciState.getAltitudeType());
+        assertEquals(MapDatum.WGS84, lciState.getMapDatum());
+
+        ZState zState = state.getZState();
+        assertEquals(4, zState.getFloor());
+        assertEquals(2.8, zState.getHeightAboveFloorMeters(), 1e-3);
+        assertEquals(ExpectedToMove.NOT_EXPECTED_TO_MOVE, zState.getExpectedToMove());
+
+        assertEquals(32768, state.getUsageState().getExpireTimeHours());
+        assertEquals(2, state.getBssidState().getMaxBssidIndicator());
+        assertEquals("http://map.google.com/b40.jpg", state.getMapState().getMapUrl());
+
+        LcrState lcrState = state.getLcrState();
+        assertEquals("United States of America", lcrState.getCountry());
+        List<AddressElement> addressElements = lcrState.getAddressElementsList();
+        assertEquals(2, addressElements.size());
+        assertEquals("Mtn View", addressElements.get(0).getName());
+        assertEquals("Room 2", addressElements.get(1).getName());
+
+        assertArrayEquals(hexBytes(LCI_LINE, 10, 46), new LciEncoder().encode(lciState));
+        assertArrayEquals(hexBytes(LCI_LINE, 46, 62), new ZEncoder().encode(zState));
+        assertArrayEquals(hexBytes(LCI_LINE, 72, 90), new BssidEncoder().encode(state.getBssidState()));
+        assertArrayEquals(hexBytes(CIVIC_LINE, 12, 64), new LcrEncoder().encode(lcrState));
+    }
+
+    /**
+     * Test that decoded uncertainties encode back to the same uncertainty codes.
+     */
+    @Test
+    void testUncertaintyRoundTrip() {
+        LciEncoder encoder = new LciEncoder();
+        LciDecoder decoder = new LciDecoder();
+        LciState original = new LciState();
+        original.setAltitudeType(AltitudeType.ALTITUDE_IN_FLOORS);
+        for (int i = 0; i < 40; i++) {
+            double uncertainty = Math.pow(2, 10 - i) * 0.7;
+            original.setLatitudeUncertainty(uncertainty);
+            original.setLongitudeUncertainty(uncertainty);
+            original.setAltitudeUncertainty(uncertainty);
+            byte[] encoded = encoder.encode(original);
+
+            LciState decoded = decoder.decode(ByteBuffer.wrap(encoded, 2, encoded.length - 2));
+
+            assertArrayEquals(encoded, encoder.encode(decoded));
+        }
+    }
+
+    /**
+     * Test that lines which are not LCI/LCR lines are left alone, and that malformed ones are rejected.
+     */
+    @Test
+    void testInvalidLines() {
+        LocationBufferDecoder decoder = new LocationBufferDecoder();
+        ArtSystemState state = new ArtSystemState();
+
+        assertFalse(decoder.decodeLine("ssid=test", state));
+        assertFalse(state.isLciIncluded());
+        // Wrong measurement type
+        assertThrows(IllegalArgumentException.class, () -> decoder.decodeLine("lci=01000b", state));
+        // Truncated LCI subelement
+        assertThrows(IllegalArgumentException.class, () -> decoder.decodeLine("lci=0100080010528", state));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decodeLine("lci=0100080010", state));
+        // Unknown country code
+        assertThrows(IllegalArgumentException.class, () -> decoder.decodeLine("civic=01000b00025a5a", state));
+    }
+
+    private static byte[] hexBytes(String line, int start, int end) {
+        return HexCodec.decode(line.substring(start, end));
+    }
+}
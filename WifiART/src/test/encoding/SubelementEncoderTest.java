@@ -0,0 +1,208 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package encoding;
+
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.BssidState;
+import structs.ExpectedToMove;
+import structs.LciState;
+import structs.LcrState;
+import structs.MapDatum;
+import structs.MapState;
+import structs.UsageState;
+import structs.ZState;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the subelement encoders work directly on the subelement states, without any
+ * controllers or views.
+ */
+class SubelementEncoderTest {
+
+    private static final String BUFFER_LCI_SYDNEY_OPERA_HOUSE = "001052834d12efd2b08b9b4bf1cc2c000041";
+    private static final String BUFFER_Z_EXAMPLE = "04060001cd2c0002";
+    private static final String BUFFER_USAGE_WITH_EXPIRE_TIME = "0603020080";
+    private static final String BUFFER_BSSID_EXAMPLE = "070702010203040506";
+    private static final String BUFFER_LCR_MOUNTAIN_VIEW = "0018"
+        + "5553" // Country code
+        + "0002656e" // English language
+        + "03084d746e2056696577" // City
+        + "1c06526f6f6d2032"; // Room
+    private static final String BUFFER_MAP_EXAMPLE =
+        "051e00687474703a2f2f6d61702e676f6f676c652e636f6d2f6234302e6a7067";
+
+    /**
+     * Converts a hex string into the bytes it represents.
+     *
+     * @param hex the hex string, with 2 characters per byte
+     * @return the bytes represented by the hex string
+     */
+    private static byte[] fromHex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+
+    /**
+     * Test the LCI encoding for the Sydney Opera House example.
+     */
+    @Test
+    void testLciEncoding() {
+        LciState state = new LciState();
+        state.setLatitude(-33.8570095);
+        state.setLatitudeUncertainty(0.0007105);
+        state.setLongitude(151.2152005);
+        state.setLongitudeUncertainty(0.0007055);
+        state.setAltitude(11.2);
+        state.setAltitudeUncertainty(33.7);
+        state.setAltitudeType(AltitudeType.ALTITUDE_IN_METERS);
+        state.setMapDatum(MapDatum.WGS84);
+
+        byte[] buffer = new LciEncoder().encode(state);
+
+        assertArrayEquals(fromHex(BUFFER_LCI_SYDNEY_OPERA_HOUSE), buffer);
+    }
+
+    /**
+     * Test the Z encoding for an example with values in a normal range.
+     */
+    @Test
+    void testZEncoding() {
+        ZState state = new ZState();
+        state.setFloor(4);
+        state.setHeightAboveFloorMeters(2.8);
+        state.setHeightAboveFloorUncertaintyMeters(0.1);
+        state.setExpectedToMove(ExpectedToMove.NOT_EXPECTED_TO_MOVE);
+
+        byte[] buffer = new ZEncoder().encode(state);
+
+        assertArrayEquals(fromHex(BUFFER_Z_EXAMPLE), buffer);
+    }
+
+    /**
+     * Test that the Z encoding fails when the Location Movement option is not chosen.
+     */
+    @Test
+    void testZEncodingWithoutExpectedToMove() {
+        ZState state = new ZState();
+
+        assertThrows(NullPointerException.class, () -> new ZEncoder().encode(state));
+    }
+
+    /**
+     * Test the Usage Rules/Policy encoding with an expire time.
+     */
+    @Test
+    void testUsageEncoding() {
+        UsageState state = new UsageState();
+        state.setRetentionExpires(true);
+        state.setExpireTimeHours(32768);
+
+        byte[] buffer = new UsageEncoder().encode(state);
+
+        assertArrayEquals(fromHex(BUFFER_USAGE_WITH_EXPIRE_TIME), buffer);
+    }
+
+    /**
+     * Test the BSSID List encoding with a single BSSID.
+     */
+    @Test
+    void testBssidEncoding() {
+        BssidState state = new BssidState();
+        state.setMaxBssidIndicator(2);
+        state.addBssid("01:02:03:04:05:06");
+
+        byte[] buffer = new BssidEncoder().encode(state);
+
+        assertArrayEquals(fromHex(BUFFER_BSSID_EXAMPLE), buffer);
+    }
+
+    /**
+     * Test the Location Civic encoding with a small address.
+     */
+    @Test
+    void testLcrEncoding() {
+        LcrState state = new LcrState();
+        state.setCountry("United States of America");
+        state.addAddressElement(new StringBuilder("Room 2"), new StringBuilder("English"), new StringBuilder("Room"));
+        state.addAddressElement(new StringBuilder("Mtn View"), new StringBuilder("English"), new StringBuilder("City"));
+
+        byte[] buffer = new LcrEncoder().encode(state);
+
+        assertArrayEquals(fromHex(BUFFER_LCR_MOUNTAIN_VIEW), buffer);
+    }
+
+    /**
+     * Test the Map Image encoding with an example URL.
+     */
+    @Test
+    void testMapEncoding() {
+        MapState state = new MapState();
+        state.setMapType("URL Defined");
+        state.setMapUrl("http://map.google.com/b40.jpg");
+
+        byte[] buffer = new MapEncoder().encode(state);
+
+        assertArrayEquals(fromHex(BUFFER_MAP_EXAMPLE), buffer);
+    }
+
+    /**
+     * Test that several subelements can be encoded one after another into a single buffer.
+     */
+    @Test
+    void testEncodingIntoSharedBuffer() {
+        UsageState usageState = new UsageState();
+        usageState.setRetentionExpires(true);
+        usageState.setExpireTimeHours(32768);
+        BssidState bssidState = new BssidState();
+        bssidState.setMaxBssidIndicator(2);
+        bssidState.addBssid("01:02:03:04:05:06");
+        UsageEncoder usageEncoder = new UsageEncoder();
+        BssidEncoder bssidEncoder = new BssidEncoder();
+        int length = usageEncoder.getEncodedLength(usageState) + bssidEncoder.getEncodedLength(bssidState);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        usageEncoder.encode(usageState, buffer);
+        bssidEncoder.encode(bssidState, buffer);
+
+        assertEquals(0, buffer.remaining());
+        assertArrayEquals(fromHex(BUFFER_USAGE_WITH_EXPIRE_TIME + BUFFER_BSSID_EXAMPLE), buffer.array());
+    }
+
+    /**
+     * Test that nothing is written when the buffer is too small for the subelement.
+     */
+    @Test
+    void testEncodingIntoTooSmallBuffer() {
+        MapState state = new MapState();
+        state.setMapType("URL Defined");
+        state.setMapUrl("http://map.google.com/b40.jpg");
+        ByteBuffer buffer = ByteBuffer.allocate(new MapEncoder().getEncodedLength(state) - 1);
+
+        assertThrows(BufferOverflowException.class, () -> new MapEncoder().encode(state, buffer));
+        assertEquals(0, buffer.position());
+    }
+}
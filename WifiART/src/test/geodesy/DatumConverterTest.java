@@ -0,0 +1,142 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.LciState;
+import structs.MapDatum;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for converting the location of LCI subelements between map datums.
+ */
+class DatumConverterTest {
+    // Constants
+    private static final double DEGREES_TOLERANCE = 1e-8;
+    private static final double METERS_TOLERANCE = 1e-3;
+    private static final double GEOID_HEIGHT = -32.5;
+
+    private static LciState createState(MapDatum mapDatum, AltitudeType altitudeType, double altitude) {
+        LciState state = new LciState();
+        state.setLatitude(37.4220);
+        state.setLongitude(-122.0841);
+        state.setAltitudeType(altitudeType);
+        state.setAltitude(altitude);
+        state.setMapDatum(mapDatum);
+        return state;
+    }
+
+    @Test
+    void testNad83ToWgs84AndBack() {
+        LciState state = createState(MapDatum.NAD83_NAVD88, AltitudeType.ALTITUDE_IN_METERS, 30);
+
+        new DatumConverter(MapDatum.WGS84, 2010).convert(state, GEOID_HEIGHT);
+
+        assertEquals(MapDatum.WGS84, state.getMapDatum());
+        // About a meter west, and the geoid height below the orthometric height.
+        assertEquals(-122.0841 - 1e-5, state.getLongitude(), 1e-5);
+        assertEquals(30 + GEOID_HEIGHT, state.getAltitude(), 2);
+
+        new DatumConverter(MapDatum.NAD83_NAVD88, 2010).convert(state, GEOID_HEIGHT);
+
+        assertEquals(MapDatum.NAD83_NAVD88, state.getMapDatum());
+        assertEquals(37.4220, state.getLatitude(), DEGREES_TOLERANCE);
+        assertEquals(-122.0841, state.getLongitude(), DEGREES_TOLERANCE);
+        assertEquals(30, state.getAltitude(), METERS_TOLERANCE);
+    }
+
+    @Test
+    void testFloorsAreKept() {
+        LciState state = createState(MapDatum.NAD83_MLLW, AltitudeType.ALTITUDE_IN_FLOORS, 3);
+
+        new DatumConverter(MapDatum.WGS84, 2010).convert(state, Double.NaN);
+
+        assertEquals(MapDatum.WGS84, state.getMapDatum());
+        assertEquals(3, state.getAltitude());
+    }
+
+    @Test
+    void testSameDatumIsUnchanged() {
+        LciState state = createState(MapDatum.WGS84, AltitudeType.ALTITUDE_IN_METERS, 30);
+
+        new DatumConverter(MapDatum.WGS84, 2010).convert(state, Double.NaN);
+
+        assertEquals(37.4220, state.getLatitude());
+        assertEquals(-122.0841, state.getLongitude());
+        assertEquals(30, state.getAltitude());
+    }
+
+    @Test
+    void testBatchMatchesSingleConversions() {
+        List<LciState> states = List.of(createState(MapDatum.NAD83_NAVD88, AltitudeType.ALTITUDE_IN_METERS, 30),
+            createState(MapDatum.WGS84, AltitudeType.ALTITUDE_IN_METERS, 30),
+            createState(MapDatum.NAD83_MLLW, AltitudeType.NO_KNOWN_ALTITUDE, 0));
+        DatumConverter converter = new DatumConverter(MapDatum.WGS84, 2010);
+        LciState expected = createState(MapDatum.NAD83_NAVD88, AltitudeType.ALTITUDE_IN_METERS, 30);
+        converter.convert(expected, GEOID_HEIGHT);
+
+        converter.convert(states, new double[] {GEOID_HEIGHT, Double.NaN, Double.NaN});
+
+        for (LciState state : states) {
+            assertEquals(MapDatum.WGS84, state.getMapDatum());
+        }
+        assertEquals(expected.getLatitude(), states.get(0).getLatitude());
+        assertEquals(expected.getLongitude(), states.get(0).getLongitude());
+        assertEquals(expected.getAltitude(), states.get(0).getAltitude());
+        assertEquals(-122.0841, states.get(1).getLongitude());
+        assertEquals(expected.getLongitude(), states.get(2).getLongitude(), DEGREES_TOLERANCE);
+    }
+
+    @Test
+    void testSingleConversionMatchesBatchToNad83() {
+        LciState single = createState(MapDatum.WGS84, AltitudeType.ALTITUDE_IN_METERS, 30);
+        LciState batch = createState(MapDatum.WGS84, AltitudeType.ALTITUDE_IN_METERS, 30);
+        DatumConverter converter = new DatumConverter(MapDatum.NAD83_NAVD88, 2020.5);
+
+        converter.convert(single, GEOID_HEIGHT);
+        converter.convert(List.of(batch), new double[] {GEOID_HEIGHT});
+
+        assertEquals(MapDatum.NAD83_NAVD88, single.getMapDatum());
+        assertEquals(batch.getLatitude(), single.getLatitude());
+        assertEquals(batch.getLongitude(), single.getLongitude());
+        assertEquals(batch.getAltitude(), single.getAltitude());
+    }
+
+    @Test
+    void testMissingVerticalDatumHeight() {
+        List<LciState> states = List.of(createState(MapDatum.NAD83_NAVD88, AltitudeType.ALTITUDE_IN_FLOORS, 1),
+            createState(MapDatum.NAD83_NAVD88, AltitudeType.ALTITUDE_IN_METERS, 30));
+        DatumConverter converter = new DatumConverter(MapDatum.WGS84, 2010);
+
+        assertThrows(IllegalArgumentException.class, () -> converter.convert(states, new double[] {0, Double.NaN}));
+        // No location is converted.
+        assertEquals(MapDatum.NAD83_NAVD88, states.get(0).getMapDatum());
+    }
+
+    @Test
+    void testBetweenVerticalDatums() {
+        LciState state = createState(MapDatum.NAD83_NAVD88, AltitudeType.ALTITUDE_IN_FLOORS, 1);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new DatumConverter(MapDatum.NAD83_MLLW, 2010).convert(state, 0));
+    }
+}
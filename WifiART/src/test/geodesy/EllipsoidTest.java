@@ -0,0 +1,84 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the conversions between geodetic and ECEF coordinates.
+ */
+class EllipsoidTest {
+    // Constants
+    private static final double WGS84_SEMI_MINOR_AXIS = 6356752.314245;
+    private static final double DEGREES_TOLERANCE = 1e-9; // about 0.1 mm
+    private static final double METERS_TOLERANCE = 1e-4;
+
+    @Test
+    void testEcefOfKnownPoints() {
+        double[] ecef = new double[3];
+
+        Ellipsoid.WGS84.toEcef(0, 0, 0, ecef);
+        assertEquals(6378137.0, ecef[0], METERS_TOLERANCE);
+        assertEquals(0, ecef[1], METERS_TOLERANCE);
+        assertEquals(0, ecef[2], METERS_TOLERANCE);
+
+        Ellipsoid.WGS84.toEcef(90, 0, 0, ecef);
+        assertEquals(0, ecef[0], METERS_TOLERANCE);
+        assertEquals(WGS84_SEMI_MINOR_AXIS, ecef[2], METERS_TOLERANCE);
+    }
+
+    /**
+     * Test that converting to ECEF and back gives the same point, from the equator to near the
+     *  pole and from below sea level to above the highest mountains.
+     */
+    @Test
+    void testRoundTrip() {
+        double[] latitudes = {0, -33.8570095, 37.4220, 60.5, 89.9999};
+        double[] longitudes = {0, 151.2152005, -122.0841, -179.9, 45};
+        double[] heights = {-400, 0, 11.2, 9000, 3000};
+        double[] ecef = new double[3];
+        double[] latitude = new double[1];
+        double[] longitude = new double[1];
+        double[] height = new double[1];
+
+        for (int i = 0; i < latitudes.length; i++) {
+            Ellipsoid.WGS84.toEcef(latitudes[i], longitudes[i], heights[i], ecef);
+            Ellipsoid.WGS84.toGeodetic(ecef[0], ecef[1], ecef[2], latitude, longitude, height, 0);
+
+            assertEquals(latitudes[i], latitude[0], DEGREES_TOLERANCE);
+            assertEquals(longitudes[i], longitude[0], DEGREES_TOLERANCE);
+            assertEquals(heights[i], height[0], METERS_TOLERANCE);
+        }
+    }
+
+    /**
+     * Test the radii of curvature in the meridian and the prime vertical at the equator, where
+     *  they are a (1 - e^2) and a, and at the pole, where both are a / sqrt(1 - e^2).
+     */
+    @Test
+    void testRadiiOfCurvature() {
+        double a = Ellipsoid.WGS84.getSemiMajorAxis();
+        double e2 = Ellipsoid.WGS84.getEccentricitySquared();
+
+        assertEquals(a * (1 - e2), Ellipsoid.WGS84.getMeridianRadius(0), METERS_TOLERANCE);
+        assertEquals(a, Ellipsoid.WGS84.getPrimeVerticalRadius(0), METERS_TOLERANCE);
+        assertEquals(a / Math.sqrt(1 - e2), Ellipsoid.WGS84.getMeridianRadius(1), METERS_TOLERANCE);
+        assertEquals(a / Math.sqrt(1 - e2), Ellipsoid.WGS84.getPrimeVerticalRadius(1), METERS_TOLERANCE);
+    }
+}
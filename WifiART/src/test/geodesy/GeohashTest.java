@@ -0,0 +1,54 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for encoding locations as geohashes.
+ */
+class GeohashTest {
+
+    @Test
+    void testKnownGeohashes() {
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("9q9hvumnfq3j", Geohash.encode(37.4220, -122.0841, 12));
+        assertEquals("r3gx2ux", Geohash.encode(-33.8570095, 151.2152005, 7));
+    }
+
+    @Test
+    void testPrefixOfAGeohashIsItsCell() {
+        assertEquals("9q9h", Geohash.encode(37.4220, -122.0841, 4));
+        assertEquals("9", Geohash.encode(37.4220, -122.0841, 1));
+    }
+
+    @Test
+    void testCornersOfTheWorld() {
+        assertEquals("zzz", Geohash.encode(90, 180, 3));
+        assertEquals("000", Geohash.encode(-90, -180, 3));
+    }
+
+    @Test
+    void testPrecisionOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, Geohash.MAX_PRECISION + 1));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the Helmert transformation between geodetic reference frames.
+ */
+class HelmertTransformationTest {
+    // Constants
+    private static final double DEGREES_TOLERANCE = 1e-9;
+    private static final double METERS_TOLERANCE = 1e-4;
+    private static final double[] NO_RATES = new double[7];
+
+    @Test
+    void testTranslationRaisesThePoint() {
+        HelmertTransformation transformation = new HelmertTransformation(Ellipsoid.WGS84, Ellipsoid.WGS84, 2000,
+            new double[] {10, 0, 0, 0, 0, 0, 0}, NO_RATES);
+        double[] latitudes = {0};
+        double[] longitudes = {0};
+        double[] heights = {0};
+
+        transformation.transform(latitudes, longitudes, heights, 1, 2000);
+
+        assertEquals(0, latitudes[0], DEGREES_TOLERANCE);
+        assertEquals(0, longitudes[0], DEGREES_TOLERANCE);
+        assertEquals(10, heights[0], METERS_TOLERANCE);
+    }
+
+    /**
+     * Test the sign of the rotations, which follows the convention of the NGS: a positive rotation
+     *  around Z moves a point on the Y axis towards positive X, so towards lower longitudes.
+     */
+    @Test
+    void testRotationAroundZ() {
+        HelmertTransformation transformation = new HelmertTransformation(Ellipsoid.WGS84, Ellipsoid.WGS84, 2000,
+            new double[] {0, 0, 0, 0, 0, 1000, 0}, NO_RATES);
+        double[] latitudes = {0};
+        double[] longitudes = {90};
+        double[] heights = {0};
+
+        transformation.transform(latitudes, longitudes, heights, 1, 2000);
+
+        assertEquals(90 - 1.0 / 3600, longitudes[0], DEGREES_TOLERANCE);
+    }
+
+    @Test
+    void testRatesApplyFromTheReferenceEpoch() {
+        HelmertTransformation transformation = new HelmertTransformation(Ellipsoid.WGS84, Ellipsoid.WGS84, 2000,
+            new double[7], new double[] {0, 0, 0, 0, 0, 0, 1000});
+        double[] latitudes = {45};
+        double[] longitudes = {0};
+        double[] heights2000 = {0};
+        double[] heights2010 = {0};
+
+        transformation.transform(latitudes, longitudes, heights2000, 1, 2000);
+        transformation.transform(latitudes, longitudes, heights2010, 1, 2010);
+
+        // 10 ppm of the distance to the center of the Earth.
+        double radius = Math.sqrt(Ellipsoid.WGS84.getPrimeVerticalRadius(Math.sin(Math.PI / 4))
+            * Ellipsoid.WGS84.getSemiMajorAxis() * (1 - Ellipsoid.WGS84.getEccentricitySquared()));
+        assertEquals(0, heights2000[0], METERS_TOLERANCE);
+        assertEquals(1e-5 * radius, heights2010[0], 0.1);
+    }
+
+    @Test
+    void testNad83ShiftInNorthAmerica() {
+        double[][] sites = {{37.4220, -122.0841}, {39.7392, -104.9903}, {40.7128, -74.0060}, {25.7617, -80.1918}};
+        for (double[] site : sites) {
+            double[] latitudes = {site[0]};
+            double[] longitudes = {site[1]};
+            double[] heights = {0};
+
+            HelmertTransformation.ITRF2008_TO_NAD83_2011.transform(latitudes, longitudes, heights, 1, 2010);
+
+            double north = Math.toRadians(latitudes[0] - site[0]) * 6371000;
+            double east = Math.toRadians(longitudes[0] - site[1]) * 6371000 * Math.cos(Math.toRadians(site[0]));
+            double shift = Math.hypot(north, east);
+            assertTrue(shift > 0.5 && shift < 2, "Shift of " + shift + " m");
+        }
+    }
+
+    @Test
+    void testInverseRoundTrip() {
+        double[] latitudes = {37.4220, -33.8570, 64.8378};
+        double[] longitudes = {-122.0841, 151.2152, -147.7164};
+        double[] heights = {30, 11.2, 136};
+
+        HelmertTransformation.ITRF2008_TO_NAD83_2011.transform(latitudes, longitudes, heights, 3, 2021.5);
+        HelmertTransformation.NAD83_2011_TO_ITRF2008.transform(latitudes, longitudes, heights, 3, 2021.5);
+
+        // 1e-8 degrees is about a millimeter.
+        assertEquals(37.4220, latitudes[0], 1e-8);
+        assertEquals(-122.0841, longitudes[0], 1e-8);
+        assertEquals(30, heights[0], 1e-3);
+        assertEquals(-33.8570, latitudes[1], 1e-8);
+        assertEquals(151.2152, longitudes[1], 1e-8);
+        assertEquals(11.2, heights[1], 1e-3);
+        assertEquals(64.8378, latitudes[2], 1e-8);
+        assertEquals(-147.7164, longitudes[2], 1e-8);
+        assertEquals(136, heights[2], 1e-3);
+    }
+
+    @Test
+    void testCoefficientsCachedPerEpoch() {
+        HelmertTransformation transformation = HelmertTransformation.ITRF2008_TO_NAD83_2011;
+
+        assertSame(transformation.getCoefficients(2010), transformation.getCoefficients(2010));
+        assertNotSame(transformation.getCoefficients(2010), transformation.getCoefficients(2020));
+        assertEquals(0.99343 + 0.00079 * 13, transformation.getCoefficients(2010).translationX, 1e-12);
+    }
+
+    @Test
+    void testParameterCount() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new HelmertTransformation(Ellipsoid.WGS84, Ellipsoid.GRS80, 2000, new double[6], NO_RATES));
+    }
+}
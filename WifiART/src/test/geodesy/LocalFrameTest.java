@@ -0,0 +1,126 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package geodesy;
+
+import org.junit.jupiter.api.Test;
+import structs.AltitudeType;
+import structs.LciState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for converting local East-North-Up positions to WGS84 coordinates.
+ */
+class LocalFrameTest {
+    // Constants
+    private static final double SEMI_MAJOR_AXIS = 6378137.0;
+    private static final double DEGREES_TOLERANCE = 1e-9;
+    private static final double METERS_TOLERANCE = 1e-4;
+
+    @Test
+    void testEastOfTheEquatorOrigin() {
+        LocalFrame frame = new LocalFrame(0, 0, 0);
+        double[] latitudes = new double[1];
+        double[] longitudes = new double[1];
+        double[] heights = new double[1];
+
+        frame.toWgs84(new double[] {1000}, new double[] {0}, new double[] {0}, 1, latitudes, longitudes, heights);
+
+        // The point is on the tangent plane, so above the ellipsoid.
+        assertEquals(0, latitudes[0], DEGREES_TOLERANCE);
+        assertEquals(Math.toDegrees(Math.atan2(1000, SEMI_MAJOR_AXIS)), longitudes[0], DEGREES_TOLERANCE);
+        assertEquals(Math.hypot(1000, SEMI_MAJOR_AXIS) - SEMI_MAJOR_AXIS, heights[0], METERS_TOLERANCE);
+    }
+
+    @Test
+    void testUpKeepsTheLatitudeAndLongitude() {
+        LocalFrame frame = new LocalFrame(45, 7, 100);
+        double[] latitudes = new double[2];
+        double[] longitudes = new double[2];
+        double[] heights = new double[2];
+
+        frame.toWgs84(new double[] {0, 0}, new double[] {0, 0}, new double[] {0, 50}, 2,
+            latitudes, longitudes, heights);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(45, latitudes[i], DEGREES_TOLERANCE);
+            assertEquals(7, longitudes[i], DEGREES_TOLERANCE);
+        }
+        assertEquals(100, heights[0], METERS_TOLERANCE);
+        assertEquals(150, heights[1], METERS_TOLERANCE);
+    }
+
+    /**
+     * Test that a short distance north moves the latitude by the distance over the meridian
+     *  radius of curvature.
+     */
+    @Test
+    void testNorthFollowsTheMeridian() {
+        double latitude = 37.4220;
+        LocalFrame frame = new LocalFrame(latitude, -122.0841, 0);
+        double eccentricitySquared = Ellipsoid.WGS84.getEccentricitySquared();
+        double sinLatitude = Math.sin(Math.toRadians(latitude));
+        double meridianRadius = SEMI_MAJOR_AXIS * (1 - eccentricitySquared)
+            / Math.pow(1 - eccentricitySquared * sinLatitude * sinLatitude, 1.5);
+        double[] latitudes = new double[1];
+        double[] longitudes = new double[1];
+        double[] heights = new double[1];
+
+        frame.toWgs84(new double[] {0}, new double[] {10}, new double[] {0}, 1, latitudes, longitudes, heights);
+
+        assertEquals(latitude + Math.toDegrees(10 / meridianRadius), latitudes[0], DEGREES_TOLERANCE);
+        assertEquals(-122.0841, longitudes[0], DEGREES_TOLERANCE);
+    }
+
+    @Test
+    void testSinglePointMatchesBatch() {
+        LocalFrame frame = new LocalFrame(48.858, 2.294, 35);
+        double[] east = {-20, 0, 15.5};
+        double[] north = {7.25, 0, -40};
+        double[] up = {3, 0, 12};
+        double[] latitudes = new double[3];
+        double[] longitudes = new double[3];
+        double[] heights = new double[3];
+        frame.toWgs84(east, north, up, 3, latitudes, longitudes, heights);
+        double[] latitude = new double[4];
+        double[] longitude = new double[4];
+        double[] height = new double[4];
+
+        for (int i = 0; i < 3; i++) {
+            frame.toWgs84(east[i], north[i], up[i], latitude, longitude, height, i + 1);
+
+            assertEquals(latitudes[i], latitude[i + 1]);
+            assertEquals(longitudes[i], longitude[i + 1]);
+            assertEquals(heights[i], height[i + 1]);
+        }
+    }
+
+    @Test
+    void testSetLocationOfLciState() {
+        LocalFrame frame = new LocalFrame(-33.8570095, 151.2152005, 11.2);
+        LciState state = new LciState();
+        state.setLatitudeUncertainty(0.0007105);
+
+        frame.setLocation(state, 0, 0, 0);
+
+        assertEquals(-33.8570095, state.getLatitude(), DEGREES_TOLERANCE);
+        assertEquals(151.2152005, state.getLongitude(), DEGREES_TOLERANCE);
+        assertEquals(11.2, state.getAltitude(), METERS_TOLERANCE);
+        assertEquals(AltitudeType.ALTITUDE_IN_METERS, state.getAltitudeType());
+        assertEquals(0.0007105, state.getLatitudeUncertainty());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package structs;
+
+import encoding.LciEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the immutable snapshots of the system state.
+ */
+class ArtSystemSnapshotTest {
+
+    /**
+     * Test that a snapshot holds read-only copies that later edits do not affect.
+     */
+    @Test
+    void testSnapshotIsIsolatedFromEdits() {
+        ArtSystemState state = new ArtSystemState();
+        state.getLciState().setLatitude(12.5);
+        state.getBssidState().addBssid("01:02:03:04:05:06");
+        state.getLcrState().addAddressElement(
+            new StringBuilder("Room 2"), new StringBuilder("English"), new StringBuilder("Room"));
+        state.setLciIncluded(true);
+
+        ArtSystemSnapshot snapshot = ArtSystemSnapshot.of(state);
+        state.getLciState().setLatitude(-7.25);
+        state.getBssidState().addBssid("0a:0b:0c:0d:0e:0f");
+        state.setLciIncluded(false);
+
+        assertEquals(12.5, snapshot.getLciState().getLatitude());
+        assertEquals(1, snapshot.getBssidState().getBssidList().size());
+        assertEquals("Room 2", snapshot.getLcrState().getAddressElementsList().get(0).getName());
+        assertTrue(snapshot.isSubelementIncluded(SubelementName.LCI));
+        assertTrue(snapshot.getLciState().isReadOnly());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getLciState().setLatitude(1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getBssidState().getBssidList().clear());
+    }
+
+    /**
+     * Test that the mutable pieces of a read-only state, the BSSID arrays and the address element
+     *  names, are handed out as copies that cannot change the snapshot.
+     */
+    @Test
+    void testMutablePiecesAreCopied() {
+        ArtSystemState state = new ArtSystemState();
+        state.getBssidState().addBssid("01:02:03:04:05:06");
+        state.getLcrState().addAddressElement(
+            new StringBuilder("Room 2"), new StringBuilder("English"), new StringBuilder("Room"));
+        ArtSystemSnapshot snapshot = ArtSystemSnapshot.of(state);
+
+        snapshot.getBssidState().getBssidList().iterator().next()[0] = 0x7f;
+        CharSequence name = snapshot.getLcrState().getAddressElementsList().get(0).getNameChars();
+
+        assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6},
+            snapshot.getBssidState().getBssidList().iterator().next());
+        assertTrue(name instanceof String);
+        assertEquals("Room 2", name);
+    }
+
+    /**
+     * Test that a new snapshot only copies the subelement states that changed.
+     */
+    @Test
+    void testUpdateSharesUnchangedStates() {
+        ArtSystemState state = new ArtSystemState();
+        state.getMapState().setMapUrl("http://map.google.com/b40.jpg");
+        ArtSystemSnapshot first = ArtSystemSnapshot.of(state);
+
+        state.getZState().setFloor(3);
+        state.getMapState().setMapUrl("http://map.google.com/b40.jpg"); // Unchanged value
+        ArtSystemSnapshot second = first.update(state);
+
+        assertNotSame(first.getZState(), second.getZState());
+        assertEquals(3, second.getZState().getFloor());
+        assertSame(first.getLciState(), second.getLciState());
+        assertSame(first.getMapState(), second.getMapState());
+        assertSame(first.getLcrState(), second.getLcrState());
+    }
+
+    /**
+     * Test that the builder replaces single values and keeps the rest.
+     */
+    @Test
+    void testBuilder() {
+        ArtSystemSnapshot snapshot = ArtSystemSnapshot.of(new ArtSystemState());
+        LciState lciState = new LciState();
+        lciState.setLongitude(100);
+
+        ArtSystemSnapshot changed = snapshot.toBuilder()
+            .setLciState(lciState)
+            .setSubelementIncluded(SubelementName.LCI, true)
+            .setOutputFileName("hostapd.conf")
+            .build();
+
+        assertEquals(100, changed.getLciState().getLongitude());
+        assertTrue(changed.isSubelementIncluded(SubelementName.LCI));
+        assertEquals("hostapd.conf", changed.getOutputFileName());
+        assertSame(snapshot.getZState(), changed.getZState());
+        assertEquals("", snapshot.getOutputFileName());
+    }
+
+    /**
+     * Test that a snapshot can be encoded on another thread while the live state is edited.
+     */
+    @Test
+    void testEncodingOnWorkerThread() throws Exception {
+        ArtSystemState state = new ArtSystemState();
+        state.getLciState().setLatitude(-33.8570095);
+        byte[] expected = new LciEncoder().encode(state.getLciState());
+        ArtSystemSnapshot snapshot = ArtSystemSnapshot.of(state);
+
+        CompletableFuture<byte[]> encoding =
+            CompletableFuture.supplyAsync(() -> new LciEncoder().encode(snapshot.getLciState()));
+        state.getLciState().setLatitude(45);
+
+        assertArrayEquals(expected, encoding.get());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package structs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the LcrState keeps its address elements in encoding order.
+ */
+class LcrStateTest {
+
+    /**
+     * Test that elements are ordered by language code and then by Civic Address Type as they are added.
+     */
+    @Test
+    void testAddressElementsAreSorted() {
+        LcrState state = new LcrState();
+        state.addAddressElement(new StringBuilder("Salle 2"), new StringBuilder("French"), new StringBuilder("Room"));
+        state.addAddressElement(new StringBuilder("Room 2"), new StringBuilder("English"), new StringBuilder("Room"));
+        state.addAddressElement(new StringBuilder("Mtn View"), new StringBuilder("English"), new StringBuilder("City"));
+        state.addAddressElement(new StringBuilder("Montréal"), new StringBuilder("French"), new StringBuilder("City"));
+
+        List<AddressElement> addressElements = state.getAddressElementsList();
+
+        assertEquals(4, addressElements.size());
+        assertEquals("Mtn View", addressElements.get(0).getName());
+        assertEquals("Room 2", addressElements.get(1).getName());
+        assertEquals("Montréal", addressElements.get(2).getName());
+        assertEquals("Salle 2", addressElements.get(3).getName());
+    }
+
+    /**
+     * Test that an element moves to its new position after its language is edited, and that removed
+     *  elements are no longer listed.
+     */
+    @Test
+    void testUpdateAndRemoveAddressElement() {
+        LcrState state = new LcrState();
+        StringBuilder roomName = new StringBuilder("Room 2");
+        StringBuilder roomLanguage = new StringBuilder("French");
+        StringBuilder cityName = new StringBuilder("Mtn View");
+        state.addAddressElement(roomName, roomLanguage, new StringBuilder("Room"));
+        state.addAddressElement(cityName, new StringBuilder("English"), new StringBuilder("City"));
+
+        roomLanguage.replace(0, roomLanguage.length(), "Afrikaans");
+        state.updateAddressElement(roomName);
+
+        assertEquals("Room 2", state.getAddressElementsList().get(0).getName());
+        assertEquals("af", state.getAddressElementsList().get(0).getLanguageCode());
+
+        state.removeAddressElement(roomName);
+
+        assertEquals(1, state.getAddressElementsList().size());
+        assertEquals("Mtn View", state.getAddressElementsList().get(0).getName());
+    }
+
+    /**
+     * Test that an address element with an unknown type still reports an error when encoded.
+     */
+    @Test
+    void testUnknownAddressElementType() {
+        AddressElement addressElement = new AddressElement(
+            new StringBuilder("Somewhere"), new StringBuilder("English"), new StringBuilder("Not a type"));
+
+        assertThrows(NullPointerException.class, addressElement::getCivicAddressType);
+    }
+}
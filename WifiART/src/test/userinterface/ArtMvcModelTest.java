@@ -0,0 +1,54 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import org.junit.jupiter.api.Test;
+import structs.ArtSystemState;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for importing the state of an access point into the system model.
+ */
+public class ArtMvcModelTest {
+
+    @Test
+    void testImportedSubelementsReplaceTheEditedOnes() {
+        ArtSystemState state = new ArtSystemState();
+        state.setOutputFileName("hostapd.conf");
+        state.setMapIncluded(true);
+        ArtMvcModel model = new ArtMvcModel(state);
+        ArtSystemState importedState = new ArtSystemState();
+        importedState.getLciState().setLatitude(-33.8570095);
+        importedState.setLciIncluded(true);
+        importedState.getLcrState().setCountry("Australia");
+        importedState.setLcrIncluded(true);
+
+        model.importSubelements(importedState);
+
+        assertSame(state, model.getState());
+        assertSame(importedState.getLciState(), model.getLciModel().getState());
+        assertSame(importedState.getLcrState(), model.getLcrModel().getState());
+        assertTrue(state.isLciIncluded());
+        assertTrue(state.isLcrIncluded());
+        assertFalse(state.isMapIncluded());
+        assertEquals("hostapd.conf", state.getOutputFileName());
+    }
+}
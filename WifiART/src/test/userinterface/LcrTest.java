@@ -103,6 +103,14 @@ public class LcrTest {
         }
     );
 
+    // A state with an address element whose key is not recognized.
+    private static final LcrState STATE_WITH_UNRECOGNIZED_KEY = buildLcrState(
+        STATE_DEFAULT.getCountry(),
+        new String[][] {
+            {"Somewhere", "English", "Not a key"}
+        }
+    );
+
     private final LcrModel model = new LcrModel(new LcrState());
 
     /**
@@ -182,4 +190,14 @@ public class LcrTest {
 
         assertThrows(IllegalArgumentException.class, model::toHexBuffer);
     }
+
+    /**
+     * Test the buffer encoding with an address element whose key is not recognized.
+     */
+    @Test
+    void testBufferWithUnrecognizedKey() {
+        model.setState(STATE_WITH_UNRECOGNIZED_KEY);
+
+        assertThrows(IllegalArgumentException.class, model::toHexBuffer);
+    }
 }
@@ -22,6 +22,7 @@ import structs.ImageTypes;
 import structs.MapState;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -212,4 +213,23 @@ public class MapTest {
 
         assertThrows(NullPointerException.class, model::toHexBuffer);
     }
+
+    /**
+     * Test that the encoding is reused while the state is unchanged, and redone once it changes.
+     */
+    @Test
+    void testBufferReusedUntilStateChanges() {
+        MapState state = buildMapState(URL_DEFINED, EXAMPLE_MAP_IMAGE_FILE_URL);
+        MapModel cachingModel = new MapModel(state);
+
+        String buffer = cachingModel.toHexBuffer();
+        state.setMapUrl(EXAMPLE_MAP_IMAGE_FILE_URL); // Same value, so the state does not change.
+
+        assertSame(buffer, cachingModel.toHexBuffer());
+
+        state.setMapType(ICO_IMAGE_FORMAT);
+        state.setMapUrl("");
+
+        assertEquals(BUFFER_ICO, cachingModel.toHexBuffer());
+    }
 }
@@ -16,20 +16,38 @@ limitations under the License.
 
 package userinterface;
 
+import batch.AccessPoint;
+import batch.ConfigurationImporter;
+import batch.FleetEncoder;
+import structs.ArtSystemSnapshot;
 import structs.SubelementName;
 
-import java.util.HashMap;
+import javax.swing.SwingUtilities;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
 
 public class ArtMvcController {
-
-    private static final String LCI_HEADER = "010008";
-    private static final String LCR_HEADER = "01000b";
+    // Error messages
+    private static final String ERROR_READING_INPUT_FILE = "Cannot import the input file: ";
+    private static final String ERROR_NO_LOCATION_CONFIGURED = "The input file has no lci= or civic= lines.";
+    private static final String ERROR_SKIPPED_INPUT_FILES = "Some input files were skipped:\n";
 
     private final ArtMvcView view;   // MVC View
     private final ArtMvcModel model; // MVC Model
 
     private SubelementName lastVisitedSubelement;
 
+    /** The last snapshot of the system state, which the next one shares its unchanged states with. */
+    private ArtSystemSnapshot snapshot;
+    private final SnapshotWriter snapshotWriter;
+
     /**
      * Constructor.
      *
@@ -39,6 +57,8 @@ public class ArtMvcController {
     public ArtMvcController(ArtMvcView fv, ArtMvcModel fm) {
         this.model = fm;
         this.view = fv;
+        snapshotWriter = new SnapshotWriter(errorMessage ->
+            SwingUtilities.invokeLater(() -> view.displayErrorMessage(errorMessage)));
 
         // Initialize MVC structure
         this.model.setCallback(this);
@@ -58,10 +78,14 @@ public class ArtMvcController {
             model.getState().setMapIncluded(view.getMapIncluded()));
 
         // Listeners for the input/output file location.
-        view.addInputFileNameListener(actionEvent ->
-            model.getState().setInputFileName(view.getInputFileName()));
-        view.addInputDirListener(actionEvent ->
-            model.getState().setInputDir(view.getInputDir()));
+        view.addInputFileNameListener(actionEvent -> {
+            model.getState().setInputFileName(view.getInputFileName());
+            importInputFile();
+        });
+        view.addInputDirListener(actionEvent -> {
+            model.getState().setInputDir(view.getInputDir());
+            importInputFile();
+        });
         view.addOutputFileNameListener(actionEvent ->
             model.getState().setOutputFileName(view.getOutputFileName()));
         view.addOutputDirListener(actionEvent ->
@@ -124,118 +148,80 @@ public class ArtMvcController {
 
     private void updateTotalBuffer() {
         try {
-            HashMap<SubelementName, String> lciSubelementBuffersList = model.getLciSubelementBuffersList();
-            HashMap<SubelementName, String> lcrSubelementBuffersList = model.getLcrSubelementBuffersList();
-            String notReadableBuffer = getNotReadableBufferDisplay(lciSubelementBuffersList, lcrSubelementBuffersList);
+            Map<SubelementName, String> lciSubelementBuffersList = model.getLciSubelementBuffersList();
+            Map<SubelementName, String> lcrSubelementBuffersList = model.getLcrSubelementBuffersList();
+            String notReadableBuffer = BufferDisplays.getNotReadableBufferDisplay(lciSubelementBuffersList,
+                lcrSubelementBuffersList);
             if (model.getState().isReadable()) {
-                String readableBuffer = getReadableBufferDisplay(lciSubelementBuffersList, lcrSubelementBuffersList);
+                String readableBuffer = BufferDisplays.getReadableBufferDisplay(lciSubelementBuffersList,
+                    lcrSubelementBuffersList);
                 view.displayBuffer(readableBuffer);
             } else {
                 view.displayBuffer(notReadableBuffer);
             }
-            writeBufferToFile(notReadableBuffer);
+            writeBufferToFile();
         } catch (RuntimeException exception) {
             view.displayErrorMessage(exception.getMessage());
         }
     }
 
-    private String getReadableBufferDisplay(HashMap<SubelementName, String> lciSubelementBuffersList,
-                                            HashMap<SubelementName, String> lcrSubelementBuffersList) {
-        StringBuilder totalText = new StringBuilder();
-        if (lciSubelementBuffersList.size() > 0) {
-            totalText.append("LCI: ");
-            for (int i = 0; i < LCI_HEADER.length(); i += 2) {
-                totalText.append(LCI_HEADER, i, i + 2);
-                if (i < LCI_HEADER.length() - 2) {
-                    totalText.append(" ");
-                }
-            }
-            totalText.append("\n");
-            for (SubelementName subelementName : lciSubelementBuffersList.keySet()) {
-                switch (subelementName)  {
-                    case LCI:
-                        totalText.append("  LCI subelement: ");
-                        break;
-                    case Z:
-                        totalText.append("  Z subelement: ");
-                        break;
-                    case USAGE:
-                        totalText.append("  Usage Rules/Policy subelement: ");
-                        break;
-                    case BSSID:
-                        totalText.append("  BSSID List subelement: ");
-                        break;
-                }
-                String buffer = lciSubelementBuffersList.get(subelementName);
-                for (int i = 0; i < buffer.length(); i += 2) {
-                    totalText.append(buffer, i, i + 2);
-                    if (i < buffer.length() - 2) {
-                        totalText.append(" ");
-                    }
-                }
-                totalText.append("\n");
-            }
+    /**
+     * Imports the hostapd configuration of the input file, or of every "*.conf" file of the input
+     *  directory if no file name is chosen. The first access point imported is loaded into the
+     *  subelement tabs for editing, and the configuration lines of every access point are displayed
+     *  as they would be generated. Errors, including the input files skipped, are shown in a dialog.
+     */
+    private void importInputFile() {
+        String inputFileName = model.getState().getInputFileName();
+        String inputDir = model.getState().getInputDir();
+        if (inputFileName.isEmpty() && inputDir.isEmpty()) {
+            return;
         }
-        if (lcrSubelementBuffersList.size() > 0) {
-            totalText.append("\nLCR: ");
-            for (int i = 0; i < LCR_HEADER.length(); i += 2) {
-                totalText.append(LCR_HEADER, i, i + 2);
-                if (i < LCR_HEADER.length() - 2) {
-                    totalText.append(" ");
-                }
-            }
-            totalText.append("\n");
-            for (SubelementName subelementName : lcrSubelementBuffersList.keySet()) {
-                switch (subelementName)  {
-                    case LCR:
-                        totalText.append("  Location Civic subelement: ");
-                        break;
-                    case MAP:
-                        totalText.append("  Map Image subelement: ");
-                        break;
-                }
-                String buffer = lcrSubelementBuffersList.get(subelementName);
-                for (int i = 0; i < buffer.length(); i += 2) {
-                    totalText.append(buffer, i, i + 2);
-                    if (i < buffer.length() - 2) {
-                        totalText.append(" ");
-                    }
-                }
-                totalText.append("\n");
+        ConfigurationImporter importer = new ConfigurationImporter(model.getState().isAndroidVersionAtLeastS());
+        ByteArrayOutputStream skippedInputFiles = new ByteArrayOutputStream();
+        StringWriter lines = new StringWriter();
+        try (PrintStream log = new PrintStream(skippedInputFiles, true, StandardCharsets.UTF_8)) {
+            Path input = Paths.get(inputDir).resolve(inputFileName);
+            List<AccessPoint> accessPoints = inputFileName.isEmpty()
+                ? importer.importDirectory(input, log)
+                : importer.importFile(input);
+            if (accessPoints.isEmpty()) {
+                view.displayErrorMessage(ERROR_NO_LOCATION_CONFIGURED);
+                return;
             }
+            new FleetEncoder(model.getState().isAndroidVersionAtLeastS()).encode(accessPoints).writeTo(lines);
+            model.importSubelements(accessPoints.get(0).getState());
+        } catch (IOException | RuntimeException exception) {
+            view.displayErrorMessage(ERROR_READING_INPUT_FILE + exception.getMessage());
+            return;
+        }
+        updateIncludedSubelements();
+        view.displayBuffer(lines.toString());
+        if (skippedInputFiles.size() > 0) {
+            view.displayErrorMessage(ERROR_SKIPPED_INPUT_FILES + skippedInputFiles.toString(StandardCharsets.UTF_8));
         }
-        return totalText.toString();
     }
 
-    private String getNotReadableBufferDisplay(HashMap<SubelementName, String> lciSubelementBuffersList,
-                                               HashMap<SubelementName, String> lcrSubelementBuffersList) {
-        StringBuilder totalText = new StringBuilder();
-        if (lciSubelementBuffersList.size() > 0) {
-            totalText.append("# Responder Location Configuration Information (LCI)\n");
-            totalText.append("lci=").append(LCI_HEADER);
-            for (SubelementName subelementName : lciSubelementBuffersList.keySet()) {
-                String buffer = lciSubelementBuffersList.get(subelementName);
-                totalText.append(buffer);
-            }
-            totalText.append("\n");
-        }
-        if (lcrSubelementBuffersList.size() > 0) {
-            if (totalText.length() > 0) {
-                totalText.append("\n");
-            }
-            totalText.append("# Responder Location Civic Report (LCR)\n");
-            totalText.append("civic=").append(LCR_HEADER);
-            for (SubelementName subelementName : lcrSubelementBuffersList.keySet()) {
-                String buffer = lcrSubelementBuffersList.get(subelementName);
-                totalText.append(buffer);
-            }
-            totalText.append("\n");
-        }
-        return totalText.toString();
+    /**
+     * Updates the checkboxes of the view to show which subelements the state includes.
+     */
+    private void updateIncludedSubelements() {
+        view.setLciIncluded(model.getState().isLciIncluded());
+        view.setZIncluded(model.getState().isZIncluded());
+        view.setUsageIncluded(model.getState().isUsageIncluded());
+        view.setBssidIncluded(model.getState().isBssidIncluded());
+        view.setLcrIncluded(model.getState().isLcrIncluded());
+        view.setMapIncluded(model.getState().isMapIncluded());
     }
 
-    private void writeBufferToFile(String buffer) {
-        // TODO(dmevans) write the buffer to the file
+    /**
+     * Writes the configuration lines to the output file, if one is chosen, on a worker thread. The
+     *  lines are encoded from a snapshot of the system state taken now, so the user can keep
+     *  editing while the file is written.
+     */
+    private void writeBufferToFile() {
+        snapshot = snapshot == null ? ArtSystemSnapshot.of(model.getState()) : snapshot.update(model.getState());
+        snapshotWriter.write(snapshot);
     }
 
 }
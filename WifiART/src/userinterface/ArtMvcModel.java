@@ -19,7 +19,8 @@ package userinterface;
 import structs.ArtSystemState;
 import structs.SubelementName;
 
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.Map;
 
 public class ArtMvcModel {
     private ArtSystemState state;
@@ -80,6 +81,36 @@ public class ArtMvcModel {
         mapModel.setState(state.getMapState());
     }
 
+    /**
+     * Replaces the subelement states, and which subelements are included, with those of an
+     *  imported access point, keeping the file names and display options. The subelement views are
+     *  updated to show the new states.
+     *
+     * @param importedState the system state of the imported access point
+     */
+    public void importSubelements(ArtSystemState importedState) {
+        state.setLciState(importedState.getLciState());
+        state.setZState(importedState.getZState());
+        state.setUsageState(importedState.getUsageState());
+        state.setBssidState(importedState.getBssidState());
+        state.setLcrState(importedState.getLcrState());
+        state.setMapState(importedState.getMapState());
+        state.setLciIncluded(importedState.isLciIncluded());
+        state.setZIncluded(importedState.isZIncluded());
+        state.setUsageIncluded(importedState.isUsageIncluded());
+        state.setBssidIncluded(importedState.isBssidIncluded());
+        state.setLcrIncluded(importedState.isLcrIncluded());
+        state.setMapIncluded(importedState.isMapIncluded());
+        setState(state);
+
+        lciModel.updateView();
+        zModel.updateView();
+        usageModel.updateView();
+        bssidModel.updateView();
+        lcrModel.updateView();
+        mapModel.updateView();
+    }
+
     // Getters for the sub-models
 
     /**
@@ -191,10 +222,12 @@ public class ArtMvcModel {
     }
 
     /**
-     * Gets a list of the buffers for included LCI subelements.
+     * Gets a list of the buffers for included LCI subelements, in subelement ID order.
+     *
+     * @return the hex buffers of the included LCI subelements
      */
-    public HashMap<SubelementName, String> getLciSubelementBuffersList() {
-        HashMap<SubelementName, String> buffer = new HashMap<>();
+    public Map<SubelementName, String> getLciSubelementBuffersList() {
+        Map<SubelementName, String> buffer = new EnumMap<>(SubelementName.class);
         if (state.isLciIncluded()) {
             updateLciSubelementBuffer();
             buffer.put(SubelementName.LCI, lciSubelementBuffer);
@@ -215,10 +248,12 @@ public class ArtMvcModel {
     }
 
     /**
-     * Gets a list of the buffers for included LCR subelements.
+     * Gets a list of the buffers for included LCR subelements, in subelement ID order.
+     *
+     * @return the hex buffers of the included LCR subelements
      */
-    public HashMap<SubelementName, String> getLcrSubelementBuffersList() {
-        HashMap<SubelementName, String> buffer = new HashMap<>();
+    public Map<SubelementName, String> getLcrSubelementBuffersList() {
+        Map<SubelementName, String> buffer = new EnumMap<>(SubelementName.class);
         if (state.isLcrIncluded()) {
             updateLcrSubelementBuffer();
             buffer.put(SubelementName.LCR, lcrSubelementBuffer);
@@ -260,6 +260,60 @@ public class ArtMvcView extends JFrame {
         return mapCheckbox.isSelected();
     }
 
+    /**
+     * Set whether or not the LCI subelement is to be included in the output.
+     *
+     * @param included whether or not the LCI subelement is included
+     */
+    public void setLciIncluded(boolean included) {
+        lciCheckbox.setSelected(included);
+    }
+
+    /**
+     * Set whether or not the Z subelement is to be included in the output.
+     *
+     * @param included whether or not the Z subelement is included
+     */
+    public void setZIncluded(boolean included) {
+        zCheckbox.setSelected(included);
+    }
+
+    /**
+     * Set whether or not the Usage Rules/Policy subelement is to be included in the output.
+     *
+     * @param included whether or not the Usage Rules/Policy subelement is included
+     */
+    public void setUsageIncluded(boolean included) {
+        usageCheckbox.setSelected(included);
+    }
+
+    /**
+     * Set whether or not the BSSID List subelement is to be included in the output.
+     *
+     * @param included whether or not the BSSID List subelement is included
+     */
+    public void setBssidIncluded(boolean included) {
+        bssidCheckbox.setSelected(included);
+    }
+
+    /**
+     * Set whether or not the Location Civic subelement is to be included in the output.
+     *
+     * @param included whether or not the Location Civic subelement is included
+     */
+    public void setLcrIncluded(boolean included) {
+        lcrCheckbox.setSelected(included);
+    }
+
+    /**
+     * Set whether or not the Map Image subelement is to be included in the output.
+     *
+     * @param included whether or not the Map Image subelement is included
+     */
+    public void setMapIncluded(boolean included) {
+        mapCheckbox.setSelected(included);
+    }
+
     /**
      * Get the name of the input file.
      *
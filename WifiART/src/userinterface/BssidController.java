@@ -16,6 +16,8 @@ limitations under the License.
 
 package userinterface;
 
+import encoding.HexCodec;
+
 /**
  * The Controller for the BSSID List subelement.
  */
@@ -53,32 +55,10 @@ public class BssidController {
         });
         view.addBssidAddListener(actionEvent -> {
             String addedBssid = view.getAddedBssid();
-            StringBuilder bssidBuilder = new StringBuilder(addedBssid);
             try {
                 model.getState().addBssid(addedBssid);
                 // Update the view if updating the model succeeded
-                view.addBssid(
-                    bssidBuilder,
-                    editModeEvent -> view.toggleEditMode(bssidBuilder),
-                    editEvent -> {
-                        String oldBssid = bssidBuilder.toString();
-                        String newBssid = view.getEditedBssid(bssidBuilder);
-                        try {
-                            model.getState().editBssid(oldBssid, newBssid);
-                            // Update the view if updating the model succeeded
-                            view.editBssid(bssidBuilder);
-                        } catch (IllegalArgumentException exception) {
-                            view.displayError(BSSID_FORMAT_ERROR);
-                        } catch (IndexOutOfBoundsException exception) {
-                            view.displayError(TOO_MANY_BSSIDS_ERROR);
-                        }
-
-                    },
-                    removeEvent -> {
-                        String bssidString = bssidBuilder.toString();
-                        view.removeBssid(bssidBuilder);
-                        model.getState().removeBssid(bssidString);
-                    });
+                addBssidToView(new StringBuilder(addedBssid));
             } catch (IllegalArgumentException exception) {
                 view.displayError(BSSID_FORMAT_ERROR);
             } catch (IndexOutOfBoundsException exception) {
@@ -94,6 +74,50 @@ public class BssidController {
         updateMaxBssidIndicator();
     }
 
+    /**
+     * Update the view to show the state of the model, after the state has been replaced.
+     */
+    public void updateView() {
+        view.setMaxBssidIndicator(model.getState().getMaxBssidIndicator());
+        view.removeAllBssids();
+        for (byte[] bssid : model.getState().getBssidList()) {
+            StringBuilder bssidBuilder = new StringBuilder();
+            HexCodec.appendHex(bssid, 0, bssid.length, bssidBuilder, true);
+            addBssidToView(new StringBuilder(bssidBuilder.toString().replace(' ', ':')));
+        }
+    }
+
+    /**
+     * Adds a BSSID of the state to the list of the view, with the listeners for editing and
+     *  removing it.
+     *
+     * @param bssidBuilder the StringBuilder for the BSSID String
+     */
+    private void addBssidToView(StringBuilder bssidBuilder) {
+        view.addBssid(
+            bssidBuilder,
+            editModeEvent -> view.toggleEditMode(bssidBuilder),
+            editEvent -> {
+                String oldBssid = bssidBuilder.toString();
+                String newBssid = view.getEditedBssid(bssidBuilder);
+                try {
+                    model.getState().editBssid(oldBssid, newBssid);
+                    // Update the view if updating the model succeeded
+                    view.editBssid(bssidBuilder);
+                } catch (IllegalArgumentException exception) {
+                    view.displayError(BSSID_FORMAT_ERROR);
+                } catch (IndexOutOfBoundsException exception) {
+                    view.displayError(TOO_MANY_BSSIDS_ERROR);
+                }
+
+            },
+            removeEvent -> {
+                String bssidString = bssidBuilder.toString();
+                view.removeBssid(bssidBuilder);
+                model.getState().removeBssid(bssidString);
+            });
+    }
+
     private void updateMaxBssidIndicator() {
         try {
             int maxBssidIndicator = view.getMaxBssidIndicator();
@@ -16,30 +16,19 @@ limitations under the License.
 
 package userinterface;
 
+import encoding.BssidEncoder;
 import structs.BssidState;
 import structs.Subelement;
 
-import java.util.Set;
+import java.nio.ByteBuffer;
 
 /**
  * The Model for the BSSID List subelement.
  */
 public class BssidModel implements Subelement {
 
-    // Constants
-    private static final byte SUBELEMENT_ID = 7;
-
-    // Lengths (in bytes)
-    private static final int SUBELEMENT_ID_LENGTH = 1;
-    private static final int LENGTH_FIELD_LENGTH = 1;
-    private static final int MAX_BSSID_INDICATOR_LENGTH = 1;
-    private static final int BSSID_LENGTH = 6;
-
-    // Indices (in bytes)
-    private static final int SUBELEMENT_ID_INDEX = 0;
-    private static final int LENGTH_INDEX = 1;
-    private static final int MAX_BSSID_INDICATOR_INDEX = 2;
-    private static final int BSSID_LIST_INDEX = 3;
+    private final BssidEncoder encoder = new BssidEncoder();
+    private final EncodingCache<BssidState> encodingCache = new EncodingCache<>(encoder);
 
     private BssidState state;
     private BssidController controller;
@@ -80,27 +69,36 @@ public class BssidModel implements Subelement {
         this.controller = controller;
     }
 
+    /**
+     * Updates the view to show the state, after the state has been replaced.
+     */
+    void updateView() {
+        if (controller != null) {
+            controller.updateView(); // Callback to update the view based on the state.
+        }
+    }
+
     @Override
     public String toHexBuffer() {
-        controller.updateState(); // Callback to update the state based on the view.
-
-        int maxBssidIndicator = state.getMaxBssidIndicator();
-        Set<byte[]> bssidList = state.getBssidList();
-        int fieldsLength = MAX_BSSID_INDICATOR_LENGTH + bssidList.size() * BSSID_LENGTH;
-        byte[] buffer = new byte[SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + fieldsLength];
-        buffer[SUBELEMENT_ID_INDEX] = SUBELEMENT_ID;
-        buffer[LENGTH_INDEX] = (byte) fieldsLength;
-        buffer[MAX_BSSID_INDICATOR_INDEX] = (byte) maxBssidIndicator;
-        int index = BSSID_LIST_INDEX;
-        for (byte[] bssid : bssidList) {
-            System.arraycopy(bssid, 0, buffer, index, BSSID_LENGTH);
-            index += BSSID_LENGTH;
-        }
+        updateState();
+        return encodingCache.getHexString(state, state.getModCount());
+    }
+
+    @Override
+    public int getEncodedLength() {
+        updateState();
+        return encoder.getEncodedLength(state);
+    }
+
+    @Override
+    public void encode(ByteBuffer buffer) {
+        updateState();
+        encoder.encode(state, buffer);
+    }
 
-        StringBuilder result = new StringBuilder();
-        for (byte b : buffer) {
-            result.append(String.format("%02x", b)); // Convert the byte to a hex string of 2 characters.
+    private void updateState() {
+        if (controller != null) {
+            controller.updateState(); // Callback to update the state based on the view.
         }
-        return result.toString();
     }
 }
@@ -86,6 +86,15 @@ public class BssidView extends JPanel {
         return Integer.parseInt(maxBssidIndicatorField.getText());
     }
 
+    /**
+     * Set the maximum number of BSSs which can share the same antenna connector.
+     *
+     * @param maxBssidIndicator the maximum number of BSSs which can share the same antenna connector
+     */
+    public void setMaxBssidIndicator(int maxBssidIndicator) {
+        maxBssidIndicatorField.setText(String.valueOf(maxBssidIndicator));
+    }
+
     /**
      * Add a BSSID to the list.
      *
@@ -116,6 +125,16 @@ public class BssidView extends JPanel {
         bssidListPanel.repaint();
     }
 
+    /**
+     * Remove every BSSID from the list.
+     */
+    public void removeAllBssids() {
+        bssidList.clear();
+        bssidListPanel.removeAll();
+        bssidListPanel.revalidate();
+        bssidListPanel.repaint();
+    }
+
     /**
      * Edit a BSSID, replacing the BSSID String with a new one provided by the user.
      *
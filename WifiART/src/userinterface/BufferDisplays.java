@@ -0,0 +1,164 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import encoding.ByteSink;
+import encoding.HexCodec;
+import structs.SubelementName;
+
+import java.util.Map;
+
+/**
+ * Builds the text displays of the subelement buffers: the "lci=" and "civic=" lines written to
+ * the hostapd configuration, and the readable form shown in the user interface.
+ */
+public final class BufferDisplays {
+    // Constants
+    private static final String LCI_HEADER = "010008";
+    private static final String LCR_HEADER = "01000b";
+    private static final String LCI_COMMENT = "# Responder Location Configuration Information (LCI)\n";
+    private static final String LCR_COMMENT = "# Responder Location Civic Report (LCR)\n";
+
+    // Private constructor to avoid instance creation.
+    private BufferDisplays() {}
+
+    /**
+     * Builds the readable display of the buffers, with one labelled line per subelement.
+     *
+     * @param lciSubelementBuffersList the hex buffers of the included LCI subelements
+     * @param lcrSubelementBuffersList the hex buffers of the included LCR subelements
+     * @return the readable buffer display
+     */
+    public static String getReadableBufferDisplay(Map<SubelementName, String> lciSubelementBuffersList,
+                                                  Map<SubelementName, String> lcrSubelementBuffersList) {
+        StringBuilder totalText = new StringBuilder();
+        if (lciSubelementBuffersList.size() > 0) {
+            totalText.append("LCI: ");
+            HexCodec.appendReadable(LCI_HEADER, totalText);
+            totalText.append("\n");
+            for (Map.Entry<SubelementName, String> entry : lciSubelementBuffersList.entrySet()) {
+                switch (entry.getKey())  {
+                    case LCI:
+                        totalText.append("  LCI subelement: ");
+                        break;
+                    case Z:
+                        totalText.append("  Z subelement: ");
+                        break;
+                    case USAGE:
+                        totalText.append("  Usage Rules/Policy subelement: ");
+                        break;
+                    case BSSID:
+                        totalText.append("  BSSID List subelement: ");
+                        break;
+                }
+                HexCodec.appendReadable(entry.getValue(), totalText);
+                totalText.append("\n");
+            }
+        }
+        if (lcrSubelementBuffersList.size() > 0) {
+            totalText.append("\nLCR: ");
+            HexCodec.appendReadable(LCR_HEADER, totalText);
+            totalText.append("\n");
+            for (Map.Entry<SubelementName, String> entry : lcrSubelementBuffersList.entrySet()) {
+                switch (entry.getKey())  {
+                    case LCR:
+                        totalText.append("  Location Civic subelement: ");
+                        break;
+                    case MAP:
+                        totalText.append("  Map Image subelement: ");
+                        break;
+                }
+                HexCodec.appendReadable(entry.getValue(), totalText);
+                totalText.append("\n");
+            }
+        }
+        return totalText.toString();
+    }
+
+    /**
+     * Builds the "lci=" and "civic=" lines written to the hostapd configuration.
+     *
+     * @param lciSubelementBuffersList the hex buffers of the included LCI subelements
+     * @param lcrSubelementBuffersList the hex buffers of the included LCR subelements
+     * @return the configuration lines
+     */
+    public static String getNotReadableBufferDisplay(Map<SubelementName, String> lciSubelementBuffersList,
+                                                     Map<SubelementName, String> lcrSubelementBuffersList) {
+        StringBuilder totalText = new StringBuilder();
+        appendNotReadableBufferDisplay(lciSubelementBuffersList, lcrSubelementBuffersList, totalText);
+        return totalText.toString();
+    }
+
+    /**
+     * Appends the "lci=" and "civic=" lines written to the hostapd configuration to a StringBuilder.
+     *
+     * @param lciSubelementBuffersList the hex buffers of the included LCI subelements
+     * @param lcrSubelementBuffersList the hex buffers of the included LCR subelements
+     * @param totalText the StringBuilder receiving the configuration lines
+     */
+    public static void appendNotReadableBufferDisplay(Map<SubelementName, String> lciSubelementBuffersList,
+                                                      Map<SubelementName, String> lcrSubelementBuffersList,
+                                                      StringBuilder totalText) {
+        int start = totalText.length();
+        if (lciSubelementBuffersList.size() > 0) {
+            totalText.append(LCI_COMMENT);
+            totalText.append("lci=").append(LCI_HEADER);
+            for (String buffer : lciSubelementBuffersList.values()) {
+                totalText.append(buffer);
+            }
+            totalText.append("\n");
+        }
+        if (lcrSubelementBuffersList.size() > 0) {
+            if (totalText.length() > start) {
+                totalText.append("\n");
+            }
+            totalText.append(LCR_COMMENT);
+            totalText.append("civic=").append(LCR_HEADER);
+            for (String buffer : lcrSubelementBuffersList.values()) {
+                totalText.append(buffer);
+            }
+            totalText.append("\n");
+        }
+    }
+
+    /**
+     * Appends the "lci=" and "civic=" lines written to the hostapd configuration to a StringBuilder,
+     *  from the encoded subelements rather than their hex buffers.
+     *
+     * @param lciSubelements the included LCI subelements, one after another, or nothing
+     * @param lcrSubelements the included LCR subelements, one after another, or nothing
+     * @param totalText the StringBuilder receiving the configuration lines
+     */
+    public static void appendNotReadableBufferDisplay(ByteSink lciSubelements, ByteSink lcrSubelements,
+                                                      StringBuilder totalText) {
+        if (lciSubelements.size() > 0) {
+            totalText.append(LCI_COMMENT);
+            totalText.append("lci=").append(LCI_HEADER);
+            lciSubelements.appendHex(totalText);
+            totalText.append("\n");
+        }
+        if (lcrSubelements.size() > 0) {
+            if (lciSubelements.size() > 0) {
+                totalText.append("\n");
+            }
+            totalText.append(LCR_COMMENT);
+            totalText.append("civic=").append(LCR_HEADER);
+            lcrSubelements.appendHex(totalText);
+            totalText.append("\n");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import encoding.HexCodec;
+import encoding.SubelementEncoder;
+
+/**
+ * Holds the latest encoding of a subelement state, and reuses it until the state is replaced or
+ * its modification count changes.
+ *
+ * @param <S> the state type of the subelement
+ */
+final class EncodingCache<S> {
+
+    private final SubelementEncoder<S> encoder;
+
+    private S encodedState;
+    private int encodedModCount;
+    private byte[] encoding;
+    private String hexString;
+
+    /**
+     * Constructor.
+     *
+     * @param encoder the encoder used when the cached encoding is out of date
+     */
+    EncodingCache(SubelementEncoder<S> encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * Gets the binary encoding of a state, encoding it again only if it changed since the last call.
+     *  The returned array is shared and must not be modified.
+     *
+     * @param state the subelement state
+     * @param modCount the current modification count of the state
+     * @return the encoded subelement
+     */
+    byte[] getEncoding(S state, int modCount) {
+        if (encoding == null || state != encodedState || modCount != encodedModCount) {
+            byte[] newEncoding = encoder.encode(state); // Leaves the cache unchanged if this throws.
+            encoding = newEncoding;
+            hexString = null;
+            encodedState = state;
+            encodedModCount = modCount;
+        }
+        return encoding;
+    }
+
+    /**
+     * Gets the hex-buffer encoding of a state, encoding it again only if it changed since the last call.
+     *
+     * @param state the subelement state
+     * @param modCount the current modification count of the state
+     * @return the hex string of the encoded subelement
+     */
+    String getHexString(S state, int modCount) {
+        byte[] bytes = getEncoding(state, modCount);
+        if (hexString == null) {
+            hexString = HexCodec.toHexString(bytes);
+        }
+        return hexString;
+    }
+
+    /**
+     * Discards the cached encoding, e.g. after the encoder settings changed.
+     */
+    void invalidate() {
+        encoding = null;
+        hexString = null;
+        encodedState = null;
+    }
+}
@@ -69,6 +69,25 @@ public class LciController {
         updateAltitudeUncertainty();
     }
 
+    /**
+     * Update the view to show the state of the model, after the state has been replaced.
+     */
+    public void updateView() {
+        LciState state = model.getState();
+        view.setLciVersion(state.getLciVersion());
+        view.setLatitude(state.getLatitude());
+        view.setLatitudeUncertainty(state.getLatitudeUncertainty());
+        view.setLongitude(state.getLongitude());
+        view.setLongitudeUncertainty(state.getLongitudeUncertainty());
+        view.setAltitude(state.getAltitude());
+        view.setAltitudeUncertainty(state.getAltitudeUncertainty());
+        view.setAltitudeType(state.getAltitudeType());
+        view.setMapDatum(state.getMapDatum());
+        view.setRegLocAgreement(state.getRegLocAgreement());
+        view.setRegLocDse(state.getRegLocDse());
+        view.setDependentSta(state.getDependentSta());
+    }
+
     private void updateLatitude() {
         try {
             double latitude = view.getLatitude();
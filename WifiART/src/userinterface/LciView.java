@@ -272,6 +272,134 @@ public class LciView extends JPanel {
         return dependentStaCheckbox.isSelected();
     }
 
+    // Setter methods for the parameters
+
+    /**
+     * Sets the LCI version.
+     *
+     * @param lciVersion the LCI version
+     */
+    public void setLciVersion(int lciVersion) {
+        lciVersionComboBox.setSelectedItem(lciVersion);
+    }
+
+    /**
+     * Sets the latitude.
+     *
+     * @param latitude the latitude, in degrees
+     */
+    public void setLatitude(double latitude) {
+        latitudeField.setText(String.valueOf(latitude));
+    }
+
+    /**
+     * Sets the latitude uncertainty.
+     *
+     * @param latitudeUncertainty the latitude uncertainty, in degrees
+     */
+    public void setLatitudeUncertainty(double latitudeUncertainty) {
+        latitudeUncertaintyField.setText(String.valueOf(latitudeUncertainty));
+    }
+
+    /**
+     * Sets the longitude.
+     *
+     * @param longitude the longitude, in degrees
+     */
+    public void setLongitude(double longitude) {
+        longitudeField.setText(String.valueOf(longitude));
+    }
+
+    /**
+     * Sets the longitude uncertainty.
+     *
+     * @param longitudeUncertainty the longitude uncertainty, in degrees
+     */
+    public void setLongitudeUncertainty(double longitudeUncertainty) {
+        longitudeUncertaintyField.setText(String.valueOf(longitudeUncertainty));
+    }
+
+    /**
+     * Sets the altitude.
+     *
+     * @param altitude the altitude
+     */
+    public void setAltitude(double altitude) {
+        altitudeField.setText(String.valueOf(altitude));
+    }
+
+    /**
+     * Sets the altitude uncertainty.
+     *
+     * @param altitudeUncertainty the altitude uncertainty
+     */
+    public void setAltitudeUncertainty(double altitudeUncertainty) {
+        altitudeUncertaintyField.setText(String.valueOf(altitudeUncertainty));
+    }
+
+    /**
+     * Sets the altitude type.
+     *
+     * @param altitudeType the altitude type (Meters, Floors, or No Known Altitude)
+     */
+    public void setAltitudeType(AltitudeType altitudeType) {
+        switch (altitudeType) {
+            case ALTITUDE_IN_METERS:
+                altitudeTypeComboBox.setSelectedItem(ALTITUDE_IN_METERS_LABEL);
+                break;
+            case ALTITUDE_IN_FLOORS:
+                altitudeTypeComboBox.setSelectedItem(ALTITUDE_IN_FLOORS_LABEL);
+                break;
+            default:
+                altitudeTypeComboBox.setSelectedItem(NO_KNOWN_ALTITUDE_LABEL);
+        }
+    }
+
+    /**
+     * Sets the map datum.
+     *
+     * @param mapDatum the map datum
+     */
+    public void setMapDatum(MapDatum mapDatum) {
+        switch (mapDatum) {
+            case NAD83_NAVD88:
+                mapDatumComboBox.setSelectedItem(NAD83_NAVD88_DATUM_LABEL);
+                break;
+            case NAD83_MLLW:
+                mapDatumComboBox.setSelectedItem(NAD83_MLLW_DATUM_LABEL);
+                break;
+            default:
+                mapDatumComboBox.setSelectedItem(WGS84_DATUM_LABEL);
+        }
+    }
+
+    /**
+     * Sets the Registered Location (RegLoc) Agreement parameter.
+     *
+     * @param regLocAgreement the boolean value of the parameter
+     */
+    public void setRegLocAgreement(boolean regLocAgreement) {
+        regLocAgreementCheckbox.setSelected(regLocAgreement);
+    }
+
+    /**
+     * Sets the Registered Location Dependent STA Enablement (RegLoc DSE) parameter.
+     *
+     * @param regLocDse the boolean value of the parameter
+     */
+    public void setRegLocDse(boolean regLocDse) {
+        regLocDseCheckbox.setSelected(regLocDse);
+    }
+
+    /**
+     * Sets the Dependent STA parameter.
+     *
+     * @param dependentSta the boolean value of the parameter
+     */
+    public void setDependentSta(boolean dependentSta) {
+        dependentStaCheckbox.setSelected(dependentSta);
+    }
+
 
     // Methods for adding listeners
 
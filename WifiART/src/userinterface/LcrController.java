@@ -16,12 +16,16 @@ limitations under the License.
 
 package userinterface;
 
+import structs.AddressElement;
+
 public class LcrController {
     private static final String ADDRESS_ELEMENT_TYPE_NOT_CHOSEN = "You must select an address element type.";
     private static final String COUNTRY_NOT_CHOSEN = "You must select a valid country.";
 
     private final LcrView view;
     private final LcrModel model;
+    /** Set while the view is updated from the state, so that the state is not updated back. */
+    private boolean updatingView;
 
     /**
      * Creates the controller for the Location Civic subelement.
@@ -35,6 +39,9 @@ public class LcrController {
         this.model.setCallback(this);
 
         view.addCountryListener(actionEvent -> {
+            if (updatingView) {
+                return;
+            }
             try {
                 String country = view.getCountry();
                 model.getState().setCountry(country);
@@ -48,21 +55,59 @@ public class LcrController {
             try {
                 StringBuilder addedAddressElementType = new StringBuilder(view.getAddedAddressElementType());
                 model.getState().addAddressElement(addedAddressElementName, addedAddressElementLanguage, addedAddressElementType);
-                view.addAddressElement(
-                    addedAddressElementName,
-                    addedAddressElementLanguage,
-                    addedAddressElementType,
-                    editModeEvent -> view.toggleEditMode(addedAddressElementName),
-                    newAddressElementNameEvent -> view.editAddressElementName(addedAddressElementName),
-                    newAddressElementLanguageEvent -> view.editAddressElementLanguage(addedAddressElementName),
-                    newAddressElementTypeEvent -> view.editAddressElementType(addedAddressElementName),
-                    removeEvent -> {
-                        view.removeAddressElement(addedAddressElementName);
-                        model.getState().removeAddressElement(addedAddressElementName);
-                    });
+                addAddressElementToView(addedAddressElementName, addedAddressElementLanguage, addedAddressElementType);
             } catch (IllegalArgumentException exception) {
                 view.displayError(ADDRESS_ELEMENT_TYPE_NOT_CHOSEN);
             }
         });
     }
+
+    /**
+     * Update the view to show the state of the model, after the state has been replaced.
+     */
+    public void updateView() {
+        updatingView = true;
+        try {
+            view.setCountry(model.getState().getCountry());
+        } finally {
+            updatingView = false;
+        }
+        view.removeAllAddressElements();
+        for (AddressElement addressElement : model.getState().getAddressElementsList()) {
+            addAddressElementToView(addressElement.getNameBuilder(), addressElement.getLanguageBuilder(),
+                addressElement.getKeyBuilder());
+        }
+    }
+
+    /**
+     * Adds an address element of the state to the list of the view, with the listeners for editing
+     *  and removing it. The view shares the StringBuilders of the address element.
+     *
+     * @param name the StringBuilder for the name of the address element
+     * @param language the StringBuilder for the language of the address element
+     * @param addressType the StringBuilder for the address element type (e.g. "City")
+     */
+    private void addAddressElementToView(StringBuilder name, StringBuilder language, StringBuilder addressType) {
+        view.addAddressElement(
+            name,
+            language,
+            addressType,
+            editModeEvent -> view.toggleEditMode(name),
+            newAddressElementNameEvent -> {
+                view.editAddressElementName(name);
+                model.getState().updateAddressElement(name);
+            },
+            newAddressElementLanguageEvent -> {
+                view.editAddressElementLanguage(name);
+                model.getState().updateAddressElement(name);
+            },
+            newAddressElementTypeEvent -> {
+                view.editAddressElementType(name);
+                model.getState().updateAddressElement(name);
+            },
+            removeEvent -> {
+                view.removeAddressElement(name);
+                model.getState().removeAddressElement(name);
+            });
+    }
 }
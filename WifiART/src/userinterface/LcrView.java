@@ -148,6 +148,15 @@ public class LcrView extends JPanel {
         return country;
     }
 
+    /**
+     * Set the country where the access point is located.
+     *
+     * @param country the country where the access point is located, or null to select none
+     */
+    public void setCountry(String country) {
+        countriesCombobox.setSelectedItem(country == null ? SELECT_COUNTRY_PROMPT : country);
+    }
+
     /**
      * Get the user-inputted name of a new address element to be added to the list.
      *
@@ -283,6 +292,16 @@ public class LcrView extends JPanel {
         addressElementsListPanel.repaint();
     }
 
+    /**
+     * Remove every address element from the list.
+     */
+    public void removeAllAddressElements() {
+        addressElementsList.clear();
+        addressElementsListPanel.removeAll();
+        addressElementsListPanel.revalidate();
+        addressElementsListPanel.repaint();
+    }
+
     /**
      * A JPanel representing an address element in the list of address elements.
      */
@@ -26,6 +26,8 @@ public class MapController {
 
     private final MapView view;
     private final MapModel model;
+    /** Set while the view is updated from the state, so that the state is not updated back. */
+    private boolean updatingView;
 
     /**
      * Creates the controller for the Map Image subelement.
@@ -49,7 +51,23 @@ public class MapController {
         updateMapUrl();
     }
 
+    /**
+     * Update the view to show the state of the model, after the state has been replaced.
+     */
+    public void updateView() {
+        updatingView = true;
+        try {
+            view.setMapType(model.getState().getMapType());
+            view.setMapUrl(model.getState().getMapUrl());
+        } finally {
+            updatingView = false;
+        }
+    }
+
     private void updateMapType() {
+        if (updatingView) {
+            return;
+        }
         model.getState().setMapType(view.getMapType());
     }
 
@@ -16,33 +16,19 @@ limitations under the License.
 
 package userinterface;
 
-import structs.ImageTypes;
+import encoding.MapEncoder;
 import structs.MapState;
 import structs.Subelement;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 
 /**
  * The model class for the Map Image subelement.
  */
 public class MapModel implements Subelement {
 
-    // Constants
-    private static final byte SUBELEMENT_ID = 5;
-    private static final int MAX_FIELDS_LENGTH = 255; // Length field is 1 byte
-    private static final String ERROR_MAP_IMAGE_URL_TOO_LONG = "Map Image Url can be at most 254 characters.";
-    private static final String ERROR_NOT_A_MAP_TYPE = "You must choose a map type.";
-
-    // Lengths (in bytes)
-    private static final int SUBELEMENT_ID_LENGTH = 1;
-    private static final int LENGTH_FIELD_LENGTH = 1;
-    private static final int MAP_TYPE_LENGTH = 1;
-
-    // Indices (in bytes)
-    private static final int SUBELEMENT_ID_INDEX = 0;
-    private static final int LENGTH_INDEX = 1;
-    private static final int MAP_TYPE_INDEX = 2;
-    private static final int MAP_URL_INDEX = 3;
+    private final MapEncoder encoder = new MapEncoder();
+    private final EncodingCache<MapState> encodingCache = new EncodingCache<>(encoder);
 
     private MapState state;
     private MapController controller;
@@ -83,35 +69,36 @@ public class MapModel implements Subelement {
         this.controller = controller;
     }
 
+    /**
+     * Updates the view to show the state, after the state has been replaced.
+     */
+    void updateView() {
+        if (controller != null) {
+            controller.updateView(); // Callback to update the view based on the state.
+        }
+    }
+
     @Override
     public String toHexBuffer() throws NullPointerException, IllegalArgumentException {
-        controller.updateState(); // Callback to update the state based on the view.
-
-        String mapType = state.getMapType();
-        byte mapTypeEncoding;
-        try {
-            mapTypeEncoding = ImageTypes.getImageTypeEncoding(mapType);
-        } catch (NullPointerException exception) {
-            throw new NullPointerException(ERROR_NOT_A_MAP_TYPE);
-        }
+        updateState();
+        return encodingCache.getHexString(state, state.getModCount());
+    }
 
-        String mapUrl = state.getMapUrl();
-        byte[] mapUrlBytes = mapUrl.getBytes(StandardCharsets.UTF_8);
+    @Override
+    public int getEncodedLength() {
+        updateState();
+        return encoder.getEncodedLength(state);
+    }
 
-        int fieldsLength = MAP_TYPE_LENGTH + mapUrlBytes.length;
-        if (fieldsLength > MAX_FIELDS_LENGTH) {
-            throw new IllegalArgumentException(ERROR_MAP_IMAGE_URL_TOO_LONG);
-        }
-        byte[] buffer = new byte[SUBELEMENT_ID_LENGTH + LENGTH_FIELD_LENGTH + fieldsLength];
-        buffer[SUBELEMENT_ID_INDEX] = SUBELEMENT_ID;
-        buffer[LENGTH_INDEX] = (byte) fieldsLength;
-        buffer[MAP_TYPE_INDEX] = mapTypeEncoding;
-        System.arraycopy(mapUrlBytes, 0, buffer, MAP_URL_INDEX, mapUrlBytes.length);
-
-        StringBuilder result = new StringBuilder();
-        for (byte b : buffer) {
-            result.append(String.format("%02x", b)); // Convert the byte to a hex string of 2 characters.
+    @Override
+    public void encode(ByteBuffer buffer) {
+        updateState();
+        encoder.encode(state, buffer);
+    }
+
+    private void updateState() {
+        if (controller != null) {
+            controller.updateState(); // Callback to update the state based on the view.
         }
-        return result.toString();
     }
 }
@@ -88,6 +88,24 @@ public class MapView extends JPanel {
         return mapUrlField.getText();
     }
 
+    /**
+     * Set the selected value of the Map Type parameter (the map image file type).
+     *
+     * @param mapType the String value of the Map Type parameter, or null to select none
+     */
+    public void setMapType(String mapType) {
+        mapImageTypeCombobox.setSelectedItem(mapType == null ? SELECT_IMAGE_TYPE_PROMPT : mapType);
+    }
+
+    /**
+     * Set the value of the Map URL parameter (the URL location of the map image).
+     *
+     * @param mapUrl the URL String value for the Map URL parameter, or null for none
+     */
+    public void setMapUrl(String mapUrl) {
+        mapUrlField.setText(mapUrl);
+    }
+
     /**
      * Add a listener for the Map Type parameter (the image file type).
      *
@@ -0,0 +1,148 @@
+/*
+Copyright 2020 Google LLC
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+https://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package userinterface;
+
+import batch.AtomicFileWriter;
+import structs.ArtSystemSnapshot;
+import structs.SubelementName;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Writes the configuration lines of system state snapshots to their output file on a background
+ * thread, so that the user interface does not wait while the file is forced to the storage device.
+ *
+ * <p>The lines are encoded from the read-only subelement states of the snapshot, by models that
+ * only the writer thread uses, never from the live state that the user keeps editing. Only the
+ * latest snapshot is written: a snapshot submitted while another one is waiting replaces it.
+ */
+final class SnapshotWriter {
+    // Constants
+    private static final String THREAD_NAME = "Output file writer";
+
+    /**
+     * The output file is forced to the storage device before it replaces the previous one, so that
+     *  hostapd never reads a configuration cut short by a crash. The directory is not forced: the
+     *  file is written again on the next edit, so losing the last rename costs little, while
+     *  forcing the directory would slow down every edit.
+     */
+    private static final AtomicFileWriter.SyncPolicy OUTPUT_SYNC_POLICY = AtomicFileWriter.SyncPolicy.FILE;
+
+    // Error messages
+    private static final String ERROR_WRITING_OUTPUT_FILE = "Cannot write the output file: ";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<ArtSystemSnapshot> pendingSnapshot = new AtomicReference<>();
+    private final Consumer<String> errorHandler;
+
+    // Models for the subelements, only used by the writer thread
+    private final LciModel lciModel = new LciModel(null);
+    private final ZModel zModel = new ZModel(null);
+    private final UsageModel usageModel = new UsageModel(null);
+    private final BssidModel bssidModel = new BssidModel(null);
+    private final LcrModel lcrModel = new LcrModel(null);
+    private final MapModel mapModel = new MapModel(null);
+
+    /**
+     * Constructor.
+     *
+     * @param errorHandler receives the message of every error, on the writer thread
+     */
+    SnapshotWriter(Consumer<String> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Writes the configuration lines of a snapshot to its output file in the background, if an
+     *  output file is chosen. The file is replaced atomically, so hostapd never reads a partially
+     *  written configuration.
+     *
+     * @param snapshot the snapshot
+     */
+    void write(ArtSystemSnapshot snapshot) {
+        if (snapshot.getOutputFileName().isEmpty()) {
+            return;
+        }
+        if (pendingSnapshot.getAndSet(snapshot) == null) {
+            executor.execute(this::writePendingSnapshot);
+        }
+    }
+
+    private void writePendingSnapshot() {
+        ArtSystemSnapshot snapshot = pendingSnapshot.getAndSet(null);
+        try {
+            String buffer = BufferDisplays.getNotReadableBufferDisplay(getLciSubelementBuffersList(snapshot),
+                getLcrSubelementBuffersList(snapshot));
+            Path outputFile = Paths.get(snapshot.getOutputDir()).resolve(snapshot.getOutputFileName());
+            try (AtomicFileWriter writer = new AtomicFileWriter(outputFile, OUTPUT_SYNC_POLICY)) {
+                writer.write(buffer);
+                writer.commit();
+            }
+        } catch (IOException | InvalidPathException exception) {
+            errorHandler.accept(ERROR_WRITING_OUTPUT_FILE + exception.getMessage());
+        } catch (RuntimeException exception) {
+            errorHandler.accept(exception.getMessage());
+        }
+    }
+
+    private Map<SubelementName, String> getLciSubelementBuffersList(ArtSystemSnapshot snapshot) {
+        Map<SubelementName, String> buffer = new EnumMap<>(SubelementName.class);
+        if (snapshot.isSubelementIncluded(SubelementName.LCI)) {
+            lciModel.setState(snapshot.getLciState());
+            buffer.put(SubelementName.LCI, lciModel.toHexBuffer());
+        }
+        if (snapshot.isSubelementIncluded(SubelementName.Z)) {
+            zModel.setState(snapshot.getZState());
+            buffer.put(SubelementName.Z, zModel.toHexBuffer());
+        }
+        if (snapshot.isSubelementIncluded(SubelementName.USAGE)) {
+            usageModel.setState(snapshot.getUsageState());
+            buffer.put(SubelementName.USAGE, usageModel.toHexBuffer());
+        }
+        if (snapshot.isSubelementIncluded(SubelementName.BSSID)) {
+            bssidModel.setState(snapshot.getBssidState());
+            buffer.put(SubelementName.BSSID, bssidModel.toHexBuffer());
+        }
+        return buffer;
+    }
+
+    private Map<SubelementName, String> getLcrSubelementBuffersList(ArtSystemSnapshot snapshot) {
+        Map<SubelementName, String> buffer = new EnumMap<>(SubelementName.class);
+        if (snapshot.isSubelementIncluded(SubelementName.LCR)) {
+            lcrModel.setState(snapshot.getLcrState());
+            buffer.put(SubelementName.LCR, lcrModel.toHexBuffer());
+        }
+        if (snapshot.isSubelementIncluded(SubelementName.MAP)) {
+            mapModel.setState(snapshot.getMapState());
+            buffer.put(SubelementName.MAP, mapModel.toHexBuffer());
+        }
+        return buffer;
+    }
+}
@@ -16,6 +16,8 @@ limitations under the License.
 
 package userinterface;
 
+import structs.UsageState;
+
 public class UsageController {
 
     // Error messages
@@ -51,6 +53,17 @@ public class UsageController {
         }
     }
 
+    /**
+     * Update the view to show the state of the model, after the state has been replaced.
+     */
+    public void updateView() {
+        UsageState state = model.getState();
+        view.setRetransmissionAllowed(state.getRetransmissionAllowed());
+        view.setRetentionExpires(state.getRetentionExpires());
+        view.setExpireTimeHours(state.getExpireTimeHours());
+        view.setStaLocationPolicy(state.getStaLocationPolicy());
+    }
+
     private void updateRetransmissionAllowed() {
         model.getState().setRetransmissionAllowed(view.getRetransmissionAllowed());
     }
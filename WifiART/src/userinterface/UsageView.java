@@ -109,6 +109,44 @@ public class UsageView extends JPanel {
         return staLocationPolicyCheckbox.isSelected();
     }
 
+    // Setters
+
+    /**
+     * Set the value of the RetransmissionAllowed parameter in the view.
+     *
+     * @param retransmissionAllowed the value of the RetransmissionAllowed parameter.
+     */
+    public void setRetransmissionAllowed(boolean retransmissionAllowed) {
+        retransmissionAllowedCheckbox.setSelected(retransmissionAllowed);
+    }
+
+    /**
+     * Set the value of the RetentionExpires parameter in the view.
+     *
+     * @param retentionExpires the value of the RetentionExpires parameter.
+     */
+    public void setRetentionExpires(boolean retentionExpires) {
+        retentionExpiresCheckbox.setSelected(retentionExpires);
+    }
+
+    /**
+     * Set the value of the ExpireTime parameter in the view.
+     *
+     * @param expireTimeHours the value of the ExpireTime parameter, in hours.
+     */
+    public void setExpireTimeHours(int expireTimeHours) {
+        expireTimeField.setText(String.valueOf(expireTimeHours));
+    }
+
+    /**
+     * Set the value of the StaLocationPolicy parameter in the view.
+     *
+     * @param staLocationPolicy the value of the StaLocationPolicy parameter.
+     */
+    public void setStaLocationPolicy(boolean staLocationPolicy) {
+        staLocationPolicyCheckbox.setSelected(staLocationPolicy);
+    }
+
     // Methods for adding listeners
 
     /**
@@ -16,6 +16,8 @@ limitations under the License.
 
 package userinterface;
 
+import structs.ZState;
+
 public class ZController {
 
     // Error messages
@@ -52,6 +54,17 @@ public class ZController {
         updateHeightAboveFloorUncertainty();
     }
 
+    /**
+     * Update the view to show the state of the model, after the state has been replaced.
+     */
+    public void updateView() {
+        ZState state = model.getState();
+        view.setFloor(state.getFloor());
+        view.setHeightAboveFloorMeters(state.getHeightAboveFloorMeters());
+        view.setHeightAboveFloorUncertaintyMeters(state.getHeightAboveFloorUncertaintyMeters());
+        view.setExpectedToMove(state.getExpectedToMove());
+    }
+
     private void updateFloor() {
         try {
             model.getState().setFloor(view.getFloor());
@@ -181,6 +181,50 @@ public class ZView extends JPanel {
         throw new NullPointerException();
     }
 
+    // Setters
+
+    /**
+     * Set the floor number.
+     *
+     * @param floor The floor number.
+     */
+    public void setFloor(int floor) {
+        floorField.setText(String.valueOf(floor));
+    }
+
+    /**
+     * Set the height above the floor.
+     *
+     * @param heightAboveFloorMeters The height above the floor, in meters.
+     */
+    public void setHeightAboveFloorMeters(double heightAboveFloorMeters) {
+        heightAboveFloorField.setText(String.valueOf(heightAboveFloorMeters));
+    }
+
+    /**
+     * Set the uncertainty for the height above the floor.
+     *
+     * @param heightAboveFloorUncertaintyMeters The height above floor uncertainty, in meters.
+     */
+    public void setHeightAboveFloorUncertaintyMeters(double heightAboveFloorUncertaintyMeters) {
+        heightAboveFloorUncertaintyField.setText(String.valueOf(heightAboveFloorUncertaintyMeters));
+    }
+
+    /**
+     * Set the STA location movement.
+     *
+     * @param expectedToMove The STA location movement, or null if it is unknown.
+     */
+    public void setExpectedToMove(ExpectedToMove expectedToMove) {
+        if (expectedToMove == ExpectedToMove.NOT_EXPECTED_TO_MOVE) {
+            fixedLocationMovementRadioButton.setSelected(true);
+        } else if (expectedToMove == ExpectedToMove.EXPECTED_TO_MOVE) {
+            variableLocationMovementRadioButton.setSelected(true);
+        } else {
+            unknownLocationMovementRadioButton.setSelected(true);
+        }
+    }
+
     // Methods for adding listeners
 
     /**